@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data;
+
+import cy.alavrov.jminerguide.data.booster.BoosterHull;
+import cy.alavrov.jminerguide.data.booster.BoosterShip;
+import cy.alavrov.jminerguide.data.booster.ForemanLink;
+import cy.alavrov.jminerguide.data.booster.NoBoosterShip;
+import cy.alavrov.jminerguide.data.character.All0Character;
+import cy.alavrov.jminerguide.data.character.All5Character;
+import cy.alavrov.jminerguide.data.character.CustomCharacter;
+import cy.alavrov.jminerguide.data.character.EVECharacter;
+import cy.alavrov.jminerguide.data.character.SimpleCharacter;
+import cy.alavrov.jminerguide.data.harvestable.HarvestableType;
+import cy.alavrov.jminerguide.data.implant.Implant;
+import cy.alavrov.jminerguide.data.ship.HarvestUpgrade;
+import cy.alavrov.jminerguide.data.ship.Hull;
+import cy.alavrov.jminerguide.data.ship.MiningCrystalLevel;
+import cy.alavrov.jminerguide.data.ship.MiningDrone;
+import cy.alavrov.jminerguide.data.ship.Rig;
+import cy.alavrov.jminerguide.data.ship.Ship;
+import cy.alavrov.jminerguide.data.ship.Turret;
+import cy.alavrov.jminerguide.data.ship.TurretType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Microbenchmarks for the stats calculation engine.
+ *
+ * The fit space is every legal Hull × Turret × MiningCrystalLevel ×
+ * HarvestUpgrade (type and count) × Rig × MiningDrone combination. Inputs the
+ * engine ignores for a given turret (crystals on crystal-less turrets, upgrades
+ * on gas harvesters, drones next to ice and gas harvesters) are not multiplied
+ * out, as they would only repeat identical calculations.
+ *
+ * Run with "mvn -Pbenchmark test-compile exec:exec", gc profiler is on by
+ * default and reports allocated bytes per operation (gc.alloc.rate.norm).
+ *
+ * Before measuring, the setup checks that BatchStats gives the same numbers
+ * as CalculatedStats for random pilots, and fails the trial if it doesn't.
+ *
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculatedStatsBenchmark {
+
+    /**
+     * Miner skills and implants.
+     */
+    @Param({"ALL0", "ALL5", "CUSTOM"})
+    public String minerProfile;
+
+    /**
+     * Booster character and ship.
+     */
+    @Param({"NONE", "ORCA", "RORQUALMINDLINK"})
+    public String boosterProfile;
+
+    private EVECharacter miner;
+    private EVECharacter booster;
+    private BoosterShip boosterShip;
+
+    private Ship[] fits;
+    private boolean[] mercoxit;
+    private SimpleCharacter[] simpleChars;
+
+    private int fitCursor = 0;
+    private int simpleCursor = 0;
+
+    /**
+     * Random pilots, compared between BatchStats and CalculatedStats.
+     */
+    private final static int CHECK_PILOTS = 300;
+
+    /**
+     * Fits, compared between BatchStats and CalculatedStats, taken evenly
+     * from the fit space.
+     */
+    private final static int CHECK_FITS = 128;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (minerProfile) {
+            case "ALL0":
+                miner = new All0Character();
+                break;
+
+            case "ALL5":
+                miner = new All5Character(" Miner");
+                break;
+
+            default:
+                miner = makeCustomMiner();
+        }
+
+        switch (boosterProfile) {
+            case "NONE":
+                booster = new All0Character();
+                boosterShip = new NoBoosterShip();
+                break;
+
+            case "ORCA":
+                booster = new All5Character(" Booster");
+                boosterShip = new BoosterShip("Orca");
+                boosterShip.setHull(BoosterHull.ORCA);
+                boosterShip.setCycleLink(ForemanLink.CYCLEII);
+                boosterShip.setOptimalLink(ForemanLink.OPTIMALII);
+                break;
+
+            default:
+                booster = makeCustomBooster();
+                boosterShip = new BoosterShip("Rorqual");
+                boosterShip.setHull(BoosterHull.RORQUAL);
+                boosterShip.setDeployedMode(true);
+                boosterShip.setCycleLink(ForemanLink.CYCLEII);
+                boosterShip.setOptimalLink(ForemanLink.OPTIMALI);
+        }
+
+        List<Ship> fitList = new ArrayList<>();
+        List<Boolean> mercoList = new ArrayList<>();
+        buildFitSpace(fitList, mercoList);
+
+        fits = fitList.toArray(new Ship[fitList.size()]);
+        mercoxit = new boolean[fits.length];
+        for (int i = 0; i < mercoxit.length; i++) {
+            mercoxit[i] = mercoList.get(i);
+        }
+
+        simpleChars = new SimpleCharacter[16];
+        for (int i = 0; i < simpleChars.length; i++) {
+            SimpleCharacter sChar = new SimpleCharacter("Simple "+i);
+            sChar.setTurrets(1 + i % 3);
+            sChar.setTurretYield(400 + 50 * i);
+            sChar.setTurretCycle(180f - 5 * i);
+            sChar.setOreHold(8500 + 1000 * i);
+            sChar.setOptimal(10000 + 500 * i);
+            simpleChars[i] = sChar;
+        }
+
+        checkBatchStats();
+    }
+
+    /**
+     * Compares BatchStats, calculated on a pool, with CalculatedStats for
+     * every pair of random pilots and fits.
+     * @throws IllegalStateException if any of the stats differ.
+     */
+    private void checkBatchStats() {
+        Random rnd = new Random(42);
+        List<EVECharacter> pilots = new ArrayList<>();
+        for (int i = 0; i < CHECK_PILOTS; i++) {
+            pilots.add(makeRandomMiner(rnd));
+        }
+
+        List<Ship> ships = new ArrayList<>();
+        List<Ship> mercoShips = new ArrayList<>();
+        int step = Math.max(1, fits.length / CHECK_FITS);
+        for (int i = 0; i < fits.length; i = i + step) {
+            if (mercoxit[i]) {
+                mercoShips.add(fits[i]);
+            } else {
+                ships.add(fits[i]);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            checkBatchStats(pilots, ships, false, pool);
+            checkBatchStats(pilots, mercoShips, true, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void checkBatchStats(List<EVECharacter> pilots, List<Ship> ships,
+            boolean merco, ForkJoinPool pool) {
+        BatchStats batch = new BatchStats(pilots, ships, booster, boosterShip, merco, pool);
+
+        for (int m = 0; m < pilots.size(); m++) {
+            for (int s = 0; s < ships.size(); s++) {
+                CalculatedStats stats = new CalculatedStats(pilots.get(m), booster,
+                        ships.get(s), boosterShip, merco);
+                int idx = batch.getIndex(m, s);
+                String where = "pilot " + m + ", " + ships.get(s).getHull().getName()
+                        + " with " + ships.get(s).getTurret().getName() + ", mercoxit " + merco;
+
+                checkEqual("turret m3/s", stats.getCombinedTurretM3S(),
+                        batch.getCombinedTurretM3S()[idx], where);
+                checkEqual("drone m3/s", stats.getDroneM3S(),
+                        batch.getDroneM3S()[idx], where);
+                checkEqual("m3/h", stats.getTotalM3H(),
+                        batch.getTotalM3H()[idx], where);
+                // whole seconds, rounding of the division may differ by one.
+                if (Math.abs(stats.getSecsForOreHold() - batch.getSecsForOreHold()[idx]) > 1) {
+                    throw new IllegalStateException("Ore hold seconds differ for " + where + ": "
+                            + stats.getSecsForOreHold() + " vs " + batch.getSecsForOreHold()[idx]);
+                }
+                if (stats.getOptimal() != batch.getOptimal()[idx]) {
+                    throw new IllegalStateException("Optimal differs for " + where + ": "
+                            + stats.getOptimal() + " vs " + batch.getOptimal()[idx]);
+                }
+            }
+        }
+    }
+
+    private void checkEqual(String what, float expected, float actual, String where) {
+        float diff = Math.abs(expected - actual);
+        if (diff > 1e-4f * Math.max(1f, Math.abs(expected))) {
+            throw new IllegalStateException(what + " differs for " + where + ": "
+                    + expected + " vs " + actual);
+        }
+    }
+
+    /**
+     * One CalculatedStats construction, walking through the fit space.
+     * Per-op numbers are per constructor call.
+     * @return
+     */
+    @Benchmark
+    public ICalculatedStats calculatedStatsSingle() {
+        int idx = fitCursor;
+        fitCursor = (idx + 1 == fits.length) ? 0 : idx + 1;
+        return new CalculatedStats(miner, booster, fits[idx], boosterShip, mercoxit[idx]);
+    }
+
+    /**
+     * Whole fit space in one go, as the fit comparison does.
+     * @param bh
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void calculatedStatsFullSweep(Blackhole bh) {
+        for (int i = 0; i < fits.length; i++) {
+            bh.consume(new CalculatedStats(miner, booster, fits[i], boosterShip, mercoxit[i]));
+        }
+    }
+
+    /**
+     * SimpleCalculatedStats construction from a simple character, as the
+     * monitor does for simple sessions.
+     * @return
+     */
+    @Benchmark
+    public ICalculatedStats simpleCalculatedStats() {
+        int idx = simpleCursor;
+        simpleCursor = (idx + 1 == simpleChars.length) ? 0 : idx + 1;
+        return new SimpleCalculatedStats(simpleChars[idx]);
+    }
+
+    private void buildFitSpace(List<Ship> fitList, List<Boolean> mercoList) {
+        Rig[] rigs = Rig.values();
+
+        for (Hull hull : Hull.values()) {
+            Turret[] turrets = hull.isUsingStripMiners() ? Turret.bigTurrets : Turret.smallTurrets;
+
+            for (Turret turret : turrets) {
+                MiningCrystalLevel[] crystals = turret.isUsingCrystals() ?
+                        MiningCrystalLevel.values() : new MiningCrystalLevel[] {MiningCrystalLevel.NOTHING};
+
+                List<HarvestUpgrade> upgrades = new ArrayList<>();
+                for (HarvestUpgrade upg : HarvestUpgrade.values()) {
+                    if (upg == HarvestUpgrade.NOTHING) continue;
+                    if (turret.getTurretType() == TurretType.ICEHARVESTER) {
+                        if (upg.getIceCycleBonus() > 0) upgrades.add(upg);
+                    } else if (turret.getTurretType() != TurretType.GASHARVESTER) {
+                        if (upg.getOreYieldBonus() > 0) upgrades.add(upg);
+                    }
+                }
+
+                boolean dronesMatter = turret.getHarvestableType() != HarvestableType.GAS &&
+                        turret.getHarvestableType() != HarvestableType.ICE &&
+                        hull.getDroneBandwidth() > 0;
+                MiningDrone[] drones = dronesMatter ?
+                        MiningDrone.values() : new MiningDrone[] {MiningDrone.NOTHING};
+
+                boolean[] mercoFlags = turret.getHarvestableType() == HarvestableType.MERCOXIT ?
+                        new boolean[] {false, true} : new boolean[] {false};
+
+                for (MiningCrystalLevel crystal : crystals) {
+                    for (int upgCount = 0; upgCount <= hull.getMaxUpgrades(); upgCount++) {
+                        for (int upgIdx = 0; upgIdx < (upgCount == 0 ? 1 : upgrades.size()); upgIdx++) {
+                            HarvestUpgrade upg = (upgCount == 0) ? HarvestUpgrade.NOTHING : upgrades.get(upgIdx);
+
+                            // rigs are order-independent, so only non-decreasing
+                            // triples are worth trying.
+                            for (int r1 = 0; r1 < rigs.length; r1++) {
+                                for (int r2 = r1; r2 < rigs.length; r2++) {
+                                    for (int r3 = r2; r3 < rigs.length; r3++) {
+                                        if (hull.getRigSlots() < 3 && r3 != r2) continue;
+
+                                        for (MiningDrone drone : drones) {
+                                            Ship ship = new Ship(hull.getName());
+                                            ship.setHull(hull);
+                                            ship.setTurret(turret);
+                                            ship.setTurrentCount(hull.getMaxTurrets());
+                                            ship.setTurretCrystal(crystal);
+                                            ship.setHarvestUpgrade(upg);
+                                            ship.setHarvestUpgradeCount(upgCount);
+                                            ship.setDrone(drone);
+                                            ship.setDroneCount(ship.getMaxDrones());
+
+                                            Rig rig3 = (hull.getRigSlots() < 3) ? Rig.NOTHING : rigs[r3];
+                                            if (!ship.setRig1(rigs[r1])) continue;
+                                            if (!ship.setRig2(rigs[r2])) continue;
+                                            if (!ship.setRig3(rig3)) continue;
+
+                                            for (boolean merco : mercoFlags) {
+                                                fitList.add(ship);
+                                                mercoList.add(merco);
+                                            }
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private EVECharacter makeRandomMiner(Random rnd) {
+        EVECharacter res = new CustomCharacter();
+        int[] skills = {
+            EVECharacter.SKILL_ASTROGEOLOGY,
+            EVECharacter.SKILL_DRONE_INTERFACING,
+            EVECharacter.SKILL_DRONES,
+            EVECharacter.SKILL_EXHUMERS,
+            EVECharacter.SKILL_EXPEDITION_FRIGATES,
+            EVECharacter.SKILL_GAS_CLOUD_HARVESTING,
+            EVECharacter.SKILL_ICE_HARVESTING,
+            EVECharacter.SKILL_MINING,
+            EVECharacter.SKILL_MINING_BARGE,
+            EVECharacter.SKILL_MINING_DRONE_OPERATION,
+            EVECharacter.SKILL_MINING_FRIGATE
+        };
+        for (int skill : skills) {
+            res.setSkillLevel(skill, rnd.nextInt(6));
+        }
+        res.setSlot7Implant(Implant.slot7Imps[rnd.nextInt(Implant.slot7Imps.length)]);
+        res.setSlot8Implant(Implant.slot8Imps[rnd.nextInt(Implant.slot8Imps.length)]);
+        res.setSlot10Implant(Implant.slot10Imps[rnd.nextInt(Implant.slot10Imps.length)]);
+        return res;
+    }
+
+    private EVECharacter makeCustomMiner() {
+        EVECharacter res = new CustomCharacter();
+        res.setSkillLevel(EVECharacter.SKILL_ASTROGEOLOGY, 4);
+        res.setSkillLevel(EVECharacter.SKILL_DRONE_INTERFACING, 3);
+        res.setSkillLevel(EVECharacter.SKILL_DRONES, 5);
+        res.setSkillLevel(EVECharacter.SKILL_EXHUMERS, 4);
+        res.setSkillLevel(EVECharacter.SKILL_EXPEDITION_FRIGATES, 2);
+        res.setSkillLevel(EVECharacter.SKILL_GAS_CLOUD_HARVESTING, 3);
+        res.setSkillLevel(EVECharacter.SKILL_ICE_HARVESTING, 4);
+        res.setSkillLevel(EVECharacter.SKILL_MINING, 5);
+        res.setSkillLevel(EVECharacter.SKILL_MINING_BARGE, 5);
+        res.setSkillLevel(EVECharacter.SKILL_MINING_DRONE_OPERATION, 4);
+        res.setSkillLevel(EVECharacter.SKILL_MINING_FRIGATE, 4);
+        res.setSlot7Implant(Implant.MICHI);
+        res.setSlot8Implant(Implant.GH803);
+        res.setSlot10Implant(Implant.MX1003);
+        return res;
+    }
+
+    private EVECharacter makeCustomBooster() {
+        EVECharacter res = new CustomCharacter();
+        res.setSkillLevel(EVECharacter.SKILL_MINING_FOREMAN, 5);
+        res.setSkillLevel(EVECharacter.SKILL_MINING_DIRECTOR, 4);
+        res.setSkillLevel(EVECharacter.SKILL_WARFARE_LINK_SPECIALIST, 4);
+        res.setSkillLevel(EVECharacter.SKILL_INDUSTRIAL_RECONFIGURATION, 3);
+        res.setSkillLevel(EVECharacter.SKILL_CAPITAL_INDUSTRIAL_SHIPS, 3);
+        res.setSlot10Implant(Implant.MFMINDLINK);
+        return res;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.monitor;
+
+import cy.alavrov.jminerguide.data.character.SimpleCharacter;
+import cy.alavrov.jminerguide.data.harvestable.Asteroid;
+import cy.alavrov.jminerguide.data.harvestable.Ore;
+import cy.alavrov.jminerguide.util.winmanager.IEVEWindow;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks for the asteroid monitor mining pass.
+ *
+ * A session with three turrets on practically endless asteroids and ore hold
+ * is mined a second at a time, so every pass is a steady-state one. Both
+ * benchmarks are expected to report zero allocated bytes per operation 
+ * (gc.alloc.rate.norm).
+ *
+ * Run with "mvn -Pbenchmark test-compile exec:exec -Djmh.include=MiningTickBenchmark",
+ * gc profiler is on by default.
+ *
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MiningTickBenchmark {
+
+    /**
+     * Cycle-accurate or continuous mining.
+     */
+    @Param({"false", "true"})
+    public boolean cycleAccurate;
+
+    private MiningSession session;
+    private long now;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        SimpleCharacter sChar = new SimpleCharacter("Miner");
+        sChar.setTurrets(3);
+        sChar.setTurretYield(1000);
+        sChar.setTurretCycle(180f);
+        sChar.setOreHold(Integer.MAX_VALUE);
+
+        session = new MiningSession(new BenchmarkWindow("Miner"));
+        session.createSessionCharacter(sChar);
+        session.setCycleAccurate(cycleAccurate);
+
+        AsteroidField field = session.getAsteroidField();
+        field.addAsteroids(Arrays.asList(new Asteroid(Ore.ARKONOR, 5000, Integer.MAX_VALUE),
+                new Asteroid(Ore.ARKONOR, 5000, Integer.MAX_VALUE),
+                new Asteroid(Ore.ARKONOR, 6000, Integer.MAX_VALUE)));
+        session.bindTurret(session.getTurret1(), field.getId(0));
+        session.bindTurret(session.getTurret2(), field.getId(1));
+        session.bindTurret(session.getTurret3(), field.getId(2));
+        now = System.currentTimeMillis();
+    }
+
+    /**
+     * One second of mining.
+     * @return
+     */
+    @Benchmark
+    public MiningResult miningTick() {
+        now = now + 1000;
+        return session.doMining(now);
+    }
+
+    /**
+     * One second of mining followed by the next event calculation, 
+     * as the scheduler does.
+     * @return
+     */
+    @Benchmark
+    public long miningTickAndNextEvent() {
+        now = now + 1000;
+        session.doMining(now);
+        return session.getNextEventAt();
+    }
+
+    /**
+     * EVE window, that is always there.
+     */
+    private static class BenchmarkWindow implements IEVEWindow {
+        private final String name;
+
+        public BenchmarkWindow(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getCharacterName() {
+            return name;
+        }
+
+        @Override
+        public void makeActive() {
+        }
+
+        @Override
+        public void update() {
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.monitor;
+
+import cy.alavrov.jminerguide.data.DataContainer;
+import cy.alavrov.jminerguide.data.character.SimpleCharacter;
+import cy.alavrov.jminerguide.data.harvestable.Asteroid;
+import cy.alavrov.jminerguide.data.harvestable.IHarvestable;
+import cy.alavrov.jminerguide.data.harvestable.Ore;
+import cy.alavrov.jminerguide.log.JMGLogger;
+import cy.alavrov.jminerguide.util.winmanager.sim.SimWindowManager;
+import cy.alavrov.jminerguide.util.winmanager.sim.VirtualClock;
+import java.awt.EventQueue;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Headless load harness for the asteroid monitor.
+ *
+ * Runs MiningSessionMonitor, UpdateWindowTask and MiningScheduler against fake 
+ * EVE clients of SimWindowManager, on a virtual clock: every 100 ms of virtual 
+ * time the window task runs, while the scheduler, on it's own thread, sleeps 
+ * till the next event in virtual time. After each tick the harness waits for 
+ * the scheduler to catch up with the clock. The fake user loads asteroids for 
+ * logged in clients, unloads full ore holds and lets the monitor rebind turrets. 
+ * The EDT part is played by a view without any windows, which still refreshes 
+ * the session statuses and the asteroid table model.
+ *
+ * For each number of clients it reports wall time of a tick (percentiles, 
+ * in microseconds), bytes allocated by the tick itself and by the other threads 
+ * (the scheduler, EDT and the mining pool), and how often and how long threads 
+ * were blocked on monitors.
+ *
+ * Run with "mvn -Pbenchmark test-compile exec:exec 
+ * -Dbench.main=cy.alavrov.jminerguide.monitor.MonitorLoadHarness 
+ * -Dbench.args='1,10,50,100,200 10 parallel'", arguments being numbers of 
+ * clients, virtual minutes per run and, optionally, "parallel" for parallel mining.
+ *
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class MonitorLoadHarness {
+    private final static long TICK = UpdateWindowTask.TICK;
+    private final static double CHURN = 2;
+    private final static IHarvestable[] ORES = {
+        Ore.VELDSPAR, Ore.SCORDITE, Ore.PYROXERES, Ore.PLAGIOCLASE, Ore.VELDSPAR_C, Ore.SCORDITE_C
+    };
+    
+    private final static ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    
+    public static void main(String[] args) throws Exception {
+        String clientsArg = args.length > 0 ? args[0] : "1,5,10,25,50,100,200";
+        int minutes = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        boolean parallel = args.length > 2 && "parallel".equals(args[2]);
+        
+        File logDir = Files.createTempDirectory("jmg-harness-log").toFile();
+        logDir.deleteOnExit();
+        JMGLogger.init(logDir.getPath() + File.separator);
+        
+        if (threads.isThreadContentionMonitoringSupported()) {
+            threads.setThreadContentionMonitoringEnabled(true);
+        }
+        
+        // warm-up, not reported.
+        run(25, 2, parallel);
+        
+        System.out.println(String.format(Locale.US, "%7s %7s %9s %9s %9s %9s %10s %10s %9s %9s", 
+                "clients", "ticks", "p50 us", "p90 us", "p99 us", "max us", 
+                "tick B/op", "other KB/s", "blocked", "blk ms"));
+        for (String part : clientsArg.split(",")) {
+            int clients = Integer.parseInt(part.trim());
+            Result res = run(clients, minutes, parallel);
+            long[] lat = res.latencies;
+            Arrays.sort(lat);
+            System.out.println(String.format(Locale.US, "%7d %7d %9.1f %9.1f %9.1f %9.1f %10d %10d %9d %9d", 
+                    clients, lat.length, 
+                    percentile(lat, 0.5) / 1000.0, percentile(lat, 0.9) / 1000.0, 
+                    percentile(lat, 0.99) / 1000.0, lat[lat.length - 1] / 1000.0,
+                    res.tickBytes / lat.length, res.otherBytes / 1024 / (minutes * 60),
+                    res.blockedCount, res.blockedMillis));
+        }
+    }
+    
+    private static long percentile(long[] sorted, double p) {
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+    
+    /**
+     * Runs the monitor with a number of clients for some virtual time.
+     * @param clients
+     * @param minutes
+     * @param parallel
+     * @return
+     * @throws Exception 
+     */
+    private static Result run(int clients, int minutes, boolean parallel) throws Exception {
+        File dir = Files.createTempDirectory("jmg-harness").toFile();
+        dir.deleteOnExit();
+        DataContainer dCont = new DataContainer(dir.getPath());
+        
+        Random rnd = new Random(clients);
+        for (int i = 0; i < clients; i++) {
+            SimpleCharacter chr = dCont.getSimplecCharacterCointainer().getCharacterByName("Miner "+(i + 1));
+            chr.setTurrets(3);
+            chr.setTurretYield(300 + rnd.nextInt(1200));
+            chr.setTurretCycle(60 + rnd.nextInt(120));
+            chr.setOreHold(5000 + rnd.nextInt(30000));
+            chr.setOptimal(15000);
+        }
+        
+        AsteroidMonitorSettings settings = new AsteroidMonitorSettings(dir.getPath());
+        new File(dir, "amsettings.dat").deleteOnExit();
+        settings.setSoundOnAlert(false);
+        settings.setAutoAssign(true);
+        settings.setParallelMining(parallel);
+        
+        long duration = minutes * 60000L;
+        VirtualClock clock = new VirtualClock(System.currentTimeMillis());
+        SimWindowManager wManager = new SimWindowManager(clock);
+        wManager.scheduleScript(clients, duration, CHURN, clients);
+        
+        MiningSessionMonitor msMonitor = new MiningSessionMonitor(wManager, dCont);
+        msMonitor.setCycleAccurate(settings.isCycleAccurate());
+        HeadlessView view = new HeadlessView(msMonitor, settings);
+        UpdateWindowTask updateTask = new UpdateWindowTask(msMonitor, view);
+        MiningClock miningClock = new MiningClock(clock);
+        MiningTask miningTask = new MiningTask(msMonitor, view);
+        MiningScheduler scheduler = new MiningScheduler(msMonitor, miningTask, miningClock);
+        msMonitor.setScheduler(scheduler);
+        scheduler.start();
+        
+        int ticks = (int) (duration / TICK);
+        long[] latencies = new long[ticks];
+        long tickBytes = 0;
+        
+        Map<Long, long[]> before = threadStats();
+        long self = Thread.currentThread().getId();
+        
+        for (int tick = 0; tick < ticks; tick++) {
+            clock.advance(TICK);
+            long now = clock.now();
+            
+            long allocStart = getAllocatedBytes(self);
+            long start = System.nanoTime();
+            
+            updateTask.update(now);
+            
+            latencies[tick] = System.nanoTime() - start;
+            tickBytes = tickBytes + getAllocatedBytes(self) - allocStart;
+            
+            actAsUser(msMonitor, msMonitor.getSessions(), now, rnd);
+            miningClock.settle();
+        }
+        scheduler.stop();
+        miningTask.shutdown();
+        
+        // lets the EDT finish.
+        EventQueue.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        Map<Long, long[]> after = threadStats();
+        
+        Result out = new Result(latencies, tickBytes);
+        for (Map.Entry<Long, long[]> entry : after.entrySet()) {
+            if (entry.getKey() == self) continue;
+            
+            long[] was = before.get(entry.getKey());
+            long[] is = entry.getValue();
+            out.otherBytes = out.otherBytes + is[0] - (was == null ? 0 : was[0]);
+        }
+        for (Map.Entry<Long, long[]> entry : after.entrySet()) {
+            long[] was = before.get(entry.getKey());
+            long[] is = entry.getValue();
+            out.blockedCount = out.blockedCount + is[1] - (was == null ? 0 : was[1]);
+            out.blockedMillis = out.blockedMillis + is[2] - (was == null ? 0 : was[2]);
+        }
+        
+        for (MiningSession session : msMonitor.getSessions()) {
+            session.close();
+        }
+        return out;
+    }
+    
+    /**
+     * Loads asteroids for sessions without any and empties full ore holds.
+     * Half of the clients, up to the limit, mine the shared belt.
+     * @param msMonitor
+     * @param sessions
+     * @param now
+     * @param rnd 
+     */
+    private static void actAsUser(MiningSessionMonitor msMonitor, List<MiningSession> sessions, 
+            long now, Random rnd) {
+        List<MiningSession> toAssign = new ArrayList<>();
+        int shared = 0;
+        for (int i = 0; i < sessions.size(); i++) {
+            if (msMonitor.getSharedBelt(sessions.get(i)) != null) shared++;
+        }
+        
+        for (int i = 0; i < sessions.size(); i++) {
+            MiningSession session = sessions.get(i);
+            if (session.getSessionCharacter() == null) continue;
+            
+            if (i % 2 == 0 && shared < AsteroidField.MAX_SESSIONS && msMonitor.getSharedBelt(session) == null) {
+                msMonitor.setSharedBelt(session, "Belt A");
+                shared++;
+            }
+            
+            if (session.getAsteroidField().size() == 0) {
+                session.resetAndAddRoids(getScan(rnd));
+                toAssign.add(session);
+            } else if (session.getRemainingCargo() < 100) {
+                session.setUsedCargo(0);
+                toAssign.add(session);
+            } else if (!session.isActive()) {
+                toAssign.add(session);
+            }
+        }
+        
+        if (!toAssign.isEmpty()) msMonitor.assignTurrets(toAssign, now);
+    }
+    
+    private static List<Asteroid> getScan(Random rnd) {
+        List<Asteroid> out = new ArrayList<>();
+        int cnt = 5 + rnd.nextInt(20);
+        for (int i = 0; i < cnt; i++) {
+            out.add(new Asteroid(ORES[rnd.nextInt(ORES.length)], 1000 + rnd.nextInt(14000), 
+                    1000 + rnd.nextInt(30000)));
+        }
+        return out;
+    }
+    
+    private static long getAllocatedBytes(long threadId) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threadId);
+        }
+        return 0;
+    }
+    
+    /**
+     * Returns allocated bytes, blocked count and blocked milliseconds of all
+     * the live threads, by thread ID.
+     * @return 
+     */
+    private static Map<Long, long[]> threadStats() {
+        Map<Long, long[]> out = new HashMap<>();
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info == null) continue;
+            
+            out.put(info.getThreadId(), new long[] {
+                getAllocatedBytes(info.getThreadId()), info.getBlockedCount(), 
+                Math.max(0, info.getBlockedTime())
+            });
+        }
+        return out;
+    }
+    
+    private static class Result {
+        private final long[] latencies;
+        private final long tickBytes;
+        private long otherBytes = 0;
+        private long blockedCount = 0;
+        private long blockedMillis = 0;
+
+        public Result(long[] latencies, long tickBytes) {
+            this.latencies = latencies;
+            this.tickBytes = tickBytes;
+        }
+    }
+    
+    /**
+     * Mining clock, going with the virtual one. The scheduler waits for notification
+     * only, the harness wakes it up, once the virtual time gets to the moment.
+     */
+    private static class MiningClock implements IMiningClock {
+        private final VirtualClock clock;
+        private Object waitingLock = null;
+        private long waitingAt = Long.MAX_VALUE;
+
+        public MiningClock(VirtualClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public long now() {
+            return clock.now();
+        }
+
+        @Override
+        public void await(Object lock, long at) throws InterruptedException {
+            synchronized (this) {
+                if (at <= clock.now()) return;
+                
+                waitingLock = lock;
+                waitingAt = at;
+                notifyAll();
+            }
+            
+            try {
+                lock.wait();
+            } finally {
+                synchronized (this) {
+                    waitingLock = null;
+                }
+            }
+        }
+        
+        /**
+         * Wakes the scheduler up, if the virtual time has got to it's moment, 
+         * and waits till it's asleep again, with nothing due.
+         * @throws InterruptedException 
+         */
+        public void settle() throws InterruptedException {
+            Object lock;
+            synchronized (this) {
+                lock = waitingAt <= clock.now() ? waitingLock : null;
+            }
+            
+            if (lock != null) {
+                synchronized (lock) {
+                    lock.notifyAll();
+                }
+            }
+            
+            synchronized (this) {
+                while (waitingLock == null || waitingAt <= clock.now()) {
+                    wait();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Monitor view without a window, doing the same model work as the real one.
+     */
+    private static class HeadlessView implements IMonitorView {
+        private final MiningSessionMonitor msMonitor;
+        private final AsteroidMonitorSettings settings;
+        private List<MiningSession> sessions = new ArrayList<>();
+        private SessionStatus[] statuses = new SessionStatus[0];
+        private MiningSession currentSession = null;
+        private MiningSession.AsteroidTableModel model = null;
+
+        public HeadlessView(MiningSessionMonitor msMonitor, AsteroidMonitorSettings settings) {
+            this.msMonitor = msMonitor;
+            this.settings = settings;
+        }
+
+        @Override
+        public AsteroidMonitorSettings getSettings() {
+            return settings;
+        }
+
+        @Override
+        public void updateCurrentSession() {
+            MiningSession session = msMonitor.getCurrentSession();
+            if (session != null && session != currentSession && session.getSessionCharacter() != null) {
+                currentSession = session;
+                model = (MiningSession.AsteroidTableModel) session.getTableModel();
+            }
+            
+            List<MiningSession> newSessions = msMonitor.getSessions();
+            if (newSessions != sessions) {
+                sessions = newSessions;
+                statuses = new SessionStatus[sessions.size()];
+                for (int i = 0; i < statuses.length; i++) {
+                    statuses[i] = new SessionStatus();
+                }
+            }
+        }
+
+        @Override
+        public void notifyTableUpdate() {
+            if (model == null) return;
+            
+            model.fireChanges();
+            model.fireRemainingUpdated();
+        }
+
+        @Override
+        public void updateCurrentCharacterStats() {
+            MiningSession session = currentSession;
+            if (session != null) session.getUsedCargo();
+        }
+
+        @Override
+        public void updateSessionGrid() {
+            for (int i = 0; i < statuses.length; i++) {
+                sessions.get(i).updateStatus(statuses[i]);
+            }
+        }
+
+        @Override
+        public void updateTimerLabel() {
+        }
+
+        @Override
+        public void packIfNeeded() {
+        }
+
+        @Override
+        public void setAlwaysOnTop(boolean alwaysOnTop) {
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.util.winmanager.sim;
+
+import cy.alavrov.jminerguide.util.winmanager.IEVEWindow;
+
+/**
+ * Fake EVE client window. Title changes made by the window manager are seen 
+ * after an update, just like with the real windows.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class SimWindow implements IEVEWindow {
+    private final SimWindowManager manager;
+    private final int id;
+    
+    // what the "title" says right now.
+    private volatile String actualName = null;
+    private volatile boolean actualExists = true;
+    
+    // what was seen on the last update.
+    private volatile String name = null;
+    private volatile boolean exists = true;
+
+    SimWindow(SimWindowManager manager, int id) {
+        this.manager = manager;
+        this.id = id;
+    }
+
+    /**
+     * Returns the window's number, unique for it's manager.
+     * @return 
+     */
+    public int getId() {
+        return id;
+    }
+    
+    void setActualName(String name) {
+        this.actualName = name;
+    }
+    
+    String getActualName() {
+        return actualName;
+    }
+    
+    void close() {
+        actualExists = false;
+        actualName = null;
+    }
+    
+    boolean isOpen() {
+        return actualExists;
+    }
+
+    @Override
+    public String getCharacterName() {
+        return name;
+    }
+
+    @Override
+    public void makeActive() {
+        manager.setForeground(this);
+    }
+
+    @Override
+    public void update() {
+        exists = actualExists;
+        name = actualName;
+    }
+
+    @Override
+    public boolean exists() {
+        return exists;
+    }
+
+    @Override
+    public String toString() {
+        return "EVE #"+id+(actualName == null ? "" : " - "+actualName);
+    }
+}
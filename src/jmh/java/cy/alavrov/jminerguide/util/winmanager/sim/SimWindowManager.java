@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.util.winmanager.sim;
+
+import cy.alavrov.jminerguide.util.winmanager.IEVEWindow;
+import cy.alavrov.jminerguide.util.winmanager.IWindowManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Window manager with fake EVE clients instead of real ones.
+ * Clients are opened, logged in and out, switched to and closed by a script,
+ * driven by a virtual clock. Windows are asked for from other threads, 
+ * while the script runs on the clock's thread, so the state is synchronized.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class SimWindowManager implements IWindowManager {
+    private final VirtualClock clock;
+    private final List<SimWindow> windows = new ArrayList<>();
+    private SimWindow foreground = null;
+    private int nextId = 1;
+    private long changes = 0;
+    
+    private final AtomicInteger restores = new AtomicInteger();
+    private final AtomicInteger minimizes = new AtomicInteger();
+
+    public SimWindowManager(VirtualClock clock) {
+        this.clock = clock;
+    }
+
+    public VirtualClock getClock() {
+        return clock;
+    }
+    
+    /**
+     * Opens a new client window at the login screen.
+     * @return 
+     */
+    public synchronized SimWindow openWindow() {
+        SimWindow out = new SimWindow(this, nextId++);
+        windows.add(out);
+        changes++;
+        return out;
+    }
+    
+    /**
+     * Logs the character in the window.
+     * @param window
+     * @param name character name, or null to log out to the login screen.
+     */
+    public synchronized void login(SimWindow window, String name) {
+        if (window.isOpen()) {
+            window.setActualName(name);
+            changes++;
+        }
+    }
+    
+    /**
+     * Closes the window.
+     * @param window 
+     */
+    public synchronized void closeWindow(SimWindow window) {
+        window.close();
+        windows.remove(window);
+        if (foreground == window) foreground = null;
+        changes++;
+    }
+    
+    /**
+     * Switches to the window.
+     * @param window window to switch to, or null to switch to the monitor.
+     */
+    public synchronized void setForeground(SimWindow window) {
+        if (window != null && !window.isOpen()) return;
+        if (foreground != window) changes++;
+        foreground = window;
+    }
+    
+    /**
+     * Returns open windows.
+     * @return a copy.
+     */
+    public synchronized List<SimWindow> getWindows() {
+        return new ArrayList<>(windows);
+    }
+    
+    /**
+     * Returns, how many times the monitor window was restored.
+     * @return 
+     */
+    public int getRestores() {
+        return restores.get();
+    }
+    
+    /**
+     * Returns, how many times the monitor window was minimized.
+     * @return 
+     */
+    public int getMinimizes() {
+        return minimizes.get();
+    }
+    
+    /**
+     * Schedules a typical multiboxing evening for the clients: each one is 
+     * opened and logged in during the first minute, then the user switches 
+     * between clients every few seconds, now and then a client relogs or 
+     * crashes and is opened again.
+     * @param clients number of clients.
+     * @param duration virtual duration of the script, in milliseconds.
+     * @param churn average number of relogs and crashes per client per hour.
+     * @param seed seed for the script's random.
+     */
+    public void scheduleScript(int clients, long duration, double churn, long seed) {
+        final Random rnd = new Random(seed);
+        long start = clock.now();
+        long end = start + duration;
+        
+        for (int i = 0; i < clients; i++) {
+            final String name = "Miner "+(i + 1);
+            long openAt = start + rnd.nextInt(60000);
+            scheduleClient(name, openAt, end, churn, rnd);
+        }
+        
+        // the user looks at some client or at the monitor.
+        for (long at = start + 2000 + rnd.nextInt(3000); at < end; at = at + 2000 + rnd.nextInt(8000)) {
+            clock.schedule(at, new Runnable() {
+                @Override
+                public void run() {
+                    List<SimWindow> open = getWindows();
+                    if (open.isEmpty() || rnd.nextInt(4) == 0) {
+                        setForeground(null);
+                    } else {
+                        setForeground(open.get(rnd.nextInt(open.size())));
+                    }
+                }
+            });
+        }
+    }
+    
+    private void scheduleClient(final String name, long openAt, final long end, 
+            final double churn, final Random rnd) {
+        final SimWindow[] window = new SimWindow[1];
+        clock.schedule(openAt, new Runnable() {
+            @Override
+            public void run() {
+                window[0] = openWindow();
+            }
+        });
+        clock.schedule(openAt + 5000 + rnd.nextInt(20000), new Runnable() {
+            @Override
+            public void run() {
+                login(window[0], name);
+            }
+        });
+        
+        if (churn <= 0) return;
+        
+        // exponential time until the next trouble.
+        long troubleAt = openAt + 30000 + (long) (-Math.log(1 - rnd.nextDouble()) * 3600000 / churn);
+        if (troubleAt >= end) return;
+        
+        final boolean crash = rnd.nextBoolean();
+        clock.schedule(troubleAt, new Runnable() {
+            @Override
+            public void run() {
+                if (crash) {
+                    closeWindow(window[0]);
+                } else {
+                    login(window[0], null);
+                }
+            }
+        });
+        
+        long backAt = troubleAt + 10000 + rnd.nextInt(50000);
+        if (crash) {
+            scheduleClient(name, backAt, end, churn, rnd);
+        } else {
+            clock.schedule(backAt, new Runnable() {
+                @Override
+                public void run() {
+                    login(window[0], name);
+                }
+            });
+        }
+    }
+
+    @Override
+    public synchronized IEVEWindow getCurrentEVEWindow() {
+        return foreground;
+    }
+
+    @Override
+    public synchronized List<IEVEWindow> getEVEWindowList() {
+        return new ArrayList<IEVEWindow>(windows);
+    }
+
+    @Override
+    public synchronized long getForegroundWindowID() {
+        return foreground == null ? 0 : foreground.getId();
+    }
+
+    @Override
+    public synchronized long getChangeCount() {
+        return changes;
+    }
+
+    @Override
+    public synchronized boolean isMonitorOrSystemWindow() {
+        return foreground == null;
+    }
+
+    @Override
+    public void minimizeMonitorWindow() {
+        minimizes.incrementAndGet();
+    }
+
+    @Override
+    public void restoreMonitorWindow() {
+        restores.incrementAndGet();
+    }
+}
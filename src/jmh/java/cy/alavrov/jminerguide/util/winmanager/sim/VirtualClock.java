@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.util.winmanager.sim;
+
+import java.util.PriorityQueue;
+
+/**
+ * Virtual clock, moved forward by hand, with actions scheduled on it.
+ * Should be driven by a single thread, other threads may only read the time.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class VirtualClock {
+    private volatile long now;
+    private long seq = 0;
+    private final PriorityQueue<Action> actions = new PriorityQueue<>();
+
+    /**
+     * Constructor.
+     * @param start starting moment, in milliseconds.
+     */
+    public VirtualClock(long start) {
+        this.now = start;
+    }
+    
+    /**
+     * Returns the current virtual moment.
+     * @return milliseconds.
+     */
+    public long now() {
+        return now;
+    }
+    
+    /**
+     * Schedules the action to run, when the clock gets to the moment.
+     * Actions scheduled for the same moment run in order of scheduling.
+     * @param at moment, in milliseconds.
+     * @param action 
+     */
+    public void schedule(long at, Runnable action) {
+        actions.add(new Action(at, seq++, action));
+    }
+    
+    /**
+     * Moves the clock forward, running due actions, each at it's own moment.
+     * @param millis 
+     */
+    public void advance(long millis) {
+        long target = now + millis;
+        while (!actions.isEmpty() && actions.peek().at <= target) {
+            Action action = actions.poll();
+            if (action.at > now) now = action.at;
+            action.action.run();
+        }
+        now = target;
+    }
+    
+    private static class Action implements Comparable<Action> {
+        private final long at;
+        private final long seq;
+        private final Runnable action;
+
+        public Action(long at, long seq, Runnable action) {
+            this.at = at;
+            this.seq = seq;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Action o) {
+            int res = Long.compare(at, o.at);
+            return res != 0 ? res : Long.compare(seq, o.seq);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.util.winmanager.win32;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark for the process name lookups of a window list update, 
+ * over a fake process API, so it runs anywhere.
+ *
+ * Every operation is one update: all the top-level windows are looked up, 
+ * as Win32WindowManager does, then names of processes without windows are 
+ * dropped. Now and then a process exits and a new one starts, with a new ID. 
+ * The fake API costs about as much as a native call and counts open handles, 
+ * the trial fails, if any handle is left open.
+ *
+ * Before measuring, the setup checks the cache itself over the fake API: 
+ * least recently used eviction, the retry delay after a failed lookup, 
+ * dropping vanished processes and closing handles when a lookup fails.
+ *
+ * Run with "mvn -Pbenchmark test-compile exec:exec -Djmh.include=ProcessNameCacheBenchmark".
+ *
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessNameCacheBenchmark {
+    
+    /**
+     * Number of top-level windows.
+     */
+    @Param({"50", "200"})
+    public int windowCount;
+    
+    /**
+     * One process restart per this many updates.
+     */
+    @Param({"10", "1000"})
+    public int restartEvery;
+    
+    private final static int PROCESSES = 12;
+    
+    private FakeProcessApi api;
+    private ProcessNameCache cache;
+    private long[] windowPids;
+    private long nextPid;
+    private int update = 0;
+    private Random rnd;
+    private final Set<Long> pids = new HashSet<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        checkCache();
+        
+        api = new FakeProcessApi();
+        cache = new ProcessNameCache(api);
+        rnd = new Random(42);
+        
+        long[] processes = new long[PROCESSES];
+        for (int i = 0; i < processes.length; i++) {
+            processes[i] = 1000 + 4 * i;
+        }
+        nextPid = 1000 + 4 * PROCESSES;
+        
+        windowPids = new long[windowCount];
+        for (int i = 0; i < windowPids.length; i++) {
+            windowPids[i] = processes[i % processes.length];
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void checkHandles() {
+        if (api.openHandles != 0) {
+            throw new IllegalStateException(api.openHandles+" process handles left open");
+        }
+    }
+
+    /**
+     * Checks the cache behaviour, throws IllegalStateException, if something's wrong.
+     */
+    private void checkCache() {
+        FakeProcessApi fake = new FakeProcessApi();
+        ProcessNameCache small = new ProcessNameCache(fake, 2);
+        long now = 100000;
+        
+        // least recently used name goes first.
+        String name = small.getExeName(1, now);
+        check(name != null && name.equals(name.toLowerCase(Locale.ENGLISH)), "name should be lowercase");
+        small.getExeName(2, now);
+        small.getExeName(1, now);
+        small.getExeName(3, now);
+        check(small.size() == 2, "cache should hold 2 names, holds "+small.size());
+        int misses = small.getMisses();
+        small.getExeName(1, now);
+        check(small.getMisses() == misses, "recently used name should stay cached");
+        small.getExeName(2, now);
+        check(small.getMisses() == misses + 1, "least recently used name should be evicted");
+        
+        // failed lookups wait for the retry delay, and close the handle.
+        ProcessNameCache cache = new ProcessNameCache(fake);
+        fake.failNames = true;
+        check(cache.getExeName(7, now) == null, "failed lookup should return null");
+        check(fake.openHandles == 0, "handle should be closed after a failed lookup");
+        misses = cache.getMisses();
+        check(cache.getExeName(7, now + ProcessNameCache.RETRY_DELAY - 1) == null, 
+                "failed lookup should return null until the retry");
+        check(cache.getMisses() == misses, "failed lookup shouldn't be retried before the delay");
+        fake.failNames = false;
+        check(cache.getExeName(7, now + ProcessNameCache.RETRY_DELAY) != null, 
+                "failed lookup should be retried after the delay");
+        check(cache.getMisses() == misses + 1, "failed lookup should be retried once");
+        
+        fake.failOpen = true;
+        check(cache.getExeName(8, now) == null, "unopened process should return null");
+        check(fake.openHandles == 0, "unopened process shouldn't be closed");
+        fake.failOpen = false;
+        
+        // vanished processes are dropped, with their retry delays.
+        cache.getExeName(9, now);
+        fake.failNames = true;
+        cache.getExeName(10, now);
+        fake.failNames = false;
+        Set<Long> alive = new HashSet<>();
+        alive.add(7L);
+        cache.retainAll(alive);
+        check(cache.size() == 1, "cache should hold 1 name after retainAll, holds "+cache.size());
+        misses = cache.getMisses();
+        cache.getExeName(9, now);
+        check(cache.getMisses() == misses + 1, "vanished process should be resolved again");
+        check(cache.getExeName(10, now) != null, "vanished process shouldn't wait for the retry");
+        
+        check(fake.openHandles == 0, fake.openHandles+" process handles left open");
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+
+    /**
+     * One window list update.
+     * @param bh 
+     */
+    @Benchmark
+    public void windowListUpdate(Blackhole bh) {
+        if (++update % restartEvery == 0) {
+            long oldPid = windowPids[rnd.nextInt(windowPids.length)];
+            long newPid = nextPid;
+            nextPid = nextPid + 4;
+            for (int i = 0; i < windowPids.length; i++) {
+                if (windowPids[i] == oldPid) windowPids[i] = newPid;
+            }
+        }
+        
+        pids.clear();
+        for (int i = 0; i < windowPids.length; i++) {
+            pids.add(windowPids[i]);
+            bh.consume(cache.getExeName(windowPids[i]));
+        }
+        cache.retainAll(pids);
+    }
+    
+    /**
+     * Process API without processes. Every call does some busy work, as 
+     * a system call would. Lookups can be made to fail.
+     */
+    private static class FakeProcessApi implements IProcessApi {
+        private int openHandles = 0;
+        private long nextHandle = 4;
+        private boolean failOpen = false;
+        private boolean failNames = false;
+        
+        private static void work() {
+            Blackhole.consumeCPU(2000);
+        }
+
+        @Override
+        public long openProcess(long pid) {
+            work();
+            if (failOpen) return 0;
+            openHandles++;
+            nextHandle = nextHandle + 4;
+            return nextHandle;
+        }
+
+        @Override
+        public String getModuleBaseName(long process) {
+            work();
+            if (failNames) return null;
+            return process % 3 == 0 ? "exefile.exe" : "Explorer.EXE";
+        }
+
+        @Override
+        public void closeHandle(long process) {
+            work();
+            openHandles--;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.util.winmanager.x11;
+
+import cy.alavrov.jminerguide.log.JMGLogger;
+import cy.alavrov.jminerguide.util.winmanager.IEVEWindow;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Prints EVE windows and the current one, whenever X11WindowManager sees 
+ * a change. Meant for checking the manager against Xvfb with a window manager
+ * and fake clients, for example:
+ * 
+ * Xvfb :99 &amp; DISPLAY=:99 openbox &amp; 
+ * DISPLAY=:99 xterm -class exefile.exe -T "EVE - Some Miner" &amp;
+ * 
+ * and then "mvn -Pbenchmark test-compile exec:exec 
+ * -Dbench.main=cy.alavrov.jminerguide.util.winmanager.x11.X11WindowProbe -Dbench.args=':99 60'",
+ * arguments being the display and seconds to run. Renaming the xterm or 
+ * switching between windows should be printed right away, and nothing else.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class X11WindowProbe {
+    public static void main(String[] args) throws Exception {
+        String displayName = args.length > 0 ? args[0] : null;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        
+        File logDir = Files.createTempDirectory("jmg-probe").toFile();
+        logDir.deleteOnExit();
+        JMGLogger.init(logDir.getPath() + File.separator);
+        
+        X11WindowManager wManager = X11WindowManager.open(displayName);
+        if (wManager == null) {
+            System.out.println("Unable to open the display");
+            return;
+        }
+        
+        long lastChanges = -1;
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        while (System.currentTimeMillis() < end) {
+            long changes = wManager.getChangeCount();
+            if (changes != lastChanges) {
+                lastChanges = changes;
+                
+                List<IEVEWindow> windows = wManager.getEVEWindowList();
+                IEVEWindow current = wManager.getCurrentEVEWindow();
+                System.out.println("change #"+changes+", monitor or system: "+wManager.isMonitorOrSystemWindow());
+                for (IEVEWindow window : windows) {
+                    X11Window xWindow = (X11Window) window;
+                    System.out.println(String.format("  0x%08x %s%s", xWindow.getWindowID(), 
+                            window.getCharacterName(), window.equals(current) ? " (current)" : ""));
+                }
+            }
+            Thread.sleep(100);
+        }
+        
+        wManager.close();
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data;
+
+import cy.alavrov.jminerguide.data.booster.BoosterShip;
+import cy.alavrov.jminerguide.data.character.CharacterModifiers;
+import cy.alavrov.jminerguide.data.character.EVECharacter;
+import cy.alavrov.jminerguide.data.ship.Ship;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Stats for every miner on every ship, with a single booster, calculated 
+ * in one go. Results are stored in flat arrays, one cell per miner/ship pair, 
+ * row by row: index is minerIndex * shipCount + shipIndex.
+ * 
+ * Fit math is done once per ship and pilot math once per miner, so a cell 
+ * costs only few multiplications.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class BatchStats {
+    
+    /**
+     * Rows per task when calculating in parallel.
+     */
+    private final static int ROWS_PER_TASK = 16;
+    
+    private final int minerCount;
+    private final int shipCount;
+    
+    /**
+     * Yield of all turrets, combined, in m3/sec.
+     */
+    private final float[] combinedTurretM3S;
+    
+    /**
+     * Yield of all drones, combined, in m3/sec.
+     */
+    private final float[] droneM3S;
+    
+    /**
+     * Total ship yield, in m3/hour.
+     */
+    private final float[] totalM3H;
+    
+    /**
+     * How long it takes for ore hold to fill, in seconds.
+     */
+    private final int[] secsForOreHold;
+    
+    /**
+     * Ship's optimal, in metres.
+     */
+    private final int[] optimal;
+    
+    private final CharacterModifiers[] minerMods;
+    private final int[] stationTripSecs;
+    private final ShipFactors[] shipFactors;
+    private final BoosterFactors boost;
+
+    /**
+     * Calculates everything in the current thread.
+     * @param miners
+     * @param ships
+     * @param booster
+     * @param boosterShip
+     * @param mercoxit 
+     */
+    public BatchStats(List<EVECharacter> miners, List<Ship> ships, 
+            EVECharacter booster, BoosterShip boosterShip, boolean mercoxit) {
+        this(miners, ships, booster, boosterShip, mercoxit, null);
+    }
+    
+    /**
+     * Calculates everything, splitting the work by miners between 
+     * pool's threads.
+     * @param miners
+     * @param ships
+     * @param booster
+     * @param boosterShip
+     * @param mercoxit 
+     * @param pool pool to use, or null to calculate in the current thread.
+     */
+    public BatchStats(List<EVECharacter> miners, List<Ship> ships, 
+            EVECharacter booster, BoosterShip boosterShip, boolean mercoxit,
+            ForkJoinPool pool) {
+        minerCount = miners.size();
+        shipCount = ships.size();
+        
+        minerMods = new CharacterModifiers[minerCount];
+        stationTripSecs = new int[minerCount];
+        for (int i = 0; i < minerCount; i++) {
+            EVECharacter miner = miners.get(i);
+            minerMods[i] = miner.getModifiers();
+            stationTripSecs[i] = CalculatedStats.getStationTripSecs(miner);
+        }
+        
+        shipFactors = new ShipFactors[shipCount];
+        for (int i = 0; i < shipCount; i++) {
+            shipFactors[i] = new ShipFactors(ships.get(i), mercoxit);
+        }
+        
+        boost = new BoosterFactors(booster, boosterShip);
+        
+        int cells = minerCount * shipCount;
+        combinedTurretM3S = new float[cells];
+        droneM3S = new float[cells];
+        totalM3H = new float[cells];
+        secsForOreHold = new int[cells];
+        optimal = new int[cells];
+        
+        if (pool == null) {
+            calculateRows(0, minerCount);
+        } else {
+            pool.invoke(new RowTask(0, minerCount));
+        }
+    }
+    
+    private void calculateRows(int from, int to) {
+        for (int m = from; m < to; m++) {
+            CharacterModifiers mods = minerMods[m];
+            int tripSecs = stationTripSecs[m];
+            int idx = m * shipCount;
+            
+            for (int s = 0; s < shipCount; s++, idx++) {
+                ShipFactors ship = shipFactors[s];
+                
+                float turretM3S = ship.getTurretYield(mods, boost) * ship.getTurretCount() / 
+                        ship.getTurretCycle(mods, boost);
+                float dronesM3S = 0;
+                if (ship.isDronesMining()) {
+                    dronesM3S = ship.getDroneYield(mods) * ship.getDroneCount() / 
+                            ship.getDroneCycle();
+                }
+                
+                float totalM3S = turretM3S + dronesM3S;
+                int oreHold = ship.getOreHold(mods);
+                
+                combinedTurretM3S[idx] = turretM3S;
+                droneM3S[idx] = dronesM3S;
+                secsForOreHold[idx] = (int) (oreHold / totalM3S);
+                totalM3H[idx] = CalculatedStats.calculateTotalM3H(oreHold, totalM3S, tripSecs);
+                optimal[idx] = ship.getOptimal(mods, boost);
+            }
+        }
+    }
+    
+    private class RowTask extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+        
+        private final int from;
+        private final int to;
+
+        RowTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                calculateRows(from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RowTask(from, mid), new RowTask(mid, to));
+            }
+        }        
+    }
+    
+    /**
+     * Returns index of a miner/ship pair in the result arrays.
+     * @param minerIdx
+     * @param shipIdx
+     * @return 
+     */
+    public int getIndex(int minerIdx, int shipIdx) {
+        return minerIdx * shipCount + shipIdx;
+    }
+
+    public int getMinerCount() {
+        return minerCount;
+    }
+
+    public int getShipCount() {
+        return shipCount;
+    }
+    
+    /**
+     * Total ship yield, in m3/hour.
+     * @param minerIdx
+     * @param shipIdx
+     * @return 
+     */
+    public float getTotalM3H(int minerIdx, int shipIdx) {
+        return totalM3H[getIndex(minerIdx, shipIdx)];
+    }
+
+    /**
+     * Yield of all turrets, combined, in m3/sec, for all pairs.
+     * Array is not copied, don't change it.
+     * @return 
+     */
+    public float[] getCombinedTurretM3S() {
+        return combinedTurretM3S;
+    }
+
+    /**
+     * Yield of all drones, combined, in m3/sec, for all pairs.
+     * Array is not copied, don't change it.
+     * @return 
+     */
+    public float[] getDroneM3S() {
+        return droneM3S;
+    }
+
+    /**
+     * Total ship yield, in m3/hour, for all pairs.
+     * Array is not copied, don't change it.
+     * @return 
+     */
+    public float[] getTotalM3H() {
+        return totalM3H;
+    }
+
+    /**
+     * How long it takes for ore hold to fill, in seconds, for all pairs.
+     * Array is not copied, don't change it.
+     * @return 
+     */
+    public int[] getSecsForOreHold() {
+        return secsForOreHold;
+    }
+
+    /**
+     * Ship's optimal, in metres, for all pairs.
+     * Array is not copied, don't change it.
+     * @return 
+     */
+    public int[] getOptimal() {
+        return optimal;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data;
+
+import cy.alavrov.jminerguide.data.booster.BoosterShip;
+import cy.alavrov.jminerguide.data.character.CharacterModifiers;
+import cy.alavrov.jminerguide.data.character.EVECharacter;
+
+/**
+ * Everything a booster and a booster ship bring to the calculations.
+ * Doesn't depend on the miner or his ship, so can be made once and used 
+ * for any number of them.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public final class BoosterFactors {
+    /**
+     * Link bonus to the cycle time, in percents.
+     */
+    private final float linkCycleBonus;
+    
+    /**
+     * Link bonus to the mining turret optimal, in percents.
+     */
+    private final float linkOptimalBonus;
+    
+    /**
+     * Modifier to mining laser and strip miner yield.
+     */
+    private final float yieldModifier;
+
+    public BoosterFactors(EVECharacter booster, BoosterShip boosterShip) {
+        CharacterModifiers boosterMods = booster.getModifiers();
+        boolean haveMindlink = boosterMods.isUsingMindlink();
+        
+        float boostModifier;
+        float baseCycleBonus;
+        float baseOptimalBonus;
+        synchronized(boosterShip) {
+            boostModifier = boosterMods.getBoostModifier(boosterShip.getHull(), 
+                    boosterShip.isDeployedMode());
+            baseCycleBonus = boosterShip.getCycleLink().getCycleBonus();
+            baseOptimalBonus = boosterShip.getOptimalLink().getOptimalBonus();
+        }
+        
+        float effectiveCycleBonus = baseCycleBonus * boostModifier;
+        effectiveCycleBonus = effectiveCycleBonus * boosterMods.getBoosterLinkModifier();
+        
+        float effectiveOptimalBonus = baseOptimalBonus * boostModifier;
+        effectiveOptimalBonus = effectiveOptimalBonus * boosterMods.getBoosterLinkModifier();
+        
+        if (haveMindlink) {
+            effectiveCycleBonus = effectiveCycleBonus * 1.25f;
+            effectiveOptimalBonus = effectiveOptimalBonus * 1.25f;
+        }
+        
+        linkCycleBonus = effectiveCycleBonus;
+        linkOptimalBonus = effectiveOptimalBonus;
+        
+        if (haveMindlink) {
+            yieldModifier = 1.15f;
+        } else {
+            yieldModifier = 1 + 0.02f * boosterMods.getMiningForemanLevel();
+        }
+    }
+
+    /**
+     * Link bonus to the cycle time, in percents.
+     * @return 
+     */
+    public float getLinkCycleBonus() {
+        return linkCycleBonus;
+    }
+
+    /**
+     * Link bonus to the mining turret optimal, in percents.
+     * @return 
+     */
+    public float getLinkOptimalBonus() {
+        return linkOptimalBonus;
+    }
+    
+    /**
+     * Modifier to turret cycle time, ready for multiplication.
+     * @return 
+     */
+    public float getCycleModifier() {
+        return 1 - 0.01f*linkCycleBonus;
+    }
+    
+    /**
+     * Modifier to turret optimal, ready for multiplication.
+     * @return 
+     */
+    public float getOptimalModifier() {
+        return 1 + 0.01f*linkOptimalBonus;
+    }
+
+    /**
+     * Modifier to mining laser and strip miner yield, ready for multiplication.
+     * @return 
+     */
+    public float getYieldModifier() {
+        return yieldModifier;
+    }
+    
+    /**
+     * Returns true, if the other factors are the same as these.
+     * @param other
+     * @return 
+     */
+    boolean isSame(BoosterFactors other) {
+        return linkCycleBonus == other.linkCycleBonus 
+                && linkOptimalBonus == other.linkOptimalBonus
+                && yieldModifier == other.yieldModifier;
+    }
+}
@@ -26,18 +26,9 @@
 package cy.alavrov.jminerguide.data;
 
 import cy.alavrov.jminerguide.data.booster.BoosterShip;
-import cy.alavrov.jminerguide.data.booster.ForemanLink;
-import cy.alavrov.jminerguide.data.ship.HarvestUpgrade;
-import cy.alavrov.jminerguide.data.ship.Hull;
-import cy.alavrov.jminerguide.data.ship.MiningDrone;
-import cy.alavrov.jminerguide.data.harvestable.HarvestableType;
-import cy.alavrov.jminerguide.data.ship.Rig;
 import cy.alavrov.jminerguide.data.ship.Ship;
-import cy.alavrov.jminerguide.data.ship.Turret;
+import cy.alavrov.jminerguide.data.character.CharacterModifiers;
 import cy.alavrov.jminerguide.data.character.EVECharacter;
-import cy.alavrov.jminerguide.data.implant.Implant;
-import java.util.Arrays;
-import java.util.Comparator;
 
 /**
  * Stats, calculated for a ship, based on it's hull, modules, pilot and 
@@ -47,16 +38,6 @@ import java.util.Comparator;
  */
 public class CalculatedStats implements ICalculatedStats {
     
-    /**
-     * Used to sort rigs by their drone yield bonus, descending.
-     */
-    private final static Comparator<Rig> rigComparator = new Comparator<Rig>() {
-        @Override
-        public int compare(Rig o1, Rig o2) {
-            return Integer.valueOf(o2.getDroneYieldBonus()).compareTo(o1.getDroneYieldBonus());
-        }
-    };
-    
     /**
      * Yield of a turret, in m3.
      */
@@ -133,215 +114,75 @@ public class CalculatedStats implements ICalculatedStats {
     private final float linkOptimalBonus;
     
     public CalculatedStats(EVECharacter miner, EVECharacter booster, Ship ship, BoosterShip boosterShip, boolean mercoxit) {
+        this(miner.getModifiers(), getStationTripSecs(miner), 
+                new ShipFactors(ship, mercoxit), new BoosterFactors(booster, boosterShip));
+    }
+    
+    /**
+     * Calculates stats from already prepared parts, so the parts can be 
+     * reused between calculations.
+     * @param minerMods miner's modifiers.
+     * @param stationTripSecs station trip duration, in seconds. 
+     * @param ship ship fit factors.
+     * @param boost booster factors.
+     */
+    public CalculatedStats(CharacterModifiers minerMods, int stationTripSecs, 
+            ShipFactors ship, BoosterFactors boost) {
+        linkCycleBonus = boost.getLinkCycleBonus();
+        linkOptimalBonus = boost.getLinkOptimalBonus();
         
-        Turret turret = ship.getTurret();
-        Hull hull = ship.getHull();
-        Hull.BonusCalculationResult bonus = hull.calculateSkillBonusModificators(miner);
-        
-        int upgrades = ship.getHarvestUpgradeCount();
-        HarvestUpgrade upgrade = ship.getHarvestUpgrade();
-                
-        
-        // ATM there is only one mining mindlink, so we'll just hardcode it in.
-        boolean haveMindlink = booster.getSlot10Implant() == Implant.MFMINDLINK;                
-        
-        ForemanLink cycleLink = boosterShip.getCycleLink();
-        float baseCycleBonus = cycleLink.getCycleBonus();
-        float effectiveCycleBonus = baseCycleBonus * boosterShip.getHull()
-                .calculateBoostModifier(booster, boosterShip.isDeployedMode());
-        effectiveCycleBonus = effectiveCycleBonus * booster.getBoosterLinkModifier();                
-        
-        ForemanLink optimalLink = boosterShip.getOptimalLink();
-        float baseOptimalBonus = optimalLink.getOptimalBonus();
-        float effectiveOptimalBonus = baseOptimalBonus * boosterShip.getHull()
-                .calculateBoostModifier(booster, boosterShip.isDeployedMode());
-        effectiveOptimalBonus = effectiveOptimalBonus * booster.getBoosterLinkModifier();
-        
-        
-        if (haveMindlink) {
-            effectiveCycleBonus = effectiveCycleBonus * 1.25f;
-            effectiveOptimalBonus = effectiveOptimalBonus * 1.25f;
-        }
-        
-        linkCycleBonus = effectiveCycleBonus;
-        linkOptimalBonus = effectiveOptimalBonus;
-        
-        float effectiveCycleModifier = 1 - 0.01f*effectiveCycleBonus;
-        float effectiveOptimalModifier = 1 + 0.01f*effectiveOptimalBonus;
-        
-        float baseTurretYield = turret.getBaseYield();
-        float actualTurretYield;
-        
-        switch (turret.getTurretType()) {
-            case MININGLASER:
-            case STRIPMINER:
-                actualTurretYield = baseTurretYield * 
-                    (1 + hull.getRoleMiningYieldBonus()/100f) * 
-                    bonus.miningYieldMod * miner.getMiningYieldModifier();
-                
-                if (upgrades > 0 ) {
-                    for (int i = 0; i < upgrades; i++) {
-                        actualTurretYield = actualTurretYield * 
-                                (1 + upgrade.getOreYieldBonus() * 0.01f);
-                    }
-                }
-                
-                if (turret.isUsingCrystals()) {
-                    if (turret.getHarvestableType() == HarvestableType.MERCOXIT && mercoxit) {
-                        actualTurretYield = actualTurretYield * ship.getTurretCrystal().getMercMod();
-                        actualTurretYield = actualTurretYield * (1 + 0.01f*ship.getRig1().getMercoxitYieldBonus());
-                        actualTurretYield = actualTurretYield * (1 + 0.01f*ship.getRig2().getMercoxitYieldBonus());
-                        if (hull.getRigSlots() > 2) {
-                            actualTurretYield = actualTurretYield * (1 + 0.01f*ship.getRig3().getMercoxitYieldBonus());
-                        }
-                    } else {
-                        actualTurretYield = actualTurretYield * ship.getTurretCrystal().getOreMod();
-                    }
-                }
-                
-                
-                if (haveMindlink) {
-                    actualTurretYield = actualTurretYield * 1.15f;
-                } else {
-                    actualTurretYield = actualTurretYield * (1 + 0.02f * booster.getSkillLevel(EVECharacter.SKILL_MINING_FOREMAN));
-                }
-                        
-                break;
-                
-            case GASHARVESTER:
-            // only bonus yield for gas is from hulls. 
-                actualTurretYield = baseTurretYield * 
-                    (1 + hull.getRoleGasYieldBonus()/100f);
-                break;
-                
-            default:
-            case ICEHARVESTER:
-                actualTurretYield = baseTurretYield;
-                // ice harvesters have no bonus to yield.
-                break;         
-        }
-        
-        turretYield = actualTurretYield;
+        turretYield = ship.getTurretYield(minerMods, boost);
         combinedTurretYield = turretYield * ship.getTurretCount();
-        
-        float baseTurretCycle = turret.getCycleDuration();
-        float actualTurretCycle;
-        
-        switch (turret.getTurretType()) {
-            default:
-            case MININGLASER:                                    
-                actualTurretCycle = baseTurretCycle;
-                break;
-                
-            case STRIPMINER:
-                actualTurretCycle = baseTurretCycle * bonus.stripCycleMod;
-                break;
-                
-            case GASHARVESTER:
-                actualTurretCycle = baseTurretCycle * bonus.gasCycleMod * 
-                    miner.getGasCycleModifier();
-                break;
-                
-            case ICEHARVESTER:
-                actualTurretCycle = baseTurretCycle * 
-                    (1 - hull.getRoleIceCycleBonus()/100f) *
-                    bonus.stripCycleMod * miner.getIceCycleModifier();
-                
-                if (upgrades > 0 ) {
-                    for (int i = 0; i < upgrades; i++) {
-                        actualTurretCycle = actualTurretCycle * 
-                                (1 - upgrade.getIceCycleBonus()* 0.01f);
-                    }
-                }
-                
-                actualTurretCycle = actualTurretCycle * (1 - 0.01f*ship.getRig1().getIceCycleBonus());
-                actualTurretCycle = actualTurretCycle * (1 - 0.01f*ship.getRig2().getIceCycleBonus());
-                if (hull.getRigSlots() > 2) {
-                    actualTurretCycle = actualTurretCycle * (1 - 0.01f*ship.getRig3().getIceCycleBonus());
-                }
-                
-                break;
-        }
-        
-        actualTurretCycle = actualTurretCycle * effectiveCycleModifier;
-        turretCycle = actualTurretCycle;
+        turretCycle = ship.getTurretCycle(minerMods, boost);
         
         turretM3S = turretYield/turretCycle;
         combinedTurretM3S = combinedTurretYield/turretCycle;
         
-        MiningDrone drone = ship.getDrone();
-        if (turret.getHarvestableType() == HarvestableType.GAS || 
-                turret.getHarvestableType() == HarvestableType.ICE ||
-                (turret.getHarvestableType() == HarvestableType.MERCOXIT && mercoxit) ||
-                drone == MiningDrone.NOTHING) {
+        if (ship.isDronesMining()) {
+            droneYield = ship.getDroneYield(minerMods);
+            combinedDroneYield = droneYield * ship.getDroneCount();
+            droneCycle = ship.getDroneCycle();
+            droneM3S = combinedDroneYield / droneCycle;
+        } else {
             droneYield = 0; 
             combinedDroneYield = 0;
             droneCycle = 0;  
             droneM3S = 0;
-        } else {                        
-            float droneEffectiveYield = drone.getBaseYield() * miner.getDroneYieldModifier();
-                        
-            // ok, here it is harder, due to diminishing returns on rigs.
-            // we'll have to apply rigs with greater bonus first, so it's 
-            // rig sorting time!            
-            Rig[] rigs;
-            if (hull.getRigSlots() > 2) {
-                rigs = new Rig[] {ship.getRig1(), ship.getRig2(), ship.getRig3()};
-            } else {
-                rigs = new Rig[] {ship.getRig1(), ship.getRig2()};
-            }
-            
-            Arrays.sort(rigs, rigComparator);
-            
-            droneEffectiveYield = droneEffectiveYield * (1 + 0.01f * rigs[0].getDroneYieldBonus());
-            droneEffectiveYield = droneEffectiveYield * (1 + 0.01f * 0.87f * rigs[1].getDroneYieldBonus());
-            if (hull.getRigSlots() > 2) {
-                droneEffectiveYield = droneEffectiveYield * (1 + 0.01f * 0.57f * rigs[2].getDroneYieldBonus());
-            }
-            
-            droneYield = droneEffectiveYield;
-            
-            combinedDroneYield = droneYield * ship.getDroneCount();
-            droneCycle = drone.getCycleDuration(); // no bonus to this.
-            droneM3S = combinedDroneYield / droneCycle;
         }
                                       
         float totalM3S = combinedTurretM3S + droneM3S;
-                
-        int baseOptimal = turret.getOptimalRange();
-        int effectiveOptimal;
         
-        switch (turret.getTurretType()) {
-            case ICEHARVESTER:
-            case STRIPMINER:
-                effectiveOptimal = (int) (baseOptimal * bonus.stripOptimalMod);
-                break;
-                
-            default:
-                effectiveOptimal = baseOptimal;
+        optimal = ship.getOptimal(minerMods, boost);
+        oreHold = ship.getOreHold(minerMods);
+        secsForOreHold = (int) (oreHold / totalM3S);
+        totalM3H = calculateTotalM3H(oreHold, totalM3S, stationTripSecs);
+    }
+    
+    /**
+     * Returns how long it takes to get to the station and back, in seconds,
+     * or 0, if the miner is using a hauler.
+     * @param miner
+     * @return 
+     */
+    public static int getStationTripSecs(EVECharacter miner) {
+        synchronized(miner) {
+            return miner.isUsingHauler() ? 0 : miner.getStationTripSecs();
         }
-        
-        effectiveOptimal = (int) (effectiveOptimal * effectiveOptimalModifier);
-        
-        optimal = effectiveOptimal;
-        
-        int baseOreHold = hull.getOreHold();
-        int effectiveOreHold = (int) (baseOreHold * bonus.oreHoldMod);
-        
-        oreHold = effectiveOreHold;
-        
+    }
+    
+    /**
+     * Calculates total yield per hour, counting trips to the station.
+     * @param oreHold ore hold, in m3.
+     * @param totalM3S total ship yield, in m3/sec.
+     * @param stationTripSecs station trip duration, in seconds.
+     * @return total ship yield, in m3/hour.
+     */
+    public static float calculateTotalM3H(int oreHold, float totalM3S, int stationTripSecs) {
         float secsForOreHoldF = oreHold / totalM3S;
-        secsForOreHold = (int) secsForOreHoldF;
-        
-        int stationTripSecs = 0;
-        if (!miner.isUsingHauler()) {
-            stationTripSecs = miner.getStationTripSecs();
-        }
-        
         float totalMiningCycle = secsForOreHoldF + stationTripSecs;        
         float cyclesInHr = 60*60 / totalMiningCycle;
         
-        totalM3H = oreHold * cyclesInHr;
+        return oreHold * cyclesInHr;
     }
 
     /**
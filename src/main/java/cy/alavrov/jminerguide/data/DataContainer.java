@@ -59,6 +59,8 @@ public class DataContainer {
     
     private MarketZoneContainer marketZones;
     
+    private final StatsCache statsCache;
+    
     private ExecutorService pool;
     
     /**
@@ -75,6 +77,8 @@ public class DataContainer {
         
         marketZones = new MarketZoneContainer();
         
+        statsCache = new StatsCache(StatsCache.DEFAULT_SIZE);
+        
         pool = Executors.newCachedThreadPool();
     }
     
@@ -101,6 +105,14 @@ public class DataContainer {
     public MarketZoneContainer getMarketZoneContainer() {
         return marketZones;
     }        
+
+    /**
+     * Returns stats cache, shared by the monitor sessions.
+     * @return 
+     */
+    public StatsCache getStatsCache() {
+        return statsCache;
+    }
     
     /**
      * Loads all the data from configuration files.
@@ -113,6 +125,8 @@ public class DataContainer {
         boosters.load();
         simpleChars.load();
         itemPrices.load();
+        // reprocessing skills are taken from the characters.
+        itemPrices.updateReprocessing(chars);
     }
     
     /**
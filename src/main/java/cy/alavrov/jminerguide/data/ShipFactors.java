@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data;
+
+import cy.alavrov.jminerguide.data.character.CharacterModifiers;
+import cy.alavrov.jminerguide.data.harvestable.HarvestableType;
+import cy.alavrov.jminerguide.data.ship.HarvestUpgrade;
+import cy.alavrov.jminerguide.data.ship.Hull;
+import cy.alavrov.jminerguide.data.ship.MiningDrone;
+import cy.alavrov.jminerguide.data.ship.Rig;
+import cy.alavrov.jminerguide.data.ship.Ship;
+import cy.alavrov.jminerguide.data.ship.Turret;
+import cy.alavrov.jminerguide.data.ship.TurretType;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Parts of the calculations, that depend only on the ship fit. 
+ * Pilot-dependent parts are applied on top of them by the methods here, 
+ * so the same fit can be calculated for any number of pilots without 
+ * redoing the fit math.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public final class ShipFactors {
+    
+    /**
+     * Used to sort rigs by their drone yield bonus, descending.
+     */
+    private final static Comparator<Rig> rigComparator = new Comparator<Rig>() {
+        @Override
+        public int compare(Rig o1, Rig o2) {
+            return Integer.valueOf(o2.getDroneYieldBonus()).compareTo(o1.getDroneYieldBonus());
+        }
+    };
+    
+    private final Hull hull;
+    private final TurretType turretType;
+    private final int turretCount;
+    
+    /**
+     * Turret yield with everything but pilot and booster, in m3.
+     */
+    private final float turretYield;
+    
+    /**
+     * Turret cycle with everything but pilot and booster, in seconds.
+     */
+    private final float turretCycle;
+    
+    private final boolean dronesMining;
+    
+    /**
+     * Drone yield with everything but pilot, in m3.
+     */
+    private final float droneYield;
+    private final int droneCount;
+    private final float droneCycle;
+    
+    private final int baseOptimal;
+    private final int baseOreHold;
+    
+    public ShipFactors(Ship ship, boolean mercoxit) {
+        Turret turret;
+        int upgrades;
+        HarvestUpgrade upgrade;
+        float crystalOreMod;
+        float crystalMercMod;
+        Rig rig1, rig2, rig3;
+        MiningDrone drone;
+        
+        // taking the whole fit at once, so it's consistent.
+        synchronized(ship) {
+            hull = ship.getHull();
+            turret = ship.getTurret();
+            turretCount = ship.getTurretCount();
+            upgrades = ship.getHarvestUpgradeCount();
+            upgrade = ship.getHarvestUpgrade();
+            crystalOreMod = ship.getTurretCrystal().getOreMod();
+            crystalMercMod = ship.getTurretCrystal().getMercMod();
+            rig1 = ship.getRig1();
+            rig2 = ship.getRig2();
+            rig3 = ship.getRig3();
+            drone = ship.getDrone();
+            droneCount = ship.getDroneCount();
+        }
+        
+        turretType = turret.getTurretType();
+        
+        float baseTurretYield = turret.getBaseYield();
+        float actualTurretYield;
+        
+        switch (turretType) {
+            case MININGLASER:
+            case STRIPMINER:
+                actualTurretYield = baseTurretYield * 
+                    (1 + hull.getRoleMiningYieldBonus()/100f);
+                
+                for (int i = 0; i < upgrades; i++) {
+                    actualTurretYield = actualTurretYield * 
+                            (1 + upgrade.getOreYieldBonus() * 0.01f);
+                }
+                
+                if (turret.isUsingCrystals()) {
+                    if (turret.getHarvestableType() == HarvestableType.MERCOXIT && mercoxit) {
+                        actualTurretYield = actualTurretYield * crystalMercMod;
+                        actualTurretYield = actualTurretYield * (1 + 0.01f*rig1.getMercoxitYieldBonus());
+                        actualTurretYield = actualTurretYield * (1 + 0.01f*rig2.getMercoxitYieldBonus());
+                        if (hull.getRigSlots() > 2) {
+                            actualTurretYield = actualTurretYield * (1 + 0.01f*rig3.getMercoxitYieldBonus());
+                        }
+                    } else {
+                        actualTurretYield = actualTurretYield * crystalOreMod;
+                    }
+                }
+                break;
+                
+            case GASHARVESTER:
+            // only bonus yield for gas is from hulls. 
+                actualTurretYield = baseTurretYield * 
+                    (1 + hull.getRoleGasYieldBonus()/100f);
+                break;
+                
+            default:
+            case ICEHARVESTER:
+                actualTurretYield = baseTurretYield;
+                // ice harvesters have no bonus to yield.
+                break;         
+        }
+        
+        turretYield = actualTurretYield;
+        
+        float actualTurretCycle = turret.getCycleDuration();
+        
+        if (turretType == TurretType.ICEHARVESTER) {
+            actualTurretCycle = actualTurretCycle * 
+                (1 - hull.getRoleIceCycleBonus()/100f);
+
+            for (int i = 0; i < upgrades; i++) {
+                actualTurretCycle = actualTurretCycle * 
+                        (1 - upgrade.getIceCycleBonus()* 0.01f);
+            }
+
+            actualTurretCycle = actualTurretCycle * (1 - 0.01f*rig1.getIceCycleBonus());
+            actualTurretCycle = actualTurretCycle * (1 - 0.01f*rig2.getIceCycleBonus());
+            if (hull.getRigSlots() > 2) {
+                actualTurretCycle = actualTurretCycle * (1 - 0.01f*rig3.getIceCycleBonus());
+            }
+        }
+        
+        turretCycle = actualTurretCycle;
+        
+        if (turret.getHarvestableType() == HarvestableType.GAS || 
+                turret.getHarvestableType() == HarvestableType.ICE ||
+                (turret.getHarvestableType() == HarvestableType.MERCOXIT && mercoxit) ||
+                drone == MiningDrone.NOTHING) {
+            dronesMining = false;
+            droneYield = 0;
+            droneCycle = 0;
+        } else {
+            dronesMining = true;
+            float droneEffectiveYield = drone.getBaseYield();
+                        
+            // ok, here it is harder, due to diminishing returns on rigs.
+            // we'll have to apply rigs with greater bonus first, so it's 
+            // rig sorting time!            
+            Rig[] rigs;
+            if (hull.getRigSlots() > 2) {
+                rigs = new Rig[] {rig1, rig2, rig3};
+            } else {
+                rigs = new Rig[] {rig1, rig2};
+            }
+            
+            Arrays.sort(rigs, rigComparator);
+            
+            droneEffectiveYield = droneEffectiveYield * (1 + 0.01f * rigs[0].getDroneYieldBonus());
+            droneEffectiveYield = droneEffectiveYield * (1 + 0.01f * 0.87f * rigs[1].getDroneYieldBonus());
+            if (hull.getRigSlots() > 2) {
+                droneEffectiveYield = droneEffectiveYield * (1 + 0.01f * 0.57f * rigs[2].getDroneYieldBonus());
+            }
+            
+            droneYield = droneEffectiveYield;
+            droneCycle = drone.getCycleDuration(); // no bonus to this.
+        }
+        
+        baseOptimal = turret.getOptimalRange();
+        baseOreHold = hull.getOreHold();
+    }
+    
+    /**
+     * Yield of a turret, in m3.
+     * @param mods pilot's modifiers.
+     * @param boost booster's factors.
+     * @return 
+     */
+    public float getTurretYield(CharacterModifiers mods, BoosterFactors boost) {
+        switch (turretType) {
+            case MININGLASER:
+            case STRIPMINER:
+                return turretYield * mods.getHullBonus(hull).miningYieldMod * 
+                        mods.getMiningYieldModifier() * boost.getYieldModifier();
+                
+            default:
+                return turretYield;
+        }
+    }
+    
+    /**
+     * Cycle of a turret, in seconds.
+     * @param mods pilot's modifiers.
+     * @param boost booster's factors.
+     * @return 
+     */
+    public float getTurretCycle(CharacterModifiers mods, BoosterFactors boost) {
+        Hull.BonusCalculationResult bonus = mods.getHullBonus(hull);
+        float pilotMod;
+        
+        switch (turretType) {
+            default:
+            case MININGLASER:
+                pilotMod = 1;
+                break;
+                
+            case STRIPMINER:
+                pilotMod = bonus.stripCycleMod;
+                break;
+                
+            case GASHARVESTER:
+                pilotMod = bonus.gasCycleMod * mods.getGasCycleModifier();
+                break;
+                
+            case ICEHARVESTER:
+                pilotMod = bonus.stripCycleMod * mods.getIceCycleModifier();
+                break;
+        }
+        
+        return turretCycle * pilotMod * boost.getCycleModifier();
+    }
+    
+    /**
+     * Returns number of turrets.
+     * @return 
+     */
+    public int getTurretCount() {
+        return turretCount;
+    }
+    
+    /**
+     * Returns true, if drones are mining at all with this fit.
+     * @return 
+     */
+    public boolean isDronesMining() {
+        return dronesMining;
+    }
+    
+    /**
+     * Yield of a drone, in m3.
+     * @param mods pilot's modifiers.
+     * @return 
+     */
+    public float getDroneYield(CharacterModifiers mods) {
+        return droneYield * mods.getDroneYieldModifier();
+    }
+    
+    /**
+     * Returns number of drones.
+     * @return 
+     */
+    public int getDroneCount() {
+        return droneCount;
+    }
+    
+    /**
+     * Cycle of a drone, in seconds.
+     * @return 
+     */
+    public float getDroneCycle() {
+        return droneCycle;
+    }
+    
+    /**
+     * Ship's optimal, in metres.
+     * @param mods pilot's modifiers.
+     * @param boost booster's factors.
+     * @return 
+     */
+    public int getOptimal(CharacterModifiers mods, BoosterFactors boost) {
+        int effectiveOptimal;
+        
+        switch (turretType) {
+            case ICEHARVESTER:
+            case STRIPMINER:
+                effectiveOptimal = (int) (baseOptimal * mods.getHullBonus(hull).stripOptimalMod);
+                break;
+                
+            default:
+                effectiveOptimal = baseOptimal;
+        }
+        
+        return (int) (effectiveOptimal * boost.getOptimalModifier());
+    }
+    
+    /**
+     * Ship's ore (or cargo) hold, in m3.
+     * @param mods pilot's modifiers.
+     * @return 
+     */
+    public int getOreHold(CharacterModifiers mods) {
+        return (int) (baseOreHold * mods.getHullBonus(hull).oreHoldMod);
+    }
+    
+    /**
+     * Returns true, if turret parts of this fit are the same as in the other one.
+     * @param other
+     * @return 
+     */
+    boolean isSameTurret(ShipFactors other) {
+        return turretType == other.turretType && turretCount == other.turretCount
+                && turretYield == other.turretYield && turretCycle == other.turretCycle
+                && baseOptimal == other.baseOptimal;
+    }
+    
+    /**
+     * Returns true, if drone parts of this fit are the same as in the other one.
+     * @param other
+     * @return 
+     */
+    boolean isSameDrones(ShipFactors other) {
+        return dronesMining == other.dronesMining && droneYield == other.droneYield
+                && droneCount == other.droneCount && droneCycle == other.droneCycle;
+    }
+    
+    /**
+     * Returns true, if this fit has the same hull and ore hold as the other one.
+     * @param other
+     * @return 
+     */
+    boolean isSameHull(ShipFactors other) {
+        return hull == other.hull && baseOreHold == other.baseOreHold;
+    }
+    
+    /**
+     * Returns the hull of the fit.
+     * @return 
+     */
+    Hull getHull() {
+        return hull;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data;
+
+import cy.alavrov.jminerguide.data.booster.BoosterShip;
+import cy.alavrov.jminerguide.data.character.EVECharacter;
+import cy.alavrov.jminerguide.data.ship.Ship;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache for calculated stats. Stats are immutable, so the same 
+ * object can be safely shared between all monitor sessions with the same setup.
+ * The calculator doesn't go through the cache, it recalculates only the 
+ * affected parts of the stats with {@link StatsGraph} instead.
+ * 
+ * Cache key is a fingerprint of all the values calculations use, not the 
+ * objects themselves, so any change to a character, ship or booster ship 
+ * simply leads to a different key, and nothing has to be invalidated by hand.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class StatsCache {
+    
+    public final static int DEFAULT_SIZE = 256;
+    
+    /**
+     * Miner skills, used in calculations. If calculations start to use 
+     * another skill, it has to be added here, or the cache will return stale
+     * stats.
+     */
+    private final static int[] minerSkills = {
+        EVECharacter.SKILL_ASTROGEOLOGY,
+        EVECharacter.SKILL_DRONE_INTERFACING,
+        EVECharacter.SKILL_DRONES,
+        EVECharacter.SKILL_EXHUMERS,
+        EVECharacter.SKILL_EXPEDITION_FRIGATES,
+        EVECharacter.SKILL_GAS_CLOUD_HARVESTING,
+        EVECharacter.SKILL_ICE_HARVESTING,
+        EVECharacter.SKILL_MINING,
+        EVECharacter.SKILL_MINING_BARGE,
+        EVECharacter.SKILL_MINING_DRONE_OPERATION,
+        EVECharacter.SKILL_MINING_FRIGATE
+    };
+    
+    /**
+     * Booster skills, used in calculations. Same warning applies.
+     */
+    private final static int[] boosterSkills = {
+        EVECharacter.SKILL_MINING_FOREMAN,
+        EVECharacter.SKILL_MINING_DIRECTOR,
+        EVECharacter.SKILL_WARFARE_LINK_SPECIALIST,
+        EVECharacter.SKILL_INDUSTRIAL_RECONFIGURATION,
+        EVECharacter.SKILL_INDUSTRIAL_COMMAND_SHIPS,
+        EVECharacter.SKILL_CAPITAL_INDUSTRIAL_SHIPS
+    };
+    
+    private final LinkedHashMap<Fingerprint, ICalculatedStats> cache;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor.
+     * @param maxSize maximum number of stats to keep.
+     */
+    public StatsCache(final int maxSize) {
+        // access order for LRU eviction.
+        cache = new LinkedHashMap<Fingerprint, ICalculatedStats>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, ICalculatedStats> eldest) {
+                return size() > maxSize;
+            }            
+        };
+    }
+    
+    /**
+     * Returns stats for a given setup, either cached or freshly calculated.
+     * Same parameters as CalculatedStats constructor.
+     * @param miner
+     * @param booster
+     * @param ship
+     * @param boosterShip
+     * @param mercoxit
+     * @return 
+     */
+    public ICalculatedStats getStats(EVECharacter miner, EVECharacter booster, 
+            Ship ship, BoosterShip boosterShip, boolean mercoxit) {
+        Fingerprint key = new Fingerprint(miner, booster, ship, boosterShip, mercoxit);
+        
+        ICalculatedStats stats;
+        synchronized(this) {
+            stats = cache.get(key);
+        }
+        
+        if (stats != null) {
+            hits.incrementAndGet();
+            return stats;
+        }
+        
+        misses.incrementAndGet();
+        
+        // calculating outside of the lock. Two threads can calculate same 
+        // stats at once, but that's harmless.
+        stats = new CalculatedStats(miner, booster, ship, boosterShip, mercoxit);
+        synchronized(this) {
+            cache.put(key, stats);
+        }
+        
+        return stats;
+    }
+    
+    /**
+     * Returns how much times stats were found in the cache.
+     * @return 
+     */
+    public long getHits() {
+        return hits.get();
+    }
+    
+    /**
+     * Returns how much times stats had to be calculated.
+     * @return 
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public synchronized int size() {
+        return cache.size();
+    }
+    
+    /**
+     * Drops all cached stats. Counters are left as is.
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+    
+    /**
+     * Everything, that affects calculations, packed into few primitives.
+     */
+    private static class Fingerprint {
+        
+        /**
+         * Miner skills, implants and hauler flag.
+         */
+        private final long miner;
+        
+        /**
+         * Station trip duration, in seconds.
+         */
+        private final int stationTripSecs;
+        
+        /**
+         * Booster skills, implant, booster ship and mercoxit flag.
+         */
+        private final long booster;
+        
+        /**
+         * Ship fit.
+         */
+        private final long ship;
+        
+        private final int hash;
+        
+        Fingerprint(EVECharacter minerChar, EVECharacter boosterChar, 
+            Ship shipFit, BoosterShip boosterShip, boolean mercoxit) {
+            long acc = 0;
+            for (int skill : minerSkills) {
+                acc = pack(acc, minerChar.getSkillLevel(skill), 3);
+            }
+            acc = pack(acc, minerChar.getSlot7Implant().ordinal(), 4);
+            acc = pack(acc, minerChar.getSlot8Implant().ordinal(), 4);
+            acc = pack(acc, minerChar.getSlot10Implant().ordinal(), 4);
+            acc = pack(acc, minerChar.isUsingHauler() ? 1 : 0, 1);
+            miner = acc;
+            stationTripSecs = minerChar.getStationTripSecs();
+            
+            acc = 0;
+            for (int skill : boosterSkills) {
+                acc = pack(acc, boosterChar.getSkillLevel(skill), 3);
+            }
+            acc = pack(acc, boosterChar.getSlot10Implant().ordinal(), 4);
+            acc = pack(acc, boosterShip.getHull().ordinal(), 2);
+            acc = pack(acc, boosterShip.getCycleLink().ordinal(), 3);
+            acc = pack(acc, boosterShip.getOptimalLink().ordinal(), 3);
+            acc = pack(acc, boosterShip.isDeployedMode() ? 1 : 0, 1);
+            acc = pack(acc, mercoxit ? 1 : 0, 1);
+            booster = acc;
+            
+            // ship fields can change between calls, so reading them under a
+            // single lock to get a consistent fit.
+            synchronized(shipFit) {
+                acc = 0;
+                acc = pack(acc, shipFit.getHull().ordinal(), 4);
+                acc = pack(acc, shipFit.getTurret().ordinal(), 5);
+                acc = pack(acc, shipFit.getTurretCount(), 4);
+                acc = pack(acc, shipFit.getTurretCrystal().ordinal(), 2);
+                acc = pack(acc, shipFit.getHarvestUpgrade().ordinal(), 4);
+                acc = pack(acc, shipFit.getHarvestUpgradeCount(), 4);
+                acc = pack(acc, shipFit.getDrone().ordinal(), 3);
+                acc = pack(acc, shipFit.getDroneCount(), 3);
+                acc = pack(acc, shipFit.getRig1().ordinal(), 3);
+                acc = pack(acc, shipFit.getRig2().ordinal(), 3);
+                acc = pack(acc, shipFit.getRig3().ordinal(), 3);
+                ship = acc;
+            }
+            
+            int h = (int) (miner ^ (miner >>> 32));
+            h = 31 * h + stationTripSecs;
+            h = 31 * h + (int) (booster ^ (booster >>> 32));
+            h = 31 * h + (int) (ship ^ (ship >>> 32));
+            hash = h;
+        }
+        
+        private static long pack(long acc, int value, int bits) {
+            return (acc << bits) | (value & ((1 << bits) - 1));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Fingerprint)) return false;
+            
+            Fingerprint other = (Fingerprint) obj;
+            return miner == other.miner && stationTripSecs == other.stationTripSecs &&
+                    booster == other.booster && ship == other.ship;
+        }                
+    }
+}
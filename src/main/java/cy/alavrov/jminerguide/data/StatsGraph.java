@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data;
+
+import cy.alavrov.jminerguide.data.booster.BoosterShip;
+import cy.alavrov.jminerguide.data.character.CharacterModifiers;
+import cy.alavrov.jminerguide.data.character.EVECharacter;
+import cy.alavrov.jminerguide.data.ship.Hull;
+import cy.alavrov.jminerguide.data.ship.Ship;
+import java.util.EnumSet;
+
+/**
+ * Stats, calculated as a graph of nodes (see StatsNode), so when an input 
+ * changes, only the nodes downstream of it are recalculated. A node, which 
+ * value hasn't changed after recalculation, doesn't push the change any 
+ * further, so, for example, a drone rig swap only touches drone yield and 
+ * total m3/h.
+ * 
+ * Values are the same as in CalculatedStats for the same inputs.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class StatsGraph implements ICalculatedStats {
+    
+    /**
+     * Nodes, that depend on a node, by node ordinal.
+     */
+    private final static StatsNode[][] dependents;
+    
+    static {
+        StatsNode[] nodes = StatsNode.values();
+        dependents = new StatsNode[nodes.length][];
+        for (StatsNode node : nodes) {
+            EnumSet<StatsNode> deps = EnumSet.noneOf(StatsNode.class);
+            for (StatsNode other : nodes) {
+                for (StatsNode input : other.getInputs()) {
+                    if (input == node) deps.add(other);
+                }
+            }
+            dependents[node.ordinal()] = deps.toArray(new StatsNode[deps.size()]);
+        }
+    }
+    
+    private final boolean[] dirty = new boolean[StatsNode.values().length];
+    private boolean calculated = false;
+    
+    // inputs
+    private CharacterModifiers mods;
+    private int stationTripSecs;
+    private BoosterFactors boost;
+    private ShipFactors ship;
+    
+    // intermediate nodes
+    private float miningYieldModifier;
+    private float iceCycleModifier;
+    private float gasCycleModifier;
+    private float droneYieldModifier;
+    private ShipFactors hullShip;
+    private ShipFactors turretShip;
+    private ShipFactors droneShip;
+    private Hull.BonusCalculationResult hullBonus;
+    private BoosterFactors linkBoost;
+    
+    // outputs
+    private float linkCycleBonus;
+    private float linkOptimalBonus;
+    private float turretYield;
+    private float combinedTurretYield;
+    private float turretCycle;
+    private float turretM3S;
+    private float combinedTurretM3S;
+    private float droneYield;
+    private float combinedDroneYield;
+    private float droneCycle;
+    private float droneM3S;
+    private int optimal;
+    private int oreHold;
+    private int secsForOreHold;
+    private float totalM3H;
+    
+    /**
+     * Sets all the inputs and recalculates everything that changed.
+     * @param miner miner character.
+     * @param booster booster character.
+     * @param ship miner's ship.
+     * @param boosterShip booster ship.
+     * @param mercoxit true, if we're calculating for mercoxit.
+     * @return nodes, which values have changed. Everything on the first call.
+     */
+    public synchronized EnumSet<StatsNode> update(EVECharacter miner, EVECharacter booster, 
+            Ship ship, BoosterShip boosterShip, boolean mercoxit) {
+        setMiner(miner);
+        setBooster(booster, boosterShip);
+        setShip(ship, mercoxit);
+        return recalculate();
+    }
+    
+    /**
+     * Sets miner inputs: modifiers and station trip.
+     * Call recalculate() afterwards.
+     * @param miner 
+     */
+    public synchronized void setMiner(EVECharacter miner) {
+        CharacterModifiers newMods = miner.getModifiers();
+        // modifiers are cached by the character, so it's the same object,
+        // unless something has changed.
+        if (newMods != mods) {
+            mods = newMods;
+            dirty[StatsNode.MINER.ordinal()] = true;
+        }
+        
+        int newTrip = CalculatedStats.getStationTripSecs(miner);
+        if (newTrip != stationTripSecs) {
+            stationTripSecs = newTrip;
+            dirty[StatsNode.TRIP.ordinal()] = true;
+        }
+    }
+    
+    /**
+     * Sets booster inputs.
+     * Call recalculate() afterwards.
+     * @param booster
+     * @param boosterShip 
+     */
+    public synchronized void setBooster(EVECharacter booster, BoosterShip boosterShip) {
+        boost = new BoosterFactors(booster, boosterShip);
+        dirty[StatsNode.BOOSTER.ordinal()] = true;
+    }
+    
+    /**
+     * Sets ship inputs.
+     * Call recalculate() afterwards.
+     * @param ship
+     * @param mercoxit 
+     */
+    public synchronized void setShip(Ship ship, boolean mercoxit) {
+        this.ship = new ShipFactors(ship, mercoxit);
+        dirty[StatsNode.SHIP.ordinal()] = true;
+    }
+    
+    /**
+     * Recalculates nodes, that are downstream of the changed inputs.
+     * All inputs should be set before the first call.
+     * @return nodes, which values have changed.
+     */
+    public synchronized EnumSet<StatsNode> recalculate() {
+        EnumSet<StatsNode> changed = EnumSet.noneOf(StatsNode.class);
+        
+        for (StatsNode node : StatsNode.values()) {
+            if (!dirty[node.ordinal()]) continue;
+            dirty[node.ordinal()] = false;
+            
+            if (calculate(node)) {
+                changed.add(node);
+                for (StatsNode dep : dependents[node.ordinal()]) {
+                    dirty[dep.ordinal()] = true;
+                }
+            }
+        }
+        
+        if (!calculated) {
+            // nobody has seen any values yet, including the ones equal to defaults.
+            calculated = true;
+            return EnumSet.allOf(StatsNode.class);
+        }
+        
+        return changed;
+    }
+    
+    /**
+     * Calculates a single node.
+     * @param node
+     * @return true, if node's value has changed.
+     */
+    private boolean calculate(StatsNode node) {
+        switch (node) {
+            case MINER:
+            case TRIP:
+            case BOOSTER:
+            case SHIP:
+                // inputs are set directly, and only marked dirty when changed.
+                return true;
+                
+            case SKILL_MODIFIERS: {
+                float newYield = mods.getMiningYieldModifier();
+                float newIce = mods.getIceCycleModifier();
+                float newGas = mods.getGasCycleModifier();
+                float newDrone = mods.getDroneYieldModifier();
+                if (newYield == miningYieldModifier && newIce == iceCycleModifier
+                        && newGas == gasCycleModifier && newDrone == droneYieldModifier) {
+                    return false;
+                }
+                
+                miningYieldModifier = newYield;
+                iceCycleModifier = newIce;
+                gasCycleModifier = newGas;
+                droneYieldModifier = newDrone;
+                return true;
+            }
+                
+            case SHIP_HULL: {
+                boolean same = hullShip != null && ship.isSameHull(hullShip);
+                hullShip = ship;
+                return !same;
+            }
+                
+            case SHIP_TURRET: {
+                boolean same = turretShip != null && ship.isSameTurret(turretShip);
+                turretShip = ship;
+                return !same;
+            }
+                
+            case SHIP_DRONES: {
+                boolean same = droneShip != null && ship.isSameDrones(droneShip);
+                droneShip = ship;
+                return !same;
+            }
+                
+            case HULL_BONUS: {
+                Hull.BonusCalculationResult newBonus = mods.getHullBonus(ship.getHull());
+                boolean same = hullBonus != null 
+                        && newBonus.miningYieldMod == hullBonus.miningYieldMod
+                        && newBonus.gasCycleMod == hullBonus.gasCycleMod
+                        && newBonus.stripCycleMod == hullBonus.stripCycleMod
+                        && newBonus.oreHoldMod == hullBonus.oreHoldMod
+                        && newBonus.stripOptimalMod == hullBonus.stripOptimalMod;
+                hullBonus = newBonus;
+                return !same;
+            }
+                
+            case LINK_BONUS: {
+                boolean same = linkBoost != null && boost.isSame(linkBoost);
+                linkBoost = boost;
+                linkCycleBonus = boost.getLinkCycleBonus();
+                linkOptimalBonus = boost.getLinkOptimalBonus();
+                return !same;
+            }
+                
+            case TURRET_YIELD: {
+                float newYield = ship.getTurretYield(mods, boost);
+                float newCombined = newYield * ship.getTurretCount();
+                if (newYield == turretYield && newCombined == combinedTurretYield) return false;
+                
+                turretYield = newYield;
+                combinedTurretYield = newCombined;
+                return true;
+            }
+                
+            case TURRET_CYCLE: {
+                float newCycle = ship.getTurretCycle(mods, boost);
+                if (newCycle == turretCycle) return false;
+                
+                turretCycle = newCycle;
+                return true;
+            }
+                
+            case TURRET_M3S: {
+                float newM3S = turretYield/turretCycle;
+                float newCombined = combinedTurretYield/turretCycle;
+                if (newM3S == turretM3S && newCombined == combinedTurretM3S) return false;
+                
+                turretM3S = newM3S;
+                combinedTurretM3S = newCombined;
+                return true;
+            }
+                
+            case DRONE_YIELD: {
+                float newYield, newCombined, newCycle, newM3S;
+                if (ship.isDronesMining()) {
+                    newYield = ship.getDroneYield(mods);
+                    newCombined = newYield * ship.getDroneCount();
+                    newCycle = ship.getDroneCycle();
+                    newM3S = newCombined / newCycle;
+                } else {
+                    newYield = 0;
+                    newCombined = 0;
+                    newCycle = 0;
+                    newM3S = 0;
+                }
+                
+                if (newYield == droneYield && newCombined == combinedDroneYield
+                        && newCycle == droneCycle && newM3S == droneM3S) {
+                    return false;
+                }
+                
+                droneYield = newYield;
+                combinedDroneYield = newCombined;
+                droneCycle = newCycle;
+                droneM3S = newM3S;
+                return true;
+            }
+                
+            case OPTIMAL: {
+                int newOptimal = ship.getOptimal(mods, boost);
+                if (newOptimal == optimal) return false;
+                
+                optimal = newOptimal;
+                return true;
+            }
+                
+            case ORE_HOLD: {
+                int newOreHold = ship.getOreHold(mods);
+                if (newOreHold == oreHold) return false;
+                
+                oreHold = newOreHold;
+                return true;
+            }
+                
+            case TOTAL_M3H: {
+                float totalM3S = combinedTurretM3S + droneM3S;
+                int newSecs = (int) (oreHold / totalM3S);
+                float newTotal = CalculatedStats.calculateTotalM3H(oreHold, totalM3S, stationTripSecs);
+                if (newSecs == secsForOreHold && newTotal == totalM3H) return false;
+                
+                secsForOreHold = newSecs;
+                totalM3H = newTotal;
+                return true;
+            }
+                
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public synchronized float getTurretYield() {
+        return turretYield;
+    }
+
+    @Override
+    public synchronized float getCombinedTurretYield() {
+        return combinedTurretYield;
+    }
+
+    @Override
+    public synchronized float getTurretCycle() {
+        return turretCycle;
+    }
+
+    @Override
+    public synchronized float getTurretM3S() {
+        return turretM3S;
+    }
+
+    @Override
+    public synchronized float getCombinedTurretM3S() {
+        return combinedTurretM3S;
+    }
+
+    @Override
+    public synchronized float getDroneYield() {
+        return droneYield;
+    }
+
+    @Override
+    public synchronized float getCombinedDroneYield() {
+        return combinedDroneYield;
+    }
+
+    @Override
+    public synchronized float getDroneCycle() {
+        return droneCycle;
+    }
+
+    @Override
+    public synchronized float getDroneM3S() {
+        return droneM3S;
+    }
+
+    @Override
+    public synchronized float getTotalM3H() {
+        return totalM3H;
+    }
+
+    @Override
+    public synchronized int getOptimal() {
+        return optimal;
+    }
+
+    @Override
+    public synchronized int getOreHold() {
+        return oreHold;
+    }
+
+    @Override
+    public synchronized int getSecsForOreHold() {
+        return secsForOreHold;
+    }
+
+    @Override
+    public synchronized float getLinkCycleBonus() {
+        return linkCycleBonus;
+    }
+
+    @Override
+    public synchronized float getLinkOptimalBonus() {
+        return linkOptimalBonus;
+    }
+}
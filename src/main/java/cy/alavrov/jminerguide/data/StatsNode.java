@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data;
+
+/**
+ * Nodes of the stats calculation graph, in calculation order: every node 
+ * comes after all the nodes it depends on.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public enum StatsNode {
+    /**
+     * Input: miner's modifiers.
+     */
+    MINER,
+    /**
+     * Input: station trip duration.
+     */
+    TRIP,
+    /**
+     * Input: booster and booster ship.
+     */
+    BOOSTER,
+    /**
+     * Input: ship fit.
+     */
+    SHIP,
+    
+    SKILL_MODIFIERS (MINER),
+    SHIP_HULL (SHIP),
+    SHIP_TURRET (SHIP),
+    SHIP_DRONES (SHIP),
+    HULL_BONUS (MINER, SHIP_HULL),
+    /**
+     * Output: link cycle and optimal bonuses.
+     */
+    LINK_BONUS (BOOSTER),
+    
+    /**
+     * Output: turret yield, per turret and combined.
+     */
+    TURRET_YIELD (SHIP_TURRET, SKILL_MODIFIERS, HULL_BONUS, LINK_BONUS),
+    /**
+     * Output: turret cycle.
+     */
+    TURRET_CYCLE (SHIP_TURRET, SKILL_MODIFIERS, HULL_BONUS, LINK_BONUS),
+    /**
+     * Output: turret m3/s, per turret and combined.
+     */
+    TURRET_M3S (TURRET_YIELD, TURRET_CYCLE),
+    /**
+     * Output: drone yield, cycle and m3/s.
+     */
+    DRONE_YIELD (SHIP_DRONES, SKILL_MODIFIERS),
+    /**
+     * Output: optimal range.
+     */
+    OPTIMAL (SHIP_TURRET, HULL_BONUS, LINK_BONUS),
+    /**
+     * Output: ore hold.
+     */
+    ORE_HOLD (SHIP_HULL, HULL_BONUS),
+    /**
+     * Output: total m3/h and ore hold fill time.
+     */
+    TOTAL_M3H (TURRET_M3S, DRONE_YIELD, ORE_HOLD, TRIP);
+    
+    private final StatsNode[] inputs;
+
+    private StatsNode(StatsNode... inputs) {
+        this.inputs = inputs;
+    }
+
+    /**
+     * Nodes this one is calculated from.
+     * @return 
+     */
+    public StatsNode[] getInputs() {
+        return inputs.clone();
+    }
+}
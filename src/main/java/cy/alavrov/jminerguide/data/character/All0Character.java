@@ -41,7 +41,7 @@ public class All0Character extends EVECharacter{
     }
     
     @Override
-    public Integer getSkillLevel(Integer skillID) {
+    public int getSkillLevel(int skillID) {
         return 0;
     }
     
@@ -56,7 +56,7 @@ public class All0Character extends EVECharacter{
     }
     
     @Override
-    public void setSkillLevel(Integer skillID, Integer level) {
+    public void setSkillLevel(int skillID, int level) {
         
     }
 }
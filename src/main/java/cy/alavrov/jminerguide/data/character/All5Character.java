@@ -44,7 +44,7 @@ public class All5Character extends EVECharacter{
     }
     
     @Override
-    public Integer getSkillLevel(Integer skillID) {
+    public int getSkillLevel(int skillID) {
         return 5;
     }
     
@@ -59,7 +59,7 @@ public class All5Character extends EVECharacter{
     }
     
     @Override
-    public void setSkillLevel(Integer skillID, Integer level) {
+    public void setSkillLevel(int skillID, int level) {
         
     }
 }
@@ -31,6 +31,7 @@ import cy.alavrov.jminerguide.log.JMGLogger;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -56,7 +57,8 @@ public class CharacterContainer {
     private final String path;
     
     private LinkedHashMap<Integer, APIKey> keys;
-    private HashMap<String, EVECharacter> charMap;
+    // rebuilt on every change and read without locking.
+    private volatile CharacterIndex index;
     
     private String selectedMiner;
     private String selectedBooster;
@@ -182,12 +184,10 @@ public class CharacterContainer {
      * Returns a list model with API keys for a Swing list. Keys are sorted by insertion order.
      * @return 
      */
-    public synchronized DefaultListModel<APIKey> getListModel() {
+    public DefaultListModel<APIKey> getListModel() {
         DefaultListModel<APIKey> out = new DefaultListModel<>();
-                                  
-        if (keys.isEmpty()) return out;
-
-        for (APIKey key : keys.values()) {
+        
+        for (APIKey key : index.keys) {
             out.addElement(key);
         }
         
@@ -195,25 +195,28 @@ public class CharacterContainer {
     }
     
     /**
-     * Reloads character name to character map. Stores only one character per name.
+     * Rebuilds the character index: keys, characters in combo box order, 
+     * and characters by name and by ID. Stores only one character per name.
      * Does not contain hidden characters.
+     * Should be called after characters of the keys are changed or hidden.
      */
     public synchronized void reloadCharMap() {
-        HashMap<String, EVECharacter> newCharMap = new HashMap<>();
-
-        newCharMap.put(all5miner.getName(), all5miner);
-        newCharMap.put(all5booster.getName(), all5booster);
-        newCharMap.put(all0.getName(), all0);
-        newCharMap.put(customChar.getName(), customChar);
+        ArrayList<EVECharacter> visible = new ArrayList<>();
+        visible.add(all5miner);
+        visible.add(all5booster);
+        visible.add(all0);
+        visible.add(customChar);
+        
         for (APIKey key : keys.values()) {
             for (EVECharacter eveChar : key.getCharacters()) {
                 if (!eveChar.isHidden()) {
-                    newCharMap.put(eveChar.getName(), eveChar);
+                    visible.add(eveChar);
                 }
             }
         }
 
-        charMap = newCharMap;
+        index = new CharacterIndex(keys.values().toArray(new APIKey[keys.size()]), 
+                visible.toArray(new EVECharacter[visible.size()]));
     }
     
     /**
@@ -222,9 +225,20 @@ public class CharacterContainer {
      * @param name
      * @return 
      */
-    public synchronized EVECharacter getCharacterByName(String name) {
+    public EVECharacter getCharacterByName(String name) {
         if (name == null) return null;
-        return charMap.get(name);
+        return index.byName.get(name);
+    }
+    
+    /**
+     * Returns an EVE character by it's ID, or null, if there is no such 
+     * character, or it's hidden.
+     * @param id
+     * @return 
+     */
+    public EVECharacter getCharacterByID(Integer id) {
+        if (id == null) return null;
+        return index.byID.get(id);
     }
     
     /**
@@ -238,6 +252,7 @@ public class CharacterContainer {
         if (keys.containsKey(key.getID())) return;
 
         keys.put(key.getID(), key);
+        reloadCharMap();
     }
     
     /**
@@ -248,6 +263,7 @@ public class CharacterContainer {
         if (key == null) return;
         
         keys.remove(key.getID());
+        reloadCharMap();
     }
     
     /**
@@ -274,6 +290,7 @@ public class CharacterContainer {
         
         if (keys.containsKey(key.getID())) {
             keys.put(key.getID(), key);
+            reloadCharMap();
         }
     }
     
@@ -284,24 +301,8 @@ public class CharacterContainer {
      * Does not contain hidden characters.
      * @return 
      */
-    public synchronized DefaultComboBoxModel<EVECharacter> getCharModel() {
-        DefaultComboBoxModel<EVECharacter> out = new DefaultComboBoxModel<>();
-        
-        out.addElement(all5miner);
-        out.addElement(all5booster);
-        out.addElement(all0);
-        out.addElement(customChar);
-                  
-        for (APIKey key : keys.values()) {
-            List<EVECharacter> chrs = key.getCharacters();
-            for (EVECharacter chr : chrs) {
-                if (!chr.isHidden()) {
-                    out.addElement(chr);
-                }
-            }
-        }
-        
-        return out;
+    public DefaultComboBoxModel<EVECharacter> getCharModel() {
+        return new DefaultComboBoxModel<>(index.visible);
     }
     
     /**
@@ -317,7 +318,7 @@ public class CharacterContainer {
      * @return 
      */
     public synchronized EVECharacter getLastSelectedMiner() {
-        EVECharacter ret = charMap.get(selectedMiner);
+        EVECharacter ret = getCharacterByName(selectedMiner);
         if (ret == null) ret = all5miner;
 
         return ret;
@@ -336,7 +337,7 @@ public class CharacterContainer {
      * @return 
      */
     public EVECharacter getLastSelectedBooster() {
-        EVECharacter ret = charMap.get(selectedBooster);
+        EVECharacter ret = getCharacterByName(selectedBooster);
         if (ret == null) ret = all0;
 
         return ret;
@@ -365,5 +366,29 @@ public class CharacterContainer {
     public EVECharacter getAll5miner() {
         return all5miner;
     }
+    
+    /**
+     * Immutable snapshot of keys and visible characters.
+     */
+    private static class CharacterIndex {
+        private final APIKey[] keys;
+        // in combo box order.
+        private final EVECharacter[] visible;
+        private final HashMap<String, EVECharacter> byName;
+        private final HashMap<Integer, EVECharacter> byID;
+
+        public CharacterIndex(APIKey[] keys, EVECharacter[] visible) {
+            this.keys = keys;
+            this.visible = visible;
+            byName = new HashMap<>(visible.length * 2);
+            byID = new HashMap<>(visible.length * 2);
+            for (EVECharacter chr : visible) {
+                byName.put(chr.getName(), chr);
+                // default and custom characters have no real ID.
+                Integer id = chr.getID();
+                if (id != null && id > 0 && !byID.containsKey(id)) byID.put(id, chr);
+            }
+        }
+    }
         
 }
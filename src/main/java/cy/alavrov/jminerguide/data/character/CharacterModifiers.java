@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data.character;
+
+import cy.alavrov.jminerguide.data.booster.BoosterHull;
+import cy.alavrov.jminerguide.data.implant.Implant;
+import cy.alavrov.jminerguide.data.ship.Hull;
+
+/**
+ * Frozen set of character's modifiers, as granted by skills and implants.
+ * Made once per skill or implant change, so calculations can just read the 
+ * values, without locking the character or redoing the math.
+ * 
+ * Warning! Modifiers aren't in percents, you can directly multiply by them.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public final class CharacterModifiers {
+    private final float miningYieldModifier;
+    private final float iceCycleModifier;
+    private final float gasCycleModifier;
+    private final float droneYieldModifier;
+    private final float boosterLinkModifier;
+    
+    private final int miningForemanLevel;
+    private final boolean usingMindlink;
+    
+    /**
+     * Hull bonuses, indexed by hull ordinal.
+     */
+    private final Hull.BonusCalculationResult[] hullBonuses;
+    
+    /**
+     * Booster hull modifiers, indexed by booster hull ordinal, for normal 
+     * and deployed mode.
+     */
+    private final float[] boostModifiers;
+    private final float[] deployedBoostModifiers;
+
+    /**
+     * Should be called with the character locked, so all values are taken 
+     * from the same state.
+     * @param pilot 
+     */
+    CharacterModifiers(EVECharacter pilot) {
+        miningYieldModifier = pilot.getMiningYieldModifier();
+        iceCycleModifier = pilot.getIceCycleModifier();
+        gasCycleModifier = pilot.getGasCycleModifier();
+        droneYieldModifier = pilot.getDroneYieldModifier();
+        boosterLinkModifier = pilot.getBoosterLinkModifier();
+        
+        miningForemanLevel = pilot.getSkillLevel(EVECharacter.SKILL_MINING_FOREMAN);
+        // ATM there is only one mining mindlink, so we'll just hardcode it in.
+        usingMindlink = pilot.getSlot10Implant() == Implant.MFMINDLINK;
+        
+        Hull[] hulls = Hull.values();
+        hullBonuses = new Hull.BonusCalculationResult[hulls.length];
+        for (Hull hull : hulls) {
+            hullBonuses[hull.ordinal()] = hull.calculateSkillBonusModificators(pilot);
+        }
+        
+        BoosterHull[] bHulls = BoosterHull.values();
+        boostModifiers = new float[bHulls.length];
+        deployedBoostModifiers = new float[bHulls.length];
+        for (BoosterHull bHull : bHulls) {
+            boostModifiers[bHull.ordinal()] = bHull.calculateBoostModifier(pilot, false);
+            deployedBoostModifiers[bHull.ordinal()] = bHull.calculateBoostModifier(pilot, true);
+        }
+    }
+
+    /**
+     * Returns bonus modifier to mining yield, granted by skills and implants.
+     * @return 
+     */
+    public float getMiningYieldModifier() {
+        return miningYieldModifier;
+    }
+
+    /**
+     * Returns bonus modifier to ice harvester cycle time, granted by skills and implants.
+     * @return 
+     */
+    public float getIceCycleModifier() {
+        return iceCycleModifier;
+    }
+
+    /**
+     * Returns bonus modifier to gas harvester cycle time, granted by implants.
+     * @return 
+     */
+    public float getGasCycleModifier() {
+        return gasCycleModifier;
+    }
+
+    /**
+     * Returns bonus modifier to drone yield, granted by skills.
+     * @return 
+     */
+    public float getDroneYieldModifier() {
+        return droneYieldModifier;
+    }
+
+    /**
+     * Returns bonus modifier to foreman links, granted by skills.
+     * @return 
+     */
+    public float getBoosterLinkModifier() {
+        return boosterLinkModifier;
+    }
+
+    /**
+     * Returns Mining Foreman skill level.
+     * @return 
+     */
+    public int getMiningForemanLevel() {
+        return miningForemanLevel;
+    }
+
+    /**
+     * Returns true, if there's a mining foreman mindlink in the slot 10.
+     * @return 
+     */
+    public boolean isUsingMindlink() {
+        return usingMindlink;
+    }
+    
+    /**
+     * Returns skill bonuses for a hull.
+     * @param hull
+     * @return 
+     */
+    public Hull.BonusCalculationResult getHullBonus(Hull hull) {
+        return hullBonuses[hull.ordinal()];
+    }
+    
+    /**
+     * Returns booster hull's boost modifier.
+     * @param hull
+     * @param deployed
+     * @return 
+     */
+    public float getBoostModifier(BoosterHull hull, boolean deployed) {
+        return deployed ? deployedBoostModifiers[hull.ordinal()] : boostModifiers[hull.ordinal()];
+    }
+}
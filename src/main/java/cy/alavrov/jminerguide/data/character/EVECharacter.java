@@ -37,10 +37,8 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import org.apache.http.client.methods.HttpGet;
 import org.jdom2.Attribute;
 import org.jdom2.Document;
@@ -88,7 +86,13 @@ public class EVECharacter implements ICoreCharacter{
     private Implant slot8;
     private Implant slot10;
     
-    private HashMap<Integer, Integer> skills;
+    private SkillTable skills;
+    
+    /**
+     * Modifiers for the current skills and implants. Dropped on any change
+     * and made again on the next request.
+     */
+    private volatile CharacterModifiers modifiers;
     
     private String monitorShip;
     private String monitorBooster;
@@ -116,7 +120,7 @@ public class EVECharacter implements ICoreCharacter{
         this.stationTripSecs = 150;
         this.usingHauler = false;
         
-        this.skills = new HashMap<>();
+        this.skills = new SkillTable();
         
         this.slot7 = Implant.NOTHING;
         this.slot8 = Implant.NOTHING;
@@ -129,6 +133,29 @@ public class EVECharacter implements ICoreCharacter{
         allOnAsteroidFilter();
     }
     
+    /**
+     * Constructor for a calculation snapshot of a character.
+     * @param src source character, should be locked.
+     * @param skills skill table, owned by the snapshot.
+     */
+    private EVECharacter(EVECharacter src, SkillTable skills) {
+        this.id = src.id;
+        this.name = src.name;
+        this.parentKey = src.parentKey;
+        
+        this.stationTripSecs = src.stationTripSecs;
+        this.usingHauler = src.usingHauler;
+        
+        this.skills = skills;
+        
+        this.slot7 = src.slot7;
+        this.slot8 = src.slot8;
+        this.slot10 = src.slot10;
+        
+        // snapshots are for calculations only, so no monitor settings there.
+        this.roidFilter = new HashSet<>();
+    }
+    
     /**
      * Constructor to load character's data from the XML.
      * @param root root element for character's XML data.
@@ -164,13 +191,14 @@ public class EVECharacter implements ICoreCharacter{
         
         // skills and implants are expendable.
         // they can be pulled via API anyway.
-        HashMap<Integer, Integer> newSkills = new HashMap<>();
+        SkillTable newSkills = new SkillTable();
         Element skillSet = root.getChild("skills");
         try {
             List<Element> skillList = skillSet.getChildren("skill");
             for(Element skill : skillList) {
                 int skid = skill.getAttribute("id").getIntValue();
                 int skvalue = skill.getAttribute("value").getIntValue();
+                if (skvalue < 0 || skvalue > 5) continue;
                 newSkills.put(skid, skvalue);
             }
         } catch (Exception e) {
@@ -271,10 +299,10 @@ public class EVECharacter implements ICoreCharacter{
         root.addContent(tripConf);
         
         Element skillSet = new Element("skills");
-        for(Map.Entry<Integer, Integer> skill : skills.entrySet()) {
+        for(int skillID : skills.getSkillIDs()) {
             Element skillElem = new Element("skill");
-            skillElem.setAttribute("id", skill.getKey().toString());
-            skillElem.setAttribute("value", skill.getValue().toString());
+            skillElem.setAttribute("id", String.valueOf(skillID));
+            skillElem.setAttribute("value", String.valueOf(skills.get(skillID)));
             skillSet.addContent(skillElem);
         }        
         root.addContent(skillSet);
@@ -353,20 +381,47 @@ public class EVECharacter implements ICoreCharacter{
      * @param skillID
      * @return skill level or 0 for unknown skill.
      */
-    public synchronized Integer getSkillLevel(Integer skillID) {
-        Integer ret = skills.get(skillID);
-        return (ret == null ? 0 : ret);
+    public synchronized int getSkillLevel(int skillID) {
+        return skills.get(skillID);
     }
     
     /**
      * Sets level of a skill. 
-     * Ingores bad level values. Null-safe (does nothing on nulls).
+     * Ingores bad level values.
      * @param skillID ID of a skill
      * @param level desired level
      */
-    public synchronized void setSkillLevel(Integer skillID, Integer level) {
-        if (skillID == null || level == null || level < 0 || level > 5) return;
+    public synchronized void setSkillLevel(int skillID, int level) {
+        if (level < 0 || level > 5) return;
         skills.put(skillID, level);
+        modifiers = null;
+    }
+    
+    /**
+     * Returns IDs of all skills, used in calculations.
+     * @return 
+     */
+    public static int[] getCalculationSkillIDs() {
+        return SkillTable.getDenseIDs();
+    }
+    
+    /**
+     * Makes a cheap copy of the character for calculations: skills, implants
+     * and station trip settings, without monitor settings and asteroid filter.
+     * The copy is always a regular character, so its skills can be changed 
+     * without affecting the original, even for presets.
+     * @return 
+     */
+    public synchronized EVECharacter getSkillSnapshot() {
+        SkillTable table = skills.copy();
+        if (isPreset()) {
+            // presets override skill levels, so take them through the getter.
+            for (int skillID : SkillTable.getDenseIDs()) {
+                table.put(skillID, getSkillLevel(skillID));
+            }
+        }
+        
+        return new EVECharacter(this, table);
     }
     
     /**
@@ -386,6 +441,7 @@ public class EVECharacter implements ICoreCharacter{
     public synchronized void setSlot7Implant(Implant imp) {
         if (imp == null || (imp.getSlot() != 7 && imp != Implant.NOTHING)) return;
         slot7 = imp;
+        modifiers = null;
     }
     
     /**
@@ -405,6 +461,7 @@ public class EVECharacter implements ICoreCharacter{
     public synchronized void setSlot8Implant(Implant imp) {
         if (imp == null || (imp.getSlot() != 8 && imp != Implant.NOTHING)) return;
         slot8 = imp;
+        modifiers = null;
     }
     
     /**
@@ -424,6 +481,7 @@ public class EVECharacter implements ICoreCharacter{
     public synchronized void setSlot10Implant(Implant imp) {
         if (imp == null || (imp.getSlot() != 10 && imp != Implant.NOTHING)) return;
         slot10 = imp;
+        modifiers = null;
     }
     
     /**
@@ -492,12 +550,13 @@ public class EVECharacter implements ICoreCharacter{
                 }
             }
             
-            HashMap<Integer, Integer> newSkills = new HashMap<>();
+            SkillTable newSkills = new SkillTable();
             if (skillRowset != null) {
                 List<Element> rows = skillRowset.getChildren("row");                
                 for (Element row : rows) {
                     int skid = row.getAttribute("typeID").getIntValue();
                     int skval = row.getAttribute("level").getIntValue();
+                    if (skval < 0 || skval > 5) continue;
                     newSkills.put(skid, skval);
                 }
             } else {
@@ -534,6 +593,7 @@ public class EVECharacter implements ICoreCharacter{
             slot7 = newSlot7;
             slot8 = newSlot8;
             slot10 = newSlot10;
+            modifiers = null;
             
         } catch (JDOMException | IOException | IllegalArgumentException | NullPointerException e ) {
             JMGLogger.logSevere("Critical failure during API parsing", e);
@@ -706,6 +766,23 @@ public class EVECharacter implements ICoreCharacter{
         return out;
     }
     
+    /**
+     * Returns modifiers for current skills and implants. Doesn't lock, 
+     * unless modifiers have to be made anew after a change.
+     * @return 
+     */
+    public CharacterModifiers getModifiers() {
+        CharacterModifiers out = modifiers;
+        if (out != null) return out;
+        
+        synchronized(this) {
+            if (modifiers == null) {
+                modifiers = new CharacterModifiers(this);
+            }
+            return modifiers;
+        }
+    }
+    
     /**
      * Returns true, if the character should be hidden.
      * @return 
@@ -923,10 +1000,11 @@ public class EVECharacter implements ICoreCharacter{
     
     
     protected synchronized void resetSkilsAndImplants() {                
-        this.skills = new HashMap<>();
+        this.skills = new SkillTable();
         
         this.slot7 = Implant.NOTHING;
         this.slot8 = Implant.NOTHING;
         this.slot10 = Implant.NOTHING;
+        modifiers = null;
     }
 }
@@ -29,8 +29,10 @@ import cy.alavrov.jminerguide.log.JMGLogger;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.input.SAXBuilder;
@@ -45,11 +47,13 @@ public class SimpleCharacterCointainer {
     
     private final String path;
     
-    private HashMap<String, SimpleCharacter> charMap;
+    // never changed after publishing, replaced with a copy instead, 
+    // so lookups need no locking.
+    private volatile Map<String, SimpleCharacter> charMap;
 
     public SimpleCharacterCointainer(String path) {
         this.path = path;
-        this.charMap = new HashMap<>();
+        this.charMap = Collections.emptyMap();
     }
     
     /**
@@ -124,11 +128,18 @@ public class SimpleCharacterCointainer {
      * @param name
      * @return 
      */
-    public synchronized SimpleCharacter getCharacterByName(String name) {        
+    public SimpleCharacter getCharacterByName(String name) {        
         SimpleCharacter out = charMap.get(name);
-        if (out == null) {
-            out = new SimpleCharacter(name);
-            charMap.put(out.getName(), out);
+        if (out != null) return out;
+        
+        synchronized (this) {
+            out = charMap.get(name);
+            if (out == null) {
+                out = new SimpleCharacter(name);
+                HashMap<String, SimpleCharacter> newChars = new HashMap<>(charMap);
+                newChars.put(out.getName(), out);
+                charMap = newChars;
+            }
         }
         
         return out;
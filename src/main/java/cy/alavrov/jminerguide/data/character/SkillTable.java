@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data.character;
+
+/**
+ * Skill levels of a character, without boxing.
+ * 
+ * Skills, used in calculations (SKILL_* constants in EVECharacter), are kept 
+ * in a dense array with a fixed slot per skill, everything else from the 
+ * character sheet goes into a small open addressing int to byte map.
+ * 
+ * Not thread-safe, owner takes care of that.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+final class SkillTable {
+    
+    /**
+     * Skills with a fixed slot in the dense array, in slot order.
+     */
+    private final static int[] denseIDs = {
+        EVECharacter.SKILL_ASTROGEOLOGY,
+        EVECharacter.SKILL_DRONE_INTERFACING,
+        EVECharacter.SKILL_DRONES,
+        EVECharacter.SKILL_EXHUMERS,
+        EVECharacter.SKILL_EXPEDITION_FRIGATES,
+        EVECharacter.SKILL_GAS_CLOUD_HARVESTING,
+        EVECharacter.SKILL_ICE_HARVESTING,
+        EVECharacter.SKILL_MINING,
+        EVECharacter.SKILL_MINING_BARGE,
+        EVECharacter.SKILL_MINING_DRONE_OPERATION,
+        EVECharacter.SKILL_MINING_FRIGATE,
+        EVECharacter.SKILL_MINING_FOREMAN,
+        EVECharacter.SKILL_MINING_DIRECTOR,
+        EVECharacter.SKILL_WARFARE_LINK_SPECIALIST,
+        EVECharacter.SKILL_INDUSTRIAL_RECONFIGURATION,
+        EVECharacter.SKILL_INDUSTRIAL_COMMAND_SHIPS,
+        EVECharacter.SKILL_CAPITAL_INDUSTRIAL_SHIPS
+    };
+    
+    private final static int MIN_CAPACITY = 16;
+    
+    /**
+     * Levels of the dense skills.
+     */
+    private final byte[] dense;
+    
+    /**
+     * Bit per dense skill, set if the skill is known at all. Lets us tell 
+     * "level 0" from "never trained", so saved data stays the same.
+     */
+    private int denseKnown;
+    
+    /**
+     * Other skill ids, 0 means an empty cell. Capacity is a power of two.
+     */
+    private int[] keys;
+    private byte[] values;
+    private int size;
+
+    SkillTable() {
+        dense = new byte[denseIDs.length];
+        keys = new int[MIN_CAPACITY];
+        values = new byte[MIN_CAPACITY];
+    }
+    
+    private SkillTable(SkillTable src) {
+        dense = src.dense.clone();
+        denseKnown = src.denseKnown;
+        keys = src.keys.clone();
+        values = src.values.clone();
+        size = src.size;
+    }
+    
+    /**
+     * Returns IDs of the skills with a fixed slot, i.e. the ones used in 
+     * calculations.
+     * @return 
+     */
+    static int[] getDenseIDs() {
+        return denseIDs.clone();
+    }
+    
+    /**
+     * Returns a slot in the dense array for a skill, or -1, if it has none.
+     * @param skillID
+     * @return 
+     */
+    private static int denseSlot(int skillID) {
+        switch (skillID) {
+            case EVECharacter.SKILL_ASTROGEOLOGY: return 0;
+            case EVECharacter.SKILL_DRONE_INTERFACING: return 1;
+            case EVECharacter.SKILL_DRONES: return 2;
+            case EVECharacter.SKILL_EXHUMERS: return 3;
+            case EVECharacter.SKILL_EXPEDITION_FRIGATES: return 4;
+            case EVECharacter.SKILL_GAS_CLOUD_HARVESTING: return 5;
+            case EVECharacter.SKILL_ICE_HARVESTING: return 6;
+            case EVECharacter.SKILL_MINING: return 7;
+            case EVECharacter.SKILL_MINING_BARGE: return 8;
+            case EVECharacter.SKILL_MINING_DRONE_OPERATION: return 9;
+            case EVECharacter.SKILL_MINING_FRIGATE: return 10;
+            case EVECharacter.SKILL_MINING_FOREMAN: return 11;
+            case EVECharacter.SKILL_MINING_DIRECTOR: return 12;
+            case EVECharacter.SKILL_WARFARE_LINK_SPECIALIST: return 13;
+            case EVECharacter.SKILL_INDUSTRIAL_RECONFIGURATION: return 14;
+            case EVECharacter.SKILL_INDUSTRIAL_COMMAND_SHIPS: return 15;
+            case EVECharacter.SKILL_CAPITAL_INDUSTRIAL_SHIPS: return 16;
+            default: return -1;
+        }
+    }
+    
+    private static int hash(int skillID) {
+        int h = skillID * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Returns level of a skill.
+     * @param skillID
+     * @return skill level or 0 for unknown skill.
+     */
+    int get(int skillID) {
+        int slot = denseSlot(skillID);
+        if (slot >= 0) return dense[slot];
+        if (skillID <= 0) return 0;
+        
+        int mask = keys.length - 1;
+        for (int i = hash(skillID) & mask; ; i = (i + 1) & mask) {
+            int key = keys[i];
+            if (key == skillID) return values[i];
+            if (key == 0) return 0;
+        }
+    }
+    
+    /**
+     * Sets level of a skill. No checks on the level, that's owner's job.
+     * Skill ids that aren't positive are ignored, as there's no such skills.
+     * @param skillID
+     * @param level 
+     */
+    void put(int skillID, int level) {
+        int slot = denseSlot(skillID);
+        if (slot >= 0) {
+            dense[slot] = (byte) level;
+            denseKnown |= 1 << slot;
+            return;
+        }
+        
+        if (skillID <= 0) return;
+        
+        // keeping load factor at 0.5 or lower.
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        
+        int mask = keys.length - 1;
+        for (int i = hash(skillID) & mask; ; i = (i + 1) & mask) {
+            int key = keys[i];
+            if (key == skillID) {
+                values[i] = (byte) level;
+                return;
+            }
+            if (key == 0) {
+                keys[i] = skillID;
+                values[i] = (byte) level;
+                size++;
+                return;
+            }
+        }
+    }
+    
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        byte[] oldValues = values;
+        keys = new int[capacity];
+        values = new byte[capacity];
+        
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            int key = oldKeys[j];
+            if (key == 0) continue;
+            
+            int i = hash(key) & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+    
+    /**
+     * Returns ids of all known skills, dense ones first.
+     * @return 
+     */
+    int[] getSkillIDs() {
+        int[] out = new int[Integer.bitCount(denseKnown) + size];
+        int pos = 0;
+        for (int slot = 0; slot < denseIDs.length; slot++) {
+            if ((denseKnown & (1 << slot)) != 0) out[pos++] = denseIDs[slot];
+        }
+        for (int key : keys) {
+            if (key != 0) out[pos++] = key;
+        }
+        return out;
+    }
+    
+    /**
+     * Returns an independent copy of the table. Just few array copies.
+     * @return 
+     */
+    SkillTable copy() {
+        return new SkillTable(this);
+    }
+}
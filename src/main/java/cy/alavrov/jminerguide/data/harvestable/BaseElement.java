@@ -25,6 +25,10 @@
  */
 package cy.alavrov.jminerguide.data.harvestable;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Base elements of ores and ices.
  * Are there for price queries.
@@ -52,6 +56,17 @@ public enum BaseElement {
     
     private final String name;
     private final int id;
+    
+    public final static Map<Integer, BaseElement> idMap;
+    
+    static {
+        HashMap<Integer, BaseElement> out = new HashMap<>();
+        for (BaseElement elem : values()) {
+            out.put(elem.id, elem);
+        }
+        
+        idMap = Collections.unmodifiableMap(out);
+    }
 
     private BaseElement(String name, int id) {
         this.name = name;
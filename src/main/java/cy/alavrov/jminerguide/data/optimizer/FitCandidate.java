@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data.optimizer;
+
+import cy.alavrov.jminerguide.data.ICalculatedStats;
+import cy.alavrov.jminerguide.data.ship.Ship;
+
+/**
+ * A single fit, found by the optimizer, with stats calculated for it.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class FitCandidate {
+    private final Ship ship;
+    private final ICalculatedStats stats;
+
+    public FitCandidate(Ship ship, ICalculatedStats stats) {
+        this.ship = ship;
+        this.stats = stats;
+    }
+
+    /**
+     * Returns the fit itself. It's a fresh object, not bound to any container.
+     * @return 
+     */
+    public Ship getShip() {
+        return ship;
+    }
+
+    /**
+     * Returns stats, calculated for the fit.
+     * @return 
+     */
+    public ICalculatedStats getStats() {
+        return stats;
+    }
+    
+    /**
+     * Total ship yield, in m3/hour.
+     * @return 
+     */
+    public float getTotalM3H() {
+        return stats.getTotalM3H();
+    }
+    
+    @Override
+    public String toString() {
+        return ship.getName();
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data.optimizer;
+
+import cy.alavrov.jminerguide.data.CalculatedStats;
+import cy.alavrov.jminerguide.data.ICalculatedStats;
+import cy.alavrov.jminerguide.data.booster.BoosterShip;
+import cy.alavrov.jminerguide.data.character.EVECharacter;
+import cy.alavrov.jminerguide.data.harvestable.HarvestableType;
+import cy.alavrov.jminerguide.data.ship.HarvestUpgrade;
+import cy.alavrov.jminerguide.data.ship.Hull;
+import cy.alavrov.jminerguide.data.ship.MiningCrystalLevel;
+import cy.alavrov.jminerguide.data.ship.MiningDrone;
+import cy.alavrov.jminerguide.data.ship.Rig;
+import cy.alavrov.jminerguide.data.ship.Ship;
+import cy.alavrov.jminerguide.data.ship.Turret;
+import cy.alavrov.jminerguide.data.ship.TurretType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Searches through all the legal ship fits for the ones with the best m3/hour 
+ * for a given miner, booster and booster ship.
+ * 
+ * Every hull/turret pair is a separate branch. Branches get an upper bound 
+ * first (best turret setup and best drone setup are taken independently, so 
+ * the bound is never lower than any real fit), then they are searched in 
+ * parallel, best bound first, skipping anything that can't beat the worst of 
+ * the fits found so far.
+ * 
+ * Fit options, that calculations ignore for a turret (crystals for turrets 
+ * without them, upgrades for gas harvesters, drones and drone rigs when 
+ * drones don't mine, ice and mercoxit rigs for other turrets) are not tried, 
+ * as they would just make duplicates.
+ * 
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class FitOptimizer {
+    
+    /**
+     * Bounds are compared with a tiny bit of slack, as per-drone yield is
+     * derived from a calculation for a full flight, and float rounding can go 
+     * either way.
+     */
+    private final static float BOUND_SLACK = 1.001f;
+    
+    /**
+     * Sorts branches by their upper bound, descending.
+     */
+    private final static Comparator<Branch> branchComparator = new Comparator<Branch>() {
+        @Override
+        public int compare(Branch o1, Branch o2) {
+            return Float.compare(o2.bound, o1.bound);
+        }
+    };
+    
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an optimizer with it's own pool, one thread per core.
+     */
+    public FitOptimizer() {
+        this(new ForkJoinPool());
+    }
+    
+    public FitOptimizer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * Finds the best fits to mine something.
+     * @param miner miner character.
+     * @param booster booster character.
+     * @param boosterShip booster ship.
+     * @param target what we are going to mine. For ORE mercoxit-capable 
+     * turrets are included, but used on normal ore.
+     * @param count how much fits to return.
+     * @return list of fits, best first. Can be shorter than count, if there
+     * isn't enough legal fits.
+     */
+    public List<FitCandidate> findBestFits(EVECharacter miner, EVECharacter booster, 
+            BoosterShip boosterShip, HarvestableType target, int count) {
+        if (count < 1) return new ArrayList<>();
+        
+        List<Branch> branchList = new ArrayList<>();
+        for (Hull hull : Hull.values()) {
+            Turret[] turrets = hull.isUsingStripMiners() ? Turret.bigTurrets : Turret.smallTurrets;
+            for (Turret turret : turrets) {
+                if (isSuitable(turret, target)) {
+                    branchList.add(new Branch(miner, booster, boosterShip, hull, 
+                            turret, target == HarvestableType.MERCOXIT));
+                }
+            }
+        }
+        
+        Branch[] branches = branchList.toArray(new Branch[branchList.size()]);
+        pool.invoke(new BranchTask(branches, 0, branches.length, null));
+        
+        Arrays.sort(branches, branchComparator);
+        
+        TopFitCollector top = new TopFitCollector(count);
+        pool.invoke(new BranchTask(branches, 0, branches.length, top));
+        
+        return top.getFits();
+    }
+    
+    /**
+     * Shuts down the pool. Optimizer can't be used after that.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+    
+    private static boolean isSuitable(Turret turret, HarvestableType target) {
+        HarvestableType type = turret.getHarvestableType();
+        switch (target) {
+            case ORE:
+                return type == HarvestableType.ORE || type == HarvestableType.MERCOXIT;
+                
+            default:
+                return type == target;
+        }
+    }
+    
+    /**
+     * Calculates bounds for a range of branches, or searches through them, 
+     * if there is a collector.
+     */
+    private static class BranchTask extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+        
+        private final Branch[] branches;
+        private final int from;
+        private final int to;
+        private final TopFitCollector top;
+
+        BranchTask(Branch[] branches, int from, int to, TopFitCollector top) {
+            this.branches = branches;
+            this.from = from;
+            this.to = to;
+            this.top = top;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                if (top == null) {
+                    branches[from].calculateBounds();
+                } else {
+                    branches[from].search(top);
+                }
+            } else if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BranchTask(branches, from, mid, top), 
+                        new BranchTask(branches, mid, to, top));
+            }
+        }        
+    }
+    
+    private static class UpgradeOption {
+        final HarvestUpgrade upgrade;
+        final int count;
+
+        UpgradeOption(HarvestUpgrade upgrade, int count) {
+            this.upgrade = upgrade;
+            this.count = count;
+        }        
+    }
+    
+    private static class DroneOption {
+        final MiningDrone drone;
+        final int droneIdx;
+        final int count;
+
+        DroneOption(MiningDrone drone, int droneIdx, int count) {
+            this.drone = drone;
+            this.droneIdx = droneIdx;
+            this.count = count;
+        }
+    }
+    
+    /**
+     * All fits for a hull/turret pair.
+     */
+    private static class Branch {
+        private final EVECharacter miner;
+        private final EVECharacter booster;
+        private final BoosterShip boosterShip;
+        private final Hull hull;
+        private final Turret turret;
+        private final boolean mercoxit;
+        private final int stationTripSecs;
+        
+        private final MiningCrystalLevel[] crystals;
+        private final List<UpgradeOption> upgradeOpts = new ArrayList<>();
+        private final List<HarvestUpgrade> upgrades = new ArrayList<>();
+        private final List<MiningDrone> drones = new ArrayList<>();
+        private final List<DroneOption> droneOpts = new ArrayList<>();
+        private final List<Rig[]> rigSets = new ArrayList<>();
+        
+        // everything below is filled in calculateBounds().
+        
+        private int oreHold;
+        
+        /**
+         * Best combined turret m3/sec, per rig set.
+         */
+        private float[] turretBounds;
+        
+        /**
+         * Best drone m3/sec, per rig set.
+         */
+        private float[] droneBounds;
+        
+        /**
+         * m3/sec of a single drone, per rig set and drone type.
+         */
+        private float[][] singleDroneM3S;
+        
+        /**
+         * Upper bound for any fit in this branch, in m3/hour.
+         */
+        private float bound;
+
+        Branch(EVECharacter miner, EVECharacter booster, BoosterShip boosterShip, 
+                Hull hull, Turret turret, boolean mercoxit) {
+            this.miner = miner;
+            this.booster = booster;
+            this.boosterShip = boosterShip;
+            this.hull = hull;
+            this.turret = turret;
+            this.mercoxit = mercoxit;
+            this.stationTripSecs = miner.isUsingHauler() ? 0 : miner.getStationTripSecs();
+            
+            if (turret.isUsingCrystals()) {
+                crystals = MiningCrystalLevel.values();
+            } else {
+                crystals = new MiningCrystalLevel[] {MiningCrystalLevel.NOTHING};
+            }
+            
+            upgradeOpts.add(new UpgradeOption(HarvestUpgrade.NOTHING, 0));
+            for (HarvestUpgrade upg : HarvestUpgrade.values()) {
+                boolean useful;
+                switch (turret.getTurretType()) {
+                    case ICEHARVESTER:
+                        useful = upg.getIceCycleBonus() > 0;
+                        break;
+                        
+                    case GASHARVESTER:
+                        useful = false;
+                        break;
+                        
+                    default:
+                        useful = upg.getOreYieldBonus() > 0;
+                }
+                
+                if (!useful) continue;
+                
+                upgrades.add(upg);
+                for (int i = 1; i <= hull.getMaxUpgrades(); i++) {
+                    upgradeOpts.add(new UpgradeOption(upg, i));
+                }
+            }
+            
+            HarvestableType type = turret.getHarvestableType();
+            boolean dronesMine = hull.getDroneBandwidth() > 0 && 
+                    type != HarvestableType.GAS && type != HarvestableType.ICE &&
+                    !(type == HarvestableType.MERCOXIT && mercoxit);
+            
+            droneOpts.add(new DroneOption(MiningDrone.NOTHING, -1, 0));
+            if (dronesMine) {
+                for (MiningDrone drone : MiningDrone.values()) {
+                    if (drone == MiningDrone.NOTHING) continue;
+                    
+                    int maxDrones = hull.getDroneBandwidth() / drone.getBandwidth();
+                    if (maxDrones > 5) maxDrones = 5;
+                    if (maxDrones == 0) continue;
+                    
+                    drones.add(drone);
+                    for (int i = 1; i <= maxDrones; i++) {
+                        droneOpts.add(new DroneOption(drone, drones.size() - 1, i));
+                    }
+                }
+            }
+            
+            List<Rig> usefulRigs = new ArrayList<>();
+            usefulRigs.add(Rig.NOTHING);
+            if (dronesMine) {
+                usefulRigs.add(Rig.DRONEAUGMENTORI);
+                usefulRigs.add(Rig.DRONEAUGMENTORII);
+            }
+            if (turret.getTurretType() == TurretType.ICEHARVESTER) {
+                usefulRigs.add(Rig.ICEACCELERATOR);
+            }
+            if (type == HarvestableType.MERCOXIT && mercoxit) {
+                usefulRigs.add(Rig.MERCOXITOPTIMIZATOR);
+            }
+            
+            // rig order doesn't matter, so only non-decreasing combinations.
+            Ship probe = makeShip();
+            int slots = hull.getRigSlots() > 2 ? 3 : 2;
+            int size = usefulRigs.size();
+            for (int r1 = 0; r1 < size; r1++) {
+                for (int r2 = r1; r2 < size; r2++) {
+                    for (int r3 = r2; r3 < (slots > 2 ? size : r2 + 1); r3++) {
+                        Rig[] set;
+                        if (slots > 2) {
+                            set = new Rig[] {usefulRigs.get(r1), usefulRigs.get(r2), usefulRigs.get(r3)};
+                        } else {
+                            set = new Rig[] {usefulRigs.get(r1), usefulRigs.get(r2)};
+                        }
+                        
+                        if (setRigs(probe, set)) rigSets.add(set);
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Calculates upper bounds for the branch and for every rig set in it.
+         */
+        void calculateBounds() {
+            Ship ship = makeShip();
+            int rigCnt = rigSets.size();
+            turretBounds = new float[rigCnt];
+            droneBounds = new float[rigCnt];
+            singleDroneM3S = new float[rigCnt][drones.size()];
+            bound = 0;
+            
+            // more turrets, better crystals and more upgrades never make things
+            // worse, so only max counts and the best crystal are checked.
+            int maxTurrets = hull.getMaxTurrets();
+            MiningCrystalLevel bestCrystal = crystals[crystals.length - 1];
+            List<UpgradeOption> bestUpgrades = new ArrayList<>();
+            if (upgrades.isEmpty()) {
+                bestUpgrades.add(new UpgradeOption(HarvestUpgrade.NOTHING, 0));
+            } else {
+                for (HarvestUpgrade upg : upgrades) {
+                    bestUpgrades.add(new UpgradeOption(upg, hull.getMaxUpgrades()));
+                }
+            }
+            
+            for (int r = 0; r < rigCnt; r++) {
+                Rig[] rigs = rigSets.get(r);
+                
+                for (UpgradeOption upg : bestUpgrades) {
+                    ICalculatedStats stats = calculate(ship, maxTurrets, bestCrystal, upg, rigs, 
+                            MiningDrone.NOTHING, 0);
+                    oreHold = stats.getOreHold();
+                    if (stats.getCombinedTurretM3S() > turretBounds[r]) {
+                        turretBounds[r] = stats.getCombinedTurretM3S();
+                    }
+                }
+                
+                for (int d = 0; d < drones.size(); d++) {
+                    MiningDrone drone = drones.get(d);
+                    int maxDrones = hull.getDroneBandwidth() / drone.getBandwidth();
+                    if (maxDrones > 5) maxDrones = 5;
+                    
+                    ICalculatedStats stats = calculate(ship, 0, MiningCrystalLevel.NOTHING, 
+                            bestUpgrades.get(0), rigs, drone, maxDrones);
+                    singleDroneM3S[r][d] = stats.getDroneM3S() / maxDrones;
+                    if (stats.getDroneM3S() > droneBounds[r]) {
+                        droneBounds[r] = stats.getDroneM3S();
+                    }
+                }
+                
+                float rigBound = toM3H(turretBounds[r] + droneBounds[r]);
+                if (rigBound > bound) bound = rigBound;
+            }
+        }
+        
+        /**
+         * Goes through all the fits in the branch, that have a chance to get
+         * into the top.
+         * @param top 
+         */
+        void search(TopFitCollector top) {
+            if (!top.isAcceptable(bound)) return;
+            
+            Ship ship = makeShip();
+            
+            Integer[] rigOrder = new Integer[rigSets.size()];
+            for (int i = 0; i < rigOrder.length; i++) {
+                rigOrder[i] = i;
+            }
+            Arrays.sort(rigOrder, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return Float.compare(turretBounds[o2] + droneBounds[o2], 
+                            turretBounds[o1] + droneBounds[o1]);
+                }
+            });
+            
+            for (int r : rigOrder) {
+                if (!top.isAcceptable(toM3H(turretBounds[r] + droneBounds[r]))) continue;
+                Rig[] rigs = rigSets.get(r);
+                
+                for (int turrets = hull.getMaxTurrets(); turrets > 0; turrets--) {
+                    for (MiningCrystalLevel crystal : crystals) {
+                        for (UpgradeOption upg : upgradeOpts) {
+                            ICalculatedStats turretStats = calculate(ship, turrets, crystal, 
+                                    upg, rigs, MiningDrone.NOTHING, 0);
+                            float turretM3S = turretStats.getCombinedTurretM3S();
+                            if (!top.isAcceptable(toM3H(turretM3S + droneBounds[r]))) continue;
+                            
+                            for (DroneOption drn : droneOpts) {
+                                ICalculatedStats stats;
+                                if (drn.drone == MiningDrone.NOTHING) {
+                                    stats = turretStats;
+                                } else {
+                                    float estimate = turretM3S + singleDroneM3S[r][drn.droneIdx] * drn.count;
+                                    if (!top.isAcceptable(toM3H(estimate))) continue;
+                                    
+                                    stats = calculate(ship, turrets, crystal, upg, rigs, 
+                                            drn.drone, drn.count);
+                                }
+                                
+                                if (top.isAcceptable(stats.getTotalM3H())) {
+                                    Ship fit = makeShip();
+                                    applyFit(fit, turrets, crystal, upg, rigs, drn.drone, drn.count);
+                                    top.offer(new FitCandidate(fit, stats));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Converts m3/sec into m3/hour, same way CalculatedStats does, with 
+         * a bit of slack.
+         * @param m3s
+         * @return 
+         */
+        private float toM3H(float m3s) {
+            if (m3s <= 0) return 0;
+            
+            float secsForOreHold = oreHold / m3s;
+            float cyclesInHr = 60*60 / (secsForOreHold + stationTripSecs);
+            return oreHold * cyclesInHr * BOUND_SLACK;
+        }
+        
+        private ICalculatedStats calculate(Ship ship, int turrets, MiningCrystalLevel crystal, 
+                UpgradeOption upg, Rig[] rigs, MiningDrone drone, int droneCount) {
+            applyFit(ship, turrets, crystal, upg, rigs, drone, droneCount);
+            return new CalculatedStats(miner, booster, ship, boosterShip, mercoxit);
+        }
+        
+        private Ship makeShip() {
+            Ship ship = new Ship(hull.getName()+" - "+turret.getName());
+            ship.setHull(hull);
+            ship.setTurret(turret);
+            return ship;
+        }
+        
+        private static void applyFit(Ship ship, int turrets, MiningCrystalLevel crystal, 
+                UpgradeOption upg, Rig[] rigs, MiningDrone drone, int droneCount) {
+            ship.setTurrentCount(turrets);
+            ship.setTurretCrystal(crystal);
+            ship.setHarvestUpgrade(upg.upgrade);
+            ship.setHarvestUpgradeCount(upg.count);
+            setRigs(ship, rigs);
+            ship.setDrone(drone);
+            ship.setDroneCount(droneCount);
+        }
+        
+        /**
+         * Sets rigs on the ship.
+         * @param ship
+         * @param rigs 2 or 3 rigs.
+         * @return false, if rigs can't be fit together.
+         */
+        private static boolean setRigs(Ship ship, Rig[] rigs) {
+            // clearing first, so calibration of the previous rigs won't get 
+            // in the way.
+            ship.setRig1(Rig.NOTHING);
+            ship.setRig2(Rig.NOTHING);
+            ship.setRig3(Rig.NOTHING);
+            
+            if (!ship.setRig1(rigs[0])) return false;
+            if (!ship.setRig2(rigs[1])) return false;
+            return rigs.length < 3 || ship.setRig3(rigs[2]);
+        }
+    }
+}
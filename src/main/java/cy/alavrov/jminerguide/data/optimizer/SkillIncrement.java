@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data.optimizer;
+
+/**
+ * A single skill level to train, with the gain it gives.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class SkillIncrement {
+    private final int skillID;
+    private final int level;
+    private final float totalM3H;
+    private final float m3hGain;
+    private final float iskPerM3;
+
+    public SkillIncrement(int skillID, int level, float totalM3H, float m3hGain, float iskPerM3) {
+        this.skillID = skillID;
+        this.level = level;
+        this.totalM3H = totalM3H;
+        this.m3hGain = m3hGain;
+        this.iskPerM3 = iskPerM3;
+    }
+
+    /**
+     * ID of the skill to train.
+     * @return 
+     */
+    public int getSkillID() {
+        return skillID;
+    }
+
+    /**
+     * Level of the skill after the training.
+     * @return 
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Total ship yield after the training, in m3/hour.
+     * @return 
+     */
+    public float getTotalM3H() {
+        return totalM3H;
+    }
+
+    /**
+     * Ship yield gained by the training, in m3/hour.
+     * @return 
+     */
+    public float getM3HGain() {
+        return m3hGain;
+    }
+
+    /**
+     * ISK/hour gained by the training, or 0, if no prices were given.
+     * @return 
+     */
+    public float getISKHGain() {
+        return m3hGain * iskPerM3;
+    }
+    
+    @Override
+    public String toString() {
+        return "#" + skillID + " " + level;
+    }
+}
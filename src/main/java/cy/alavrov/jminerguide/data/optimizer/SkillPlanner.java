@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data.optimizer;
+
+import cy.alavrov.jminerguide.data.BoosterFactors;
+import cy.alavrov.jminerguide.data.CalculatedStats;
+import cy.alavrov.jminerguide.data.ShipFactors;
+import cy.alavrov.jminerguide.data.booster.BoosterShip;
+import cy.alavrov.jminerguide.data.character.EVECharacter;
+import cy.alavrov.jminerguide.data.ship.Ship;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Ranks skill levels to train by the m3/hour (and ISK/hour) they give for 
+ * a given fit, and makes greedy training plans.
+ * 
+ * Every skill, used in calculations, is tried one level up, in parallel, 
+ * on a cheap skill snapshot of the miner. If the miner is also the booster 
+ * (same object), booster skills count for both roles, otherwise they can't
+ * change miner's yield and are skipped.
+ * 
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class SkillPlanner {
+    
+    /**
+     * Sorts increments by their gain, descending.
+     */
+    private final static Comparator<SkillIncrement> gainComparator = new Comparator<SkillIncrement>() {
+        @Override
+        public int compare(SkillIncrement o1, SkillIncrement o2) {
+            return Float.compare(o2.getM3HGain(), o1.getM3HGain());
+        }
+    };
+    
+    /**
+     * Skills, that affect only the booster.
+     */
+    private final static int[] boosterSkills = {
+        EVECharacter.SKILL_MINING_FOREMAN,
+        EVECharacter.SKILL_MINING_DIRECTOR,
+        EVECharacter.SKILL_WARFARE_LINK_SPECIALIST,
+        EVECharacter.SKILL_INDUSTRIAL_RECONFIGURATION,
+        EVECharacter.SKILL_INDUSTRIAL_COMMAND_SHIPS,
+        EVECharacter.SKILL_CAPITAL_INDUSTRIAL_SHIPS
+    };
+    
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a planner with it's own pool, one thread per core.
+     */
+    public SkillPlanner() {
+        this(new ForkJoinPool());
+    }
+    
+    public SkillPlanner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * Ranks every single level up of every calculation skill by the m3/hour gain.
+     * @param miner miner character.
+     * @param booster booster character.
+     * @param ship miner's ship.
+     * @param boosterShip booster ship.
+     * @param mercoxit true, if we're calculating for mercoxit.
+     * @param iskPerM3 value of the harvestable, see HarvestableValueTable, 
+     * or 0, if there's no prices.
+     * @return list of increments, best first. Maxed skills are not included.
+     */
+    public List<SkillIncrement> rankIncrements(EVECharacter miner, EVECharacter booster, 
+            Ship ship, BoosterShip boosterShip, boolean mercoxit, float iskPerM3) {
+        Evaluator eval = new Evaluator(miner, booster, ship, boosterShip, mercoxit, iskPerM3);
+        List<SkillIncrement> out = eval.evaluateAll(eval.baseMiner, pool);
+        Collections.sort(out, gainComparator);
+        return out;
+    }
+    
+    /**
+     * Makes a greedy training plan: on every step the level with the best 
+     * m3/hour gain is taken, and the next step is evaluated on top of it.
+     * Planning stops early, if nothing gives any gain.
+     * @param miner miner character.
+     * @param booster booster character.
+     * @param ship miner's ship.
+     * @param boosterShip booster ship.
+     * @param mercoxit true, if we're calculating for mercoxit.
+     * @param iskPerM3 value of the harvestable, see HarvestableValueTable, 
+     * or 0, if there's no prices.
+     * @param depth maximum number of levels in the plan.
+     * @return list of levels to train, in order.
+     */
+    public List<SkillIncrement> planGreedy(EVECharacter miner, EVECharacter booster, 
+            Ship ship, BoosterShip boosterShip, boolean mercoxit, float iskPerM3, int depth) {
+        Evaluator eval = new Evaluator(miner, booster, ship, boosterShip, mercoxit, iskPerM3);
+        List<SkillIncrement> out = new ArrayList<>();
+        
+        EVECharacter current = eval.baseMiner;
+        for (int step = 0; step < depth; step++) {
+            List<SkillIncrement> increments = eval.evaluateAll(current, pool);
+            if (increments.isEmpty()) break;
+            
+            SkillIncrement best = Collections.min(increments, gainComparator);
+            if (best.getM3HGain() <= 0) break;
+            
+            out.add(best);
+            current = current.getSkillSnapshot();
+            current.setSkillLevel(best.getSkillID(), best.getLevel());
+        }
+        
+        return out;
+    }
+    
+    /**
+     * Shuts down the pool. Planner can't be used after that.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+    
+    private static boolean isBoosterSkill(int skillID) {
+        for (int id : boosterSkills) {
+            if (id == skillID) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Everything that doesn't change with the miner's skills, prepared once 
+     * per planning request.
+     */
+    private static class Evaluator {
+        private final EVECharacter baseMiner;
+        private final boolean minerIsBooster;
+        private final ShipFactors ship;
+        private final BoosterShip boosterShip;
+        private final BoosterFactors boost;
+        private final float iskPerM3;
+        private final int[] skills;
+
+        public Evaluator(EVECharacter miner, EVECharacter booster, Ship ship, 
+                BoosterShip boosterShip, boolean mercoxit, float iskPerM3) {
+            this.baseMiner = miner.getSkillSnapshot();
+            this.minerIsBooster = miner == booster;
+            this.ship = new ShipFactors(ship, mercoxit);
+            this.boosterShip = boosterShip;
+            this.boost = new BoosterFactors(booster, boosterShip);
+            this.iskPerM3 = iskPerM3;
+            
+            List<Integer> skillList = new ArrayList<>();
+            for (int skillID : EVECharacter.getCalculationSkillIDs()) {
+                if (minerIsBooster || !isBoosterSkill(skillID)) {
+                    skillList.add(skillID);
+                }
+            }
+            
+            skills = new int[skillList.size()];
+            for (int i = 0; i < skills.length; i++) {
+                skills[i] = skillList.get(i);
+            }
+        }
+        
+        /**
+         * Total m3/hour for a miner snapshot.
+         * @param miner
+         * @return 
+         */
+        public float getTotalM3H(EVECharacter miner) {
+            BoosterFactors bf = minerIsBooster ? new BoosterFactors(miner, boosterShip) : boost;
+            CalculatedStats stats = new CalculatedStats(miner.getModifiers(), 
+                    CalculatedStats.getStationTripSecs(miner), ship, bf);
+            return stats.getTotalM3H();
+        }
+        
+        /**
+         * Evaluates every single level up on top of the given snapshot.
+         * @param current
+         * @param pool
+         * @return unsorted list of increments.
+         */
+        public List<SkillIncrement> evaluateAll(EVECharacter current, ForkJoinPool pool) {
+            SkillIncrement[] results = new SkillIncrement[skills.length];
+            float currentM3H = getTotalM3H(current);
+            pool.invoke(new IncrementTask(this, current, currentM3H, results, 0, skills.length));
+            
+            List<SkillIncrement> out = new ArrayList<>();
+            for (SkillIncrement inc : results) {
+                if (inc != null) out.add(inc);
+            }
+            return out;
+        }
+    }
+    
+    /**
+     * Evaluates a range of skills, splitting in halves until a single skill 
+     * is left.
+     */
+    private static class IncrementTask extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+        
+        private final Evaluator eval;
+        private final EVECharacter current;
+        private final float currentM3H;
+        private final SkillIncrement[] results;
+        private final int from;
+        private final int to;
+
+        public IncrementTask(Evaluator eval, EVECharacter current, float currentM3H, 
+                SkillIncrement[] results, int from, int to) {
+            this.eval = eval;
+            this.current = current;
+            this.currentM3H = currentM3H;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new IncrementTask(eval, current, currentM3H, results, from, mid), 
+                        new IncrementTask(eval, current, currentM3H, results, mid, to));
+                return;
+            }
+            
+            int skillID = eval.skills[from];
+            int level = current.getSkillLevel(skillID);
+            if (level >= 5) return;
+            
+            EVECharacter snapshot = current.getSkillSnapshot();
+            snapshot.setSkillLevel(skillID, level + 1);
+            float m3h = eval.getTotalM3H(snapshot);
+            
+            results[from] = new SkillIncrement(skillID, level + 1, m3h, m3h - currentM3H, eval.iskPerM3);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data.optimizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps N best fits, found so far. Shared between optimizer tasks.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+class TopFitCollector {
+    
+    /**
+     * Sorts candidates by their m3/hour, ascending.
+     */
+    private final static Comparator<FitCandidate> ascComparator = new Comparator<FitCandidate>() {
+        @Override
+        public int compare(FitCandidate o1, FitCandidate o2) {
+            return Float.compare(o1.getTotalM3H(), o2.getTotalM3H());
+        }
+    };
+    
+    private final int size;
+    private final PriorityQueue<FitCandidate> fits;
+    
+    /**
+     * m3/hour of the worst fit we have, once we've got enough of them. 
+     * Anything that can't beat it isn't worth calculating.
+     */
+    private volatile float threshold = -1;
+
+    TopFitCollector(int size) {
+        this.size = size;
+        this.fits = new PriorityQueue<>(size, ascComparator);
+    }
+    
+    /**
+     * Returns m3/hour, that a fit has to beat to get in, or -1, if 
+     * there are free places.
+     * @return 
+     */
+    float getThreshold() {
+        return threshold;
+    }
+    
+    /**
+     * Checks, if a fit with a given m3/hour has a chance to get in. 
+     * Lock-free, so can be called as often as needed.
+     * @param m3h
+     * @return 
+     */
+    boolean isAcceptable(float m3h) {
+        return m3h > threshold;
+    }
+    
+    synchronized void offer(FitCandidate candidate) {
+        if (fits.size() < size) {
+            fits.add(candidate);
+        } else if (candidate.getTotalM3H() > fits.peek().getTotalM3H()) {
+            fits.poll();
+            fits.add(candidate);
+        } else {
+            return;
+        }
+        
+        if (fits.size() == size) {
+            threshold = fits.peek().getTotalM3H();
+        }
+    }
+    
+    /**
+     * Returns collected fits, best first.
+     * @return 
+     */
+    synchronized List<FitCandidate> getFits() {
+        List<FitCandidate> out = new ArrayList<>(fits);
+        Collections.sort(out, Collections.reverseOrder(ascComparator));
+        return out;
+    }
+}
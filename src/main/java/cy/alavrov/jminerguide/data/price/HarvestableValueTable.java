@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data.price;
+
+import cy.alavrov.jminerguide.data.ICalculatedStats;
+import cy.alavrov.jminerguide.data.harvestable.Gas;
+import cy.alavrov.jminerguide.data.harvestable.HarvestableType;
+import cy.alavrov.jminerguide.data.harvestable.IHarvestable;
+import cy.alavrov.jminerguide.data.harvestable.Ice;
+import cy.alavrov.jminerguide.data.harvestable.Ore;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable table of ISK per m3 for every harvestable, for every way to sell 
+ * it and for both buy and sell prices. 
+ * Built by the ItemPriceContainer from a snapshot of prices. When a single 
+ * price changes, a copy with only the affected rows replaced takes its place.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public final class HarvestableValueTable {
+    /**
+     * Units of raw ore in a single unit of compressed ore (and in a single 
+     * reprocessing batch).
+     */
+    public final static int ORE_BATCH = 100;
+    
+    /**
+     * Units of raw ice in a single unit of compressed ice (and in a single 
+     * reprocessing batch).
+     */
+    public final static int ICE_BATCH = 1;
+    
+    private final static IHarvestable[] items;
+    private final static HarvestableType[] types;
+    private final static int ICE_OFFSET = Ore.values().length;
+    private final static int GAS_OFFSET = ICE_OFFSET + Ice.values().length;
+    private final static int SLICES = ValueSource.values().length * PriceType.values().length;
+    // table indices by item ID of raw and compressed harvestables.
+    private final static HashMap<Integer, Integer> rawIndices = new HashMap<>();
+    private final static HashMap<Integer, Integer> compressedIndices = new HashMap<>();
+    
+    static {
+        items = new IHarvestable[GAS_OFFSET + Gas.values().length];
+        int i = 0;
+        for (Ore ore : Ore.values()) {
+            items[i++] = ore;
+        }
+        for (Ice ice : Ice.values()) {
+            items[i++] = ice;
+        }
+        for (Gas gas : Gas.values()) {
+            items[i++] = gas;
+        }
+        
+        types = new HarvestableType[items.length];
+        for (i = 0; i < items.length; i++) {
+            types[i] = items[i].getBasicHarvestable().getType();
+            rawIndices.put(items[i].getItemID(), i);
+            if (items[i].getCompressedItemID() > 0) {
+                compressedIndices.put(items[i].getCompressedItemID(), i);
+            }
+        }
+    }
+    
+    // one contiguous slice of items.length values per (source, price type) pair.
+    private final float[] values;
+
+    /**
+     * Builds the table from a snapshot of the prices. Missing prices are treated as 0.
+     * @param prices item prices by item ID.
+     * @param reprocessing reprocessing matrix, valuated with the same prices.
+     */
+    HarvestableValueTable(Map<Integer, ItemPrice> prices, ReprocessingMatrix reprocessing) {
+        values = new float[SLICES * items.length];
+        
+        // ores and ices have the same indices in the matrix and here.
+        float[] buyReprocessed = new float[items.length];
+        float[] sellReprocessed = new float[items.length];
+        reprocessing.getUnitValues(PriceType.BUY, buyReprocessed);
+        reprocessing.getUnitValues(PriceType.SELL, sellReprocessed);
+        
+        for (int i = 0; i < items.length; i++) {
+            IHarvestable item = items[i];
+            
+            ItemPrice raw = prices.get(item.getItemID());
+            if (raw != null) setRaw(i, raw);
+            
+            ItemPrice compressed = item.getCompressedItemID() > 0 ? 
+                    prices.get(item.getCompressedItemID()) : null;
+            if (compressed != null) setCompressed(i, compressed);
+            
+            setReprocessed(i, buyReprocessed[i], sellReprocessed[i]);
+        }
+    }
+    
+    private HarvestableValueTable(float[] values) {
+        this.values = values;
+    }
+    
+    /**
+     * Returns a copy of the table with values of a single raw or compressed 
+     * harvestable replaced.
+     * @param price new price of the harvestable.
+     * @return this table, if the item isn't a harvestable.
+     */
+    HarvestableValueTable withItemPrice(ItemPrice price) {
+        Integer raw = rawIndices.get(price.getItemID());
+        Integer compressed = compressedIndices.get(price.getItemID());
+        if (raw == null && compressed == null) return this;
+        
+        HarvestableValueTable out = new HarvestableValueTable(values.clone());
+        if (raw != null) out.setRaw(raw, price);
+        if (compressed != null) out.setCompressed(compressed, price);
+        return out;
+    }
+    
+    /**
+     * Returns a copy of the table with reprocessed values of some 
+     * harvestables replaced.
+     * @param rows matrix rows, that changed.
+     * @param reprocessing reprocessing matrix, valuated with the new prices.
+     * @return 
+     */
+    HarvestableValueTable withReprocessedRows(int[] rows, ReprocessingMatrix reprocessing) {
+        HarvestableValueTable out = new HarvestableValueTable(values.clone());
+        // ores and ices have the same indices in the matrix and here.
+        for (int row : rows) {
+            out.setReprocessed(row, reprocessing.getRowValue(row, PriceType.BUY), 
+                    reprocessing.getRowValue(row, PriceType.SELL));
+        }
+        return out;
+    }
+    
+    private void setRaw(int index, ItemPrice price) {
+        float unitVolume = items[index].getBasicHarvestable().getVolume();
+        set(ValueSource.RAW, PriceType.BUY, index, price.getBuyPrice() / unitVolume);
+        set(ValueSource.RAW, PriceType.SELL, index, price.getSellPrice() / unitVolume);
+    }
+    
+    private void setCompressed(int index, ItemPrice price) {
+        int batch = types[index] == HarvestableType.ICE ? ICE_BATCH : ORE_BATCH;
+        float batchVolume = batch * items[index].getBasicHarvestable().getVolume();
+        set(ValueSource.COMPRESSED, PriceType.BUY, index, price.getBuyPrice() / batchVolume);
+        set(ValueSource.COMPRESSED, PriceType.SELL, index, price.getSellPrice() / batchVolume);
+    }
+    
+    private void setReprocessed(int index, float buyValue, float sellValue) {
+        float unitVolume = items[index].getBasicHarvestable().getVolume();
+        set(ValueSource.REPROCESSED, PriceType.BUY, index, buyValue / unitVolume);
+        set(ValueSource.REPROCESSED, PriceType.SELL, index, sellValue / unitVolume);
+    }
+    
+    private void set(ValueSource source, PriceType price, int index, float value) {
+        values[getSliceOffset(source, price) + index] = value;
+    }
+    
+    private static int getSliceOffset(ValueSource source, PriceType price) {
+        return (source.ordinal() * PriceType.values().length + price.ordinal()) * items.length;
+    }
+    
+    /**
+     * Number of harvestables in the table.
+     * @return 
+     */
+    public static int size() {
+        return items.length;
+    }
+    
+    /**
+     * Harvestable with the given table index.
+     * @param index
+     * @return 
+     */
+    public static IHarvestable getItem(int index) {
+        return items[index];
+    }
+    
+    /**
+     * Table index of the given harvestable, or -1 if it's not a known one.
+     * @param item
+     * @return 
+     */
+    public static int getIndex(IHarvestable item) {
+        if (item instanceof Ore) {
+            return ((Ore) item).ordinal();
+        } else if (item instanceof Ice) {
+            return ICE_OFFSET + ((Ice) item).ordinal();
+        } else if (item instanceof Gas) {
+            return GAS_OFFSET + ((Gas) item).ordinal();
+        } else {
+            return -1;
+        }
+    }
+    
+    /**
+     * ISK per m3 of the harvestable.
+     * @param item
+     * @param source how the harvestable is sold.
+     * @param price which prices to use.
+     * @return 
+     */
+    public float getValuePerM3(IHarvestable item, ValueSource source, PriceType price) {
+        int index = getIndex(item);
+        if (index < 0) return 0;
+        
+        return values[getSliceOffset(source, price) + index];
+    }
+    
+    /**
+     * ISK per hour of mining the harvestable with the given rate.
+     * @param item
+     * @param source how the harvestable is sold.
+     * @param price which prices to use.
+     * @param m3PerHour
+     * @return 
+     */
+    public float getISKPerHour(IHarvestable item, ValueSource source, PriceType price, float m3PerHour) {
+        return getValuePerM3(item, source, price) * m3PerHour;
+    }
+    
+    /**
+     * ISK per hour of mining the harvestable with the given stats, using
+     * mercoxit stats for mercoxit and generic ones for everything else.
+     * @param item
+     * @param source how the harvestable is sold.
+     * @param price which prices to use.
+     * @param stats stats for mining generic ore.
+     * @param mercoStats stats for mining mercoxit.
+     * @return 
+     */
+    public float getISKPerHour(IHarvestable item, ValueSource source, PriceType price, 
+            ICalculatedStats stats, ICalculatedStats mercoStats) {
+        if (item.getBasicHarvestable().getType() == HarvestableType.MERCOXIT) {
+            return getISKPerHour(item, source, price, mercoStats.getTotalM3H());
+        } else {
+            return getISKPerHour(item, source, price, stats.getTotalM3H());
+        }
+    }
+    
+    /**
+     * Returns the most valuable harvestable of the given type. 
+     * As ISK per hour for a given fit is m3 per hour times ISK per m3,
+     * this is also the most profitable harvestable for any fit mining that type.
+     * @param type harvestable type, the fit is able to mine.
+     * @param source how the harvestable is sold.
+     * @param price which prices to use.
+     * @return null, if there is no priced harvestable of that type.
+     */
+    public IHarvestable getBest(HarvestableType type, ValueSource source, PriceType price) {
+        int offset = getSliceOffset(source, price);
+        int best = -1;
+        float bestValue = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (types[i] == type && values[offset + i] > bestValue) {
+                bestValue = values[offset + i];
+                best = i;
+            }
+        }
+        
+        return best < 0 ? null : items[best];
+    }
+    
+    /**
+     * Fills the array with ISK per hour for every harvestable in the table,
+     * in table index order. Harvestables of other types get 0.
+     * @param type harvestable type, the fit is able to mine.
+     * @param source how the harvestable is sold.
+     * @param price which prices to use.
+     * @param m3PerHour
+     * @param out array of at least size() elements.
+     */
+    public void getISKPerHour(HarvestableType type, ValueSource source, PriceType price, 
+            float m3PerHour, float[] out) {
+        int offset = getSliceOffset(source, price);
+        for (int i = 0; i < items.length; i++) {
+            out[i] = types[i] == type ? values[offset + i] * m3PerHour : 0;
+        }
+    }
+    
+    /**
+     * How the harvestable is sold.
+     */
+    public static enum ValueSource {
+        RAW ("Raw"),
+        COMPRESSED ("Compressed"),
+        REPROCESSED ("Reprocessed");
+        
+        private final String name;
+
+        private ValueSource(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+    
+    /**
+     * Which of the market prices to use.
+     */
+    public static enum PriceType {
+        BUY ("Buy"),
+        SELL ("Sell");
+        
+        private final String name;
+
+        private PriceType(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
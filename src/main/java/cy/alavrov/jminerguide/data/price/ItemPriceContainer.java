@@ -27,6 +27,8 @@ package cy.alavrov.jminerguide.data.price;
 
 import cy.alavrov.jminerguide.App;
 import cy.alavrov.jminerguide.data.character.APIException;
+import cy.alavrov.jminerguide.data.character.CharacterContainer;
+import cy.alavrov.jminerguide.data.character.EVECharacter;
 import cy.alavrov.jminerguide.data.harvestable.Gas;
 import cy.alavrov.jminerguide.data.harvestable.Ice;
 import cy.alavrov.jminerguide.data.harvestable.Ore;
@@ -62,6 +64,17 @@ public class ItemPriceContainer {
     private LinkedHashMap<Integer, ItemPrice> prices;
     
     private final String path; 
+    
+    private final ReprocessingMatrix reprocessing;
+    
+    // reprocessing setup, the profile is built from the character's skills.
+    private String reprocessingChar = null;
+    private float baseYield = ReprocessingProfile.STATION_YIELD;
+    private float implantBonus = 0;
+    
+    // value table is rebuilt lazily on the first request after a bulk change,
+    // single price changes replace only the affected rows.
+    private HarvestableValueTable valueTable = null;
 
     public ItemPriceContainer(String path) {
         this.prices = new LinkedHashMap<>();
@@ -90,9 +103,22 @@ public class ItemPriceContainer {
                     ItemPrice.ItemType.BASIC, ItemPrice.CompressionType.UNCOMPRESSED));
         }
         
+        this.reprocessing = new ReprocessingMatrix(ReprocessingProfile.PERFECT);
+        
         this.path = path;
     }
     
+    /**
+     * Pushes current base element prices into the reprocessing matrix.
+     * Only columns of changed elements are re-applied.
+     */
+    private void updateReprocessingPrices() {
+        for (BaseElement elem : BaseElement.values()) {
+            ItemPrice price = prices.get(elem.getItemID());
+            reprocessing.setElementPrice(elem, price.getBuyPrice(), price.getSellPrice());
+        }
+    }
+    
     public synchronized void load() {        
         JMGLogger.logWarning("Loading item prices...");
         File src = new File(path+File.separator+"prices.dat");
@@ -120,6 +146,20 @@ public class ItemPriceContainer {
                 }
 
             }
+            
+            Element reprElem = rootNode.getChild("reprocessing");
+            if (reprElem != null) {
+                try {
+                    reprocessingChar = reprElem.getAttributeValue("character");
+                    baseYield = reprElem.getAttribute("baseyield").getFloatValue();
+                    implantBonus = reprElem.getAttribute("implant").getFloatValue();
+                } catch (Exception e) {
+                    JMGLogger.logWarning("Unable to load reprocessing setup", e);
+                }
+            }
+            
+            updateReprocessingPrices();
+            valueTable = null;
 
         } catch (Exception e) {
             JMGLogger.logSevere("Unable to load an item price file", e);
@@ -147,6 +187,12 @@ public class ItemPriceContainer {
             root.addContent(price.getXMLElement());
         }
         
+        Element reprElem = new Element("reprocessing");
+        if (reprocessingChar != null) reprElem.setAttribute("character", reprocessingChar);
+        reprElem.setAttribute("baseyield", String.valueOf(baseYield));
+        reprElem.setAttribute("implant", String.valueOf(implantBonus));
+        root.addContent(reprElem);
+        
         XMLOutputter xmlOutput = new XMLOutputter();
         xmlOutput.setFormat(Format.getPrettyFormat());
         try (FileOutputStream fos = new FileOutputStream(path+File.separator+"prices.dat")){
@@ -165,6 +211,101 @@ public class ItemPriceContainer {
         return prices.get(itemID);
     }
     
+    /**
+     * Sets buy and sell prices of an item with the given ID.
+     * Prices should be changed via this method, not directly, so the value 
+     * table will be updated.
+     * @param itemID ID of the item.
+     * @param buyPrice
+     * @param sellPrice 
+     */
+    public synchronized void setItemPrice(int itemID, float buyPrice, float sellPrice) {
+        ItemPrice price = prices.get(itemID);
+        if (price == null) return;
+        
+        price.setBuyPrice(buyPrice);
+        price.setSellPrice(sellPrice);
+        
+        BaseElement elem = BaseElement.idMap.get(itemID);
+        if (elem != null) {
+            if (reprocessing.setElementPrice(elem, buyPrice, sellPrice) && valueTable != null) {
+                // only harvestables, containing the element, are affected.
+                valueTable = valueTable.withReprocessedRows(ReprocessingMatrix.getColumnRows(elem), reprocessing);
+            }
+        } else if (valueTable != null) {
+            valueTable = valueTable.withItemPrice(price);
+        }
+    }
+    
+    /**
+     * Sets up reprocessing, used for valuation of the reprocessed harvestables.
+     * @param chr character, whose reprocessing skills are used.
+     * @param baseYield base yield of the refinery, 0 to 1.
+     * @param implantBonus reprocessing implant bonus, in percents.
+     */
+    public synchronized void setReprocessing(EVECharacter chr, float baseYield, float implantBonus) {
+        this.reprocessingChar = chr.getName();
+        this.baseYield = baseYield;
+        this.implantBonus = implantBonus;
+        
+        reprocessing.setProfile(ReprocessingProfile.fromCharacter(chr, baseYield, implantBonus));
+        valueTable = null;
+    }
+    
+    /**
+     * Rebuilds the reprocessing profile from the skills of the chosen character,
+     * or of the All 5 miner, if there's no such character.
+     * Should be called after the characters are loaded.
+     * @param chars 
+     */
+    public synchronized void updateReprocessing(CharacterContainer chars) {
+        EVECharacter chr = getReprocessingCharacter(chars);
+        reprocessing.setProfile(ReprocessingProfile.fromCharacter(chr, baseYield, implantBonus));
+        valueTable = null;
+    }
+    
+    /**
+     * Returns the character, whose skills are used for reprocessing.
+     * @param chars
+     * @return the All 5 miner, if there's none chosen or it's gone.
+     */
+    public synchronized EVECharacter getReprocessingCharacter(CharacterContainer chars) {
+        EVECharacter chr = chars.getCharacterByName(reprocessingChar);
+        if (chr == null) chr = chars.getAll5miner();
+        return chr;
+    }
+
+    /**
+     * Returns base yield of the refinery, 0 to 1.
+     * @return 
+     */
+    public synchronized float getBaseYield() {
+        return baseYield;
+    }
+
+    /**
+     * Returns reprocessing implant bonus, in percents.
+     * @return 
+     */
+    public synchronized float getImplantBonus() {
+        return implantBonus;
+    }
+    
+    /**
+     * Returns the table of ISK per m3 for all the harvestables, according to 
+     * the current prices. The table is immutable and won't change with the prices,
+     * so it's safe to hold onto it, but it should be requested again to get 
+     * new values.
+     * @return 
+     */
+    public synchronized HarvestableValueTable getValueTable() {
+        if (valueTable == null) {
+            valueTable = new HarvestableValueTable(prices, reprocessing);
+        }
+        
+        return valueTable;
+    }
+    
     /**
      * Get a TableModel with item prices, filtered by type and compression (or not).     
      * @param itemTypeFilter filter by item type (or ALL)
@@ -260,6 +401,8 @@ public class ItemPriceContainer {
                 }
                 
                 prices = newPrices;
+                updateReprocessingPrices();
+                valueTable = null;
             }
         } catch (JDOMException | IOException | IllegalArgumentException | NullPointerException e ) {
             JMGLogger.logSevere("Critical failure during price parsing", e);
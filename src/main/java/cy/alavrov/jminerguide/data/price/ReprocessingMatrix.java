@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data.price;
+
+import cy.alavrov.jminerguide.data.harvestable.BaseElement;
+import cy.alavrov.jminerguide.data.harvestable.IHarvestable;
+import cy.alavrov.jminerguide.data.harvestable.Ice;
+import cy.alavrov.jminerguide.data.harvestable.Ore;
+
+/**
+ * Dense harvestable x base element reprocessing matrix, scaled by the 
+ * reprocessing profile, with values of a single harvestable unit kept up to 
+ * date with base element prices.
+ * When a single element price changes, only that element's column is 
+ * re-applied to the values.
+ * Rows are ores, then ices, in enum order; columns are BaseElement ordinals.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public final class ReprocessingMatrix {
+    private final static int ROWS = Ore.values().length + Ice.values().length;
+    private final static int COLS = BaseElement.values().length;
+    private final static IHarvestable[] rowItems;
+    
+    // base materials per single unit of harvestable, at perfect yield.
+    private final static float[] baseMatrix;
+    // rows with non-zero amounts, by column.
+    private final static int[][] columnRows;
+    
+    static {
+        rowItems = new IHarvestable[ROWS];
+        baseMatrix = new float[ROWS * COLS];
+        
+        int row = 0;
+        for (Ore ore : Ore.values()) {
+            rowItems[row] = ore;
+            float batch = HarvestableValueTable.ORE_BATCH;
+            setBase(row, BaseElement.TRITANIUM, ore.getTritanium() / batch);
+            setBase(row, BaseElement.PYERITE, ore.getPyerite() / batch);
+            setBase(row, BaseElement.MEXALLON, ore.getMexallon() / batch);
+            setBase(row, BaseElement.ISOGEN, ore.getIsogen() / batch);
+            setBase(row, BaseElement.NOCXIUM, ore.getNocxium() / batch);
+            setBase(row, BaseElement.ZYDRINE, ore.getZydrine() / batch);
+            setBase(row, BaseElement.MEGACYTE, ore.getMegacyte() / batch);
+            setBase(row, BaseElement.MORPHITE, ore.getMorphite() / batch);
+            row++;
+        }
+        
+        for (Ice ice : Ice.values()) {
+            rowItems[row] = ice;
+            float batch = HarvestableValueTable.ICE_BATCH;
+            setBase(row, BaseElement.HEAVYWATER, ice.getHeavyWater() / batch);
+            setBase(row, BaseElement.LIQUIDOZONE, ice.getLiquidOzone() / batch);
+            setBase(row, BaseElement.STRONTIUM, ice.getStrontiumClathrates() / batch);
+            setBase(row, BaseElement.HELIUMISOTOPES, ice.getHeliumIsotopes() / batch);
+            setBase(row, BaseElement.NITROGENISOTOPES, ice.getNitrogenIsotopes() / batch);
+            setBase(row, BaseElement.OXYGENISOTOPES, ice.getOxygenIsotopes() / batch);
+            setBase(row, BaseElement.HYDROGENISOTOPES, ice.getHydrogenIsotopes() / batch);
+            row++;
+        }
+        
+        columnRows = new int[COLS][];
+        for (int col = 0; col < COLS; col++) {
+            int cnt = 0;
+            for (row = 0; row < ROWS; row++) {
+                if (baseMatrix[row * COLS + col] != 0) cnt++;
+            }
+            
+            columnRows[col] = new int[cnt];
+            cnt = 0;
+            for (row = 0; row < ROWS; row++) {
+                if (baseMatrix[row * COLS + col] != 0) columnRows[col][cnt++] = row;
+            }
+        }
+    }
+    
+    private static void setBase(int row, BaseElement elem, float amount) {
+        baseMatrix[row * COLS + elem.ordinal()] = amount;
+    }
+    
+    private ReprocessingProfile profile;
+    // base matrix scaled by the profile yields.
+    private final float[] matrix;
+    private final float[] buyPrices;
+    private final float[] sellPrices;
+    // values are accumulated in doubles, so repeated column updates won't drift.
+    private final double[] buyValues;
+    private final double[] sellValues;
+
+    public ReprocessingMatrix(ReprocessingProfile profile) {
+        this.matrix = new float[ROWS * COLS];
+        this.buyPrices = new float[COLS];
+        this.sellPrices = new float[COLS];
+        this.buyValues = new double[ROWS];
+        this.sellValues = new double[ROWS];
+        
+        setProfile(profile);
+    }
+    
+    /**
+     * Row of the harvestable in the matrix, or -1, if it can't be reprocessed.
+     * @param item
+     * @return 
+     */
+    public static int getRow(IHarvestable item) {
+        if (item instanceof Ore) {
+            return ((Ore) item).ordinal();
+        } else if (item instanceof Ice) {
+            return Ore.values().length + ((Ice) item).ordinal();
+        } else {
+            return -1;
+        }
+    }
+    
+    /**
+     * Number of rows in the matrix.
+     * @return 
+     */
+    public static int getRowCount() {
+        return ROWS;
+    }
+    
+    public synchronized ReprocessingProfile getProfile() {
+        return profile;
+    }
+    
+    /**
+     * Sets a new reprocessing profile, rescaling the matrix and revaluating
+     * every row.
+     * @param profile 
+     */
+    public synchronized void setProfile(ReprocessingProfile profile) {
+        this.profile = profile;
+        
+        for (int row = 0; row < ROWS; row++) {
+            float yield = profile.getYield(rowItems[row].getBasicHarvestable());
+            int offset = row * COLS;
+            double buy = 0;
+            double sell = 0;
+            for (int col = 0; col < COLS; col++) {
+                float amount = baseMatrix[offset + col] * yield;
+                matrix[offset + col] = amount;
+                buy += amount * buyPrices[col];
+                sell += amount * sellPrices[col];
+            }
+            
+            buyValues[row] = buy;
+            sellValues[row] = sell;
+        }
+    }
+    
+    /**
+     * Sets prices of the base element, re-applying its column, if they 
+     * differ from the current ones.
+     * @param elem
+     * @param buyPrice
+     * @param sellPrice 
+     * @return true, if the prices have changed.
+     */
+    public synchronized boolean setElementPrice(BaseElement elem, float buyPrice, float sellPrice) {
+        int col = elem.ordinal();
+        float buyDelta = buyPrice - buyPrices[col];
+        float sellDelta = sellPrice - sellPrices[col];
+        if (buyDelta == 0 && sellDelta == 0) return false;
+        
+        buyPrices[col] = buyPrice;
+        sellPrices[col] = sellPrice;
+        
+        for (int row : columnRows[col]) {
+            float amount = matrix[row * COLS + col];
+            buyValues[row] += (double) amount * buyDelta;
+            sellValues[row] += (double) amount * sellDelta;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Amount of the base element received from reprocessing a single unit 
+     * of the harvestable.
+     * @param item
+     * @param elem
+     * @return 0, if the harvestable can't be reprocessed.
+     */
+    public synchronized float getAmount(IHarvestable item, BaseElement elem) {
+        int row = getRow(item);
+        if (row < 0) return 0;
+        
+        return matrix[row * COLS + elem.ordinal()];
+    }
+    
+    /**
+     * ISK value of the reprocessing products of a single unit of the harvestable.
+     * @param item
+     * @param price which prices to use.
+     * @return 0, if the harvestable can't be reprocessed.
+     */
+    public synchronized float getUnitValue(IHarvestable item, HarvestableValueTable.PriceType price) {
+        int row = getRow(item);
+        if (row < 0) return 0;
+        
+        return (float) (price == HarvestableValueTable.PriceType.BUY ? buyValues[row] : sellValues[row]);
+    }
+    
+    /**
+     * ISK value of the reprocessing products of a single unit of the harvestable
+     * in the row.
+     * @param row
+     * @param price which prices to use.
+     * @return 
+     */
+    synchronized float getRowValue(int row, HarvestableValueTable.PriceType price) {
+        return (float) (price == HarvestableValueTable.PriceType.BUY ? buyValues[row] : sellValues[row]);
+    }
+    
+    /**
+     * Rows, that contain the base element, i.e. have their values changed 
+     * along with its price. Shouldn't be modified.
+     * @param elem
+     * @return 
+     */
+    static int[] getColumnRows(BaseElement elem) {
+        return columnRows[elem.ordinal()];
+    }
+    
+    /**
+     * Copies unit values of all rows into the array.
+     * @param price which prices to use.
+     * @param out array of at least getRowCount() elements.
+     */
+    public synchronized void getUnitValues(HarvestableValueTable.PriceType price, float[] out) {
+        double[] values = price == HarvestableValueTable.PriceType.BUY ? buyValues : sellValues;
+        for (int row = 0; row < ROWS; row++) {
+            out[row] = (float) values[row];
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.data.price;
+
+import cy.alavrov.jminerguide.data.character.EVECharacter;
+import cy.alavrov.jminerguide.data.harvestable.BasicHarvestable;
+import cy.alavrov.jminerguide.data.harvestable.HarvestableType;
+
+/**
+ * Reprocessing efficiency: base refinery yield, modified by character's
+ * reprocessing skills and implant.
+ * Immutable.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public final class ReprocessingProfile {
+    public final static int SKILL_REPROCESSING = 3385;
+    public final static int SKILL_REPROCESSING_EFFICIENCY = 3389;
+    public final static int SKILL_ICE_PROCESSING = 18025;
+    
+    public final static int SKILL_ARKONOR_PROCESSING = 12180;
+    public final static int SKILL_BISTOT_PROCESSING = 12181;
+    public final static int SKILL_CROKITE_PROCESSING = 12182;
+    public final static int SKILL_DARKOCHRE_PROCESSING = 12183;
+    public final static int SKILL_GNEISS_PROCESSING = 12184;
+    public final static int SKILL_HEDBERGITE_PROCESSING = 12185;
+    public final static int SKILL_HEMORPHITE_PROCESSING = 12186;
+    public final static int SKILL_JASPET_PROCESSING = 12187;
+    public final static int SKILL_KERNITE_PROCESSING = 12188;
+    public final static int SKILL_MERCOXIT_PROCESSING = 12189;
+    public final static int SKILL_OMBER_PROCESSING = 12190;
+    public final static int SKILL_PLAGIOCLASE_PROCESSING = 12191;
+    public final static int SKILL_PYROXERES_PROCESSING = 12192;
+    public final static int SKILL_SCORDITE_PROCESSING = 12193;
+    public final static int SKILL_SPODUMAIN_PROCESSING = 12194;
+    public final static int SKILL_VELDSPAR_PROCESSING = 12195;
+    
+    /**
+     * Yield of a regular NPC station.
+     */
+    public final static float STATION_YIELD = 0.5f;
+    
+    /**
+     * Everything is reprocessed without any losses.
+     */
+    public final static ReprocessingProfile PERFECT = new ReprocessingProfile(1f, 0, 0, 
+            new int[BasicHarvestable.values().length], 0);
+    
+    private final float baseYield;
+    private final int reprocessing;
+    private final int efficiency;
+    private final int[] processing;
+    private final float implantBonus;
+    
+    // final yield, by BasicHarvestable ordinal.
+    private final float[] yields;
+
+    /**
+     * Constructor.
+     * @param baseYield base yield of the refinery, 0 to 1.
+     * @param reprocessing Reprocessing skill level.
+     * @param efficiency Reprocessing Efficiency skill level.
+     * @param processing levels of ore and ice processing skills, by BasicHarvestable ordinal.
+     * @param implantBonus reprocessing implant bonus, in percents.
+     */
+    public ReprocessingProfile(float baseYield, int reprocessing, int efficiency, 
+            int[] processing, float implantBonus) {
+        this.baseYield = baseYield;
+        this.reprocessing = reprocessing;
+        this.efficiency = efficiency;
+        this.processing = processing.clone();
+        this.implantBonus = implantBonus;
+        
+        this.yields = new float[BasicHarvestable.values().length];
+        for (BasicHarvestable hv : BasicHarvestable.values()) {
+            float yield = baseYield 
+                    * (1 + 0.03f * reprocessing) 
+                    * (1 + 0.02f * efficiency)
+                    * (1 + 0.02f * this.processing[hv.ordinal()])
+                    * (1 + implantBonus / 100f);
+            if (yield > 1) yield = 1;
+            
+            yields[hv.ordinal()] = yield;
+        }
+    }
+    
+    /**
+     * Builds profile from the character's skills.
+     * @param chr character to take skills from.
+     * @param baseYield base yield of the refinery, 0 to 1.
+     * @param implantBonus reprocessing implant bonus, in percents.
+     * @return 
+     */
+    public static ReprocessingProfile fromCharacter(EVECharacter chr, float baseYield, float implantBonus) {
+        int[] processing = new int[BasicHarvestable.values().length];
+        for (BasicHarvestable hv : BasicHarvestable.values()) {
+            int skill = getProcessingSkill(hv);
+            if (skill > 0) {
+                processing[hv.ordinal()] = chr.getSkillLevel(skill);
+            }
+        }
+        
+        return new ReprocessingProfile(baseYield, 
+                chr.getSkillLevel(SKILL_REPROCESSING), 
+                chr.getSkillLevel(SKILL_REPROCESSING_EFFICIENCY), 
+                processing, implantBonus);
+    }
+    
+    /**
+     * Returns ID of the processing skill for the given harvestable, or 0, 
+     * if there's none.
+     * @param hv
+     * @return 
+     */
+    public static int getProcessingSkill(BasicHarvestable hv) {
+        if (hv.getType() == HarvestableType.ICE) return SKILL_ICE_PROCESSING;
+        
+        switch (hv) {
+            case VELDSPAR:
+                return SKILL_VELDSPAR_PROCESSING;
+            case SCORDITE:
+                return SKILL_SCORDITE_PROCESSING;
+            case PYROXERES:
+                return SKILL_PYROXERES_PROCESSING;
+            case PLAGIOCLASE:
+                return SKILL_PLAGIOCLASE_PROCESSING;
+            case OMBER:
+                return SKILL_OMBER_PROCESSING;
+            case KERNITE:
+                return SKILL_KERNITE_PROCESSING;
+            case JASPET:
+                return SKILL_JASPET_PROCESSING;
+            case HEMORPHITE:
+                return SKILL_HEMORPHITE_PROCESSING;
+            case HEDBERGITE:
+                return SKILL_HEDBERGITE_PROCESSING;
+            case GNEISS:
+                return SKILL_GNEISS_PROCESSING;
+            case DARKOCHRE:
+                return SKILL_DARKOCHRE_PROCESSING;
+            case CROKITE:
+                return SKILL_CROKITE_PROCESSING;
+            case SPODUMAIN:
+                return SKILL_SPODUMAIN_PROCESSING;
+            case BISTOT:
+                return SKILL_BISTOT_PROCESSING;
+            case ARKONOR:
+                return SKILL_ARKONOR_PROCESSING;
+            case MERCOXIT:
+                return SKILL_MERCOXIT_PROCESSING;
+            default:
+                return 0;
+        }
+    }
+
+    public float getBaseYield() {
+        return baseYield;
+    }
+
+    public int getReprocessing() {
+        return reprocessing;
+    }
+
+    public int getEfficiency() {
+        return efficiency;
+    }
+
+    public int getProcessing(BasicHarvestable hv) {
+        return processing[hv.ordinal()];
+    }
+
+    public float getImplantBonus() {
+        return implantBonus;
+    }
+    
+    /**
+     * Share of the base materials, that will be received on reprocessing of 
+     * the harvestable, 0 to 1.
+     * @param hv
+     * @return 
+     */
+    public float getYield(BasicHarvestable hv) {
+        return yields[hv.ordinal()];
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.forms;
+
+import cy.alavrov.jminerguide.monitor.MiningSession;
+import java.awt.Component;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Toolkit;
+import java.util.Map;
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.UIManager;
+import javax.swing.border.Border;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableModel;
+
+/**
+ * Renderer for the asteroid table, painting cells straight from the table 
+ * model's rows into a reused buffer, so painting produces no garbage.
+ * Like the default renderer, it doesn't bother with revalidation and 
+ * property change events.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class AsteroidCellRenderer extends JComponent implements TableCellRenderer {
+    private final static long serialVersionUID = 1L;
+    
+    private final static Border NO_FOCUS_BORDER = new EmptyBorder(1, 1, 1, 1);
+    
+    private final char[] buf = new char[64];
+    private int len;
+    private final Insets insets = new Insets(0, 0, 0, 0);
+    private final Map<?, ?> desktopHints;
+    
+    public AsteroidCellRenderer() {
+        desktopHints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+        setOpaque(true);
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, 
+            boolean isSelected, boolean hasFocus, int row, int column) {
+        TableModel model = table.getModel();
+        if (model instanceof MiningSession.AsteroidTableModel) {
+            len = ((MiningSession.AsteroidTableModel) model).formatCell(
+                    table.convertRowIndexToModel(row), table.convertColumnIndexToModel(column), 
+                    System.currentTimeMillis(), buf);
+        } else {
+            len = 0;
+        }
+        
+        if (isSelected) {
+            setForeground(table.getSelectionForeground());
+            setBackground(table.getSelectionBackground());
+        } else {
+            setForeground(table.getForeground());
+            setBackground(table.getBackground());
+        }
+        setFont(table.getFont());
+        
+        if (hasFocus) {
+            Border border = UIManager.getBorder("Table.focusCellHighlightBorder");
+            setBorder(border == null ? NO_FOCUS_BORDER : border);
+        } else {
+            setBorder(NO_FOCUS_BORDER);
+        }
+        
+        return this;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (len == 0) return;
+        
+        if (desktopHints != null && g instanceof Graphics2D) {
+            ((Graphics2D) g).addRenderingHints(desktopHints);
+        }
+        
+        g.setColor(getForeground());
+        g.setFont(getFont());
+        FontMetrics fm = g.getFontMetrics();
+        getInsets(insets);
+        
+        int textHeight = getHeight() - insets.top - insets.bottom;
+        int y = insets.top + (textHeight - fm.getHeight()) / 2 + fm.getAscent();
+        g.drawChars(buf, 0, len, insets.left + 1, y);
+    }
+    
+    // everything below is overridden for performance, the same way as 
+    // DefaultTableCellRenderer does.
+    
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public void validate() {
+    }
+
+    @Override
+    public void revalidate() {
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void repaint() {
+    }
+
+    @Override
+    protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    }
+
+    @Override
+    public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
+    }
+}
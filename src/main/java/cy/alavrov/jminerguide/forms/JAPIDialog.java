@@ -576,6 +576,7 @@ public final class JAPIDialog extends javax.swing.JDialog implements IKeyLoading
         if (selChar == null) return;
         
         selChar.setHidden(sel);
+        dCont.getCharacterContainer().reloadCharMap();
         loadSelectedKey(true);
         updated = true;
         
@@ -27,13 +27,15 @@ package cy.alavrov.jminerguide.forms;
 
 import cy.alavrov.jminerguide.data.DataContainer;
 import cy.alavrov.jminerguide.data.ICalculatedStats;
-import cy.alavrov.jminerguide.data.harvestable.Asteroid;
+import cy.alavrov.jminerguide.data.price.HarvestableValueTable;
 import cy.alavrov.jminerguide.log.JMGLogger;
+import cy.alavrov.jminerguide.monitor.AsteroidField;
 import cy.alavrov.jminerguide.monitor.AsteroidMonitorSettings;
+import cy.alavrov.jminerguide.monitor.IMonitorView;
 import cy.alavrov.jminerguide.monitor.ISessionCharacter;
 import cy.alavrov.jminerguide.monitor.MiningSession;
-import cy.alavrov.jminerguide.monitor.MiningSessionButton;
 import cy.alavrov.jminerguide.monitor.MiningSessionMonitor;
+import cy.alavrov.jminerguide.monitor.MiningScheduler;
 import cy.alavrov.jminerguide.monitor.MiningTask;
 import cy.alavrov.jminerguide.monitor.MiningTimer;
 import cy.alavrov.jminerguide.monitor.TurretInstance;
@@ -41,19 +43,18 @@ import cy.alavrov.jminerguide.monitor.UpdateWindowTask;
 import cy.alavrov.jminerguide.util.IntegerDocumentFilter;
 import cy.alavrov.jminerguide.util.SwingUtils;
 import cy.alavrov.jminerguide.util.winmanager.IWindowManager;
+import java.awt.BorderLayout;
 import java.awt.Color;
-import java.awt.Component;
 import java.awt.Container;
 import java.awt.Font;
-import java.awt.GridLayout;
 import java.awt.Image;
-import java.awt.Insets;
 import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.io.InputStream;
 import java.text.DecimalFormat;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -65,7 +66,7 @@ import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JToggleButton;
 import javax.swing.KeyStroke;
-import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableModel;
 import javax.swing.text.AbstractDocument;
 import org.joda.time.Period;
 import org.joda.time.Seconds;
@@ -76,10 +77,11 @@ import org.joda.time.format.PeriodFormatterBuilder;
  * Asteroid harvesting monitor and EVE instance selector.
  * @author Andrey Lavrov <lavroff@gmail.com>
  */
-public class JAsteroidMonitorForm extends javax.swing.JFrame {
+public class JAsteroidMonitorForm extends javax.swing.JFrame implements IMonitorView {
     private final static int WINDOW_LOSS_TIMEOUT = 500;
     
     private final static DecimalFormat fmt = new DecimalFormat("0.##");
+    private final static DecimalFormat iskFmt = new DecimalFormat("#,##0");
     private final static PeriodFormatter minutesAndSeconds = new PeriodFormatterBuilder()
      .printZeroAlways()
      .appendMinutes()
@@ -95,11 +97,14 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
     private final MiningSessionMonitor msMonitor;
     private final AsteroidMonitorSettings settings;
     
-    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(2);
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+    private final MiningTask miningTask;
+    private final MiningScheduler scheduler;
     
     private volatile String currentMiner = null;
     private volatile MiningSession currentSession = null;
     private volatile List<MiningSession> currentSessions;
+    private final SessionGrid sessionGrid = new SessionGrid();
     
     private volatile long loseOnTopAt = 0;
     private volatile boolean shouldLooseOnTop = false;
@@ -134,18 +139,37 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
         idDoc = ((AbstractDocument)jTextFieldCustomTimer.getDocument());
         idDoc.setDocumentFilter(new IntegerDocumentFilter());
         
+        jPanelSelector.setLayout(new BorderLayout());
+        jPanelSelector.add(sessionGrid, BorderLayout.CENTER);
+        sessionGrid.setListener(new SessionGrid.Listener() {
+
+            @Override
+            public void sessionClicked(MiningSession session) {
+                hideModalDialogs();
+
+                JAsteroidMonitorForm.this.setAlwaysOnTop(true);
+                session.switchToWindow();
+            }
+        });
+        
         this.parent = parent;
         this.dCont = dCont;
         this.wManager = wManager;
         this.msMonitor = new MiningSessionMonitor(wManager, dCont);
         
-        timer.scheduleWithFixedDelay(new UpdateWindowTask(msMonitor, this), 100, 100, TimeUnit.MILLISECONDS);
-        timer.scheduleAtFixedRate(new MiningTask(msMonitor, this), 1, 1, TimeUnit.SECONDS);
+        timer.scheduleWithFixedDelay(new UpdateWindowTask(msMonitor, this), 
+                UpdateWindowTask.TICK, UpdateWindowTask.TICK, TimeUnit.MILLISECONDS);
+        miningTask = new MiningTask(msMonitor, this);
+        scheduler = new MiningScheduler(msMonitor, miningTask);
+        msMonitor.setScheduler(scheduler);
+        msMonitor.setCycleAccurate(settings.isCycleAccurate());
+        scheduler.start();
         disableMonitorPanel();
         
         setTurretKeyBindings(jPanelSetup, JComponent.WHEN_IN_FOCUSED_WINDOW);
         setTurretKeyBindings(jPanelSelector, JComponent.WHEN_IN_FOCUSED_WINDOW);
         setTurretKeyBindings(jTableRoids, JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
+        jTableRoids.setDefaultRenderer(Object.class, new AsteroidCellRenderer());
                
         msMonitor.update();
         updateCurrentSession();
@@ -184,6 +208,15 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
                 jToggleButtonTurret3ActionPerformed(e);
             }
         });
+        
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F4, 0), "assignturrets");
+        actMap.put("assignturrets", new AbstractAction() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                jButtonAssignTurretsActionPerformed(e);
+            }
+        });
     }
     
     private void hideModalDialogs() {
@@ -208,7 +241,7 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
                 if (this.isAlwaysOnTop() && !shouldLooseOnTop) {
                     shouldLooseOnTop = true;
                     loseOnTopAt = System.currentTimeMillis() + WINDOW_LOSS_TIMEOUT;
-                    updateSessionButtons();
+                    updateSessionGrid();
                     updateTimerLabel();
                 }
 
@@ -238,7 +271,7 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
                     currentMiner = null;
                     jLabelMinerName.setText("none");
                     disableMonitorPanel();
-                    updateSessionButtons();
+                    updateSessionGrid();
                     updateTimerLabel();
                 }
             } else {
@@ -256,7 +289,7 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
                         updateAsteroids(session);
                     }
                     
-                    updateSessionButtons();
+                    updateSessionGrid();
                     updateTimerLabel();
                 }
             }                        
@@ -264,9 +297,9 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
         
         List<MiningSession> sessions = msMonitor.getSessions();
         if (!sessions.equals(currentSessions)) {
-            recreateButtons(sessions);
+            sessionGrid.setSessions(sessions);
             currentSessions = sessions;
-            updateSessionButtons();
+            updateSessionGrid();
         }
         
         processEvents = true;
@@ -292,24 +325,12 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
     }
     
     /**
-     * Updates session buttons, setting their selected status
-     * and text as needed, according to sessions.
+     * Updates the session grid, setting the selected session
+     * and statuses as needed, according to sessions.
      */
-    public void updateSessionButtons() {
-        MiningSession sess = currentSession;
-        for (Component component : jPanelSelector.getComponents()) {
-            if (component instanceof MiningSessionButton) {
-                MiningSessionButton button = (MiningSessionButton) component;
-                
-                MiningSession session = button.getMiningSession();
-                boolean current = session.equals(sess);
-                if (button.isSelected() != current) {
-                    button.setSelected(current);
-                }
-                
-                session.updateButton(button);
-            }
-        }
+    public void updateSessionGrid() {
+        sessionGrid.setCurrentSession(currentSession);
+        sessionGrid.updateStatuses();
     }
     
     private void disableMonitorPanel() {
@@ -361,11 +382,35 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
         
         ICalculatedStats stats = character.getStats();
         jLabelStats.setText(fmt.format(stats.getTurretYield())+" m3 / "+fmt.format(stats.getTurretCycle())+" sec / turret");
-        jLabelHoldStats.setText(fmt.format(session.getUsedCargo())+" / "+stats.getOreHold()+" m3");
+        jLabelHoldStats.setText(fmt.format(session.getUsedCargoAt(System.currentTimeMillis()))+" / "+stats.getOreHold()+" m3");
+        jLabelStats.setToolTipText(getISKPerHourHTML(session));
         
         checkTurretButtons();
     }
     
+    /**
+     * Returns tooltip with ISK per hour, the session makes with its current 
+     * turret bindings, at sell prices.
+     * @param session
+     * @return null, if the session makes nothing.
+     */
+    private String getISKPerHourHTML(MiningSession session) {
+        HarvestableValueTable values = dCont.getItemPriceContainer().getValueTable();
+        HarvestableValueTable.PriceType price = HarvestableValueTable.PriceType.SELL;
+        
+        String out = "";
+        for (HarvestableValueTable.ValueSource source : HarvestableValueTable.ValueSource.values()) {
+            float isk = session.getISKPerHour(values, source, price);
+            if (isk <= 0) continue;
+            
+            out = out + source + ": " + iskFmt.format(isk) + " ISK/h<br>";
+        }
+        
+        if (out.isEmpty()) return null;
+        
+        return "<html>" + out + "</html>";
+    }
+    
     public void updateCurrentCharacterStats() {
         MiningSession sess = currentSession;
         if (sess != null) updateCharacterStats(sess);
@@ -373,43 +418,6 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
     
     
     
-    /**
-     * Cleans up old EVE selector buttons (if any) and recreates them
-     * according to the list of EVE sessions.
-     * @param sessions 
-     */
-    private void recreateButtons(List<MiningSession> sessions) {
-        jPanelSelector.removeAll();
-        int rows = (int) Math.ceil(sessions.size() / 2f);
-        GridLayout layout = new GridLayout(rows, 2, 2, 2);
-        jPanelSelector.setLayout(layout);
-        for (final MiningSession session : sessions) {
-            final MiningSessionButton button = new MiningSessionButton(session, session.getCharacterName());
-            
-            button.setMargin(new Insets(5, 1, 5, 1));
-            button.setFont(button.getFont().deriveFont(Font.BOLD));
-            button.addActionListener(new ActionListener() {
-
-                @Override
-                public void actionPerformed(ActionEvent e) {                                    
-                    hideModalDialogs();
-                    
-                    JAsteroidMonitorForm.this.setAlwaysOnTop(true);
-                    session.switchToWindow();
-                    
-                    boolean current = button.getMiningSession().equals(currentSession);
-                    if (button.isSelected() != current) {
-                        button.setSelected(current);
-                    }
-                }
-            });
-            
-            jPanelSelector.add(button);
-        }
-        layout.layoutContainer(jPanelSelector);
-        jPanelSelector.validate();
-    }
-    
     public void updateAsteroids(MiningSession session) {
         jTableRoids.setModel(session.getTableModel());
         
@@ -422,6 +430,33 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
         jTableRoids.getColumnModel().getColumn(3).setPreferredWidth(50);
     }
     
+    /**
+     * Attaches the session to the asteroid field, shared by sessions in the 
+     * belt with a given name, or detaches it into a field of its own.
+     * @param session
+     * @param belt name of the belt, null or empty to mine alone.
+     */
+    public void setSharedBelt(MiningSession session, String belt) {
+        msMonitor.setSharedBelt(session, belt);
+    }
+    
+    /**
+     * Returns name of the shared belt, the session is mining, or null, if it's alone.
+     * @param session
+     * @return 
+     */
+    public String getSharedBelt(MiningSession session) {
+        return msMonitor.getSharedBelt(session);
+    }
+    
+    /**
+     * Returns names of all the shared belts, sorted.
+     * @return 
+     */
+    public List<String> getSharedBelts() {
+        return msMonitor.getSharedBelts();
+    }
+    
     /**
      * Deletes reference to scan loading dialog.
      * Called when the dialog is closed.
@@ -522,24 +557,27 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
     }
     
     /**
-     * Returns a currently selected asteroid, or null, if there's none.
+     * Returns ID of a currently selected asteroid, or AsteroidField.NONE, if there's none.
      * @return 
      */
-    private Asteroid getSelectedAsteroid() {
+    private int getSelectedAsteroid() {
         int row = jTableRoids.getSelectedRow();
-        if (row == -1) return null;
+        if (row == -1) return AsteroidField.NONE;
         
-        try {
-            return (Asteroid) jTableRoids.getModel().getValueAt(row, 0);
-        } catch (ClassCastException e) {
-            JMGLogger.logSevere("Unable to get asteroid", e);
-            return null;
-        }
+        TableModel model = jTableRoids.getModel();
+        if (!(model instanceof MiningSession.AsteroidTableModel)) return AsteroidField.NONE;
+        
+        return ((MiningSession.AsteroidTableModel) model).getAsteroidId(row);
     }
     
     public void notifyTableUpdate() {
         int row = jTableRoids.getSelectedRow();
-        ((AbstractTableModel)jTableRoids.getModel()).fireTableDataChanged();
+        TableModel model = jTableRoids.getModel();
+        if (model instanceof MiningSession.AsteroidTableModel) {
+            MiningSession.AsteroidTableModel roidModel = (MiningSession.AsteroidTableModel) model;
+            roidModel.fireChanges();
+            roidModel.fireRemainingUpdated();
+        }
         
         if (row >= jTableRoids.getRowCount()) row = jTableRoids.getRowCount() - 1;
         
@@ -549,6 +587,15 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
         }
     }
 
+    /**
+     * Packs the window, but only if it's contents don't fit it anymore.
+     * Text changes only invalidate components, so the layout is recalculated
+     * just for them.
+     */
+    public void packIfNeeded() {
+        if (!getPreferredSize().equals(getSize())) pack();
+    }
+
     public AsteroidMonitorSettings getSettings() {
         return settings;
     }        
@@ -618,6 +665,7 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
         jToggleButtonTurret1 = new javax.swing.JToggleButton();
         jToggleButtonTurret2 = new javax.swing.JToggleButton();
         jToggleButtonTurret3 = new javax.swing.JToggleButton();
+        jButtonAssignTurrets = new javax.swing.JButton();
         jLabel5 = new javax.swing.JLabel();
         jButton15sec = new javax.swing.JButton();
         jButton30sec = new javax.swing.JButton();
@@ -763,6 +811,14 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
             }
         });
 
+        jButtonAssignTurrets.setText("Auto");
+        jButtonAssignTurrets.setToolTipText("Bind free turrets to the best asteroids in range (F4)");
+        jButtonAssignTurrets.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jButtonAssignTurretsActionPerformed(evt);
+            }
+        });
+
         jLabel5.setText("Timers");
 
         jButton15sec.setText("15s");
@@ -850,6 +906,8 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
                         .addComponent(jToggleButtonTurret2)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                         .addComponent(jToggleButtonTurret3)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(jButtonAssignTurrets)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                         .addComponent(jButtonCleanupAsteroids))
                     .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, jPanelSetupLayout.createSequentialGroup()
@@ -926,6 +984,7 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
                     .addComponent(jToggleButtonTurret1)
                     .addComponent(jToggleButtonTurret2)
                     .addComponent(jToggleButtonTurret3)
+                    .addComponent(jButtonAssignTurrets)
                     .addComponent(jButtonCleanupAsteroids))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(jLabel5)
@@ -1038,6 +1097,8 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
         parent.setVisible(true);
         this.dispose();
         timer.shutdown();
+        scheduler.stop();
+        miningTask.shutdown();
         parent.deleteMonitorForm();
     }//GEN-LAST:event_jButtonCloseActionPerformed
 
@@ -1049,11 +1110,11 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
                 if (chr != null && chr.getTurretCount() > 2) {
                     TurretInstance turret = sess.getTurret3();
                     if (turret.isMining()) {
-                        turret.unbindAsteroid();
+                        sess.unbindTurret(turret);
                     } else {
-                        Asteroid roid = getSelectedAsteroid();
-                        if (roid != null) {
-                            turret.bindAsteroid(roid);
+                        int roid = getSelectedAsteroid();
+                        if (roid != AsteroidField.NONE) {
+                            sess.bindTurret(turret, roid);
                         }
                     }
 
@@ -1075,11 +1136,11 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
                 if (chr != null && chr.getTurretCount() > 1) {
                     TurretInstance turret = sess.getTurret2();
                     if (turret.isMining()) {
-                        turret.unbindAsteroid();
+                        sess.unbindTurret(turret);
                     } else {
-                        Asteroid roid = getSelectedAsteroid();
-                        if (roid != null) {
-                            turret.bindAsteroid(roid);
+                        int roid = getSelectedAsteroid();
+                        if (roid != AsteroidField.NONE) {
+                            sess.bindTurret(turret, roid);
                         }
                     }
 
@@ -1101,11 +1162,11 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
                 if (chr != null && chr.getTurretCount() > 0) {
                     TurretInstance turret = sess.getTurret1();
                     if (turret.isMining()) {
-                        turret.unbindAsteroid();
+                        sess.unbindTurret(turret);
                     } else {
-                        Asteroid roid = getSelectedAsteroid();
-                        if (roid != null) {
-                            turret.bindAsteroid(roid);
+                        int roid = getSelectedAsteroid();
+                        if (roid != AsteroidField.NONE) {
+                            sess.bindTurret(turret, roid);
                         }
                     }
 
@@ -1119,6 +1180,15 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
         }
     }//GEN-LAST:event_jToggleButtonTurret1ActionPerformed
 
+    private void jButtonAssignTurretsActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButtonAssignTurretsActionPerformed
+        MiningSession sess = currentSession;
+        if (sess != null) {
+            msMonitor.assignTurrets(Collections.singletonList(sess), System.currentTimeMillis());
+            notifyTableUpdate();
+            checkTurretButtons();
+        }
+    }//GEN-LAST:event_jButtonAssignTurretsActionPerformed
+
     private void jButtonCleanupAsteroidsActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButtonCleanupAsteroidsActionPerformed
         MiningSession sess = currentSession;
         if (sess != null) {
@@ -1239,6 +1309,8 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
         dlog.setLocationRelativeTo(this);
 
         dlog.setVisible(true);
+        
+        msMonitor.setCycleAccurate(settings.isCycleAccurate());
     }//GEN-LAST:event_jButtonSettingsActionPerformed
 
     private void jSpinnerSequenceStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_jSpinnerSequenceStateChanged
@@ -1315,9 +1387,16 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
         
         MiningSession sess = currentSession;
         if (sess != null) { 
-            ISessionCharacter character = sess.getSessionCharacter();
+            final ISessionCharacter character = sess.getSessionCharacter();
             if (character != null) {
-                character.getCoreCharacter().setMonitorSimple(jCheckBoxSimpleConfig.isSelected());
+                final boolean simple = jCheckBoxSimpleConfig.isSelected();
+                // ore mined so far goes at the old stats.
+                sess.updateCharacterStats(new Runnable() {
+                    @Override
+                    public void run() {
+                        character.getCoreCharacter().setMonitorSimple(simple);
+                    }
+                });
                 updateCharacterStatsIfCurrent(sess);
                 checkTurretButtons();
             }
@@ -1331,6 +1410,7 @@ public class JAsteroidMonitorForm extends javax.swing.JFrame {
     private javax.swing.JButton jButton1min;
     private javax.swing.JButton jButton2min;
     private javax.swing.JButton jButton30sec;
+    private javax.swing.JButton jButtonAssignTurrets;
     private javax.swing.JButton jButtonCleanupAsteroids;
     private javax.swing.JButton jButtonClearAsteroids;
     private javax.swing.JButton jButtonClose;
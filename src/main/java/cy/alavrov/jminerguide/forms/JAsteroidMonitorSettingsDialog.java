@@ -49,6 +49,9 @@ public class JAsteroidMonitorSettingsDialog extends javax.swing.JDialog {
         jCheckBoxSoundAlert.setSelected(settings.isSoundOnAlert());
         jTextFieldTimerRemove.setText(String.valueOf(settings.getTimerAlertRemoveTimeout()));
         jCheckBoxRoidsCleanup.setSelected(settings.isAsteroidAutoCleanup());
+        jCheckBoxCycleAccurate.setSelected(settings.isCycleAccurate());
+        jCheckBoxAutoAssign.setSelected(settings.isAutoAssign());
+        jCheckBoxParallelMining.setSelected(settings.isParallelMining());
         
         AbstractDocument idDoc = ((AbstractDocument)jTextFieldTimerRemove.getDocument());
         idDoc.setDocumentFilter(new IntegerDocumentFilter());
@@ -74,6 +77,9 @@ public class JAsteroidMonitorSettingsDialog extends javax.swing.JDialog {
         jButtonClose = new javax.swing.JButton();
         jLabel3 = new javax.swing.JLabel();
         jCheckBoxRoidsCleanup = new javax.swing.JCheckBox();
+        jCheckBoxCycleAccurate = new javax.swing.JCheckBox();
+        jCheckBoxAutoAssign = new javax.swing.JCheckBox();
+        jCheckBoxParallelMining = new javax.swing.JCheckBox();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.DISPOSE_ON_CLOSE);
         setTitle("Asteroid Monitor Settings");
@@ -108,6 +114,12 @@ public class JAsteroidMonitorSettingsDialog extends javax.swing.JDialog {
 
         jCheckBoxRoidsCleanup.setText("Auto-cleanup Asteroids");
 
+        jCheckBoxCycleAccurate.setText("Deliver Ore at the End of Cycle");
+
+        jCheckBoxAutoAssign.setText("Rebind Turrets on Mined Out Asteroids");
+
+        jCheckBoxParallelMining.setText("Mine Sessions in Parallel");
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(getContentPane());
         getContentPane().setLayout(layout);
         layout.setHorizontalGroup(
@@ -126,7 +138,10 @@ public class JAsteroidMonitorSettingsDialog extends javax.swing.JDialog {
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                         .addComponent(jButtonClose))
                     .addComponent(jLabel3)
-                    .addComponent(jCheckBoxRoidsCleanup))
+                    .addComponent(jCheckBoxRoidsCleanup)
+                    .addComponent(jCheckBoxCycleAccurate)
+                    .addComponent(jCheckBoxAutoAssign)
+                    .addComponent(jCheckBoxParallelMining))
                 .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
         );
         layout.setVerticalGroup(
@@ -142,6 +157,12 @@ public class JAsteroidMonitorSettingsDialog extends javax.swing.JDialog {
                 .addComponent(jLabel3)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(jCheckBoxRoidsCleanup)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(jCheckBoxCycleAccurate)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(jCheckBoxAutoAssign)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(jCheckBoxParallelMining)
                 .addGap(18, 18, 18)
                 .addComponent(jLabel2)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
@@ -164,6 +185,9 @@ public class JAsteroidMonitorSettingsDialog extends javax.swing.JDialog {
         settings.setPopupOnAlert(jCheckBoxPopupAlert.isSelected());
         settings.setSoundOnAlert(jCheckBoxSoundAlert.isSelected());
         settings.setAsteroidAutoCleanup(jCheckBoxRoidsCleanup.isSelected());
+        settings.setCycleAccurate(jCheckBoxCycleAccurate.isSelected());
+        settings.setAutoAssign(jCheckBoxAutoAssign.isSelected());
+        settings.setParallelMining(jCheckBoxParallelMining.isSelected());
         
         String timeoutStr = jTextFieldTimerRemove.getText();
         int timeout;
@@ -183,6 +207,9 @@ public class JAsteroidMonitorSettingsDialog extends javax.swing.JDialog {
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton jButtonClose;
     private javax.swing.JButton jButtonSave;
+    private javax.swing.JCheckBox jCheckBoxAutoAssign;
+    private javax.swing.JCheckBox jCheckBoxCycleAccurate;
+    private javax.swing.JCheckBox jCheckBoxParallelMining;
     private javax.swing.JCheckBox jCheckBoxPopupAlert;
     private javax.swing.JCheckBox jCheckBoxRoidsCleanup;
     private javax.swing.JCheckBox jCheckBoxSoundAlert;
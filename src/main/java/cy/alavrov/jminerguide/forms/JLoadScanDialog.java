@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import javax.swing.DefaultComboBoxModel;
 
 /**
  *
@@ -63,6 +64,16 @@ public class JLoadScanDialog extends javax.swing.JDialog {
         this.session = session;
         this.parent = parent;
         this.jCheckBoxSort.setSelected(sortSelected);
+        
+        // an empty name means no shared belt.
+        DefaultComboBoxModel<String> belts = new DefaultComboBoxModel<>();
+        belts.addElement("");
+        for (String belt : parent.getSharedBelts()) {
+            belts.addElement(belt);
+        }
+        String curBelt = parent.getSharedBelt(session);
+        belts.setSelectedItem(curBelt == null ? "" : curBelt);
+        this.jComboBoxBelt.setModel(belts);
     }
 
     /**
@@ -110,6 +121,15 @@ public class JLoadScanDialog extends javax.swing.JDialog {
         return out;
     }
     
+    /**
+     * Returns shared belt name, as typed or selected.
+     * @return 
+     */
+    private String getBelt() {
+        Object belt = jComboBoxBelt.getEditor().getItem();
+        return belt == null ? null : belt.toString();
+    }
+    
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
@@ -126,6 +146,8 @@ public class JLoadScanDialog extends javax.swing.JDialog {
         jButtonCancel = new javax.swing.JButton();
         jCheckBoxSort = new javax.swing.JCheckBox();
         jButtonResetAndLoad = new javax.swing.JButton();
+        jLabelBelt = new javax.swing.JLabel();
+        jComboBoxBelt = new javax.swing.JComboBox<String>();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.DO_NOTHING_ON_CLOSE);
         setTitle("Load Scan");
@@ -171,6 +193,11 @@ public class JLoadScanDialog extends javax.swing.JDialog {
             }
         });
 
+        jLabelBelt.setText("Shared Belt:");
+
+        jComboBoxBelt.setEditable(true);
+        jComboBoxBelt.setToolTipText("Sessions with the same belt name share asteroids, leave empty to mine alone");
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(getContentPane());
         getContentPane().setLayout(layout);
         layout.setHorizontalGroup(
@@ -187,6 +214,10 @@ public class JLoadScanDialog extends javax.swing.JDialog {
                     .addGroup(layout.createSequentialGroup()
                         .addComponent(jButtonCancel)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                        .addComponent(jLabelBelt)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(jComboBoxBelt, javax.swing.GroupLayout.PREFERRED_SIZE, 100, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                         .addComponent(jCheckBoxSort)))
                 .addContainerGap())
         );
@@ -204,7 +235,9 @@ public class JLoadScanDialog extends javax.swing.JDialog {
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(jButtonCancel)
-                    .addComponent(jCheckBoxSort))
+                    .addComponent(jCheckBoxSort)
+                    .addComponent(jLabelBelt)
+                    .addComponent(jComboBoxBelt, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
         );
 
@@ -219,6 +252,7 @@ public class JLoadScanDialog extends javax.swing.JDialog {
     private void jButtonClearAndLoadActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButtonClearAndLoadActionPerformed
         List<Asteroid> roids = parseScan(jTextAreaScan.getText());     
         
+        parent.setSharedBelt(session, getBelt());
         session.clearAndAddRoids(roids);
         parent.updateAsteroids(session);
         
@@ -229,6 +263,7 @@ public class JLoadScanDialog extends javax.swing.JDialog {
     private void jButtonLoadAndAddActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButtonLoadAndAddActionPerformed
         List<Asteroid> roids = parseScan(jTextAreaScan.getText()); 
         
+        parent.setSharedBelt(session, getBelt());
         session.addRoids(roids);
         parent.updateAsteroids(session);
         
@@ -243,6 +278,7 @@ public class JLoadScanDialog extends javax.swing.JDialog {
     private void jButtonResetAndLoadActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButtonResetAndLoadActionPerformed
         List<Asteroid> roids = parseScan(jTextAreaScan.getText()); 
         
+        parent.setSharedBelt(session, getBelt());
         session.resetAndAddRoids(roids);
         parent.updateAsteroids(session);
         
@@ -257,6 +293,8 @@ public class JLoadScanDialog extends javax.swing.JDialog {
     private javax.swing.JButton jButtonLoadAndAdd;
     private javax.swing.JButton jButtonResetAndLoad;
     private javax.swing.JCheckBox jCheckBoxSort;
+    private javax.swing.JComboBox<String> jComboBoxBelt;
+    private javax.swing.JLabel jLabelBelt;
     private javax.swing.JScrollPane jScrollPane1;
     private javax.swing.JTextArea jTextAreaScan;
     // End of variables declaration//GEN-END:variables
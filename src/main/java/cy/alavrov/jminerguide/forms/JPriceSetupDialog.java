@@ -28,6 +28,8 @@ package cy.alavrov.jminerguide.forms;
 import cy.alavrov.jminerguide.data.DataContainer;
 import cy.alavrov.jminerguide.data.api.IItemPriceLoadingResultReceiver;
 import cy.alavrov.jminerguide.data.api.ItemPriceLoader;
+import cy.alavrov.jminerguide.data.character.CharacterContainer;
+import cy.alavrov.jminerguide.data.character.EVECharacter;
 import cy.alavrov.jminerguide.data.price.ItemPrice;
 import cy.alavrov.jminerguide.data.price.ItemPriceContainer;
 import cy.alavrov.jminerguide.data.price.ItemPriceContainer.ItemPriceTableModel;
@@ -68,6 +70,12 @@ public class JPriceSetupDialog extends javax.swing.JDialog implements IItemPrice
         idDoc = ((AbstractDocument)jTextFieldSell.getDocument());
         idDoc.setDocumentFilter(new FloatDocumentFilter());
         
+        idDoc = ((AbstractDocument)jTextFieldBaseYield.getDocument());
+        idDoc.setDocumentFilter(new FloatDocumentFilter());
+        
+        idDoc = ((AbstractDocument)jTextFieldImplant.getDocument());
+        idDoc.setDocumentFilter(new FloatDocumentFilter());
+        
         ItemPriceContainer iCont = dCont.getItemPriceContainer();
         MarketZoneContainer mCont = dCont.getMarketZoneContainer();
         
@@ -80,6 +88,12 @@ public class JPriceSetupDialog extends javax.swing.JDialog implements IItemPrice
         setPrices(iCont.getTableModel(itype, ctype));
         jComboBoxMarketZone.setModel(mCont.getComboBoxModel());                
         
+        CharacterContainer cCont = dCont.getCharacterContainer();
+        jComboBoxReprocessingChar.setModel(cCont.getCharModel());
+        jComboBoxReprocessingChar.setSelectedItem(iCont.getReprocessingCharacter(cCont));
+        jTextFieldBaseYield.setText(String.valueOf(iCont.getBaseYield() * 100));
+        jTextFieldImplant.setText(String.valueOf(iCont.getImplantBonus()));
+        
         jTablePrices.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
 
             @Override
@@ -170,8 +184,7 @@ public class JPriceSetupDialog extends javax.swing.JDialog implements IItemPrice
                 Float newSellPrice = Float.parseFloat(sellStr);
                 if (newSellPrice < 0f) newBuyPrice = 0f;                
                 
-                price.setBuyPrice(newBuyPrice);
-                price.setSellPrice(newSellPrice);
+                dCont.getItemPriceContainer().setItemPrice(price.getItemID(), newBuyPrice, newSellPrice);
                                 
                 int row = jTablePrices.getSelectedRow();
                 ((AbstractTableModel)jTablePrices.getModel()).fireTableRowsUpdated(row, row);
@@ -181,6 +194,32 @@ public class JPriceSetupDialog extends javax.swing.JDialog implements IItemPrice
         }
     }
     
+    /**
+     * Sets up reprocessing with the chosen character, base yield and implant.
+     */
+    private void updateReprocessing() {
+        EVECharacter chr = (EVECharacter) jComboBoxReprocessingChar.getSelectedItem();
+        if (chr == null) return;
+        
+        try {
+            String yieldStr = jTextFieldBaseYield.getText();
+            if (yieldStr == null || yieldStr.isEmpty()) yieldStr = "0";
+            String implantStr = jTextFieldImplant.getText();
+            if (implantStr == null || implantStr.isEmpty()) implantStr = "0";
+            
+            float baseYield = Float.parseFloat(yieldStr) / 100f;
+            if (baseYield < 0f) baseYield = 0f;
+            if (baseYield > 1f) baseYield = 1f;
+            float implant = Float.parseFloat(implantStr);
+            if (implant < 0f) implant = 0f;
+            
+            dCont.getItemPriceContainer().setReprocessing(chr, baseYield, implant);
+            jLabelStatus.setText("Reprocessing updated");
+        } catch (Exception e) {
+            JMGLogger.logSevere("Unable to update reprocessing", e);            
+        }
+    }
+    
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
@@ -206,6 +245,13 @@ public class JPriceSetupDialog extends javax.swing.JDialog implements IItemPrice
         jComboBoxCompressedFilter = new javax.swing.JComboBox<ItemPrice.CompressionType>();
         jButtonPriceUpdate = new javax.swing.JButton();
         jLabelStatus = new javax.swing.JLabel();
+        jLabelReprocessing = new javax.swing.JLabel();
+        jComboBoxReprocessingChar = new javax.swing.JComboBox<EVECharacter>();
+        jTextFieldBaseYield = new javax.swing.JTextField();
+        jLabelBaseYield = new javax.swing.JLabel();
+        jTextFieldImplant = new javax.swing.JTextField();
+        jLabelImplant = new javax.swing.JLabel();
+        jButtonReprocessing = new javax.swing.JButton();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.DO_NOTHING_ON_CLOSE);
         setTitle("Setup Prices");
@@ -308,6 +354,25 @@ public class JPriceSetupDialog extends javax.swing.JDialog implements IItemPrice
 
         jLabelStatus.setText("OK");
 
+        jLabelReprocessing.setText("Reprocessing:");
+
+        jComboBoxReprocessingChar.setToolTipText("Character, whose reprocessing skills are used");
+
+        jTextFieldBaseYield.setToolTipText("Base yield of the refinery");
+
+        jLabelBaseYield.setText("% base");
+
+        jTextFieldImplant.setToolTipText("Reprocessing implant bonus");
+
+        jLabelImplant.setText("% implant");
+
+        jButtonReprocessing.setText("Apply");
+        jButtonReprocessing.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jButtonReprocessingActionPerformed(evt);
+            }
+        });
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(getContentPane());
         getContentPane().setLayout(layout);
         layout.setHorizontalGroup(
@@ -342,6 +407,21 @@ public class JPriceSetupDialog extends javax.swing.JDialog implements IItemPrice
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                         .addComponent(jButtonPriceUpdate)
                         .addContainerGap())
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(jLabelReprocessing)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(jComboBoxReprocessingChar, javax.swing.GroupLayout.PREFERRED_SIZE, 140, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(jTextFieldBaseYield, javax.swing.GroupLayout.PREFERRED_SIZE, 36, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(jLabelBaseYield)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(jTextFieldImplant, javax.swing.GroupLayout.PREFERRED_SIZE, 36, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(jLabelImplant)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                        .addComponent(jButtonReprocessing)
+                        .addContainerGap())
                     .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, layout.createSequentialGroup()
                         .addComponent(jButtonOK)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
@@ -374,6 +454,15 @@ public class JPriceSetupDialog extends javax.swing.JDialog implements IItemPrice
                     .addComponent(jButtonPriceUpdate))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(jLabelStatus)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jLabelReprocessing)
+                    .addComponent(jComboBoxReprocessingChar, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jTextFieldBaseYield, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jLabelBaseYield)
+                    .addComponent(jTextFieldImplant, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jLabelImplant)
+                    .addComponent(jButtonReprocessing))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(jButtonOK)
@@ -452,6 +541,15 @@ public class JPriceSetupDialog extends javax.swing.JDialog implements IItemPrice
         dCont.startAPILoader(loader);
     }//GEN-LAST:event_jButtonLoadActionPerformed
 
+    private void jButtonReprocessingActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButtonReprocessingActionPerformed
+        if (!processEvents || loading) return;
+        processEvents = false;
+        
+        updateReprocessing();
+        
+        processEvents = true;
+    }//GEN-LAST:event_jButtonReprocessingActionPerformed
+
     private void formWindowClosing(java.awt.event.WindowEvent evt) {//GEN-FIRST:event_formWindowClosing
         if (!loading) {
             this.dispose();
@@ -463,18 +561,25 @@ public class JPriceSetupDialog extends javax.swing.JDialog implements IItemPrice
     private javax.swing.JButton jButtonLoad;
     private javax.swing.JButton jButtonOK;
     private javax.swing.JButton jButtonPriceUpdate;
+    private javax.swing.JButton jButtonReprocessing;
     private javax.swing.JComboBox<ItemPrice.CompressionType> jComboBoxCompressedFilter;
     private javax.swing.JComboBox<ItemPrice.ItemType> jComboBoxItemTypeFilter;
     private javax.swing.JComboBox<MarketZone> jComboBoxMarketZone;
+    private javax.swing.JComboBox<EVECharacter> jComboBoxReprocessingChar;
     private javax.swing.JLabel jLabel1;
     private javax.swing.JLabel jLabel2;
     private javax.swing.JLabel jLabel3;
     private javax.swing.JLabel jLabel4;
     private javax.swing.JLabel jLabel5;
+    private javax.swing.JLabel jLabelBaseYield;
+    private javax.swing.JLabel jLabelImplant;
+    private javax.swing.JLabel jLabelReprocessing;
     private javax.swing.JLabel jLabelStatus;
     private javax.swing.JScrollPane jScrollPane1;
     private javax.swing.JTable jTablePrices;
+    private javax.swing.JTextField jTextFieldBaseYield;
     private javax.swing.JTextField jTextFieldBuy;
+    private javax.swing.JTextField jTextFieldImplant;
     private javax.swing.JTextField jTextFieldSell;
     // End of variables declaration//GEN-END:variables
 
@@ -192,18 +192,22 @@ public class JSessionCharacterSettingsDialog extends javax.swing.JDialog {
 
     private void jButtonSaveActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButtonSaveActionPerformed
         synchronized(session) {
-            SessionCharacter character = (SessionCharacter) session.getSessionCharacter();
-
-            Ship ship = (Ship) jComboBoxShip.getSelectedItem();
-            character.setShip(ship);
-
-            EVECharacter booster = (EVECharacter) jComboBoxBooster.getSelectedItem();
-            character.setBooster(booster);
-
-            BoosterShip bShip = (BoosterShip) jComboBoxBoosterShip.getSelectedItem();
-            character.setBoosterShip(bShip);
-
-            character.setUseBoosterShip(jCheckBoxUseBoosterShip.isSelected());
+            final SessionCharacter character = (SessionCharacter) session.getSessionCharacter();
+            final Ship ship = (Ship) jComboBoxShip.getSelectedItem();
+            final EVECharacter booster = (EVECharacter) jComboBoxBooster.getSelectedItem();
+            final BoosterShip bShip = (BoosterShip) jComboBoxBoosterShip.getSelectedItem();
+            final boolean useBoosterShip = jCheckBoxUseBoosterShip.isSelected();
+
+            // ore mined so far goes at the old stats.
+            session.updateCharacterStats(new Runnable() {
+                @Override
+                public void run() {
+                    character.setShip(ship);
+                    character.setBooster(booster);
+                    character.setBoosterShip(bShip);
+                    character.setUseBoosterShip(useBoosterShip);
+                }
+            });
             
             session.unbindAllTurrets();
         }
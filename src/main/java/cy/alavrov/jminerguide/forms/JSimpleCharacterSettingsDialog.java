@@ -201,36 +201,43 @@ public class JSimpleCharacterSettingsDialog extends javax.swing.JDialog {
 
     private void jButtonSaveActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButtonSaveActionPerformed
         synchronized(session) {
-            ISessionCharacter character = session.getSessionCharacter();
+            final ISessionCharacter character = session.getSessionCharacter();
 
-            SimpleCharacter sChar;
+            final SimpleCharacter sChar;
             if (character.isSimple()) {
                 sChar = ((SimpleCharacter)character.getCoreCharacter());
             } else {
                 sChar = ((SessionCharacter)character).getSimpleCharacter();
             }
 
-            try {
-                sChar.setTurretYield(Integer.parseInt(jTextFieldTurretYield.getText(), 10));                
-            } catch (Exception e) {
-                sChar.setTurretYield(0);
-            }
-            
-            try {
-                sChar.setTurretCycle(Float.parseFloat(jTextFieldTurretCycle.getText()));
-            } catch (Exception e) {
-                sChar.setTurretCycle(0);
-            }
-                
-            try {
-                sChar.setOreHold(Integer.parseInt(jTextFieldOreHold.getText(), 10));
-            } catch (Exception e) {
-                sChar.setOreHold(0);
-            }
-            
-            sChar.setTurrets((int) jComboBoxTurrets.getSelectedItem());
+            // ore mined so far goes at the old stats.
+            session.updateCharacterStats(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sChar.setTurretYield(Integer.parseInt(jTextFieldTurretYield.getText(), 10));                
+                    } catch (Exception e) {
+                        sChar.setTurretYield(0);
+                    }
+
+                    try {
+                        sChar.setTurretCycle(Float.parseFloat(jTextFieldTurretCycle.getText()));
+                    } catch (Exception e) {
+                        sChar.setTurretCycle(0);
+                    }
+
+                    try {
+                        sChar.setOreHold(Integer.parseInt(jTextFieldOreHold.getText(), 10));
+                    } catch (Exception e) {
+                        sChar.setOreHold(0);
+                    }
+
+                    sChar.setTurrets((int) jComboBoxTurrets.getSelectedItem());
+
+                    character.recalculateStats();
+                }
+            });
             
-            character.recalculateStats();
             session.unbindAllTurrets();
         }
 
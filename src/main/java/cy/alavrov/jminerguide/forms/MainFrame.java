@@ -27,9 +27,10 @@
 package cy.alavrov.jminerguide.forms;
 
 import cy.alavrov.jminerguide.App;
-import cy.alavrov.jminerguide.data.CalculatedStats;
 import cy.alavrov.jminerguide.data.DataContainer;
 import cy.alavrov.jminerguide.data.ICalculatedStats;
+import cy.alavrov.jminerguide.data.StatsGraph;
+import cy.alavrov.jminerguide.data.StatsNode;
 import cy.alavrov.jminerguide.data.api.APICharLoader;
 import cy.alavrov.jminerguide.data.booster.BoosterHull;
 import cy.alavrov.jminerguide.data.booster.BoosterShip;
@@ -40,6 +41,7 @@ import cy.alavrov.jminerguide.data.ship.Hull;
 import cy.alavrov.jminerguide.data.ship.MiningCrystalLevel;
 import cy.alavrov.jminerguide.data.ship.MiningDrone;
 import cy.alavrov.jminerguide.data.harvestable.HarvestableType;
+import cy.alavrov.jminerguide.data.harvestable.IHarvestable;
 import cy.alavrov.jminerguide.data.ship.Rig;
 import cy.alavrov.jminerguide.data.ship.Ship;
 import cy.alavrov.jminerguide.data.ship.ShipContainer;
@@ -47,13 +49,16 @@ import cy.alavrov.jminerguide.data.ship.Turret;
 import cy.alavrov.jminerguide.data.character.CharacterContainer;
 import cy.alavrov.jminerguide.data.character.EVECharacter;
 import cy.alavrov.jminerguide.data.implant.Implant;
+import cy.alavrov.jminerguide.data.price.HarvestableValueTable;
 import cy.alavrov.jminerguide.log.JMGLogger;
 import cy.alavrov.jminerguide.util.IntegerDocumentFilter;
 import cy.alavrov.jminerguide.util.winmanager.IWindowManager;
 import cy.alavrov.jminerguide.util.winmanager.win32.Win32WindowManager;
+import cy.alavrov.jminerguide.util.winmanager.x11.X11WindowManager;
 import java.awt.Image;
 import java.io.InputStream;
 import java.text.DecimalFormat;
+import java.util.EnumSet;
 import javax.imageio.ImageIO;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.event.DocumentEvent;
@@ -70,6 +75,7 @@ import org.joda.time.format.PeriodFormatterBuilder;
 public final class MainFrame extends javax.swing.JFrame {
 
     private final static DecimalFormat fmt = new DecimalFormat("0.##");
+    private final static DecimalFormat iskFmt = new DecimalFormat("#,##0");
     private final static PeriodFormatter minutesAndSeconds = new PeriodFormatterBuilder()
      .printZeroAlways()
      .appendMinutes()
@@ -80,6 +86,8 @@ public final class MainFrame extends javax.swing.JFrame {
     private Integer[] skillLvls = {0, 1, 2, 3, 4, 5};
 
     private DataContainer dCont;
+    
+    private final StatsGraph statsGraph = new StatsGraph();
 
     /**
      * JComboBox and JCheckBox fire off event on setSelectedItem, and we don't need
@@ -133,6 +141,10 @@ public final class MainFrame extends javax.swing.JFrame {
         if (com.sun.jna.Platform.isWindows()) {
             wManager = new Win32WindowManager();
             jButtonAsteroidMonitor.setEnabled(true);
+        } else if (com.sun.jna.Platform.isX11()) {
+            // EVE under Wine, null if there is no X server to talk to.
+            wManager = X11WindowManager.open(null);
+            jButtonAsteroidMonitor.setEnabled(wManager != null);
         } else {
             wManager = null;
             jButtonAsteroidMonitor.setEnabled(false);
@@ -150,39 +162,89 @@ public final class MainFrame extends javax.swing.JFrame {
         
         Turret turret = ship.getTurret();
         boolean isMerco = false;
+        HarvestableType target = turret.getHarvestableType();
         if (turret.getHarvestableType() == HarvestableType.MERCOXIT) {
             if (!jCheckBoxStatsMerco.isEnabled()) jCheckBoxStatsMerco.setEnabled(true);
             isMerco = jCheckBoxStatsMerco.isSelected();
+            if (!isMerco) target = HarvestableType.ORE;
         } else {
             if (jCheckBoxStatsMerco.isEnabled()) jCheckBoxStatsMerco.setEnabled(false);
         }
 
-        ICalculatedStats newStats = new CalculatedStats(miner, booster, ship, bShip, isMerco);
+        // only nodes, that have actually changed, get their labels updated.
+        EnumSet<StatsNode> changed = statsGraph.update(miner, booster, ship, bShip, isMerco);
+        ICalculatedStats newStats = statsGraph;
+
+        if (changed.contains(StatsNode.TURRET_YIELD)) {
+            jLabelYield.setText(String.valueOf(fmt.format(newStats.getCombinedTurretYield())));
+            jLabelYield.setToolTipText(fmt.format(newStats.getTurretYield())+" per turret");
+        }
 
-        jLabelYield.setText(String.valueOf(fmt.format(newStats.getCombinedTurretYield())));
-        jLabelYield.setToolTipText(fmt.format(newStats.getTurretYield())+" per turret");
+        if (changed.contains(StatsNode.TURRET_CYCLE)) {
+            jLabelCycle.setText(fmt.format(newStats.getTurretCycle()));
+        }
+        
+        if (changed.contains(StatsNode.TURRET_M3S)) {
+            jLabelM3S.setText(fmt.format(newStats.getCombinedTurretM3S()));
+            jLabelM3S.setToolTipText(fmt.format(newStats.getTurretM3S())+" per turret");
+        }
 
-        jLabelCycle.setText(fmt.format(newStats.getTurretCycle()));
-        jLabelM3S.setText(fmt.format(newStats.getCombinedTurretM3S()));
-        jLabelM3S.setToolTipText(fmt.format(newStats.getTurretM3S())+" per turret");
+        if (changed.contains(StatsNode.DRONE_YIELD)) {
+            jLabelDroneYield.setText(String.valueOf(fmt.format(newStats.getCombinedDroneYield())));
+            jLabelDroneYield.setToolTipText(fmt.format(newStats.getDroneYield())+" per drone");
 
-        jLabelDroneYield.setText(String.valueOf(fmt.format(newStats.getCombinedDroneYield())));
-        jLabelDroneYield.setToolTipText(fmt.format(newStats.getDroneYield())+" per drone");
+            jLabelDroneCycle.setText(fmt.format(newStats.getDroneCycle()));
+            jLabelDroneM3S.setText(fmt.format(newStats.getDroneM3S()));
+        }
 
-        jLabelDroneCycle.setText(fmt.format(newStats.getDroneCycle()));
-        jLabelDroneM3S.setText(fmt.format(newStats.getDroneM3S()));
+        if (changed.contains(StatsNode.TOTAL_M3H)) {
+            jLabelM3H.setText(fmt.format(newStats.getTotalM3H()));
+            jLabelOreHoldFill.setText(minutesAndSeconds.print(
+                    Seconds.seconds(newStats.getSecsForOreHold())
+                            .toStandardDuration().toPeriod()
+            ));
+        }
+        // harvestable type and prices can change without m3/h changing.
+        jLabelM3H.setToolTipText(getISKPerHourHTML(target, newStats.getTotalM3H()));
+        
+        if (changed.contains(StatsNode.OPTIMAL)) {
+            jLabelOptimal.setText(fmt.format(newStats.getOptimal()));
+        }
 
-        jLabelM3H.setText(fmt.format(newStats.getTotalM3H()));
-        jLabelOptimal.setText(fmt.format(newStats.getOptimal()));
+        if (changed.contains(StatsNode.ORE_HOLD)) {
+            jLabelOreHold.setText(fmt.format(newStats.getOreHold()));
+        }
+        
+        if (changed.contains(StatsNode.LINK_BONUS)) {
+            jLabelLinkCycleBonus.setText(fmt.format(newStats.getLinkCycleBonus())+"%");
+            jLabelLinkOptimalBonus.setText(fmt.format(newStats.getLinkOptimalBonus())+"%");
+        }
+    }
 
-        jLabelOreHold.setText(fmt.format(newStats.getOreHold()));
-        jLabelOreHoldFill.setText(minutesAndSeconds.print(
-                Seconds.seconds(newStats.getSecsForOreHold())
-                        .toStandardDuration().toPeriod()
-        ));
+    /**
+     * Returns tooltip with the most profitable harvestables for the given rate,
+     * at sell prices.
+     * @param type type of harvestable being mined.
+     * @param m3PerHour
+     * @return 
+     */
+    private String getISKPerHourHTML(HarvestableType type, float m3PerHour) {
+        HarvestableValueTable values = dCont.getItemPriceContainer().getValueTable();
+        HarvestableValueTable.PriceType price = HarvestableValueTable.PriceType.SELL;
+        
+        String out = "";
+        for (HarvestableValueTable.ValueSource source : HarvestableValueTable.ValueSource.values()) {
+            IHarvestable best = values.getBest(type, source, price);
+            if (best == null) continue;
+            
+            out = out + source + ": " + best.getName() + ", " 
+                    + iskFmt.format(values.getISKPerHour(best, source, price, m3PerHour)) 
+                    + " ISK/h<br>";
+        }
+        
+        if (out.isEmpty()) return null;
         
-        jLabelLinkCycleBonus.setText(fmt.format(newStats.getLinkCycleBonus())+"%");
-        jLabelLinkOptimalBonus.setText(fmt.format(newStats.getLinkOptimalBonus())+"%");
+        return "<html>" + out + "</html>";
     }
 
     public void loadCharacterList(boolean loadSelection) {
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.forms;
+
+import cy.alavrov.jminerguide.monitor.MiningSession;
+import cy.alavrov.jminerguide.monitor.SessionStatus;
+import cy.alavrov.jminerguide.util.CharUtils;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.Map;
+import javax.swing.JComponent;
+import javax.swing.UIManager;
+
+/**
+ * Grid of mining sessions, two in a row, with name and countdown or alert 
+ * of each one. Painted as a single component from compact session statuses,
+ * repainting only the cells, that have changed.
+ * Should be used from the EDT only.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class SessionGrid extends JComponent {
+    private final static long serialVersionUID = 1L;
+    
+    private final static int COLUMNS = 2;
+    private final static int GAP = 2;
+    private final static int HPAD = 6;
+    private final static int VPAD = 8;
+    private final static String NO_PILOT = "- no pilot selected -";
+    
+    private MiningSession[] sessions = new MiningSession[0];
+    private SessionStatus[] statuses = new SessionStatus[0];
+    // colors of the cells, made only when they change.
+    private Color[] colors = new Color[0];
+    private MiningSession currentSession;
+    private int pressed = -1;
+    private Listener listener;
+    
+    private Font boldFont;
+    private FontMetrics fm;
+    private final char[] buf = new char[32];
+    private final Rectangle cell = new Rectangle();
+    private final Rectangle clip = new Rectangle();
+    private final Map<?, ?> desktopHints;
+
+    public SessionGrid() {
+        desktopHints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+        setOpaque(true);
+        setFont(UIManager.getFont("Button.font"));
+        
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                setPressed(getCellAt(e.getX(), e.getY()));
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                int idx = pressed;
+                setPressed(-1);
+                if (idx >= 0 && idx == getCellAt(e.getX(), e.getY()) && listener != null) {
+                    listener.sessionClicked(sessions[idx]);
+                }
+            }
+        };
+        addMouseListener(mouse);
+    }
+    
+    /**
+     * Sets the listener for clicks on sessions.
+     * @param listener 
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * Replaces sessions shown.
+     * @param newSessions 
+     */
+    public void setSessions(List<MiningSession> newSessions) {
+        sessions = newSessions.toArray(new MiningSession[newSessions.size()]);
+        statuses = new SessionStatus[sessions.length];
+        colors = new Color[sessions.length];
+        for (int i = 0; i < sessions.length; i++) {
+            statuses[i] = new SessionStatus();
+            sessions[i].updateStatus(statuses[i]);
+        }
+        pressed = -1;
+        
+        revalidate();
+        repaint();
+    }
+    
+    /**
+     * Sets the session to be shown as selected.
+     * @param session 
+     */
+    public void setCurrentSession(MiningSession session) {
+        if (session == currentSession) return;
+        
+        int oldIdx = indexOf(currentSession);
+        currentSession = session;
+        repaintCell(oldIdx);
+        repaintCell(indexOf(session));
+    }
+    
+    /**
+     * Updates statuses of all the sessions, repainting cells of the changed ones.
+     */
+    public void updateStatuses() {
+        boolean relayout = false;
+        for (int i = 0; i < sessions.length; i++) {
+            String oldName = statuses[i].getName();
+            if (!sessions[i].updateStatus(statuses[i])) continue;
+            
+            repaintCell(i);
+            if (oldName == null ? statuses[i].getName() != null : !oldName.equals(statuses[i].getName())) {
+                relayout = true;
+            }
+        }
+        
+        // only a new name may need more space, statuses always fit.
+        if (relayout) revalidate();
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+        boldFont = null;
+        fm = null;
+    }
+    
+    private FontMetrics getMetrics() {
+        if (fm == null) {
+            Font font = getFont();
+            if (font == null) font = new Font(Font.DIALOG, Font.PLAIN, 12);
+            boldFont = font.deriveFont(Font.BOLD);
+            fm = getFontMetrics(boldFont);
+        }
+        return fm;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) return super.getPreferredSize();
+        
+        FontMetrics metrics = getMetrics();
+        int width = Math.max(metrics.stringWidth(NO_PILOT), metrics.stringWidth("/!\\ TURRET /!\\"));
+        for (SessionStatus status : statuses) {
+            if (status.getName() != null) width = Math.max(width, metrics.stringWidth(status.getName()));
+        }
+        
+        int cellWidth = width + 2 * HPAD;
+        int cellHeight = 2 * metrics.getHeight() + 2 * VPAD;
+        int rows = getRows();
+        return new Dimension(COLUMNS * cellWidth + (COLUMNS - 1) * GAP, 
+                rows * cellHeight + Math.max(0, rows - 1) * GAP);
+    }
+
+    @Override
+    public Dimension getMinimumSize() {
+        if (isMinimumSizeSet()) return super.getMinimumSize();
+        return getPreferredSize();
+    }
+    
+    private int getRows() {
+        return (sessions.length + COLUMNS - 1) / COLUMNS;
+    }
+    
+    private int indexOf(MiningSession session) {
+        if (session == null) return -1;
+        
+        for (int i = 0; i < sessions.length; i++) {
+            if (sessions[i].equals(session)) return i;
+        }
+        return -1;
+    }
+    
+    private void setPressed(int idx) {
+        if (idx == pressed) return;
+        
+        int oldIdx = pressed;
+        pressed = idx;
+        repaintCell(oldIdx);
+        repaintCell(idx);
+    }
+    
+    /**
+     * Calculates bounds of the cell.
+     * @param idx
+     * @param out 
+     */
+    private void getCellBounds(int idx, Rectangle out) {
+        int rows = Math.max(1, getRows());
+        int cellWidth = (getWidth() - (COLUMNS - 1) * GAP) / COLUMNS;
+        int cellHeight = (getHeight() - (rows - 1) * GAP) / rows;
+        out.setBounds((idx % COLUMNS) * (cellWidth + GAP), (idx / COLUMNS) * (cellHeight + GAP), 
+                cellWidth, cellHeight);
+    }
+    
+    private int getCellAt(int x, int y) {
+        for (int i = 0; i < sessions.length; i++) {
+            getCellBounds(i, cell);
+            if (cell.contains(x, y)) return i;
+        }
+        return -1;
+    }
+    
+    private void repaintCell(int idx) {
+        if (idx < 0 || idx >= sessions.length) return;
+        
+        getCellBounds(idx, cell);
+        repaint(cell.x, cell.y, cell.width, cell.height);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        
+        if (desktopHints != null && g instanceof Graphics2D) {
+            ((Graphics2D) g).addRenderingHints(desktopHints);
+        }
+        
+        FontMetrics metrics = getMetrics();
+        g.setFont(boldFont);
+        // stays as is, if there's no clip.
+        clip.setBounds(0, 0, getWidth(), getHeight());
+        g.getClipBounds(clip);
+        
+        for (int i = 0; i < sessions.length; i++) {
+            getCellBounds(i, cell);
+            if (cell.intersects(clip)) paintCell(g, metrics, i);
+        }
+    }
+    
+    private void paintCell(Graphics g, FontMetrics metrics, int idx) {
+        SessionStatus status = statuses[idx];
+        boolean selected = idx == pressed || sessions[idx].equals(currentSession);
+        
+        Color bg = UIManager.getColor(selected ? "ToggleButton.select" : "Button.background");
+        g.setColor(bg == null ? getBackground() : bg);
+        g.fillRect(cell.x, cell.y, cell.width, cell.height);
+        
+        Color border = UIManager.getColor("Button.shadow");
+        g.setColor(border == null ? Color.GRAY : border);
+        g.drawRect(cell.x, cell.y, cell.width - 1, cell.height - 1);
+        
+        int rgb = status.getColor();
+        if (colors[idx] == null || (colors[idx].getRGB() & 0xFFFFFF) != rgb) {
+            colors[idx] = new Color(rgb);
+        }
+        g.setColor(colors[idx]);
+        
+        int lineHeight = metrics.getHeight();
+        int y = cell.y + (cell.height - 2 * lineHeight) / 2 + metrics.getAscent();
+        
+        String name = status.getName() == null ? NO_PILOT : status.getName();
+        g.drawString(name, cell.x + (cell.width - metrics.stringWidth(name)) / 2, y);
+        
+        int len = formatState(status);
+        if (len > 0) {
+            g.drawChars(buf, 0, len, cell.x + (cell.width - metrics.charsWidth(buf, 0, len)) / 2, 
+                    y + lineHeight);
+        }
+    }
+    
+    private int formatState(SessionStatus status) {
+        switch (status.getState()) {
+            case SessionStatus.COUNTDOWN:
+                return CharUtils.appendMinutesAndSeconds(buf, 0, status.getSeconds());
+                
+            case SessionStatus.ALERT_CARGO:
+                return CharUtils.append(buf, 0, "/!\\ CARGO /!\\");
+                
+            case SessionStatus.ALERT_TIMER:
+                return CharUtils.append(buf, 0, "/!\\ TIMER /!\\");
+                
+            case SessionStatus.ALERT_TURRET:
+                return CharUtils.append(buf, 0, "/!\\ TURRET /!\\");
+                
+            default:
+                return 0;
+        }
+    }
+    
+    /**
+     * Listener for clicks on sessions.
+     */
+    public interface Listener {
+        /**
+         * Called on the EDT, when the session's cell is clicked.
+         * @param session 
+         */
+        void sessionClicked(MiningSession session);
+    }
+}
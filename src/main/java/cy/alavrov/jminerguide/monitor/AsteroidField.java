@@ -0,0 +1,490 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.monitor;
+
+import cy.alavrov.jminerguide.data.harvestable.Asteroid;
+import cy.alavrov.jminerguide.data.harvestable.IHarvestable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Asteroids of a belt, shared by all the sessions attached to it.
+ * There's only one row for every asteroid, so turrets of all attached 
+ * sessions mine the same asteroids, and depletion, remaining time and cleanup
+ * take the whole fleet into account.
+ * 
+ * Asteroids are stored in columns of primitive arrays, one row per asteroid, 
+ * and are referred to by stable IDs, as rows move on removal: the last row 
+ * takes place of the removed one. Bound turrets are kept as a bitmask, three 
+ * bits per attached session.
+ * 
+ * Every change of rows is written into a change log, so the table can update
+ * only the rows, that actually changed.
+ * 
+ * Turrets and sessions lock themselves before the field, so the field never 
+ * calls them while holding its own lock.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class AsteroidField {
+    /**
+     * ID of no asteroid at all.
+     */
+    public final static int NONE = -1;
+    
+    /**
+     * How many sessions can be attached to a field.
+     */
+    public final static int MAX_SESSIONS = Long.SIZE / MiningSession.TURRETS;
+    
+    /**
+     * Change log: rows were inserted.
+     */
+    public final static int ROWS_INSERTED = 0;
+    
+    /**
+     * Change log: rows were updated.
+     */
+    public final static int ROWS_UPDATED = 1;
+    
+    /**
+     * Change log: rows were deleted.
+     */
+    public final static int ROWS_DELETED = 2;
+    
+    /**
+     * Change log: all the rows were replaced.
+     */
+    public final static int ROWS_RESET = 3;
+    
+    private final static int LOG_SIZE = 1024;
+    
+    private final CopyOnWriteArrayList<MiningSession> sessions;
+    // sessions by their slot in turret masks. Replaced on change, never modified.
+    private volatile MiningSession[] slots;
+    
+    // asteroid columns.
+    private IHarvestable[] types;
+    private int[] distances;
+    private int[] remaining;
+    private long[] turretMasks;
+    private int[] ids;
+    private int size = 0;
+    
+    // rows by asteroid ID, counted from the first ID of the current asteroid list.
+    private int[] rows;
+    private int firstId = 0;
+    private int nextId = 0;
+    
+    // the change log is a ring buffer, logVersion is the number of entries ever written.
+    private final int[] logOps = new int[LOG_SIZE];
+    private final int[] logRows = new int[LOG_SIZE];
+    private final int[] logCounts = new int[LOG_SIZE];
+    private long logVersion = 0;
+
+    public AsteroidField() {
+        sessions = new CopyOnWriteArrayList<>();
+        slots = new MiningSession[MAX_SESSIONS];
+        
+        types = new IHarvestable[16];
+        distances = new int[16];
+        remaining = new int[16];
+        turretMasks = new long[16];
+        ids = new int[16];
+        rows = new int[16];
+    }
+    
+    /**
+     * Returns sessions, attached to the field.
+     * @return 
+     */
+    public List<MiningSession> getSessions() {
+        return sessions;
+    }
+    
+    /**
+     * Returns true, if there's more than one session attached to the field.
+     * @return 
+     */
+    public boolean isShared() {
+        return sessions.size() > 1;
+    }
+    
+    /**
+     * Attaches the session to the field.
+     * @param session
+     * @return false, if there are too many sessions already.
+     */
+    synchronized boolean attach(MiningSession session) {
+        if (getSlot(session) >= 0) return true;
+        
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) {
+                MiningSession[] newSlots = Arrays.copyOf(slots, slots.length);
+                newSlots[i] = session;
+                slots = newSlots;
+                sessions.add(session);
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Detaches the session from the field. 
+     * Turrets of the session should be unbound beforehand.
+     * @param session 
+     */
+    synchronized void detach(MiningSession session) {
+        int slot = getSlot(session);
+        if (slot < 0) return;
+        
+        MiningSession[] newSlots = Arrays.copyOf(slots, slots.length);
+        newSlots[slot] = null;
+        slots = newSlots;
+        sessions.remove(session);
+    }
+    
+    /**
+     * Returns the slot of the session in turret masks.
+     * @param session
+     * @return -1, if the session isn't attached.
+     */
+    int getSlot(MiningSession session) {
+        MiningSession[] curSlots = slots;
+        for (int i = 0; i < curSlots.length; i++) {
+            if (curSlots[i] == session) return i;
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns turret mask bits of all the turrets of the session.
+     * @param session
+     * @return 0, if the session isn't attached.
+     */
+    long getSessionMask(MiningSession session) {
+        int slot = getSlot(session);
+        if (slot < 0) return 0;
+        
+        return ((1L << MiningSession.TURRETS) - 1) << (slot * MiningSession.TURRETS);
+    }
+    
+    /**
+     * Returns the turret for a bit of the turret mask.
+     * @param bit
+     * @return null, if the session is gone.
+     */
+    TurretInstance getTurret(int bit) {
+        MiningSession session = slots[bit / MiningSession.TURRETS];
+        if (session == null) return null;
+        
+        return session.getTurret(bit % MiningSession.TURRETS);
+    }
+    
+    private long getTurretBit(TurretInstance turret) {
+        int slot = getSlot(turret.getSession());
+        if (slot < 0) return 0;
+        
+        return 1L << (slot * MiningSession.TURRETS + turret.getId() - 1);
+    }
+    
+    /**
+     * Returns number of asteroids in the field.
+     * @return 
+     */
+    public synchronized int size() {
+        return size;
+    }
+    
+    /**
+     * Returns the ID of the asteroid in the row.
+     * @param row
+     * @return NONE, if there's no such row.
+     */
+    public synchronized int getId(int row) {
+        if (row < 0 || row >= size) return NONE;
+        return ids[row];
+    }
+    
+    private int getRow(int id) {
+        int idx = id - firstId;
+        if (idx < 0 || idx >= nextId - firstId) return NONE;
+        return rows[idx];
+    }
+    
+    /**
+     * Returns harvestable of the asteroid.
+     * @param id
+     * @return null, if there's no such asteroid anymore.
+     */
+    public synchronized IHarvestable getHarvestable(int id) {
+        int row = getRow(id);
+        if (row == NONE) return null;
+        return types[row];
+    }
+    
+    /**
+     * Returns distance to the asteroid, in metres.
+     * @param id
+     * @return 0, if there's no such asteroid anymore.
+     */
+    public synchronized int getDistance(int id) {
+        int row = getRow(id);
+        if (row == NONE) return 0;
+        return distances[row];
+    }
+    
+    /**
+     * Returns, how many units of harvestable are still there.
+     * @param id
+     * @return 0, if there's no such asteroid anymore.
+     */
+    public synchronized int getRemainingUnits(int id) {
+        int row = getRow(id);
+        if (row == NONE) return 0;
+        return remaining[row];
+    }
+    
+    /**
+     * Returns mask of the turrets, bound to the asteroid.
+     * Use getTurret() to get a turret by the bit number.
+     * @param id
+     * @return 0, if there's no such asteroid anymore.
+     */
+    public synchronized long getTurretMask(int id) {
+        int row = getRow(id);
+        if (row == NONE) return 0;
+        return turretMasks[row];
+    }
+    
+    /**
+     * Returns true, if some turrets are bound to the asteroid.
+     * @param id
+     * @return 
+     */
+    public synchronized boolean isMined(int id) {
+        int row = getRow(id);
+        if (row == NONE) return false;
+        return turretMasks[row] != 0;
+    }
+    
+    /**
+     * Removes some units of harvestable from the asteroid.
+     * @param id
+     * @param amount how many units we want to remove 
+     * @return how many was actually removed.
+     */
+    synchronized int removeUnits(int id, int amount) {
+        int row = getRow(id);
+        if (row == NONE || remaining[row] == 0) return 0;
+        if (amount > remaining[row]) amount = remaining[row];
+        
+        remaining[row] = remaining[row] - amount;
+        log(ROWS_UPDATED, row, 1);
+        
+        return amount;
+    }
+    
+    /**
+     * Marks the turret as bound to the asteroid.
+     * @param id
+     * @param turret
+     * @return false, if there's nothing to mine or the turret's session isn't attached.
+     */
+    synchronized boolean bindTurret(int id, TurretInstance turret) {
+        int row = getRow(id);
+        long bit = getTurretBit(turret);
+        if (row == NONE || bit == 0 || remaining[row] == 0) return false;
+        
+        if ((turretMasks[row] & bit) == 0) {
+            turretMasks[row] = turretMasks[row] | bit;
+            log(ROWS_UPDATED, row, 1);
+        }
+        return true;
+    }
+    
+    /**
+     * Marks the turret as not bound to the asteroid.
+     * @param id
+     * @param turret 
+     */
+    synchronized void unbindTurret(int id, TurretInstance turret) {
+        int row = getRow(id);
+        long bit = getTurretBit(turret);
+        if (row == NONE || (turretMasks[row] & bit) == 0) return;
+        
+        turretMasks[row] = turretMasks[row] & ~bit;
+        log(ROWS_UPDATED, row, 1);
+    }
+    
+    /**
+     * Replaces all asteroids of the field. IDs of old asteroids are not valid anymore.
+     * Turrets of attached sessions should be unbound beforehand.
+     * @param newRoids 
+     */
+    synchronized void setAsteroids(List<Asteroid> newRoids) {
+        Arrays.fill(types, 0, size, null);
+        size = 0;
+        firstId = nextId;
+        
+        append(newRoids);
+        log(ROWS_RESET, 0, size);
+    }
+    
+    /**
+     * Adds asteroids to the field.
+     * @param newRoids 
+     */
+    synchronized void addAsteroids(List<Asteroid> newRoids) {
+        int from = size;
+        append(newRoids);
+        if (size > from) log(ROWS_INSERTED, from, size - from);
+    }
+    
+    private void append(List<Asteroid> newRoids) {
+        ensureCapacity(size + newRoids.size(), nextId - firstId + newRoids.size());
+        
+        for (Asteroid roid : newRoids) {
+            int id = nextId++;
+            types[size] = roid.getHarvestable();
+            distances[size] = roid.getDistance();
+            remaining[size] = roid.getRemainingUnits();
+            turretMasks[size] = 0;
+            ids[size] = id;
+            rows[id - firstId] = size;
+            size++;
+        }
+    }
+    
+    /**
+     * Removes empty asteroids from the field. 
+     * Rows are not shifted: the last row moves in place of the removed one.
+     */
+    synchronized void cleanup() {
+        // going backwards, rows moved in were checked already.
+        for (int row = size - 1; row >= 0; row--) {
+            if (remaining[row] == 0) {
+                removeRow(row);
+            }
+        }
+    }
+    
+    private void removeRow(int row) {
+        int last = size - 1;
+        rows[ids[row] - firstId] = NONE;
+        
+        if (row != last) {
+            types[row] = types[last];
+            distances[row] = distances[last];
+            remaining[row] = remaining[last];
+            turretMasks[row] = turretMasks[last];
+            ids[row] = ids[last];
+            rows[ids[row] - firstId] = row;
+            log(ROWS_UPDATED, row, 1);
+        }
+        
+        types[last] = null;
+        size = last;
+        log(ROWS_DELETED, last, 1);
+    }
+    
+    private void ensureCapacity(int rowCnt, int idCnt) {
+        if (types.length < rowCnt) {
+            int newSize = Math.max(rowCnt, types.length * 2);
+            types = Arrays.copyOf(types, newSize);
+            distances = Arrays.copyOf(distances, newSize);
+            remaining = Arrays.copyOf(remaining, newSize);
+            turretMasks = Arrays.copyOf(turretMasks, newSize);
+            ids = Arrays.copyOf(ids, newSize);
+        }
+        
+        if (rows.length < idCnt) {
+            rows = Arrays.copyOf(rows, Math.max(idCnt, rows.length * 2));
+        }
+    }
+    
+    /**
+     * Copies asteroids into the arrays, as many as they can hold.
+     * @param outIds
+     * @param outTypes
+     * @param outDistances
+     * @param outRemaining
+     * @param outMasks
+     * @return number of asteroids copied.
+     */
+    synchronized int copyRows(int[] outIds, IHarvestable[] outTypes, int[] outDistances, 
+            int[] outRemaining, long[] outMasks) {
+        int cnt = Math.min(size, outIds.length);
+        System.arraycopy(ids, 0, outIds, 0, cnt);
+        System.arraycopy(types, 0, outTypes, 0, cnt);
+        System.arraycopy(distances, 0, outDistances, 0, cnt);
+        System.arraycopy(remaining, 0, outRemaining, 0, cnt);
+        System.arraycopy(turretMasks, 0, outMasks, 0, cnt);
+        return cnt;
+    }
+    
+    private void log(int op, int row, int count) {
+        int idx = (int) (logVersion % LOG_SIZE);
+        logOps[idx] = op;
+        logRows[idx] = row;
+        logCounts[idx] = count;
+        logVersion++;
+    }
+    
+    /**
+     * Returns the number of changes ever made to the rows.
+     * @return 
+     */
+    public synchronized long getVersion() {
+        return logVersion;
+    }
+    
+    /**
+     * Copies changes, made after the given version, in order they were made.
+     * Each change is an operation (ROWS_INSERTED, ROWS_UPDATED, ROWS_DELETED 
+     * or ROWS_RESET), the first row and number of rows.
+     * @param since version, changes are already known for.
+     * @param ops
+     * @param firstRows
+     * @param counts
+     * @return number of changes copied, limited by the array sizes, 
+     * or -1, if changes since that version are not in the log anymore.
+     */
+    public synchronized int getChanges(long since, int[] ops, int[] firstRows, int[] counts) {
+        if (since < logVersion - LOG_SIZE) return -1;
+        
+        int cnt = (int) Math.min(logVersion - since, ops.length);
+        for (int i = 0; i < cnt; i++) {
+            int idx = (int) ((since + i) % LOG_SIZE);
+            ops[i] = logOps[idx];
+            firstRows[i] = logRows[idx];
+            counts[i] = logCounts[idx];
+        }
+        return cnt;
+    }
+}
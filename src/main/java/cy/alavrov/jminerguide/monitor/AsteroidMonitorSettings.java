@@ -58,6 +58,21 @@ public class AsteroidMonitorSettings {
      */
     private volatile boolean asteroidAutoCleanup;
     
+    /**
+     * Should turrets deliver ore at the end of each cycle, like the game does?
+     */
+    private volatile boolean cycleAccurate;
+    
+    /**
+     * Should we rebind turrets to the best asteroids, when their asteroid is mined out?
+     */
+    private volatile boolean autoAssign;
+    
+    /**
+     * Should sessions on different asteroid fields be mined in parallel?
+     */
+    private volatile boolean parallelMining;
+    
     /**
      * How many seconds we should wait before removing an expired timer alert?
      */
@@ -81,6 +96,9 @@ public class AsteroidMonitorSettings {
             popupOnAlert = true;
             soundOnAlert = true;
             asteroidAutoCleanup = true;
+            cycleAccurate = true;
+            autoAssign = false;
+            parallelMining = false;
             timerAlertRemoveTimeout = 5;
             x = -1;
             y = -1;
@@ -96,6 +114,9 @@ public class AsteroidMonitorSettings {
             popupOnAlert = "true".equals(rootNode.getChildText("popuponalert"));
             soundOnAlert = "true".equals(rootNode.getChildText("soundonalert"));
             asteroidAutoCleanup = "true".equals(rootNode.getChildText("cleanuproids"));
+            cycleAccurate = "true".equals(rootNode.getChildText("cycleaccurate"));
+            autoAssign = "true".equals(rootNode.getChildText("autoassign"));
+            parallelMining = "true".equals(rootNode.getChildText("parallelmining"));
             
             timerAlertRemoveTimeout = Integer.parseInt(rootNode.getChildText("timeralerttimeout"), 10);            
             x = Integer.parseInt(rootNode.getChildText("x"), 10);               
@@ -105,6 +126,9 @@ public class AsteroidMonitorSettings {
             popupOnAlert = true;
             soundOnAlert = true;
             asteroidAutoCleanup = true;
+            cycleAccurate = true;
+            autoAssign = false;
+            parallelMining = false;
             timerAlertRemoveTimeout = 5;
             x = -1;
             y = -1;
@@ -136,6 +160,9 @@ public class AsteroidMonitorSettings {
         root.addContent(new Element("soundonalert").setText(String.valueOf(soundOnAlert)));
         root.addContent(new Element("timeralerttimeout").setText(String.valueOf(timerAlertRemoveTimeout)));
         root.addContent(new Element("cleanuproids").setText(String.valueOf(asteroidAutoCleanup)));
+        root.addContent(new Element("cycleaccurate").setText(String.valueOf(cycleAccurate)));
+        root.addContent(new Element("autoassign").setText(String.valueOf(autoAssign)));
+        root.addContent(new Element("parallelmining").setText(String.valueOf(parallelMining)));
 
         root.addContent(new Element("x").setText(String.valueOf(x)));
         root.addContent(new Element("y").setText(String.valueOf(y)));
@@ -244,4 +271,52 @@ public class AsteroidMonitorSettings {
     public void setAsteroidAutoCleanup(boolean asteroidAutoCleanup) {
         this.asteroidAutoCleanup = asteroidAutoCleanup;
     }
+
+    /**
+     * Should turrets deliver ore at the end of each cycle, like the game does?
+     * @return the cycleAccurate
+     */
+    public boolean isCycleAccurate() {
+        return cycleAccurate;
+    }
+
+    /**
+     * Should turrets deliver ore at the end of each cycle, like the game does?
+     * @param cycleAccurate the cycleAccurate to set
+     */
+    public void setCycleAccurate(boolean cycleAccurate) {
+        this.cycleAccurate = cycleAccurate;
+    }
+
+    /**
+     * Should we rebind turrets to the best asteroids, when their asteroid is mined out?
+     * @return the autoAssign
+     */
+    public boolean isAutoAssign() {
+        return autoAssign;
+    }
+
+    /**
+     * Should we rebind turrets to the best asteroids, when their asteroid is mined out?
+     * @param autoAssign the autoAssign to set
+     */
+    public void setAutoAssign(boolean autoAssign) {
+        this.autoAssign = autoAssign;
+    }
+
+    /**
+     * Should sessions on different asteroid fields be mined in parallel?
+     * @return the parallelMining
+     */
+    public boolean isParallelMining() {
+        return parallelMining;
+    }
+
+    /**
+     * Should sessions on different asteroid fields be mined in parallel?
+     * @param parallelMining the parallelMining to set
+     */
+    public void setParallelMining(boolean parallelMining) {
+        this.parallelMining = parallelMining;
+    }
 }
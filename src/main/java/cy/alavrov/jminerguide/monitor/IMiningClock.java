@@ -26,22 +26,22 @@
 package cy.alavrov.jminerguide.monitor;
 
 /**
- * Ore hold is full!
+ * Source of time for the mining scheduler.
  * @author Andrey Lavrov <lavroff@gmail.com>
  */
-public class FullOreHoldException extends Exception{
-    private final int minedUnits;
-
-    public FullOreHoldException(int minedUnits) {
-        super();
-        this.minedUnits = minedUnits;
-    }
-
+public interface IMiningClock {
+    /**
+     * Returns the current moment.
+     * @return milliseconds.
+     */
+    public long now();
+    
     /**
-     * How many units was mined, when the hold became full?
-     * @return 
+     * Waits on the lock until the moment, or until the lock is notified.
+     * Should be called by the thread, holding the lock. May return early.
+     * @param lock
+     * @param at moment, in milliseconds, Long.MAX_VALUE to wait for notification only.
+     * @throws InterruptedException 
      */
-    public int getMinedUnits() {
-        return minedUnits;
-    }        
+    public void await(Object lock, long at) throws InterruptedException;
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.monitor;
+
+/**
+ * The asteroid monitor window, as seen by the monitor tasks.
+ * All the methods, but getSettings(), are called on the EDT.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public interface IMonitorView {
+    /**
+     * Returns settings of the asteroid monitor. Can be called from any thread.
+     * @return 
+     */
+    public AsteroidMonitorSettings getSettings();
+    
+    /**
+     * Switches the view to the current session, if it has changed,
+     * and updates the list of sessions.
+     */
+    public void updateCurrentSession();
+    
+    /**
+     * Notifies the asteroid table of the current session about changes.
+     */
+    public void notifyTableUpdate();
+    
+    /**
+     * Updates stats of the current session's character.
+     */
+    public void updateCurrentCharacterStats();
+    
+    /**
+     * Updates statuses of all the sessions.
+     */
+    public void updateSessionGrid();
+    
+    /**
+     * Updates the timer of the current session.
+     */
+    public void updateTimerLabel();
+    
+    /**
+     * Lays the view out again, if it's contents don't fit anymore.
+     */
+    public void packIfNeeded();
+    
+    /**
+     * Keeps the view above all other windows, or not.
+     * @param alwaysOnTop 
+     */
+    public void setAlwaysOnTop(boolean alwaysOnTop);
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.monitor;
+
+/**
+ * Result of a mining pass for a session: mined ore, turrets, that mined out 
+ * their asteroids, and whether the ore hold got full.
+ * Sessions keep and reuse their own instance, so mining allocates nothing.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class MiningResult {
+    private float minedM3;
+    private int depletedTurrets;
+    private boolean holdFull;
+    
+    /**
+     * Clears the result before the next mining pass.
+     */
+    void reset() {
+        minedM3 = 0;
+        depletedTurrets = 0;
+        holdFull = false;
+    }
+    
+    void addMinedM3(float m3) {
+        minedM3 = minedM3 + m3;
+    }
+    
+    void markDepleted(TurretInstance turret) {
+        depletedTurrets = depletedTurrets | (1 << (turret.getId() - 1));
+    }
+    
+    void markHoldFull() {
+        holdFull = true;
+    }
+    
+    /**
+     * How many m3 of ore was mined during the pass?
+     * @return 
+     */
+    public float getMinedM3() {
+        return minedM3;
+    }
+
+    /**
+     * Returns bitmask of turrets, that mined out their asteroids, 
+     * bit 0 is for the turret 1 and so on.
+     * @return 
+     */
+    public int getDepletedTurrets() {
+        return depletedTurrets;
+    }
+    
+    /**
+     * Did the turret mine out it's asteroid?
+     * @param turretID
+     * @return 
+     */
+    public boolean isDepleted(int turretID) {
+        return (depletedTurrets & (1 << (turretID - 1))) != 0;
+    }
+
+    /**
+     * Did the ore hold get full?
+     * @return 
+     */
+    public boolean isHoldFull() {
+        return holdFull;
+    }
+    
+    /**
+     * Is there anything to alert about?
+     * @return 
+     */
+    public boolean isAlert() {
+        return holdFull || depletedTurrets != 0;
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.monitor;
+
+import cy.alavrov.jminerguide.log.JMGLogger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Discrete-event scheduler for the mining sessions.
+ * Instead of mining every second, it calculates the moment of the next event
+ * for each session (asteroid mined out, ore hold full, timer expired) and sleeps 
+ * until the earliest of them, or until some session is changed by the user.
+ * Events are recalculated only for sessions, that were mined or changed.
+ * While any session is active, there's also a display tick every second, that
+ * refreshes the monitor window and checks timers for clearing without mining:
+ * the window shows ore and countdowns, predicted from the turrets.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class MiningScheduler implements Runnable {
+    private final static long DISPLAY_PERIOD = 1000;
+    
+    private final MiningSessionMonitor msMonitor;
+    private final MiningTask task;
+    private final IMiningClock clock;
+    
+    private final Object lock = new Object();
+    // next events of sessions with something coming, one per session.
+    private final PriorityQueue<SessionEvent> events = new PriorityQueue<>();
+    private final IdentityHashMap<MiningSession, SessionEvent> sessionEvents = new IdentityHashMap<>();
+    // sessions with working turrets or timers, that need the display tick.
+    private final Set<MiningSession> active = Collections.newSetFromMap(new IdentityHashMap<MiningSession, Boolean>());
+    private final LinkedHashSet<MiningSession> changed = new LinkedHashSet<>();
+    private long displayAt = Long.MAX_VALUE;
+    
+    // used by the scheduler thread only, kept between wakeups to avoid garbage.
+    private final ArrayList<MiningSession> due = new ArrayList<>();
+    private final Set<MiningSession> dueSet = Collections.newSetFromMap(new IdentityHashMap<MiningSession, Boolean>());
+    private final Set<MiningSession> known = Collections.newSetFromMap(new IdentityHashMap<MiningSession, Boolean>());
+    private List<MiningSession> knownList = null;
+    private long[] nextAt = new long[16];
+    private boolean[] isActive = new boolean[16];
+    
+    private volatile boolean running = false;
+    private Thread thread = null;
+
+    public MiningScheduler(MiningSessionMonitor msMonitor, MiningTask task) {
+        this(msMonitor, task, new SystemMiningClock());
+    }
+    
+    /**
+     * Constructor.
+     * @param msMonitor
+     * @param task
+     * @param clock source of time for events and waiting.
+     */
+    public MiningScheduler(MiningSessionMonitor msMonitor, MiningTask task, IMiningClock clock) {
+        this.msMonitor = msMonitor;
+        this.task = task;
+        this.clock = clock;
+    }
+    
+    /**
+     * Starts the scheduler thread.
+     */
+    public synchronized void start() {
+        if (thread != null) return;
+        
+        running = true;
+        thread = new Thread(this, "Mining Scheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Stops the scheduler thread and waits for it to finish, so it can be
+     * started again right away.
+     */
+    public synchronized void stop() {
+        if (thread == null) return;
+        
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+    
+    /**
+     * Tells the scheduler, that the session was changed and it's events 
+     * should be recalculated. Wakes the scheduler up.
+     * @param session 
+     */
+    public void sessionChanged(MiningSession session) {
+        synchronized(lock) {
+            changed.add(session);
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                long now;
+                boolean display;
+                due.clear();
+                dueSet.clear();
+                
+                synchronized(lock) {
+                    now = clock.now();
+                    long wakeAt = displayAt;
+                    SessionEvent first = events.peek();
+                    if (first != null && first.at < wakeAt) wakeAt = first.at;
+                    
+                    if (changed.isEmpty() && wakeAt > now) {
+                        clock.await(lock, wakeAt);
+                        continue;
+                    }
+                    
+                    for (MiningSession session : changed) {
+                        addDue(session);
+                    }
+                    changed.clear();
+                    
+                    while (!events.isEmpty() && events.peek().at <= now) {
+                        SessionEvent event = events.poll();
+                        event.queued = false;
+                        addDue(event.session);
+                    }
+                    
+                    display = displayAt <= now;
+                    if (display) displayAt = Long.MAX_VALUE;
+                }
+                
+                List<MiningSession> sessions = msMonitor.getSessions();
+                if (sessions != knownList) updateKnown(sessions);
+                
+                for (int i = due.size() - 1; i >= 0; i--) {
+                    if (!known.contains(due.get(i))) {
+                        dueSet.remove(due.get(i));
+                        due.remove(i);
+                    }
+                }
+                
+                // sessions sharing an asteroid field mine the same asteroids, 
+                // so all of them have to be up to date.
+                for (int i = 0; i < due.size(); i++) {
+                    for (MiningSession mate : due.get(i).getAsteroidField().getSessions()) {
+                        if (known.contains(mate)) addDue(mate);
+                    }
+                }
+                
+                if (!due.isEmpty() || display) {
+                    task.process(due, display ? sessions : due, now);
+                }
+                
+                // session locks can't be taken under the scheduler lock, 
+                // as sessions notify the scheduler while holding them.
+                int cnt = due.size();
+                if (nextAt.length < cnt) {
+                    nextAt = new long[cnt * 2];
+                    isActive = new boolean[cnt * 2];
+                }
+                for (int i = 0; i < cnt; i++) {
+                    MiningSession session = due.get(i);
+                    nextAt[i] = session.getNextEventAt();
+                    isActive[i] = session.isActive();
+                }
+                
+                synchronized(lock) {
+                    for (int i = 0; i < cnt; i++) {
+                        MiningSession session = due.get(i);
+                        schedule(session, nextAt[i]);
+                        if (isActive[i]) {
+                            active.add(session);
+                        } else {
+                            active.remove(session);
+                        }
+                    }
+                    
+                    if (active.isEmpty()) {
+                        displayAt = Long.MAX_VALUE;
+                    } else if (displayAt == Long.MAX_VALUE) {
+                        displayAt = now + DISPLAY_PERIOD;
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                JMGLogger.logSevere("Unable to schedule mining", e);
+            }
+        }
+    }
+    
+    private void addDue(MiningSession session) {
+        if (dueSet.add(session)) due.add(session);
+    }
+    
+    /**
+     * Takes the new list of sessions, forgetting events of the closed ones.
+     * @param sessions 
+     */
+    private void updateKnown(List<MiningSession> sessions) {
+        known.clear();
+        known.addAll(sessions);
+        knownList = sessions;
+        
+        synchronized(lock) {
+            Iterator<SessionEvent> iter = sessionEvents.values().iterator();
+            while (iter.hasNext()) {
+                SessionEvent event = iter.next();
+                if (!known.contains(event.session)) {
+                    if (event.queued) events.remove(event);
+                    iter.remove();
+                }
+            }
+            active.retainAll(known);
+        }
+    }
+    
+    /**
+     * Puts the next event of the session in the queue, replacing the previous one.
+     * Should be called under the scheduler lock.
+     * @param session
+     * @param at moment of the event, Long.MAX_VALUE if there's none.
+     */
+    private void schedule(MiningSession session, long at) {
+        SessionEvent event = sessionEvents.get(session);
+        if (event != null && event.queued) {
+            if (event.at == at) return;
+            
+            events.remove(event);
+            event.queued = false;
+        }
+        
+        if (at == Long.MAX_VALUE) return;
+        
+        if (event == null) {
+            event = new SessionEvent(session);
+            sessionEvents.put(session, event);
+        }
+        event.at = at;
+        event.queued = true;
+        events.add(event);
+    }
+    
+    /**
+     * Next event for the session, reused for all the events of the session.
+     */
+    private static class SessionEvent implements Comparable<SessionEvent> {
+        private long at;
+        private boolean queued = false;
+        private final MiningSession session;
+
+        public SessionEvent(MiningSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public int compareTo(SessionEvent o) {
+            return Long.compare(at, o.at);
+        }
+    }
+}
@@ -26,53 +26,115 @@
 package cy.alavrov.jminerguide.monitor;
 
 import cy.alavrov.jminerguide.data.DataContainer;
+import cy.alavrov.jminerguide.data.ICalculatedStats;
 import cy.alavrov.jminerguide.data.character.EVECharacter;
 import cy.alavrov.jminerguide.data.character.ICoreCharacter;
 import cy.alavrov.jminerguide.data.character.SimpleCharacter;
 import cy.alavrov.jminerguide.data.harvestable.Asteroid;
 import cy.alavrov.jminerguide.data.harvestable.BasicHarvestable;
+import cy.alavrov.jminerguide.data.harvestable.IHarvestable;
+import cy.alavrov.jminerguide.data.price.HarvestableValueTable;
+import cy.alavrov.jminerguide.util.CharUtils;
 import cy.alavrov.jminerguide.util.winmanager.IEVEWindow;
-import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableModel;
-import org.joda.time.Period;
-import org.joda.time.Seconds;
-import org.joda.time.format.PeriodFormatter;
-import org.joda.time.format.PeriodFormatterBuilder;
 
 /**
  * EVE session, hopefully for mining.
  * @author Andrey Lavrov <lavroff@gmail.com>
  */
 public class MiningSession {
-    private final static PeriodFormatter minutesAndSeconds = new PeriodFormatterBuilder()
-     .printZeroAlways()
-     .appendMinutes()
-     .appendSeparator(":")
-     .appendSeconds()
-     .toFormatter();
+    /**
+     * Turrets per session.
+     */
+    final static int TURRETS = 3;
+    
+    private final static int BLACK = 0x000000;
+    private final static int RED = 0xFF0000;
     
     private final IEVEWindow window;
-    private ISessionCharacter character;    
+    private volatile ISessionCharacter character;    
     private float usedCargo;  
-    private CopyOnWriteArrayList<Asteroid> roids;
+    private volatile AsteroidField field;
     private final TurretInstance turret1;
     private final TurretInstance turret2;
     private final TurretInstance turret3;
+    private final TurretInstance[] turrets;
     private MiningTimer timer;
     private boolean haveAlerts = false;
+    private boolean pendingAlert = false;
+    // results of the scheduled mining and of the mining done on session changes.
+    private final MiningResult tickResult = new MiningResult();
+    private final MiningResult settleResult = new MiningResult();
+    private volatile boolean cycleAccurate = false;
+    private volatile MiningScheduler scheduler;
     
     public MiningSession(IEVEWindow window) {
         this.window = window;
-        this.roids = new CopyOnWriteArrayList<>();
+        this.field = new AsteroidField();
+        field.attach(this);
+        
+        turret1 = new TurretInstance(1, this);
+        turret2 = new TurretInstance(2, this);
+        turret3 = new TurretInstance(3, this);
+        turrets = new TurretInstance[] {turret1, turret2, turret3};
+    }
+    
+    /**
+     * Sets the scheduler to notify on session changes.
+     * @param scheduler 
+     */
+    void setScheduler(MiningScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+    
+    /**
+     * Returns true, if turrets deliver ore at the end of each cycle.
+     * @return 
+     */
+    public boolean isCycleAccurate() {
+        return cycleAccurate;
+    }
+    
+    /**
+     * Switches between cycle-accurate and continuous mining.
+     * Mining done so far is settled in the old mode.
+     * @param cycleAccurate if true, ore is delivered at the end of each turret cycle.
+     */
+    public synchronized void setCycleAccurate(boolean cycleAccurate) {
+        if (this.cycleAccurate == cycleAccurate) return;
         
-        turret1 = new TurretInstance(1);
-        turret2 = new TurretInstance(2);
-        turret3 = new TurretInstance(3);
+        settle();
+        this.cycleAccurate = cycleAccurate;
+        fireChanged();
+    }
+    
+    /**
+     * Tells the scheduler, that mining events of the session have to be recalculated.
+     */
+    private void fireChanged() {
+        MiningScheduler sched = scheduler;
+        if (sched != null) sched.sessionChanged(this);
+    }
+    
+    /**
+     * Does all the mining up to the current moment, so the change of turrets, 
+     * cargo or the character will not affect already mined ore.
+     * Alerts, raised in the process, are kept for the scheduler.
+     */
+    private void settle() {
+        settle(System.currentTimeMillis());
+    }
+    
+    private void settle(long now) {
+        doMining(now, settleResult);
+        if (settleResult.isAlert()) pendingAlert = true;
     }
     
     /**
@@ -111,18 +173,66 @@ public class MiningSession {
      * Returns session's character. Can return null.
      * @return 
      */
-    public synchronized ISessionCharacter getSessionCharacter() {
+    public ISessionCharacter getSessionCharacter() {
         return character;
     }        
     
+    /**
+     * Changes stats of the session's character. Mining done so far is settled
+     * at the old stats first, and events are recalculated after the change.
+     * @param change changes the character, its ship or boosters.
+     */
+    public synchronized void updateCharacterStats(Runnable change) {
+        settle();
+        change.run();
+        fireChanged();
+    }
+    
     /**
      * Unbinds all turrets from their respective asteroids.
      */
     public synchronized void unbindAllTurrets() {
+        settle();
+        unbindTurrets();
+        fireChanged();
+    }
+    
+    private void unbindTurrets() {
         turret1.unbindAsteroid();
         turret2.unbindAsteroid();
         turret3.unbindAsteroid();
     }
+    
+    /**
+     * Binds session's turret to an asteroid.
+     * @param turret
+     * @param roid ID of the asteroid in session's asteroid field.
+     */
+    public synchronized void bindTurret(TurretInstance turret, int roid) {
+        bindTurret(turret, roid, System.currentTimeMillis());
+    }
+    
+    /**
+     * Binds session's turret to an asteroid at the given moment.
+     * @param turret
+     * @param roid ID of the asteroid in session's asteroid field.
+     * @param now current moment, in milliseconds.
+     */
+    synchronized void bindTurret(TurretInstance turret, int roid, long now) {
+        settle(now);
+        turret.bindAsteroid(field, roid, now);
+        fireChanged();
+    }
+    
+    /**
+     * Unbinds session's turret from it's asteroid.
+     * @param turret 
+     */
+    public synchronized void unbindTurret(TurretInstance turret) {
+        settle();
+        turret.unbindAsteroid();
+        fireChanged();
+    }
 
     /**
      * Creates session's character from the generic character.
@@ -138,6 +248,7 @@ public class MiningSession {
         
         ISessionCharacter schar = new SessionCharacter(character, simpleCharacter, dCont);
         this.character = schar;
+        fireChanged();
     }     
     
     /**
@@ -151,6 +262,7 @@ public class MiningSession {
         
         ISessionCharacter schar = new SimpleSessionCharacter(character);
         this.character = schar;
+        fireChanged();
     }
     
     /**
@@ -161,6 +273,28 @@ public class MiningSession {
         return usedCargo;
     }
     
+    /**
+     * Returns used cargo at the given moment, including units turrets have 
+     * delivered since the last mining. Doesn't mine anything.
+     * @param now moment, in milliseconds.
+     * @return 
+     */
+    public synchronized float getUsedCargoAt(long now) {
+        if (character == null) return usedCargo;
+        
+        float cargo = usedCargo;
+        for (TurretInstance turret : turrets) {
+            IHarvestable hrv = turret.getHarvestable();
+            if (hrv != null) {
+                cargo = cargo + (float) turret.getUnitsAt(now) * hrv.getBasicHarvestable().getVolume();
+            }
+        }
+        
+        int maxCargo = character.getStats().getOreHold();
+        if (cargo > maxCargo) cargo = maxCargo;
+        return cargo;
+    }
+    
     /**
      * Returns remaining free cargo.
      * @return 
@@ -187,6 +321,7 @@ public class MiningSession {
         if (amt > maxCargo) amt = maxCargo;
         
         usedCargo = amt;
+        fireChanged();
     }
     
     private synchronized void putToCargo(float amt) {
@@ -200,16 +335,70 @@ public class MiningSession {
     }
     
     /**
-     * Cleans old asteroid list and loads in a new one.
+     * Returns the asteroid field, the session is attached to.
+     * @return 
+     */
+    public AsteroidField getAsteroidField() {
+        return field;
+    }
+    
+    /**
+     * Attaches the session to another asteroid field, leaving the current one.
+     * Unbinds all turrets in the process.
+     * @param newField 
+     * @return false, if the field has too many sessions already.
+     */
+    public boolean attachField(AsteroidField newField) {
+        AsteroidField oldField;
+        synchronized(this) {
+            if (field == newField) return true;
+            if (!newField.attach(this)) return false;
+            
+            unbindAllTurrets();
+            oldField = field;
+            field = newField;
+        }
+        
+        oldField.detach(this);
+        return true;
+    }
+    
+    /**
+     * Leaves the current asteroid field for a new empty one of its own.
      * Unbinds all turrets in the process.
+     */
+    public void detachField() {
+        attachField(new AsteroidField());
+    }
+    
+    /**
+     * Returns the asteroid field after all turrets of its sessions were unbound,
+     * or null, if there is no character. 
+     * Session locks are not held here, as other sessions are involved.
+     * @return 
+     */
+    private AsteroidField unbindFieldTurrets() {
+        if (character == null) return null;
+        
+        AsteroidField curField = field;
+        for (MiningSession session : curField.getSessions()) {
+            session.unbindAllTurrets();
+        }
+        return curField;
+    }
+    
+    /**
+     * Cleans old asteroid list and loads in a new one.
+     * Unbinds all turrets in the process, including turrets of other sessions
+     * on the same asteroid field.
      * @param newRoids 
      */
-    public synchronized void clearAndAddRoids(List<Asteroid> newRoids) {
-        if (character == null) return;
-        unbindAllTurrets();
+    public void clearAndAddRoids(List<Asteroid> newRoids) {
+        AsteroidField curField = unbindFieldTurrets();
+        if (curField == null) return;
                 
         Set<BasicHarvestable> filter = character.getCoreCharacter().getAsteroidFilter();                
-        roids = new CopyOnWriteArrayList<>(filterRoids(newRoids, filter));
+        curField.setAsteroids(filterRoids(newRoids, filter));
     }
     
     /**
@@ -233,12 +422,13 @@ public class MiningSession {
      * Resets cargohold, stops turrets and loads in an asteroid list.
      * @param newRoids 
      */
-    public synchronized void resetAndAddRoids(List<Asteroid> newRoids) {
-        if (character == null) return;
+    public void resetAndAddRoids(List<Asteroid> newRoids) {
+        AsteroidField curField = unbindFieldTurrets();
+        if (curField == null) return;
         
         setUsedCargo(0);
         Set<BasicHarvestable> filter = character.getCoreCharacter().getAsteroidFilter();                
-        roids = new CopyOnWriteArrayList<>(filterRoids(newRoids, filter));
+        curField.setAsteroids(filterRoids(newRoids, filter));
     }
     
     /**
@@ -249,31 +439,37 @@ public class MiningSession {
         if (character == null) return;
         
         Set<BasicHarvestable> filter = character.getCoreCharacter().getAsteroidFilter();                
-        roids.addAll(filterRoids(newRoids, filter));
+        field.addAsteroids(filterRoids(newRoids, filter));
     }
     
     /**
      * Cleans up the asteroid list, removing empty ones.
      */
-    public synchronized void cleanupRoids() {
-        List<Asteroid> filtered = new ArrayList<>();
-        for(Asteroid roid : roids) {
-            if(roid.getRemainingUnits() > 0) {
-                filtered.add(roid);
-            }
+    public void cleanupRoids() {
+        field.cleanup();
+    }
+    
+    /**
+     * Clears the asteroid list, leaving it empty.
+     * Also, turns of turrets, including turrets of other sessions on 
+     * the same asteroid field.
+     */
+    public void clearRoids() {
+        AsteroidField curField = field;
+        for (MiningSession session : curField.getSessions()) {
+            session.unbindAllTurrets();
         }
         
-        roids = new CopyOnWriteArrayList<>(filtered);
+        curField.setAsteroids(Collections.<Asteroid>emptyList());
     }
     
     /**
-     * Clears the asteroid list, leaving it empty.
-     * Also, turns of turrets.
+     * Leaves the asteroid field for good, unbinding all the turrets.
+     * Called, when the session is no more.
      */
-    public synchronized void clearRoids() {            
+    void close() {
         unbindAllTurrets();
-        
-        roids = new CopyOnWriteArrayList<>();
+        field.detach(this);
     }
     
     public synchronized TableModel getTableModel() {
@@ -301,65 +497,258 @@ public class MiningSession {
         return turret3;
     }
     
+    /**
+     * Returns the turret by index, starting from 0.
+     * @param index
+     * @return 
+     */
+    TurretInstance getTurret(int index) {
+        return turrets[index];
+    }
+    
+    
+    /**
+     * How many ISK per hour does the session make with its current turret bindings?
+     * Doesn't take trips to the station into account.
+     * @param values harvestable values.
+     * @param source how the harvestable is sold.
+     * @param price which prices to use.
+     * @return 
+     */
+    public synchronized float getISKPerHour(HarvestableValueTable values, 
+            HarvestableValueTable.ValueSource source, HarvestableValueTable.PriceType price) {
+        if (character == null) return 0;
+        
+        ICalculatedStats stats = character.getStats();
+        ICalculatedStats mercoStats = character.getStatsMercoxit();
+        
+        return turret1.getISKPerHour(values, source, price, stats, mercoStats)
+                + turret2.getISKPerHour(values, source, price, stats, mercoStats)
+                + turret3.getISKPerHour(values, source, price, stats, mercoStats);
+    }
+    
+    /**
+     * Mines everything, that was mined since the previous call.
+     * @param now current moment, in milliseconds.
+     * @return result of the mining, valid till the next call.
+     */
+    public synchronized MiningResult doMining(long now) {
+        doMining(now, tickResult);
+        return tickResult;
+    }
     
-    public synchronized void doMining() throws AsteroidMinedException, FullOreHoldException {
+    private void doMining(long now, MiningResult result) {
+        result.reset();
         if (character == null) return;
         
-        boolean isRoidError = false;
-        AsteroidMinedException roidEx = null;
+        ICalculatedStats stats = character.getStats();
+        ICalculatedStats mercoStats = character.getStatsMercoxit();
         
-        boolean isHoldError = false;
-        FullOreHoldException holdEx = null;
+        // we actually have to make a full calculation cycle before reporting anything.
+        for (TurretInstance turret : turrets) {
+            float m3 = turret.mineSome(stats, mercoStats, getRemainingCargo(), now, cycleAccurate, result);
+            putToCargo(m3);
+            result.addMinedM3(m3);
+        }
         
-        // we actually have to make a full calculation cycle before throwing out the exception.
+        if (!result.isHoldFull()) {
+            // a turret may have filled the hold after another one was done.
+            float remainingCargo = getRemainingCargo();
+            for (TurretInstance turret : turrets) {
+                IHarvestable hrv = turret.getHarvestable();
+                if (hrv != null && hrv.getBasicHarvestable().getVolume() > remainingCargo) {
+                    result.markHoldFull();
+                }
+            }
+        }
         
-        try {
-            putToCargo(turret1.mineSome(character.getStats(), character.getStatsMercoxit(), getRemainingCargo()));
-        } catch (AsteroidMinedException e) {
-            isRoidError = true;
-            roidEx = e;
-            putToCargo(e.getMinedM3());
-        } catch (FullOreHoldException e) {
-            isHoldError = true;
-            holdEx = e;
+        if (result.isHoldFull()) {
+            haveAlerts = true;
+            // we should unbind all turrets here, because the hold could get full
+            // only on the last turret, for example.
+            unbindTurrets();
+        } else if (result.getDepletedTurrets() != 0) {
+            haveAlerts = true;
+            // turrets, that went before the one mining out their asteroid, are still bound to it.
+            for (TurretInstance turret : turrets) {
+                int roid = turret.getAsteroidId();
+                if (roid != AsteroidField.NONE && field.getRemainingUnits(roid) <= 0) {
+                    turret.unbindAsteroid();
+                    result.markDepleted(turret);
+                }
+            }
         }
+    }
+    
+    /**
+     * Returns the moment of the next mining event: an asteroid being mined out,
+     * the ore hold getting full or the timer expiring.
+     * Mining out takes turrets of all the sessions on the asteroid into account.
+     * @return moment in milliseconds, or Long.MAX_VALUE, if nothing is going to happen.
+     */
+    public synchronized long getNextEventAt() {
+        long next = Long.MAX_VALUE;
+        if (timer != null && !timer.wasAlarm()) next = timer.getEndAt();
+        if (character == null) return next;
         
-        try {
-            putToCargo(turret2.mineSome(character.getStats(), character.getStatsMercoxit(), getRemainingCargo()));
-        } catch (AsteroidMinedException e) {
-            isRoidError = true;
-            roidEx = e;
-            putToCargo(e.getMinedM3());
-        } catch (FullOreHoldException e) {
-            isHoldError = true;
-            holdEx = e;
+        float maxUnit = 0;
+        for (TurretInstance turret : turrets) {
+            IHarvestable hrv = turret.getHarvestable();
+            if (hrv == null) continue;
+            
+            float unit = hrv.getBasicHarvestable().getVolume();
+            if (unit > maxUnit) maxUnit = unit;
         }
         
-        try {
-            putToCargo(turret3.mineSome(character.getStats(), character.getStatsMercoxit(), getRemainingCargo()));
-        } catch (AsteroidMinedException e) {
-            isRoidError = true;
-            roidEx = e;
-            putToCargo(e.getMinedM3());
-        } catch (FullOreHoldException e) {
-            isHoldError = true;
-            holdEx = e;
+        if (maxUnit == 0) return next;
+        
+        double at = getHoldFullAt(getRemainingCargo(), maxUnit);
+        for (int i = 0; i < turrets.length; i++) {
+            int roid = turrets[i].getAsteroidId();
+            if (roid == AsteroidField.NONE) continue;
+            
+            boolean seen = false;
+            for (int j = 0; j < i; j++) {
+                if (turrets[j].getAsteroidId() == roid) seen = true;
+            }
+            if (seen) continue;
+            
+            double roidAt = getMinedOutAt(field, roid);
+            if (roidAt < at) at = roidAt;
         }
         
-        if (isHoldError) {
-            haveAlerts = true;
-            // we should unbind all turrets here, because we could get the exception
-            // only on the last turret, for example.
-            unbindAllTurrets();
-            throw holdEx;            
+        if (at < next) next = (long) Math.ceil(at);
+        
+        return next;
+    }
+    
+    /**
+     * How many seconds remains to mine out the asteroid?
+     * Takes turrets of all the sessions on the asteroid into account.
+     * @param roid ID of the asteroid in session's asteroid field.
+     * @return 0, if the asteroid isn't mined.
+     */
+    public int getRemainingSeconds(int roid) {
+        AsteroidField curField = field;
+        if (!curField.isMined(roid)) return 0;
+        
+        double at = getMinedOutAt(curField, roid);
+        if (at == Double.MAX_VALUE) return 0;
+        
+        double secs = (at - System.currentTimeMillis()) / 1000;
+        if (secs < 0) return 0;
+        return (int) secs;
+    }
+    
+    /**
+     * Returns continuous estimation of the moment, when turrets will mine some amount.
+     * Whole units and cycles only lag behind it, so it's never too late.
+     * @param field
+     * @param group mask of turrets to take into account, unbound ones are skipped.
+     * @param m3 amount to mine, not counting leftovers of the previous units.
+     * @return Double.MAX_VALUE, if none of turrets is mining.
+     */
+    private static double getEstimatedAt(AsteroidField field, long group, double m3) {
+        double rate = 0;
+        double start = Double.MAX_VALUE;
+        for (long bits = group; bits != 0; bits = bits & (bits - 1)) {
+            TurretInstance turret = field.getTurret(Long.numberOfTrailingZeros(bits));
+            if (turret == null || !turret.isMining()) continue;
+            
+            rate = rate + turret.getBoundM3S();
+            m3 = m3 - turret.getMinedAmount();
+            if (turret.getMinedAt() < start) start = turret.getMinedAt();
         }
         
-        if (isRoidError) {
-            haveAlerts = true;
-            throw roidEx;
+        if (start == Double.MAX_VALUE || rate <= 0 || m3 <= 0) return start;
+        return start + m3 * 1000 / rate;
+    }
+    
+    /**
+     * Returns the next moment, when any turret of the group delivers a full unit
+     * (or, for cycle-accurate mining, finishes the cycle).
+     * @param field
+     * @param group mask of turrets.
+     * @param at moment, in milliseconds
+     * @return Double.MAX_VALUE, if turrets do not mine at all.
+     */
+    private static double getNextUnitAt(AsteroidField field, long group, double at) {
+        double next = Double.MAX_VALUE;
+        for (long bits = group; bits != 0; bits = bits & (bits - 1)) {
+            TurretInstance turret = field.getTurret(Long.numberOfTrailingZeros(bits));
+            if (turret == null) continue;
+            
+            double unitAt = turret.getNextUnitAt(at);
+            if (unitAt < next) next = unitAt;
         }
+        return next;
     }
-
+    
+    /**
+     * Returns the moment, when the asteroid is mined out by all bound turrets.
+     * Starts with continuous estimation and then goes through full units.
+     * @param field
+     * @param roid ID of the asteroid in the field.
+     * @return Double.MAX_VALUE, if it's never going to happen.
+     */
+    private static double getMinedOutAt(AsteroidField field, int roid) {
+        IHarvestable hrv = field.getHarvestable(roid);
+        if (hrv == null) return Double.MAX_VALUE;
+        
+        long group = field.getTurretMask(roid);
+        int target = field.getRemainingUnits(roid);
+        float unit = hrv.getBasicHarvestable().getVolume();
+        
+        double at = getEstimatedAt(field, group, target * unit);
+        while (at < Double.MAX_VALUE) {
+            if (getUnitsAt(field, group, at) >= target) return at;
+            
+            at = getNextUnitAt(field, group, at);
+        }
+        return at;
+    }
+    
+    /**
+     * Returns how many units turrets of the group will have mined at some moment,
+     * counting from their last mining.
+     * @param field
+     * @param group mask of turrets.
+     * @param at moment, in milliseconds.
+     * @return 
+     */
+    private static double getUnitsAt(AsteroidField field, long group, double at) {
+        double units = 0;
+        for (long bits = group; bits != 0; bits = bits & (bits - 1)) {
+            TurretInstance turret = field.getTurret(Long.numberOfTrailingZeros(bits));
+            if (turret != null) units = units + turret.getUnitsAt(at);
+        }
+        return units;
+    }
+    
+    /**
+     * Returns the moment, when the ore hold can't fit one more unit of ore.
+     * @param remainingCargo
+     * @param maxUnit the largest unit volume of harvestables being mined.
+     * @return Double.MAX_VALUE, if it's never going to happen.
+     */
+    private double getHoldFullAt(float remainingCargo, float maxUnit) {        
+        long group = field.getSessionMask(this);
+        double at = getEstimatedAt(field, group, remainingCargo - maxUnit);
+        while (at < Double.MAX_VALUE) {
+            double cargo = 0;
+            for (TurretInstance turret : turrets) {
+                IHarvestable hrv = turret.getHarvestable();
+                if (hrv != null) {
+                    cargo = cargo + turret.getUnitsAt(at) * hrv.getBasicHarvestable().getVolume();
+                }
+            }
+            if (remainingCargo - cargo < maxUnit) return at;
+            
+            at = getNextUnitAt(field, group, at);
+        }
+        return at;
+    }
+    
     @Override
     public boolean equals(Object obj) {
         if (obj == null || !(obj instanceof MiningSession)) return false;
@@ -386,118 +775,119 @@ public class MiningSession {
     public synchronized void newTimer(int seconds, int secondsToClear) {
         if (character == null) return;
         timer = new MiningTimer(seconds, secondsToClear);
+        fireChanged();
     }
     
     public synchronized void stopTimer() {
         timer = null;
+        fireChanged();
     }
     
-    private String getButtonHTML(String name, String secondLine) {
-        if (name == null) {
-            name = "- no pilot selected -";
-        }
-        
-        if (secondLine == null) {
-            secondLine = "";
-        }
-        
-        return "<html><center>"+name+"<br>"+secondLine+"</center></html>";
+    /**
+     * Returns true, if the session has something going on, that changes
+     * with time: a working turret or a timer.
+     * @return 
+     */
+    public synchronized boolean isActive() {
+        return timer != null || turret1.isMining() || turret2.isMining() || turret3.isMining();
     }
     
     /**
-     * Updates corresponding session button with actual information, based
-     * on the session state.
-     * @param button 
+     * Returns true and resets the flag, if there was an alert during mining, 
+     * caused by the session change.
+     * @return 
      */
-    public synchronized void updateButton(MiningSessionButton button) {
+    public synchronized boolean takePendingAlert() {
+        boolean out = pendingAlert;
+        pendingAlert = false;
+        return out;
+    }
+    
+    /**
+     * Updates the session's status, as shown on the session grid.
+     * @param status 
+     * @return true, if the status has changed.
+     */
+    public synchronized boolean updateStatus(SessionStatus status) {
         if (character == null) {
-            button.setText(getButtonHTML(getCharacterName(), "&nbsp;"));
             haveAlerts = false;
-        } else {
-            ICoreCharacter eveChr = character.getCoreCharacter();
-            if (!eveChr.isMonitorIgnore() && getRemainingCargo() < 1) {
-                haveAlerts = true;
-                button.setForeground(Color.RED);
-                button.setText(getButtonHTML(getCharacterName(), "/!\\ CARGO /!\\"));
-                return;
-            } 
-            
-            if (timer != null && timer.isFinished()) {
-                haveAlerts = true;
-                button.setForeground(Color.RED);
-                button.setText(getButtonHTML(getCharacterName(), "/!\\ TIMER /!\\"));
-                return;
-            }
-            
-            // if there is no turret1 on a ship, return true to skip
-            boolean t1isMining = character.getTurretCount() < 1 || turret1.isMining();
-            // if there is no turret2 on a ship, return true to skip
-            boolean t2isMining = character.getTurretCount() < 2 || turret2.isMining(); 
-            // if there is no turret3 on a ship, return true to skip
-            boolean t3isMining = character.getTurretCount() < 3 || turret3.isMining(); 
+            return status.set(getCharacterName(), SessionStatus.IDLE, 0, BLACK);
+        } 
+        
+        ICoreCharacter eveChr = character.getCoreCharacter();
+        if (!eveChr.isMonitorIgnore() && getRemainingCargo() < 1) {
+            haveAlerts = true;
+            return status.set(getCharacterName(), SessionStatus.ALERT_CARGO, 0, RED);
+        } 
 
-            if (!eveChr.isMonitorIgnore() && timer == null && (!t1isMining || !t2isMining || !t3isMining)) {  
-                haveAlerts = true;              
-                button.setForeground(Color.RED);
-                button.setText(getButtonHTML(getCharacterName(), "/!\\ TURRET /!\\"));
-            } else {
-                haveAlerts = false;
-                int rem = Integer.MAX_VALUE;
+        if (timer != null && timer.isFinished()) {
+            haveAlerts = true;
+            return status.set(getCharacterName(), SessionStatus.ALERT_TIMER, 0, RED);
+        }
 
-                // we skip remaining time of 0, as unused turrets return exactly that.
-                // for mining and used turrets remaining time will be not zero at this point.
+        // if there is no turret1 on a ship, return true to skip
+        boolean t1isMining = character.getTurretCount() < 1 || turret1.isMining();
+        // if there is no turret2 on a ship, return true to skip
+        boolean t2isMining = character.getTurretCount() < 2 || turret2.isMining(); 
+        // if there is no turret3 on a ship, return true to skip
+        boolean t3isMining = character.getTurretCount() < 3 || turret3.isMining(); 
 
-                int secs = turret1.getRemainingSeconds(character.getStats());
-                if (secs > 0 && rem > secs) {
-                    rem = secs;
-                }
+        if (!eveChr.isMonitorIgnore() && timer == null && (!t1isMining || !t2isMining || !t3isMining)) {  
+            haveAlerts = true;              
+            return status.set(getCharacterName(), SessionStatus.ALERT_TURRET, 0, RED);
+        } 
+        
+        haveAlerts = false;
+        int rem = Integer.MAX_VALUE;
 
-                secs = turret2.getRemainingSeconds(character.getStats());
-                if (secs > 0 && rem > secs) {
-                    rem = secs;
-                }
+        // we skip remaining time of 0, as unused turrets return exactly that.
+        // for mining and used turrets remaining time will be not zero at this point.
 
-                secs = turret3.getRemainingSeconds(character.getStats());
-                if (secs > 0 && rem > secs) {
-                    rem = secs;
-                }
-                
-                boolean showTimer = false;
-                if (timer != null) {
-                    secs = timer.getRemainingSeconds();
-                    if (rem > secs) {
-                        rem = secs;
-                        showTimer = true;
-                    }
-                }
+        int secs = getRemainingSeconds(turret1.getAsteroidId());
+        if (secs > 0 && rem > secs) {
+            rem = secs;
+        }
 
-                if (rem == Integer.MAX_VALUE) {
-                    button.setForeground(Color.BLACK);
-                    button.setText(getButtonHTML(character.getCoreCharacter().getName(), "&nbsp;"));
-                } else {
-                    int cycle;
-                    if (showTimer) {
-                        cycle = timer.getSeconds();
-                    } else {
-                        cycle = (int) character.getStats().getTurretCycle();
-                    }
-                    float remcycles = rem /(float)cycle;
+        secs = getRemainingSeconds(turret2.getAsteroidId());
+        if (secs > 0 && rem > secs) {
+            rem = secs;
+        }
 
-                    Period remPeriod = Seconds.seconds(rem)
-                        .toStandardDuration().toPeriod();
+        secs = getRemainingSeconds(turret3.getAsteroidId());
+        if (secs > 0 && rem > secs) {
+            rem = secs;
+        }
 
-                    button.setText(getButtonHTML(character.getCoreCharacter().getName(), 
-                            minutesAndSeconds.print(remPeriod)));
-                    if (remcycles > 1) {
-                        button.setForeground(Color.BLACK);
-                    } else {
-                        button.setForeground(new Color(1 - remcycles, 0, 0));
-                    }
-                }
-            }           
+        boolean showTimer = false;
+        if (timer != null) {
+            secs = timer.getRemainingSeconds();
+            if (rem > secs) {
+                rem = secs;
+                showTimer = true;
+            }
+        }
+
+        if (rem == Integer.MAX_VALUE) {
+            return status.set(getCharacterName(), SessionStatus.IDLE, 0, BLACK);
+        } 
+        
+        int cycle;
+        if (showTimer) {
+            cycle = timer.getSeconds();
+        } else {
+            cycle = (int) character.getStats().getTurretCycle();
+        }
+        float remcycles = rem /(float)cycle;
+
+        // reddens during the last cycle.
+        int color = BLACK;
+        if (remcycles <= 1) {
+            color = ((int) ((1 - remcycles) * 255 + 0.5f)) << 16;
         }
+        return status.set(getCharacterName(), SessionStatus.COUNTDOWN, rem, color);
     }
     
+    
     /**
      * Returns true, if the session have alerts.     
      * @return 
@@ -506,13 +896,244 @@ public class MiningSession {
         return haveAlerts;
     }
     
-    public class AsteroidTableModel extends AbstractTableModel {                        
+    /**
+     * Table of session's asteroids. 
+     * Rows follow the change log of the asteroid field, so the table is notified
+     * only about rows, that actually changed. Cells are formatted from a snapshot 
+     * of rows, taken once per refresh, so painting doesn't touch the field or 
+     * the turrets and doesn't create any objects. Should be used from the EDT only.
+     */
+    public class AsteroidTableModel extends AbstractTableModel {  
+        private final static int CHANGES_BATCH = 256;
+        private final static int REM_COLUMN = 2;
+        private final static int TURRETS_COLUMN = 3;
+        
+        // the field shown, and the version of it's change log the table knows about.
+        private AsteroidField shownField;
+        private long version;
+        private int rowCount;
+        
+        private final int[] ops = new int[CHANGES_BATCH];
+        private final int[] firstRows = new int[CHANGES_BATCH];
+        private final int[] counts = new int[CHANGES_BATCH];
+        
+        // snapshot of the rows.
+        private int size;
+        private int ownShift;
+        private int[] ids = new int[0];
+        private IHarvestable[] types = new IHarvestable[0];
+        private int[] distances = new int[0];
+        private int[] units = new int[0];
+        private long[] masks = new long[0];
+        // Long.MAX_VALUE, if the asteroid isn't mined.
+        private long[] minedOutAt = new long[0];
+        
+        // values for those asking the model directly, made only when changed.
+        private Integer[] boxedDistances = new Integer[0];
+        private Integer[] boxedUnits = new Integer[0];
+        private String[] turretStrings = new String[0];
+        private long[] turretStringMasks = new long[0];
+        private final char[] buf = new char[32];
+
+        public AsteroidTableModel() {
+            refresh();
+            rowCount = size;
+        }
+        
+        /**
+         * Takes a snapshot of the field's rows, along with the changes made 
+         * since the previous one.
+         * @return number of changes, or -1 if the table should be updated as a whole.
+         */
+        private int refresh() {
+            AsteroidField curField = field;
+            int cnt;
+            synchronized (curField) {
+                if (curField != shownField) {
+                    cnt = -1;
+                } else {
+                    cnt = curField.getChanges(version, ops, firstRows, counts);
+                    // there may be even more of them, updating everything is cheaper then.
+                    if (cnt == CHANGES_BATCH) cnt = -1;
+                }
+                
+                shownField = curField;
+                version = curField.getVersion();
+                size = curField.size();
+                if (ids.length < size) grow(size);
+                curField.copyRows(ids, types, distances, units, masks);
+            }
+            
+            int slot = curField.getSlot(MiningSession.this);
+            ownShift = slot < 0 ? -1 : slot * TURRETS;
+            
+            // outside of the field lock, as turrets are locked before the field.
+            // remaining units are predicted, as mining is only done on events.
+            long now = System.currentTimeMillis();
+            for (int row = 0; row < size; row++) {
+                minedOutAt[row] = Long.MAX_VALUE;
+                if (masks[row] == 0) continue;
+                
+                units[row] = Math.max(0, units[row] - (int) getUnitsAt(curField, masks[row], now));
+                double at = getMinedOutAt(curField, ids[row]);
+                if (at < Long.MAX_VALUE) minedOutAt[row] = (long) at;
+            }
+            
+            return cnt;
+        }
+        
+        private void grow(int minSize) {
+            int newSize = Math.max(minSize, ids.length * 2);
+            ids = Arrays.copyOf(ids, newSize);
+            types = Arrays.copyOf(types, newSize);
+            distances = Arrays.copyOf(distances, newSize);
+            units = Arrays.copyOf(units, newSize);
+            masks = Arrays.copyOf(masks, newSize);
+            minedOutAt = Arrays.copyOf(minedOutAt, newSize);
+            boxedDistances = Arrays.copyOf(boxedDistances, newSize);
+            boxedUnits = Arrays.copyOf(boxedUnits, newSize);
+            turretStrings = Arrays.copyOf(turretStrings, newSize);
+            turretStringMasks = Arrays.copyOf(turretStringMasks, newSize);
+        }
+        
+        /**
+         * Notifies the table about changes of the asteroid field, made since
+         * the previous call.
+         */
+        public void fireChanges() {
+            int cnt = refresh();
+            if (cnt < 0) {
+                rowCount = size;
+                fireTableDataChanged();
+                return;
+            }
+            
+            for (int i = 0; i < cnt; i++) {
+                int first = firstRows[i];
+                int last = first + counts[i] - 1;
+                switch (ops[i]) {
+                    case AsteroidField.ROWS_INSERTED:
+                        rowCount = rowCount + counts[i];
+                        fireTableRowsInserted(first, last);
+                        break;
+
+                    case AsteroidField.ROWS_UPDATED:
+                        // the same row is usually updated several times in a row.
+                        boolean repeated = i > 0 && ops[i - 1] == AsteroidField.ROWS_UPDATED 
+                                && firstRows[i - 1] == first && counts[i - 1] == counts[i];
+                        if (!repeated && last < rowCount) fireTableRowsUpdated(first, last);
+                        break;
+
+                    case AsteroidField.ROWS_DELETED:
+                        rowCount = rowCount - counts[i];
+                        fireTableRowsDeleted(first, last);
+                        break;
+
+                    case AsteroidField.ROWS_RESET:
+                        rowCount = counts[i];
+                        fireTableDataChanged();
+                        break;
+                }
+            }
+        }
+        
+        /**
+         * Notifies the table about remaining time changes. Time only goes
+         * on for asteroids being mined, so only their Rem cells are updated,
+         * in runs of adjacent rows.
+         */
+        public void fireRemainingUpdated() {
+            if (character == null) return;
+            
+            int rows = Math.min(rowCount, size);
+            int first = -1;
+            for (int row = 0; row <= rows; row++) {
+                boolean mined = row < rows && masks[row] != 0;
+                if (mined) {
+                    if (first == -1) first = row;
+                } else if (first != -1) {
+                    fireTableChanged(new TableModelEvent(this, first, row - 1, REM_COLUMN));
+                    first = -1;
+                }
+            }
+        }
+        
+        /**
+         * Returns ID of the asteroid in the row.
+         * @param row
+         * @return AsteroidField.NONE, if there's no such row.
+         */
+        public int getAsteroidId(int row) {
+            if (shownField != field || row < 0 || row >= size) return AsteroidField.NONE;
+            return ids[row];
+        }
+        
+        /**
+         * Formats the cell into the buffer, without creating any objects.
+         * Remaining time is counted up to the given moment.
+         * @param row
+         * @param column
+         * @param now current moment, in milliseconds.
+         * @param out
+         * @return length of the text, cut at the end of the buffer.
+         */
+        public int formatCell(int row, int column, long now, char[] out) {
+            if (row < 0 || row >= size) return 0;
+            
+            switch (column) {
+                case 0:
+                    return CharUtils.append(out, 0, types[row].getName());
+                    
+                case 1:
+                    return CharUtils.append(out, 0, distances[row]);
+                    
+                case REM_COLUMN:
+                    int len = CharUtils.append(out, 0, units[row]);
+                    if (character == null || minedOutAt[row] == Long.MAX_VALUE) return len;
+                    
+                    long secs = Math.max(0, (minedOutAt[row] - now) / 1000);
+                    len = CharUtils.append(out, len, " (");
+                    len = CharUtils.appendMinutesAndSeconds(out, len, secs);
+                    return CharUtils.append(out, len, ')');
+                    
+                case TURRETS_COLUMN:
+                    return formatTurrets(masks[row], out);
+                    
+                default:
+                    return 0;
+            }
+        }
+        
+        /**
+         * Formats turrets mining the asteroid: session's own ones by number, 
+         * and how many of other sessions, i.e. "1, 3 +2".
+         * @param mask
+         * @param out
+         * @return 
+         */
+        private int formatTurrets(long mask, char[] out) {
+            long own = ownShift < 0 ? 0 : (mask >>> ownShift) & ((1L << TURRETS) - 1);
+            int others = Long.bitCount(mask) - Long.bitCount(own);
+            
+            int len = 0;
+            for (int i = 0; i < TURRETS; i++) {
+                if ((own & (1L << i)) == 0) continue;
+                
+                if (len > 0) len = CharUtils.append(out, len, ", ");
+                len = CharUtils.append(out, len, i + 1);
+            }
+            
+            if (others > 0) {
+                if (len > 0) len = CharUtils.append(out, len, ' ');
+                len = CharUtils.append(out, len, '+');
+                len = CharUtils.append(out, len, others);
+            }
+            return len;
+        }
 
         @Override
         public int getRowCount() {
-            synchronized (MiningSession.this) {
-                return roids.size();
-            }
+            return rowCount;
         }
 
         @Override
@@ -529,10 +1150,10 @@ public class MiningSession {
                 case 1:
                     return "Distance";
                     
-                case 2:
+                case REM_COLUMN:
                     return "Rem";
                     
-                case 3:
+                case TURRETS_COLUMN:
                     return "Target";
                     
                 default:
@@ -540,37 +1161,39 @@ public class MiningSession {
                     
             }
         }
-        
-        
 
         @Override
         public Object getValueAt(int rowIndex, int columnIndex) {
-            synchronized (MiningSession.this) {
-                if (rowIndex >= roids.size() || columnIndex > 3) return null;
-
-                Asteroid roid = roids.get(rowIndex);
-                switch (columnIndex) {
-                    case 0:
-                        return roid;
+            if (rowIndex < 0 || rowIndex >= size) return null;
+            
+            // JTable asks for values on every paint, so they are kept until changed.
+            switch (columnIndex) {
+                case 0:
+                    return types[rowIndex].getName();
 
-                    case 1:
-                        return roid.getDistance();
+                case 1:
+                    if (boxedDistances[rowIndex] == null || boxedDistances[rowIndex] != distances[rowIndex]) {
+                        boxedDistances[rowIndex] = distances[rowIndex];
+                    }
+                    return boxedDistances[rowIndex];
 
-                    case 2:
-                        if (character == null) {
-                            return roid.getRemainingUnits();
-                        } else {
-                            return roid.getRemString(character.getStats());
-                        }
+                case REM_COLUMN:
+                    if (boxedUnits[rowIndex] == null || boxedUnits[rowIndex] != units[rowIndex]) {
+                        boxedUnits[rowIndex] = units[rowIndex];
+                    }
+                    return boxedUnits[rowIndex];
 
-                    case 3:
-                        return roid.getTurrets(); // tba
+                case TURRETS_COLUMN:
+                    if (turretStrings[rowIndex] == null || turretStringMasks[rowIndex] != masks[rowIndex]) {
+                        turretStrings[rowIndex] = new String(buf, 0, formatTurrets(masks[rowIndex], buf));
+                        turretStringMasks[rowIndex] = masks[rowIndex];
+                    }
+                    return turretStrings[rowIndex];
 
-                    default:
-                        return null;
+                default:
+                    return null;
 
-                }                
-            }
+            }                
         }                            
     }
 }
@@ -28,15 +28,19 @@ package cy.alavrov.jminerguide.monitor;
 import cy.alavrov.jminerguide.data.DataContainer;
 import cy.alavrov.jminerguide.data.character.EVECharacter;
 import cy.alavrov.jminerguide.data.character.SimpleCharacter;
+import cy.alavrov.jminerguide.log.JMGLogger;
 import cy.alavrov.jminerguide.util.winmanager.IEVEWindow;
 import cy.alavrov.jminerguide.util.winmanager.IWindowManager;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Monitor for the EVE (mining and whatnot) sessions.
@@ -69,14 +73,24 @@ public class MiningSessionMonitor {
             }
             
             // greater ones go in first, so reverse comparing.
-            return Integer.valueOf(otherSeq).compareTo(thisSeq);            
+            return Integer.compare(otherSeq, thisSeq);
         }
     };
     
     private final IWindowManager wManager;
     private final DataContainer dCont;
     private volatile IEVEWindow currentWindow = null;
+    // window manager's change count, as of the last update.
+    private long lastChanges = -1;
     private final ConcurrentHashMap<IEVEWindow, MiningSession> sessions;
+    // changes on every session added or removed, so the sorted list can be reused.
+    private final AtomicInteger sessionsVersion = new AtomicInteger();
+    private volatile SortedSessions sortedSessions = null;
+    private volatile MiningScheduler scheduler = null;
+    private volatile boolean cycleAccurate = false;
+    // asteroid fields shared by sessions in the same belt, by belt name.
+    private final HashMap<String, AsteroidField> sharedFields = new HashMap<>();
+    private final TurretPlanner planner = new TurretPlanner();
 
     public MiningSessionMonitor(IWindowManager wManager, DataContainer dCont) {
         this.wManager = wManager;
@@ -84,11 +98,56 @@ public class MiningSessionMonitor {
         this.dCont = dCont;
     }
     
+    /**
+     * Sets the scheduler, that will be notified on changes in sessions.
+     * Existing sessions are updated as well.
+     * @param scheduler 
+     */
+    public void setScheduler(MiningScheduler scheduler) {
+        this.scheduler = scheduler;
+        for (MiningSession session : sessions.values()) {
+            session.setScheduler(scheduler);
+        }
+    }
+    
+    /**
+     * Switches all sessions between cycle-accurate and continuous mining.
+     * @param cycleAccurate 
+     */
+    public void setCycleAccurate(boolean cycleAccurate) {
+        this.cycleAccurate = cycleAccurate;
+        for (MiningSession session : sessions.values()) {
+            session.setCycleAccurate(cycleAccurate);
+        }
+    }
+    
+    /**
+     * Creates a new session for the window.
+     * @param window
+     * @return 
+     */
+    private MiningSession newSession(IEVEWindow window) {
+        MiningSession out = new MiningSession(window);
+        out.setScheduler(scheduler);
+        out.setCycleAccurate(cycleAccurate);
+        return out;
+    }
+    
     /**
      * Updates all available EVE window lists and creates/cleans up sessions
-     * accordingly.
+     * accordingly. Does nothing, if the window manager has seen no changes
+     * since the last update.
+     * @return true, if sessions, their characters or the current window have changed.
      */
-    public void update() {
+    public boolean update() {
+        long changes = wManager.getChangeCount();
+        if (changes == lastChanges) return false;
+        lastChanges = changes;
+        
+        IEVEWindow prevWindow = currentWindow;
+        int prevVersion = sessionsVersion.get();
+        boolean changed = false;
+        
         currentWindow = wManager.getCurrentEVEWindow();
         
         Collection<MiningSession> sessionEntries = sessions.values();
@@ -100,10 +159,16 @@ public class MiningSessionMonitor {
                                                 
             if (!session.exists()) {
                 iter.remove();
+                sessionsVersion.incrementAndGet();
+                session.close();
             } else {
                 String name = session.getCharacterName();
                 if (name == null) {
-                    if (session.getSessionCharacter() != null) iter.remove();
+                    if (session.getSessionCharacter() != null) {
+                        iter.remove();
+                        sessionsVersion.incrementAndGet();
+                        session.close();
+                    }
                     // if a window lose it's logged in character (BUT HOW?!)
                     // we probably would be better destroying the session with all contents.                    
                 } else {
@@ -117,8 +182,11 @@ public class MiningSessionMonitor {
                         } else {
                             session.createSessionCharacter(sChar);
                         }
+                        changed = true;
                     } else if (!curChar.getCoreCharacter().getName().equals(name)) {
                         iter.remove();
+                        sessionsVersion.incrementAndGet();
+                        session.close();
                         // shouldn't happen ever! and if it does - kill it with fire.
                     }
                 }
@@ -128,7 +196,7 @@ public class MiningSessionMonitor {
         List<IEVEWindow> windows = wManager.getEVEWindowList();
         for (IEVEWindow window : windows) {
             if (!sessions.containsKey(window)) {
-                MiningSession newSession = new MiningSession(window);
+                MiningSession newSession = newSession(window);
                 String name = newSession.getCharacterName();
                 if (name != null) {
                     EVECharacter newChar = dCont.getCharacterContainer().getCharacterByName(name);        
@@ -140,9 +208,24 @@ public class MiningSessionMonitor {
                     }
                 }
                 
-                sessions.putIfAbsent(window, newSession);
+                if (sessions.putIfAbsent(window, newSession) == null) {
+                    sessionsVersion.incrementAndGet();
+                }
             }
         }
+        
+        IEVEWindow newWindow = currentWindow;
+        return changed || prevVersion != sessionsVersion.get() || 
+                (newWindow == null ? prevWindow != null : !newWindow.equals(prevWindow));
+    }
+    
+    /**
+     * Returns an ID of the foreground window, whatever it is. Cheap enough to 
+     * be called often.
+     * @return 
+     */
+    public long getForegroundWindowID() {
+        return wManager.getForegroundWindowID();
     }
 
     /**
@@ -156,12 +239,15 @@ public class MiningSessionMonitor {
         MiningSession out = sessions.get(window);
         
         if (out == null) {            
-            MiningSession newOut = new MiningSession(window);
+            MiningSession newOut = newSession(window);
             out = sessions.putIfAbsent(window, newOut);
             // will return null, if there's nothing here and new value was 
             // inserted successfully, otherwise will return stored value. 
             // We will probably not run into this, but it's better to be safe.
-            if (out == null) out = newOut;
+            if (out == null) {
+                out = newOut;
+                sessionsVersion.incrementAndGet();
+            }
         }
         
         return out;
@@ -170,17 +256,113 @@ public class MiningSessionMonitor {
     /**
      * Returns all of the sessions available at this moment.
      * Sessions are sorted by their sequence, unknown ones go to the end.
+     * The list is shared between callers and can't be modified.
      * @return 
      */
     public List<MiningSession> getSessions() {
+        // the list is asked for several times a second, but changes rarely.
+        int version = sessionsVersion.get();
+        SortedSessions cur = sortedSessions;
+        if (cur != null && cur.version == version && isSorted(cur.list)) return cur.list;
+        
         ArrayList<MiningSession> out = new ArrayList<>();
         for (MiningSession session : sessions.values()) {
             out.add(session);
         }
         Collections.sort(out, seqComparator);
+        
+        List<MiningSession> list = Collections.unmodifiableList(out);
+        sortedSessions = new SortedSessions(version, list);
+        return list;
+    }
+    
+    /**
+     * Checks, if sessions are still in order, as sequence of a character 
+     * may be changed by the user.
+     * @param list
+     * @return 
+     */
+    private static boolean isSorted(List<MiningSession> list) {
+        for (int i = 1; i < list.size(); i++) {
+            if (seqComparator.compare(list.get(i - 1), list.get(i)) > 0) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Attaches the session to the asteroid field, shared by sessions in the 
+     * belt with a given name, or detaches it into a field of its own.
+     * Belts are created on the first session and forgotten after the last one.
+     * @param session
+     * @param belt name of the belt, null or empty to mine alone.
+     */
+    public void setSharedBelt(MiningSession session, String belt) {
+        String name = belt == null ? "" : belt.trim();
+        
+        synchronized (sharedFields) {
+            if (name.isEmpty()) {
+                if (getSharedBelt(session) != null) session.detachField();
+            } else {
+                AsteroidField field = sharedFields.get(name);
+                if (field == null) {
+                    field = new AsteroidField();
+                    sharedFields.put(name, field);
+                }
+
+                if (!session.attachField(field)) {
+                    JMGLogger.logWarning("Too many sessions on the belt "+name+", "+session.getCharacterName()+" is left alone");
+                }
+            }
+            
+            Iterator<AsteroidField> iter = sharedFields.values().iterator();
+            while (iter.hasNext()) {
+                if (iter.next().getSessions().isEmpty()) iter.remove();
+            }
+        }
+    }
+    
+    /**
+     * Returns name of the shared belt, the session is mining, or null, if it's alone.
+     * @param session
+     * @return 
+     */
+    public String getSharedBelt(MiningSession session) {
+        AsteroidField field = session.getAsteroidField();
+        synchronized (sharedFields) {
+            for (Map.Entry<String, AsteroidField> entry : sharedFields.entrySet()) {
+                if (entry.getValue() == field) return entry.getKey();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Returns names of all the shared belts with sessions on them, sorted.
+     * @return 
+     */
+    public List<String> getSharedBelts() {
+        ArrayList<String> out = new ArrayList<>();
+        synchronized (sharedFields) {
+            for (Map.Entry<String, AsteroidField> entry : sharedFields.entrySet()) {
+                // sessions of closed windows leave by themselves.
+                if (!entry.getValue().getSessions().isEmpty()) out.add(entry.getKey());
+            }
+        }
+        Collections.sort(out);
         return out;
     }
     
+    /**
+     * Binds free turrets of the sessions to the best asteroids in range.
+     * Sessions on the same asteroid field are planned together.
+     * @param sessions
+     * @param now current moment, in milliseconds.
+     * @return number of turrets bound.
+     */
+    public int assignTurrets(List<MiningSession> sessions, long now) {
+        return planner.assign(sessions, dCont.getItemPriceContainer().getValueTable(), now);
+    }
+    
     /**
      * Returns true, if current window belongs to the asteroid monitor or a system (task switching, tile mouseover).
      * @return 
@@ -218,4 +400,17 @@ public class MiningSessionMonitor {
         
         return false;
     }
+    
+    /**
+     * Sorted list of sessions, along with the version of sessions it was made of.
+     */
+    private static class SortedSessions {
+        private final int version;
+        private final List<MiningSession> list;
+
+        public SortedSessions(int version, List<MiningSession> list) {
+            this.version = version;
+            this.list = list;
+        }
+    }
 }
@@ -25,11 +25,16 @@
  */
 package cy.alavrov.jminerguide.monitor;
 
-import cy.alavrov.jminerguide.forms.JAsteroidMonitorForm;
 import cy.alavrov.jminerguide.log.JMGLogger;
 import java.io.BufferedInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
@@ -39,69 +44,95 @@ import javax.sound.sampled.LineEvent;
 import javax.sound.sampled.LineListener;
 
 /**
- * A task to do mining every second.
+ * A task to do mining for the sessions, woken up by the mining scheduler.
  * Also checks timers.
  * @author Andrey Lavrov <lavroff@gmail.com>
  */
-public class MiningTask implements Runnable{
+public class MiningTask {
     private final MiningSessionMonitor msMonitor;
-    private final JAsteroidMonitorForm form;
+    private final IMonitorView form;
     private volatile MiningSession lastCurrentSession;
+    // the same refresh goes after every pass, no need to create it again and again.
+    private final Runnable refreshTask;
+    // sessions with turrets freed by mined out asteroids, kept between passes to avoid garbage.
+    private final ArrayList<MiningSession> depleted = new ArrayList<>();
+    // results of the pass, in order of sessions.
+    private final ArrayList<MiningResult> results = new ArrayList<>();
+    // made on the first parallel pass.
+    private ForkJoinPool pool = null;
+    // parallel passes reuse groups, their output and the root task.
+    private final IdentityHashMap<AsteroidField, MiningGroup> groupsByField = new IdentityHashMap<>();
+    private final ArrayList<MiningGroup> groups = new ArrayList<>();
+    private int groupCount = 0;
+    private MiningResult[] out = new MiningResult[0];
+    private final MiningPass pass = new MiningPass();
 
-    public MiningTask(MiningSessionMonitor msMonitor, JAsteroidMonitorForm form) {
+    public MiningTask(MiningSessionMonitor msMonitor, final IMonitorView form) {
         this.msMonitor = msMonitor;
         this.form = form;
+        
+        refreshTask = new Runnable() {
+            @Override
+            public void run(){
+                form.notifyTableUpdate();
+                form.updateCurrentCharacterStats();
+                form.updateSessionGrid();
+                form.updateTimerLabel();
+
+                form.packIfNeeded();
+            }
+        };
     }
 
-    @Override
-    public void run() {
+    /**
+     * Does mining for the given sessions up to the given moment, raises alerts 
+     * and refreshes the monitor window.
+     * @param sessions sessions with due events or changes, may be empty.
+     * @param timerSessions sessions to check timers of.
+     * @param now current moment, in milliseconds.
+     */
+    public void process(List<MiningSession> sessions, List<MiningSession> timerSessions, long now) {
         try {
             MiningSession curSession = msMonitor.getCurrentSession();
             if (curSession != null) lastCurrentSession = curSession;
             final AsteroidMonitorSettings settings = form.getSettings();
+            depleted.clear();
+            results.clear();
             
-            List<MiningSession> sessions = msMonitor.getSessions();
-            for (final MiningSession session : sessions) {
-                try {
-                    session.doMining();
-                } catch (AsteroidMinedException | FullOreHoldException e) {
-                    java.awt.EventQueue.invokeLater(new Runnable() {
-                        @Override
-                        public void run(){
-                            ISessionCharacter chr = session.getSessionCharacter();
-                            if (chr != null && !chr.getCoreCharacter().isMonitorIgnore()) {
-                                if (settings.isPopupOnAlert()) {
-                                    msMonitor.restoreMonitorWindow();                                    
-                                    form.setAlwaysOnTop(true);
-                                }
-                                if (settings.isSoundOnAlert()) {
-                                    playSound();
-                                }
-                            }
-                            
-                            if (settings.isAsteroidAutoCleanup()) {
-                                session.cleanupRoids();
-                            }
-                        }
-                    });
+            if (settings.isParallelMining() && sessions.size() > 1) {
+                mineInParallel(sessions, now);
+            } else {
+                for (MiningSession session : sessions) {
+                    results.add(session.doMining(now));
                 }
+            }
+            
+            // alerts of the whole pass go to the EDT at once.
+            List<MiningSession> alerted = null;
+            boolean timerAlarm = false;
+            
+            for (int i = 0; i < sessions.size(); i++) {
+                MiningSession session = sessions.get(i);
+                MiningResult result = results.get(i);
+                boolean alert = result.isAlert();
+                if (settings.isAutoAssign() && !result.isHoldFull() && result.getDepletedTurrets() != 0) {
+                    depleted.add(session);
+                }
+                if (session.takePendingAlert()) alert = true;
                 
+                if (alert) {
+                    if (alerted == null) alerted = new ArrayList<>();
+                    alerted.add(session);
+                }
+            }
+            
+            for (int i = 0; i < timerSessions.size(); i++) {
+                MiningSession session = timerSessions.get(i);
                 MiningTimer timer = session.getTimer();
                 if (timer != null && timer.isFinished()) {
                     if (!timer.wasAlarm()) {
                         timer.markAlarm();
-                        java.awt.EventQueue.invokeLater(new Runnable() {
-                            @Override
-                            public void run(){
-                                if (settings.isPopupOnAlert()) {
-                                    msMonitor.restoreMonitorWindow();
-                                    form.setAlwaysOnTop(true);
-                                }
-                                if (settings.isSoundOnAlert()) {
-                                    playSound();
-                                }
-                            }
-                        });
+                        timerAlarm = true;
                     }
                     
                     if ( // either we switched off from right window to the monitor
@@ -114,22 +145,75 @@ public class MiningTask implements Runnable{
                 }
             }
 
-            java.awt.EventQueue.invokeLater(new Runnable() {
-                @Override
-                public void run(){
-                    form.notifyTableUpdate();
-                    form.updateCurrentCharacterStats();
-                    form.updateSessionButtons();
-                    form.updateTimerLabel();
-                    
-                    form.pack();
-                }
-            });
+            // rebinding goes after all the sessions are done, as turrets of 
+            // other sessions on the field may have been freed too.
+            if (!depleted.isEmpty()) {
+                msMonitor.assignTurrets(depleted, now);
+                depleted.clear();
+            }
+            results.clear();
+
+            if (alerted == null && !timerAlarm) {
+                java.awt.EventQueue.invokeLater(refreshTask);
+            } else {
+                java.awt.EventQueue.invokeLater(new AlertTask(alerted, timerAlarm, settings));
+            }
         } catch (Exception e) {
             JMGLogger.logSevere("Unable to mine", e);
         }        
     }
     
+    /**
+     * Does mining for the sessions on the pool, adding results in the same order.
+     * Sessions sharing an asteroid field mine the same asteroids, so they
+     * are mined one after another by the same task.
+     * @param sessions
+     * @param now 
+     */
+    private void mineInParallel(List<MiningSession> sessions, long now) {
+        int size = sessions.size();
+        if (out.length < size) out = new MiningResult[size];
+        
+        groupCount = 0;
+        for (int i = 0; i < size; i++) {
+            AsteroidField field = sessions.get(i).getAsteroidField();
+            MiningGroup group = groupsByField.get(field);
+            if (group == null) {
+                if (groupCount == groups.size()) groups.add(new MiningGroup());
+                group = groups.get(groupCount++);
+                group.reset(sessions, out, now);
+                groupsByField.put(field, group);
+            }
+            group.add(i);
+        }
+        groupsByField.clear();
+        
+        if (groupCount == 1) {
+            groups.get(0).compute();
+        } else {
+            if (pool == null) pool = new ForkJoinPool();
+            
+            pass.reinitialize();
+            pool.invoke(pass);
+        }
+        
+        for (int i = 0; i < size; i++) {
+            results.add(out[i]);
+            out[i] = null;
+        }
+        for (int i = 0; i < groupCount; i++) {
+            groups.get(i).release();
+        }
+    }
+    
+    /**
+     * Shuts the mining pool down. Should be called after the scheduler is 
+     * stopped, as the task can't mine in parallel after that.
+     */
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
+    }
+    
     private void playSound() {
         try {
             InputStream resourceStream = getClass().getClassLoader().getResourceAsStream("ting.wav");
@@ -156,4 +240,106 @@ public class MiningTask implements Runnable{
         }
     }
     
+    /**
+     * Sessions of the same asteroid field, to be mined by a single task.
+     * Reset and reused on every parallel pass.
+     */
+    private static class MiningGroup extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+        
+        private List<MiningSession> sessions;
+        private MiningResult[] out;
+        private long now;
+        private int[] indexes = new int[1];
+        private int count = 0;
+
+        public void reset(List<MiningSession> sessions, MiningResult[] out, long now) {
+            this.sessions = sessions;
+            this.out = out;
+            this.now = now;
+            count = 0;
+            reinitialize();
+        }
+        
+        /**
+         * Drops references to the pass, so sessions aren't held between passes.
+         */
+        public void release() {
+            sessions = null;
+            out = null;
+        }
+        
+        public void add(int index) {
+            if (count == indexes.length) indexes = Arrays.copyOf(indexes, count * 2);
+            indexes[count++] = index;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = 0; i < count; i++) {
+                out[indexes[i]] = sessions.get(indexes[i]).doMining(now);
+            }
+        }
+    }
+    
+    /**
+     * Root task of a parallel pass, mines the groups of the pass.
+     */
+    private class MiningPass extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+        
+        @Override
+        protected void compute() {
+            for (int i = 1; i < groupCount; i++) {
+                groups.get(i).fork();
+            }
+            groups.get(0).compute();
+            for (int i = 1; i < groupCount; i++) {
+                groups.get(i).join();
+            }
+        }
+    }
+    
+    /**
+     * Raises alerts of a mining pass on the EDT and refreshes the monitor window.
+     */
+    private class AlertTask implements Runnable {
+        private final List<MiningSession> alerted;
+        private final boolean timerAlarm;
+        private final AsteroidMonitorSettings settings;
+
+        public AlertTask(List<MiningSession> alerted, boolean timerAlarm, AsteroidMonitorSettings settings) {
+            this.alerted = alerted == null ? Collections.<MiningSession>emptyList() : alerted;
+            this.timerAlarm = timerAlarm;
+            this.settings = settings;
+        }
+
+        @Override
+        public void run() {
+            boolean notify = timerAlarm;
+            for (MiningSession session : alerted) {
+                ISessionCharacter chr = session.getSessionCharacter();
+                if (chr != null && !chr.getCoreCharacter().isMonitorIgnore()) {
+                    notify = true;
+                }
+
+                if (settings.isAsteroidAutoCleanup()) {
+                    session.cleanupRoids();
+                }
+            }
+            
+            // one popup and one sound for the whole pass.
+            if (notify) {
+                if (settings.isPopupOnAlert()) {
+                    msMonitor.restoreMonitorWindow();                                    
+                    form.setAlwaysOnTop(true);
+                }
+                if (settings.isSoundOnAlert()) {
+                    playSound();
+                }
+            }
+            
+            refreshTask.run();
+        }
+    }
 }
@@ -72,4 +72,20 @@ public class MiningTimer {
     public int getSeconds() {
         return seconds;
     }        
+
+    /**
+     * Returns the moment of timer's expiration, in milliseconds.
+     * @return 
+     */
+    public long getEndAt() {
+        return endAt;
+    }
+    
+    /**
+     * Returns the moment, when it's ok to clear the timer, in milliseconds.
+     * @return 
+     */
+    public long getClearAt() {
+        return clearAt;
+    }
 }
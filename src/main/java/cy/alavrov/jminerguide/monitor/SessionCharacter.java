@@ -25,10 +25,10 @@
  */
 package cy.alavrov.jminerguide.monitor;
 
-import cy.alavrov.jminerguide.data.CalculatedStats;
 import cy.alavrov.jminerguide.data.DataContainer;
 import cy.alavrov.jminerguide.data.ICalculatedStats;
 import cy.alavrov.jminerguide.data.SimpleCalculatedStats;
+import cy.alavrov.jminerguide.data.StatsCache;
 import cy.alavrov.jminerguide.data.booster.BoosterShip;
 import cy.alavrov.jminerguide.data.booster.BoosterShipContainer;
 import cy.alavrov.jminerguide.data.character.CharacterContainer;
@@ -53,6 +53,7 @@ public class SessionCharacter implements ISessionCharacter{
     private ICalculatedStats stats; 
     private ICalculatedStats statsMercoxit;    
     private ICalculatedStats simpleStats; 
+    private final StatsCache statsCache;
     
     public SessionCharacter(EVECharacter character, SimpleCharacter simpleCharacter, DataContainer dCont) {       
         CharacterContainer cCont = dCont.getCharacterContainer();
@@ -80,6 +81,7 @@ public class SessionCharacter implements ISessionCharacter{
         noBoosterShip = bCont.getNoBooster();
         this.character = character; 
         this.simpleCharacter = simpleCharacter;
+        this.statsCache = dCont.getStatsCache();
         
         recalculateStats();
         
@@ -87,12 +89,12 @@ public class SessionCharacter implements ISessionCharacter{
     
     @Override
     public synchronized void recalculateStats() {
-        CalculatedStats newStats = new CalculatedStats(character, booster, ship, 
+        ICalculatedStats newStats = statsCache.getStats(character, booster, ship, 
                 useBoosterShip ? boosterShip : noBoosterShip, false);
         
         stats = newStats;
         
-        CalculatedStats newMercoStats = new CalculatedStats(character, booster, ship, 
+        ICalculatedStats newMercoStats = statsCache.getStats(character, booster, ship, 
                 useBoosterShip ? boosterShip : noBoosterShip, true);
         
         statsMercoxit = newMercoStats;
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.monitor;
+
+/**
+ * Compact status of a mining session, as shown on the session grid.
+ * Reused between updates, so it doesn't produce garbage.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class SessionStatus {
+    /**
+     * Nothing to show besides the name.
+     */
+    public final static int IDLE = 0;
+    
+    /**
+     * Counting down to the next asteroid being mined out or the timer.
+     */
+    public final static int COUNTDOWN = 1;
+    
+    /**
+     * The ore hold is full.
+     */
+    public final static int ALERT_CARGO = 2;
+    
+    /**
+     * The timer is finished.
+     */
+    public final static int ALERT_TIMER = 3;
+    
+    /**
+     * Some turrets aren't mining.
+     */
+    public final static int ALERT_TURRET = 4;
+    
+    private String name;
+    private int state = IDLE;
+    private int seconds;
+    private int color;
+
+    /**
+     * Sets the status.
+     * @param name name of the character, or null, if none is selected.
+     * @param state one of the state constants.
+     * @param seconds remaining seconds for COUNTDOWN, ignored otherwise.
+     * @param color RGB color to show the status with.
+     * @return true, if the status has changed.
+     */
+    public boolean set(String name, int state, int seconds, int color) {
+        if (state != COUNTDOWN) seconds = 0;
+        
+        boolean sameName = this.name == null ? name == null : this.name.equals(name);
+        if (sameName && this.state == state && this.seconds == seconds && this.color == color) {
+            return false;
+        }
+        
+        this.name = name;
+        this.state = state;
+        this.seconds = seconds;
+        this.color = color;
+        return true;
+    }
+
+    /**
+     * Returns name of the character.
+     * @return null, if none is selected.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+
+    /**
+     * Returns RGB color to show the status with.
+     * @return 
+     */
+    public int getColor() {
+        return color;
+    }
+    
+    /**
+     * Returns true, if the status is an alert.
+     * @return 
+     */
+    public boolean isAlert() {
+        return state >= ALERT_CARGO;
+    }
+}
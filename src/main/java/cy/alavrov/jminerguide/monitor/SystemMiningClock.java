@@ -25,21 +25,25 @@
  */
 package cy.alavrov.jminerguide.monitor;
 
-import javax.swing.JToggleButton;
-
 /**
- * JToggleButton with bound MiningSession.
+ * Mining clock, going with the system time.
  * @author Andrey Lavrov <lavroff@gmail.com>
  */
-public class MiningSessionButton extends JToggleButton{
-    private final MiningSession session;    
+public class SystemMiningClock implements IMiningClock {
 
-    public MiningSessionButton(MiningSession session, String name) {
-        super(name);
-        this.session = session;        
+    @Override
+    public long now() {
+        return System.currentTimeMillis();
     }
-    
-    public MiningSession getMiningSession() {
-        return session;
+
+    @Override
+    public void await(Object lock, long at) throws InterruptedException {
+        if (at == Long.MAX_VALUE) {
+            lock.wait();
+            return;
+        }
+        
+        long millis = at - System.currentTimeMillis();
+        if (millis > 0) lock.wait(millis);
     }
 }
@@ -27,8 +27,10 @@ package cy.alavrov.jminerguide.monitor;
 
 import cy.alavrov.jminerguide.data.CalculatedStats;
 import cy.alavrov.jminerguide.data.ICalculatedStats;
-import cy.alavrov.jminerguide.data.harvestable.Asteroid;
+import cy.alavrov.jminerguide.data.harvestable.BasicHarvestable;
 import cy.alavrov.jminerguide.data.harvestable.HarvestableType;
+import cy.alavrov.jminerguide.data.harvestable.IHarvestable;
+import cy.alavrov.jminerguide.data.price.HarvestableValueTable;
 
 /**
  * Instance of a virtual turret, mining something.
@@ -36,12 +38,19 @@ import cy.alavrov.jminerguide.data.harvestable.HarvestableType;
  */
 public class TurretInstance {
     private final int id;
+    private final MiningSession session;
     
-    private Asteroid asteroid = null;    
+    // bound asteroid, it's field and harvestable.
+    private int asteroid = AsteroidField.NONE;
+    private AsteroidField field = null;
+    private IHarvestable harvestable = null;
     private float minedAmount = 0;
+    // last mining moment, or, for cycle-accurate mining, start of the current cycle.
+    private long minedAt = 0;
 
-    public TurretInstance(int id) {
+    public TurretInstance(int id, MiningSession session) {
         this.id = id;
+        this.session = session;
     }
 
     public int getId() {
@@ -54,45 +63,67 @@ public class TurretInstance {
      * @param stats stats for mining generic ore
      * @param mercoStats stats for mining mercoxit
      * @param remainingOreHold how many free space in the hold do we actually have?
+     * @param now current moment, in milliseconds.
+     * @param cycleAccurate if true, ore is delivered at the end of each turret cycle,
+     * otherwise it's mined continuously.
+     * @param result mining pass result to mark mined out asteroid or full hold in.
      * @return m3 of ore removed.
-     * @throws FullOreHoldException 
-     * @throws AsteroidMinedException 
      */
-    public synchronized float mineSome(ICalculatedStats stats, ICalculatedStats mercoStats, float remainingOreHold) throws FullOreHoldException, AsteroidMinedException {
-        if (asteroid == null) return 0;
-        if (asteroid.getRemainingUnits() <= 0) {
+    public synchronized float mineSome(ICalculatedStats stats, ICalculatedStats mercoStats, 
+            float remainingOreHold, long now, boolean cycleAccurate, MiningResult result) {
+        if (asteroid == AsteroidField.NONE) return 0;
+        if (field.getRemainingUnits(asteroid) <= 0) {
             unbindAsteroid();
-            throw new AsteroidMinedException(0, this);
+            result.markDepleted(this);
+            return 0;
         }
         if (remainingOreHold <= 0) {
             unbindAsteroid();
-            throw new FullOreHoldException(0);
+            result.markHoldFull();
+            return 0;
         }
         
         int minedUnits = 0;
         
-        float m3s = 0;
-        if (asteroid.getHarvestable().getBasicHarvestable().getType() == HarvestableType.MERCOXIT) {
-            m3s = mercoStats.getTurretM3S();
+        float m3;
+        if (cycleAccurate) {
+            long cycle = getCycleMillis(harvestable, stats, mercoStats);
+            long cycles = 0;
+            if (cycle > 0 && now > minedAt) {
+                cycles = (now - minedAt) / cycle;
+            }
+            
+            // the current cycle goes on.
+            minedAt = minedAt + cycles * cycle;
+            m3 = cycles * getCycleYield(harvestable, stats, mercoStats);
         } else {
-            m3s = stats.getTurretM3S();
+            float seconds = 0;
+            if (now > minedAt) {
+                seconds = (now - minedAt) / 1000f;
+            }
+            
+            minedAt = now;
+            m3 = getM3S(harvestable, stats, mercoStats) * seconds;
         }
         
-        if (m3s >  remainingOreHold) {
+        if (m3 >  remainingOreHold) {
             // we shouldn't mine more, than free space in the hold.
-            m3s =  remainingOreHold;
+            m3 =  remainingOreHold;
         }
         
-        minedAmount = minedAmount + m3s;
-        float unitVolume = asteroid.getHarvestable().getBasicHarvestable().getVolume();
+        minedAmount = minedAmount + m3;
+        float unitVolume = harvestable.getBasicHarvestable().getVolume();
+        // we'll removed only fully mined units, as you obviously can't mine 1/2 of an unit.
+        int toRemove = (int) (minedAmount / unitVolume);
+        int toFit = (int) (remainingOreHold / unitVolume);
+        if (toRemove > toFit) toRemove = toFit;
+        
         // did we mined enough to have full unit?
-        if (m3s > unitVolume) {
-            // we'll removed only fully mined units, as you obviously can't mine 1/2 of an unit.
-            int toRemove = (int) (m3s / unitVolume);
+        if (toRemove > 0) {            
             // as we can try to mine more, than there are in reality, we do this.
-            minedUnits = asteroid.removeSomeUnits(toRemove);
+            minedUnits = field.removeUnits(asteroid, toRemove);
                         
-            if (asteroid.getRemainingUnits() > 0) {
+            if (field.getRemainingUnits(asteroid) > 0) {
                 // mined amount, that isn't enough for full unit will be left for the next cycle.
                 minedAmount = minedAmount - minedUnits * unitVolume;
             } else {
@@ -100,45 +131,250 @@ public class TurretInstance {
                 minedAmount = 0;
                 // and unbind the asteroid, because, well.
                 unbindAsteroid();
-                
-                throw new AsteroidMinedException(minedUnits * unitVolume, this);
+                result.markDepleted(this);
             }
         } else {
             if (remainingOreHold < unitVolume) { // we can't fit one more unit!
                 unbindAsteroid();
-                throw new FullOreHoldException(0);
+                result.markHoldFull();
             }
         }
         
         return minedUnits * unitVolume;
     }
     
+    /**
+     * Returns turret's yield per second on a given harvestable.
+     * @param hrv
+     * @param stats stats for mining generic ore
+     * @param mercoStats stats for mining mercoxit
+     * @return 
+     */
+    private static float getM3S(IHarvestable hrv, ICalculatedStats stats, ICalculatedStats mercoStats) {
+        if (hrv.getBasicHarvestable().getType() == HarvestableType.MERCOXIT) {
+            return mercoStats.getTurretM3S();
+        } else {
+            return stats.getTurretM3S();
+        }
+    }
+    
+    /**
+     * Returns turret's cycle on a given harvestable, in milliseconds.
+     * @param hrv
+     * @param stats stats for mining generic ore
+     * @param mercoStats stats for mining mercoxit
+     * @return 
+     */
+    static long getCycleMillis(IHarvestable hrv, ICalculatedStats stats, ICalculatedStats mercoStats) {
+        if (hrv.getBasicHarvestable().getType() == HarvestableType.MERCOXIT) {
+            return (long) (mercoStats.getTurretCycle() * 1000);
+        } else {
+            return (long) (stats.getTurretCycle() * 1000);
+        }
+    }
+    
+    /**
+     * Returns m3 delivered by the turret at the end of each cycle on a given harvestable.
+     * Ice harvesters deliver exactly one unit per cycle.
+     * @param hrv
+     * @param stats stats for mining generic ore
+     * @param mercoStats stats for mining mercoxit
+     * @return 
+     */
+    private static float getCycleYield(IHarvestable hrv, ICalculatedStats stats, ICalculatedStats mercoStats) {
+        BasicHarvestable hv = hrv.getBasicHarvestable();
+        if (hv.getType() == HarvestableType.ICE) {
+            return hv.getVolume();
+        } else if (hv.getType() == HarvestableType.MERCOXIT) {
+            return mercoStats.getTurretYield();
+        } else {
+            return stats.getTurretYield();
+        }
+    }
+    
+    /**
+     * Returns the last mining moment, or, for cycle-accurate mining, 
+     * start of the current cycle.
+     * @return 
+     */
+    synchronized long getMinedAt() {
+        return minedAt;
+    }
+    
+    /**
+     * Returns the session, the turret belongs to.
+     * @return 
+     */
+    public MiningSession getSession() {
+        return session;
+    }
+    
+    /**
+     * Returns turret's yield per second on the bound asteroid, with the stats 
+     * of session's character. For cycle-accurate mining, it's averaged over the cycle.
+     * @return 0, if the turret isn't mining.
+     */
+    public synchronized float getBoundM3S() {
+        if (asteroid == AsteroidField.NONE) return 0;
+        ISessionCharacter chr = session.getSessionCharacter();
+        if (chr == null) return 0;
+        
+        return getM3S(harvestable, chr.getStats(), chr.getStatsMercoxit(), session.isCycleAccurate());
+    }
+    
+    /**
+     * Returns turret's yield per second on a given harvestable. 
+     * For cycle-accurate mining, it's averaged over the cycle.
+     * @param hrv
+     * @param stats stats for mining generic ore
+     * @param mercoStats stats for mining mercoxit
+     * @param cycleAccurate
+     * @return 
+     */
+    static float getM3S(IHarvestable hrv, ICalculatedStats stats, ICalculatedStats mercoStats, 
+            boolean cycleAccurate) {
+        if (cycleAccurate) {
+            long cycle = getCycleMillis(hrv, stats, mercoStats);
+            if (cycle <= 0) return 0;
+            return getCycleYield(hrv, stats, mercoStats) * 1000 / cycle;
+        } else {
+            return getM3S(hrv, stats, mercoStats);
+        }
+    }
+    
+    /**
+     * How many units the turret will have mined from the bound asteroid at some
+     * moment, counting from the last mining? Free space in the hold is not checked.
+     * @param at moment, in milliseconds.
+     * @return 
+     */
+    synchronized double getUnitsAt(double at) {
+        if (asteroid == AsteroidField.NONE) return 0;
+        
+        double m3 = 0;
+        ISessionCharacter chr = session.getSessionCharacter();
+        if (chr != null && at > minedAt) {
+            ICalculatedStats stats = chr.getStats();
+            ICalculatedStats mercoStats = chr.getStatsMercoxit();
+            if (session.isCycleAccurate()) {
+                long cycle = getCycleMillis(harvestable, stats, mercoStats);
+                if (cycle > 0) {
+                    m3 = Math.floor((at - minedAt) / cycle) * getCycleYield(harvestable, stats, mercoStats);
+                }
+            } else {
+                m3 = getM3S(harvestable, stats, mercoStats) * (at - minedAt) / 1000;
+            }
+        }
+        
+        return Math.floor((minedAmount + m3) / harvestable.getBasicHarvestable().getVolume());
+    }
+    
+    /**
+     * Returns the next moment after the given one, when the turret delivers 
+     * a full unit (or, for cycle-accurate mining, finishes the cycle).
+     * @param at moment, in milliseconds.
+     * @return Double.MAX_VALUE, if the turret isn't mining.
+     */
+    synchronized double getNextUnitAt(double at) {
+        if (asteroid == AsteroidField.NONE) return Double.MAX_VALUE;
+        ISessionCharacter chr = session.getSessionCharacter();
+        if (chr == null) return Double.MAX_VALUE;
+        
+        ICalculatedStats stats = chr.getStats();
+        ICalculatedStats mercoStats = chr.getStatsMercoxit();
+        
+        double next;
+        if (session.isCycleAccurate()) {
+            long cycle = getCycleMillis(harvestable, stats, mercoStats);
+            if (cycle <= 0) return Double.MAX_VALUE;
+            
+            double cycles = 0;
+            if (at >= minedAt) cycles = Math.floor((at - minedAt) / cycle);
+            next = minedAt + (cycles + 1) * cycle;
+        } else {
+            float m3s = getM3S(harvestable, stats, mercoStats);
+            if (m3s <= 0) return Double.MAX_VALUE;
+            
+            float unit = harvestable.getBasicHarvestable().getVolume();
+            next = minedAt + ((getUnitsAt(at) + 1) * unit - minedAmount) * 1000 / m3s;
+        }
+        
+        if (next <= at) next = Math.nextUp(at);
+        return next;
+    }
+    
+    /**
+     * Returns mined amount, that isn't enough for the full unit yet.
+     * @return 
+     */
+    synchronized float getMinedAmount() {
+        return minedAmount;
+    }
+    
+    /**
+     * Returns ID of the bound asteroid in the session's asteroid field.
+     * @return AsteroidField.NONE, if the turret isn't mining.
+     */
+    public synchronized int getAsteroidId() {
+        return asteroid;
+    }
+    
+    /**
+     * Returns harvestable of the bound asteroid.
+     * @return null, if the turret isn't mining.
+     */
+    public synchronized IHarvestable getHarvestable() {
+        return harvestable;
+    }
+    
     public synchronized void unbindAsteroid() {
-        if (asteroid == null) return;
-        asteroid.unbindTurret(this);
-        asteroid = null;
+        if (asteroid == AsteroidField.NONE) return;
+        field.unbindTurret(asteroid, this);
+        asteroid = AsteroidField.NONE;
+        field = null;
+        harvestable = null;
     }
     
-    public synchronized void bindAsteroid(Asteroid asteroid) {
-        if (asteroid == null || this.asteroid != null 
-                || asteroid.getRemainingUnits() == 0) return;
+    /**
+     * Binds the turret to an asteroid, starting the first cycle.
+     * @param field asteroid field of the turret's session.
+     * @param id ID of the asteroid in the field.
+     * @param now current moment, in milliseconds.
+     */
+    public synchronized void bindAsteroid(AsteroidField field, int id, long now) {
+        if (this.asteroid != AsteroidField.NONE) return;
+        
+        IHarvestable hrv = field.getHarvestable(id);
+        if (hrv == null || !field.bindTurret(id, this)) return;
         
-        asteroid.bindTurret(this);
-        this.asteroid = asteroid;
+        this.asteroid = id;
+        this.field = field;
+        this.harvestable = hrv;
+        minedAt = now;
     }
     
     public synchronized boolean isMining() {
-        return asteroid != null;
+        return asteroid != AsteroidField.NONE;
     }
     
     /**
-     * How many seconds remains to mine out bound asteroid?
-     * Takes into account all bound turrets, by the way.
-     * @param stats
-     * @return 
+     * How many ISK per hour does the turret make on the bound asteroid?
+     * Doesn't take trips to the station into account. For cycle-accurate 
+     * mining, yield is averaged over the cycle.
+     * @param values harvestable values.
+     * @param source how the harvestable is sold.
+     * @param price which prices to use.
+     * @param stats stats for mining generic ore
+     * @param mercoStats stats for mining mercoxit
+     * @return 0, if the turret isn't mining.
      */
-    public synchronized int getRemainingSeconds(ICalculatedStats stats) {
-        if (asteroid == null) return 0;
-        return asteroid.getRemainingSeconds(stats);
+    public synchronized float getISKPerHour(HarvestableValueTable values, 
+            HarvestableValueTable.ValueSource source, HarvestableValueTable.PriceType price, 
+            ICalculatedStats stats, ICalculatedStats mercoStats) {
+        if (asteroid == AsteroidField.NONE) return 0;
+        
+        float m3s = getM3S(harvestable, stats, mercoStats, session.isCycleAccurate());
+        
+        return values.getISKPerHour(harvestable, source, price, m3s * 3600);
     }
 }
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.monitor;
+
+import cy.alavrov.jminerguide.data.ICalculatedStats;
+import cy.alavrov.jminerguide.data.harvestable.BasicHarvestable;
+import cy.alavrov.jminerguide.data.harvestable.HarvestableType;
+import cy.alavrov.jminerguide.data.harvestable.IHarvestable;
+import cy.alavrov.jminerguide.data.price.HarvestableValueTable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binds free turrets of the sessions to asteroids of their fields.
+ * Turrets are assigned greedily, one at a time, to the asteroid giving the most
+ * ISK per second (or m3 per second, if there are no prices), counting in 
+ * turrets already mining the asteroid, including turrets of other sessions. 
+ * An asteroid, that would be mined out before the turret finishes its cycle, 
+ * counts only for the part of the cycle it lasts, so turrets spread over 
+ * asteroids instead of piling on a small one. Asteroids beyond the optimal 
+ * range are skipped.
+ * Scratch arrays are kept between the calls, so planning does not allocate,
+ * unless the field grows.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class TurretPlanner {
+    private final static int SESSION_TURRETS = MiningSession.TURRETS;
+    private final static HarvestableValueTable.ValueSource[] sources = HarvestableValueTable.ValueSource.values();
+    
+    // free turrets.
+    private TurretInstance[] turrets = new TurretInstance[SESSION_TURRETS];
+    private MiningSession[] turretSessions = new MiningSession[SESSION_TURRETS];
+    private ICalculatedStats[] turretStats = new ICalculatedStats[SESSION_TURRETS];
+    private ICalculatedStats[] turretMercoStats = new ICalculatedStats[SESSION_TURRETS];
+    private float[] turretCargo = new float[SESSION_TURRETS];
+    private boolean[] turretCycleAccurate = new boolean[SESSION_TURRETS];
+    private int[] assigned = new int[SESSION_TURRETS];
+    
+    // asteroids of the field.
+    private int[] roids = new int[16];
+    private IHarvestable[] roidTypes = new IHarvestable[16];
+    private int[] roidDistances = new int[16];
+    private int[] roidUnits = new int[16];
+    private long[] roidMasks = new long[16];
+    private float[] roidVolume = new float[16];
+    private float[] roidM3S = new float[16];
+    private float[] roidValue = new float[16];
+
+    /**
+     * Binds free turrets of the sessions to the asteroids.
+     * Sessions on the same asteroid field are planned together.
+     * Must not be called with session locks held, as several sessions are involved.
+     * @param sessions sessions to bind turrets of.
+     * @param values harvestable values, or null to maximize m3 per second.
+     * @param now current moment, in milliseconds.
+     * @return number of turrets bound.
+     */
+    public synchronized int assign(List<MiningSession> sessions, HarvestableValueTable values, long now) {
+        int bound = 0;
+        for (int i = 0; i < sessions.size(); i++) {
+            AsteroidField field = sessions.get(i).getAsteroidField();
+            
+            boolean seen = false;
+            for (int j = 0; j < i; j++) {
+                if (sessions.get(j).getAsteroidField() == field) seen = true;
+            }
+            if (seen) continue;
+            
+            bound = bound + assign(field, sessions, i, values, now);
+        }
+        
+        return bound;
+    }
+    
+    private int assign(AsteroidField field, List<MiningSession> sessions, int from, 
+            HarvestableValueTable values, long now) {
+        int turretCnt = 0;
+        for (int i = from; i < sessions.size(); i++) {
+            MiningSession session = sessions.get(i);
+            if (session.getAsteroidField() != field) continue;
+            
+            turretCnt = addFreeTurrets(session, turretCnt);
+        }
+        
+        int bound = 0;
+        if (turretCnt > 0) {
+            int roidCnt = addAsteroids(field, values);
+            bound = plan(turretCnt, roidCnt);
+            
+            for (int i = 0; i < turretCnt; i++) {
+                if (assigned[i] != AsteroidField.NONE) {
+                    turretSessions[i].bindTurret(turrets[i], assigned[i], now);
+                }
+            }
+        }
+        
+        Arrays.fill(turrets, 0, turretCnt, null);
+        Arrays.fill(turretSessions, 0, turretCnt, null);
+        Arrays.fill(turretStats, 0, turretCnt, null);
+        Arrays.fill(turretMercoStats, 0, turretCnt, null);
+        Arrays.fill(roidTypes, null);
+        
+        return bound;
+    }
+    
+    private int addFreeTurrets(MiningSession session, int turretCnt) {
+        ISessionCharacter chr = session.getSessionCharacter();
+        if (chr == null) return turretCnt;
+        
+        int count = chr.getTurretCount();
+        // the monitor can't handle more turrets.
+        if (count > SESSION_TURRETS) return turretCnt;
+        
+        float cargo = session.getRemainingCargo();
+        if (cargo <= 0) return turretCnt;
+        
+        ensureTurretCapacity(turretCnt + count);
+        for (int i = 0; i < count; i++) {
+            TurretInstance turret = i == 0 ? session.getTurret1() 
+                    : i == 1 ? session.getTurret2() : session.getTurret3();
+            if (turret.isMining()) continue;
+            
+            turrets[turretCnt] = turret;
+            turretSessions[turretCnt] = session;
+            turretStats[turretCnt] = chr.getStats();
+            turretMercoStats[turretCnt] = chr.getStatsMercoxit();
+            turretCargo[turretCnt] = cargo;
+            turretCycleAccurate[turretCnt] = session.isCycleAccurate();
+            assigned[turretCnt] = AsteroidField.NONE;
+            turretCnt++;
+        }
+        
+        return turretCnt;
+    }
+    
+    private int addAsteroids(AsteroidField field, HarvestableValueTable values) {
+        ensureAsteroidCapacity(field.size());
+        int roidCnt = field.copyRows(roids, roidTypes, roidDistances, roidUnits, roidMasks);
+        
+        boolean priced = false;
+        for (int i = 0; i < roidCnt; i++) {
+            // turrets lock themselves before the field, so they are asked after the copy.
+            float m3s = 0;
+            for (long bits = roidMasks[i]; bits != 0; bits = bits & (bits - 1)) {
+                TurretInstance turret = field.getTurret(Long.numberOfTrailingZeros(bits));
+                if (turret != null) m3s = m3s + turret.getBoundM3S();
+            }
+            
+            float value = 0;
+            if (values != null) {
+                for (HarvestableValueTable.ValueSource source : sources) {
+                    float sourceValue = values.getValuePerM3(roidTypes[i], source, 
+                            HarvestableValueTable.PriceType.SELL);
+                    if (sourceValue > value) value = sourceValue;
+                }
+            }
+            if (value > 0) priced = true;
+            
+            roidVolume[i] = roidUnits[i] * roidTypes[i].getBasicHarvestable().getVolume();
+            roidM3S[i] = m3s;
+            roidValue[i] = value;
+        }
+        
+        // without prices every m3 in the hold is as good as any other.
+        if (!priced) Arrays.fill(roidValue, 0, roidCnt, 1);
+        
+        return roidCnt;
+    }
+    
+    /**
+     * Assigns turrets to asteroids, best pair first.
+     * @param turretCnt
+     * @param roidCnt
+     * @return number of turrets assigned.
+     */
+    private int plan(int turretCnt, int roidCnt) {
+        int done = 0;
+        while (done < turretCnt) {
+            int bestTurret = -1;
+            int bestRoid = -1;
+            float bestScore = -1;
+            float bestLasts = 0;
+            float bestM3S = 0;
+            
+            for (int i = 0; i < turretCnt; i++) {
+                if (assigned[i] != AsteroidField.NONE) continue;
+                
+                for (int j = 0; j < roidCnt; j++) {
+                    if (roidUnits[j] <= 0) continue;
+                    
+                    IHarvestable roid = roidTypes[j];
+                    BasicHarvestable hv = roid.getBasicHarvestable();
+                    if (hv.getVolume() > turretCargo[i]) continue;
+                    
+                    ICalculatedStats stats = hv.getType() == HarvestableType.MERCOXIT 
+                            ? turretMercoStats[i] : turretStats[i];
+                    int optimal = stats.getOptimal();
+                    if (optimal > 0 && roidDistances[j] > optimal) continue;
+                    
+                    float m3s = TurretInstance.getM3S(roid, turretStats[i], turretMercoStats[i], 
+                            turretCycleAccurate[i]);
+                    if (m3s <= 0) continue;
+                    
+                    float lasts = roidVolume[j] / (roidM3S[j] + m3s);
+                    float cycle = TurretInstance.getCycleMillis(roid, turretStats[i], turretMercoStats[i]) / 1000f;
+                    float useful = cycle > lasts ? lasts / cycle : 1;
+                    float score = m3s * roidValue[j] * useful;
+                    
+                    // on a tie, the asteroid lasting longer means less rebinding.
+                    if (score > bestScore || (score == bestScore && lasts > bestLasts)) {
+                        bestTurret = i;
+                        bestRoid = j;
+                        bestScore = score;
+                        bestLasts = lasts;
+                        bestM3S = m3s;
+                    }
+                }
+            }
+            
+            if (bestTurret < 0) break;
+            
+            assigned[bestTurret] = roids[bestRoid];
+            roidM3S[bestRoid] = roidM3S[bestRoid] + bestM3S;
+            done++;
+        }
+        
+        return done;
+    }
+    
+    private void ensureTurretCapacity(int size) {
+        if (turrets.length >= size) return;
+        
+        int newSize = Math.max(size, turrets.length * 2);
+        turrets = Arrays.copyOf(turrets, newSize);
+        turretSessions = Arrays.copyOf(turretSessions, newSize);
+        turretStats = Arrays.copyOf(turretStats, newSize);
+        turretMercoStats = Arrays.copyOf(turretMercoStats, newSize);
+        turretCargo = Arrays.copyOf(turretCargo, newSize);
+        turretCycleAccurate = Arrays.copyOf(turretCycleAccurate, newSize);
+        assigned = Arrays.copyOf(assigned, newSize);
+    }
+    
+    private void ensureAsteroidCapacity(int size) {
+        if (roids.length >= size) return;
+        
+        int newSize = Math.max(size, roids.length * 2);
+        roids = new int[newSize];
+        roidTypes = new IHarvestable[newSize];
+        roidDistances = new int[newSize];
+        roidUnits = new int[newSize];
+        roidMasks = new long[newSize];
+        roidVolume = new float[newSize];
+        roidM3S = new float[newSize];
+        roidValue = new float[newSize];
+    }
+}
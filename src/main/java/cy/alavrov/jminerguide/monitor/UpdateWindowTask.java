@@ -25,37 +25,82 @@
  */
 package cy.alavrov.jminerguide.monitor;
 
-import cy.alavrov.jminerguide.forms.JAsteroidMonitorForm;
 import cy.alavrov.jminerguide.log.JMGLogger;
 
 /**
  * A task to update EVE window state.
+ * 
+ * The task runs every TICK milliseconds, but on most runs it only checks, 
+ * whether the foreground window has changed. Full updates of the windows go 
+ * right after a focus change, and then less and less often, while nothing 
+ * changes.
  * @author Andrey Lavrov <lavroff@gmail.com>
  */
 public class UpdateWindowTask implements Runnable{
+    /**
+     * How often the task should be run, in milliseconds.
+     */
+    public final static long TICK = 100;
+    // full updates back off to this, while nothing changes.
+    private final static long MAX_UPDATE_DELAY = 3200;
+    // the form has timeouts of it's own, so it's updated on every tick for a while after a change.
+    private final static long FORM_UPDATE_PERIOD = 1000;
+    
     private final MiningSessionMonitor msMonitor;
-    private final JAsteroidMonitorForm form;
+    private final IMonitorView form;
+    private final Runnable formUpdate;
+    
+    private long lastForeground = 0;
+    private long updateDelay = TICK;
+    private long nextUpdateAt = 0;
+    private long updateFormUntil = 0;
 
-    public UpdateWindowTask(MiningSessionMonitor msMonitor, JAsteroidMonitorForm form) {
+    public UpdateWindowTask(MiningSessionMonitor msMonitor, final IMonitorView form) {
         this.msMonitor = msMonitor;
         this.form = form;
+        this.formUpdate = new Runnable() {
+            @Override
+            public void run() {
+                form.updateCurrentSession();
+            }
+        };
     }
     
     
 
     @Override
     public void run() {
+        update(System.currentTimeMillis());
+    }
+    
+    /**
+     * Checks the foreground window and updates windows, if it's time to.
+     * @param now current moment, in milliseconds.
+     */
+    public void update(long now) {
+        boolean updated = false;
         try {
-            msMonitor.update();
+            long foreground = msMonitor.getForegroundWindowID();
+            boolean focusChanged = foreground != lastForeground;
+            lastForeground = foreground;
+            
+            if (focusChanged || now >= nextUpdateAt) {
+                updated = true;
+                if (msMonitor.update() || focusChanged) {
+                    updateDelay = TICK;
+                    updateFormUntil = now + FORM_UPDATE_PERIOD;
+                } else {
+                    updateDelay = Math.min(updateDelay * 2, MAX_UPDATE_DELAY);
+                }
+                nextUpdateAt = now + updateDelay;
+            }
         } catch (Exception e) {
             JMGLogger.logSevere("unable to peform monitor update", e);
         }
-        java.awt.EventQueue.invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                form.updateCurrentSession();
-            }
-        });
+        
+        if (updated || now <= updateFormUntil) {
+            java.awt.EventQueue.invokeLater(formUpdate);
+        }
     }
     
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.util;
+
+/**
+ * Formatting into char buffers, for painting without creating strings.
+ * All the methods return position in the buffer after the appended text,
+ * and silently cut the text at the end of the buffer.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class CharUtils {
+    /**
+     * Appends a character.
+     * @param buf
+     * @param pos
+     * @param chr
+     * @return 
+     */
+    public static int append(char[] buf, int pos, char chr) {
+        if (pos >= buf.length) return pos;
+        
+        buf[pos] = chr;
+        return pos + 1;
+    }
+    
+    /**
+     * Appends a string.
+     * @param buf
+     * @param pos
+     * @param str
+     * @return 
+     */
+    public static int append(char[] buf, int pos, String str) {
+        int len = Math.min(str.length(), buf.length - pos);
+        if (len <= 0) return pos;
+        
+        str.getChars(0, len, buf, pos);
+        return pos + len;
+    }
+    
+    /**
+     * Appends a number in decimal form.
+     * @param buf
+     * @param pos
+     * @param value
+     * @return 
+     */
+    public static int append(char[] buf, int pos, long value) {
+        if (value < 0) {
+            pos = append(buf, pos, '-');
+            if (value == Long.MIN_VALUE) return append(buf, pos, "9223372036854775808");
+            value = -value;
+        }
+        
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest = rest / 10) {
+            digits++;
+        }
+        
+        // digits go from the last one, the ones past the buffer are dropped.
+        for (int i = digits - 1; i >= 0; i--) {
+            if (pos + i < buf.length) buf[pos + i] = (char) ('0' + value % 10);
+            value = value / 10;
+        }
+        return Math.min(pos + digits, buf.length);
+    }
+    
+    /**
+     * Appends seconds as minutes and seconds, i.e. 12:05.
+     * @param buf
+     * @param pos
+     * @param seconds
+     * @return 
+     */
+    public static int appendMinutesAndSeconds(char[] buf, int pos, long seconds) {
+        pos = append(buf, pos, seconds / 60);
+        pos = append(buf, pos, ':');
+        
+        long secs = seconds % 60;
+        if (secs < 10) pos = append(buf, pos, '0');
+        return append(buf, pos, secs);
+    }
+}
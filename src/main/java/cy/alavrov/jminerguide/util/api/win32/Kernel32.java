@@ -42,4 +42,5 @@ public class Kernel32 {
     public static native int GetLastError();
     public static native Pointer OpenProcess(int dwDesiredAccess, boolean bInheritHandle, Pointer pointer);
     public static native Pointer GetCurrentProcessId();
+    public static native boolean CloseHandle(Pointer hObject);
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.util.winmanager;
+
+/**
+ * EVE Online window title conventions, same on every platform. 
+ * The title is "EVE" before login and "EVE - Character Name" after.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class EVEWindowTitle {
+    
+    /**
+     * Returns true, if the title belongs to an EVE Online window.
+     * @param title
+     * @return 
+     */
+    public static boolean isEVE(String title) {
+        return title != null && !title.isEmpty() && title.startsWith("EVE");
+    }
+    
+    /**
+     * Returns character name from the EVE Online window title, or null, if
+     * nobody is logged in yet.
+     * @param title
+     * @return 
+     */
+    public static String getCharacterName(String title) {
+        String[] parts = title.split("[-]", 2);
+        // if there is no character name on a title, we haven't logged in yet.
+        if (parts.length < 2) { 
+            return null;
+        } else {
+            return parts[1].trim();
+        }
+    }
+}
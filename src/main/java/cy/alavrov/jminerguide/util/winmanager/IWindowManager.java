@@ -45,6 +45,21 @@ public interface IWindowManager {
      */
     public List<IEVEWindow> getEVEWindowList();
     
+    /**
+     * Returns an ID of the foreground window, EVE's or not, 0 if none.
+     * Should be cheap, as it's checked way more often than windows are listed.
+     * @return 
+     */
+    public long getForegroundWindowID();
+    
+    /**
+     * Returns a number, that changes each time EVE windows, their titles or 
+     * the current window might have changed. Managers, that can't watch 
+     * windows, return a new number on every call.
+     * @return 
+     */
+    public long getChangeCount();
+    
     /**
      * Returns true, if the current window belongs to the asteroid monitor or a system task.
      * @return 
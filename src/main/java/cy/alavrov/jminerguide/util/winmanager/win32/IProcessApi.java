@@ -23,35 +23,32 @@
  * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
  * POSSIBILITY OF SUCH DAMAGE.
  */
-package cy.alavrov.jminerguide.monitor;
+package cy.alavrov.jminerguide.util.winmanager.win32;
 
 /**
- * Asteroid was mined out!
+ * Native calls, needed to find out process' executable name. 
+ * Handles and process IDs are passed as plain numbers, so the calls can be 
+ * faked on other platforms.
  * @author Andrey Lavrov <lavroff@gmail.com>
  */
-public class AsteroidMinedException extends Exception{
-    private final float minedm3;
-    private final TurretInstance turret;
-
-    public AsteroidMinedException(float minedm3, TurretInstance turret) {
-        super();
-        this.minedm3 = minedm3;
-        this.turret = turret;
-    }
-
+public interface IProcessApi {
     /**
-     * How many m3 of ore was mined at the moment the asteroid was mined out?
-     * @return 
+     * Opens the process for querying.
+     * @param pid process ID.
+     * @return process handle, or 0, if the process can't be opened.
      */
-    public float getMinedM3() {
-        return minedm3;
-    }        
-
+    public long openProcess(long pid);
+    
     /**
-     * What turret was the culprit?
+     * Returns executable name of the opened process, or null, if it's unknown.
+     * @param process process handle.
      * @return 
      */
-    public TurretInstance getTurret() {
-        return turret;
-    }        
+    public String getModuleBaseName(long process);
+    
+    /**
+     * Closes the process handle.
+     * @param process 
+     */
+    public void closeHandle(long process);
 }
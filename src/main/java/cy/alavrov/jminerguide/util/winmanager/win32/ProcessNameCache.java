@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.util.winmanager.win32;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Executable names of processes, by process ID.
+ * 
+ * Each name is resolved once, and the process handle is closed right away. 
+ * Processes, that can't be queried (or not yet, like a client that is still 
+ * starting up), are tried again after a short delay, so they aren't queried 
+ * on every window update, but aren't missed for good either. Process IDs get 
+ * reused, so names of processes without windows should be dropped with 
+ * retainAll(), and the cache is bounded, least recently used names go first.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class ProcessNameCache {
+    public final static int DEFAULT_SIZE = 64;
+    /**
+     * Failed lookups are retried after this many milliseconds.
+     */
+    public final static long RETRY_DELAY = 1000;
+    
+    private final IProcessApi api;
+    private final LinkedHashMap<Long, String> names;
+    // failed process IDs, to the moment they can be tried again.
+    private final HashMap<Long, Long> retryAt = new HashMap<>();
+    private int misses = 0;
+
+    public ProcessNameCache(IProcessApi api) {
+        this(api, DEFAULT_SIZE);
+    }
+    
+    public ProcessNameCache(IProcessApi api, final int maxSize) {
+        this.api = api;
+        this.names = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+    
+    /**
+     * Returns executable name of the process, converted to lowercase, or null, 
+     * if it can't be found out.
+     * @param pid process ID.
+     * @return 
+     */
+    public synchronized String getExeName(long pid) {
+        return getExeName(pid, System.currentTimeMillis());
+    }
+    
+    /**
+     * Returns executable name of the process, converted to lowercase, or null, 
+     * if it can't be found out.
+     * @param pid process ID.
+     * @param now current moment, in milliseconds.
+     * @return 
+     */
+    public synchronized String getExeName(long pid, long now) {
+        String name = names.get(pid);
+        if (name != null) return name;
+        
+        Long failedUntil = retryAt.get(pid);
+        if (failedUntil != null && now < failedUntil) return null;
+        
+        misses++;
+        name = resolve(pid);
+        if (name == null) {
+            retryAt.put(pid, now + RETRY_DELAY);
+        } else {
+            retryAt.remove(pid);
+            names.put(pid, name);
+        }
+        
+        return name;
+    }
+    
+    private String resolve(long pid) {
+        long process = api.openProcess(pid);
+        if (process == 0) return null;
+        
+        try {
+            String name = api.getModuleBaseName(process);
+            if (name == null || name.isEmpty()) return null;
+            
+            return name.toLowerCase(Locale.ENGLISH);
+        } finally {
+            api.closeHandle(process);
+        }
+    }
+    
+    /**
+     * Drops names of all the processes, except the given ones.
+     * @param pids process IDs, that still have windows.
+     */
+    public synchronized void retainAll(Set<Long> pids) {
+        names.keySet().retainAll(pids);
+        retryAt.keySet().retainAll(pids);
+    }
+    
+    /**
+     * Drops the name of the process.
+     * @param pid 
+     */
+    public synchronized void invalidate(long pid) {
+        names.remove(pid);
+        retryAt.remove(pid);
+    }
+    
+    /**
+     * Returns number of names cached.
+     * @return 
+     */
+    public synchronized int size() {
+        return names.size();
+    }
+    
+    /**
+     * Returns, how many times a name had to be resolved.
+     * @return 
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.util.winmanager.win32;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import cy.alavrov.jminerguide.util.api.win32.Kernel32;
+import cy.alavrov.jminerguide.util.api.win32.Psapi;
+import cy.alavrov.jminerguide.util.api.win32.Shell32;
+
+/**
+ * Process API, backed by kernel32 and psapi.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class Win32ProcessApi implements IProcessApi {
+
+    @Override
+    public long openProcess(long pid) {
+        Pointer process = Kernel32.OpenProcess(Kernel32.PROCESS_QUERY_INFORMATION | Kernel32.PROCESS_VM_READ, 
+                false, new Pointer(pid));
+        return process == null ? 0 : Pointer.nativeValue(process);
+    }
+
+    @Override
+    public String getModuleBaseName(long process) {
+        char[] buffer = new char[Shell32.MAX_PATH];
+        int res = Psapi.GetModuleBaseNameW(new Pointer(process), null, buffer, buffer.length);
+        if (res == 0) return null;
+        
+        return Native.toString(buffer);
+    }
+
+    @Override
+    public void closeHandle(long process) {
+        Kernel32.CloseHandle(new Pointer(process));
+    }
+}
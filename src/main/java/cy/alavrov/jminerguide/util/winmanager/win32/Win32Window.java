@@ -28,6 +28,7 @@ package cy.alavrov.jminerguide.util.winmanager.win32;
 import com.sun.jna.Native;
 import com.sun.jna.platform.win32.WinDef.HWND;
 import cy.alavrov.jminerguide.util.api.win32.User32;
+import cy.alavrov.jminerguide.util.winmanager.EVEWindowTitle;
 import cy.alavrov.jminerguide.util.winmanager.IEVEWindow;
 
 /**
@@ -69,20 +70,14 @@ public class Win32Window implements IEVEWindow {
             name = null;
         } else {
             String curTitle = Native.toString(buffer);
-            if (curTitle == null || curTitle.isEmpty() || !curTitle.startsWith("EVE")) {
+            if (!EVEWindowTitle.isEVE(curTitle)) {
                 // something went wrong, let's flag an error
                 exists = false;
                 name = null;
             } else {
                 // ok, that's EVE Online window.
                 exists = true;
-                String[] parts = curTitle.split("[-]", 2);
-                // if there is no character name on a title, we haven't logged in yet.
-                if (parts.length < 2) { 
-                    name = null;
-                } else {
-                    name = parts[1].trim();
-                }
+                name = EVEWindowTitle.getCharacterName(curTitle);
             }
         }
     }
@@ -30,24 +30,40 @@ import com.sun.jna.Pointer;
 import com.sun.jna.platform.win32.WinDef.HWND;
 import com.sun.jna.ptr.PointerByReference;
 import cy.alavrov.jminerguide.util.api.win32.Kernel32;
-import cy.alavrov.jminerguide.util.api.win32.Psapi;
 import cy.alavrov.jminerguide.util.api.win32.User32;
 import cy.alavrov.jminerguide.util.winmanager.IEVEWindow;
 import cy.alavrov.jminerguide.util.winmanager.IWindowManager;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Windows32 window manager implementation.
  * @author Andrey Lavrov <lavroff@gmail.com>
  */
 public class Win32WindowManager implements IWindowManager {
+    /**
+     * Length of window title buffers.
+     */
+    private final static int TITLE_LENGTH = 1024;
+    
+    private final AtomicLong changes = new AtomicLong();
+    private final ProcessNameCache processNames;
 
+    public Win32WindowManager() {
+        this(new Win32ProcessApi());
+    }
+    
+    public Win32WindowManager(IProcessApi processApi) {
+        this.processNames = new ProcessNameCache(processApi);
+    }
 
     @Override
     public IEVEWindow getCurrentEVEWindow() {
         HWND handle = User32.GetForegroundWindow();
-        if (isDesiredWindow(handle, "EVE", "exefile.exe")) {
+        if (isDesiredWindow(handle, "EVE", "exefile.exe", new char[TITLE_LENGTH])) {
             return new Win32Window(handle);
         }
         
@@ -57,11 +73,15 @@ public class Win32WindowManager implements IWindowManager {
     @Override
     public List<IEVEWindow> getEVEWindowList() {
         final List<IEVEWindow> out = new ArrayList<>();
+        final Set<Long> pids = new HashSet<>();
+        // one buffer for the whole enumeration.
+        final char[] buffer = new char[TITLE_LENGTH];
         
         User32.EnumWindows(new User32.WndEnumProc() {
             @Override
             public boolean callback(HWND hWnd, int lParam) {
-                if (isDesiredWindow(hWnd, "EVE", "exefile.exe")) {
+                pids.add(getProcessId(hWnd));
+                if (isDesiredWindow(hWnd, "EVE", "exefile.exe", buffer)) {
                     out.add(new Win32Window(hWnd));
                 }
                 
@@ -69,6 +89,9 @@ public class Win32WindowManager implements IWindowManager {
             }
         }, 0);
         
+        // processes without windows are gone, or soon will be, and their IDs may be reused.
+        processNames.retainAll(pids);
+        
         return out;
     }
     
@@ -80,43 +103,60 @@ public class Win32WindowManager implements IWindowManager {
      * @param handle handle to the window
      * @param titleStartsWith window's title should start with this
      * @param exename executable name, *converted to lowercase*, should be exactly this
+     * @param buffer buffer for the window title.
      * @return 
      */
-    private boolean isDesiredWindow(HWND handle, String titleStartsWith, String exename) {
+    private boolean isDesiredWindow(HWND handle, String titleStartsWith, String exename, char[] buffer) {
         if (handle != null) {
-            char[] buffer = new char[1024];
-            int res = User32.GetWindowTextW(handle, buffer, buffer.length);
-            String curTitle = Native.toString(buffer);
-            if (res != 0 && !curTitle.isEmpty() && curTitle.startsWith(titleStartsWith)) {                
-                PointerByReference pointer = new PointerByReference();
-                User32.GetWindowThreadProcessId(handle, pointer);
-                Pointer process = Kernel32.OpenProcess(Kernel32.PROCESS_QUERY_INFORMATION | Kernel32.PROCESS_VM_READ, false, pointer.getValue());
-                
-                res = Psapi.GetModuleBaseNameW(process, null, buffer, 1024);
-                if (res != 0) {
-                    String exeName = Native.toString(buffer);           
-                    return exeName.toLowerCase().equals(exename);                                              
-                }
+            String curTitle = getTitle(handle, buffer);
+            if (!curTitle.isEmpty() && curTitle.startsWith(titleStartsWith)) {                
+                String exeName = processNames.getExeName(getProcessId(handle));
+                return exename.equals(exeName);
             }
         }
         
         return false;
     }       
     
+    /**
+     * Returns title of the window, or an empty string, if it has none.
+     * @param handle
+     * @param buffer buffer to read the title into, may be reused between calls.
+     * @return 
+     */
+    private String getTitle(HWND handle, char[] buffer) {
+        // a failed call may leave the previous title in the buffer.
+        buffer[0] = 0;
+        User32.GetWindowTextW(handle, buffer, buffer.length);
+        return Native.toString(buffer);
+    }
+    
+    /**
+     * Returns ID of the process, that owns the window.
+     * @param handle
+     * @return 
+     */
+    private long getProcessId(HWND handle) {
+        PointerByReference pointer = new PointerByReference();
+        User32.GetWindowThreadProcessId(handle, pointer);
+        Pointer pid = pointer.getValue();
+        // it's a DWORD, really.
+        return pid == null ? 0 : Pointer.nativeValue(pid) & 0xFFFFFFFFL;
+    }
+    
     /**
      * Returns true, if the window handle belongs to the executable with a given pid, and
      * window's title starts with the given string.
      * @param handle handle to the window
      * @param titleStartsWith window's title should start with this
      * @param pid process's id
+     * @param buffer buffer for the window title.
      * @return 
      */
-    private boolean isDesiredWindow(HWND handle, String titleStartsWith, Pointer pid) {
+    private boolean isDesiredWindow(HWND handle, String titleStartsWith, Pointer pid, char[] buffer) {
         if (handle != null) {
-            char[] buffer = new char[1024];
-            int res = User32.GetWindowTextW(handle, buffer, buffer.length);
-            String curTitle = Native.toString(buffer);
-            if (res != 0 && !curTitle.isEmpty() && curTitle.startsWith(titleStartsWith)) {                
+            String curTitle = getTitle(handle, buffer);
+            if (!curTitle.isEmpty() && curTitle.startsWith(titleStartsWith)) {                
                 PointerByReference pointer = new PointerByReference();
                 User32.GetWindowThreadProcessId(handle, pointer);
                 return (pointer.getValue().equals(pid));
@@ -130,34 +170,39 @@ public class Win32WindowManager implements IWindowManager {
      * Returns true, if the window handle belongs to the system process.
      * Basically, we're catching task switching and taskbar mouseovers here.     
      * @param handle handle to the window
+     * @param buffer buffer for the window title.
      * @return 
      */
-    private boolean isSystemWindow(HWND handle) {
+    private boolean isSystemWindow(HWND handle, char[] buffer) {
         if (handle != null) {
-            char[] buffer = new char[1024];
-            User32.GetWindowTextW(handle, buffer, buffer.length);
-            String curTitle = Native.toString(buffer);
+            String curTitle = getTitle(handle, buffer);
             if (curTitle.isEmpty() ||  curTitle.startsWith("Task Switching")) {                
-                PointerByReference pointer = new PointerByReference();
-                User32.GetWindowThreadProcessId(handle, pointer);
-                Pointer process = Kernel32.OpenProcess(Kernel32.PROCESS_QUERY_INFORMATION | Kernel32.PROCESS_VM_READ, false, pointer.getValue());
-                
-                int res = Psapi.GetModuleBaseNameW(process, null, buffer, 1024);
-                if (res != 0) {
-                    String exeName = Native.toString(buffer);           
-                    return exeName.toLowerCase().equals("explorer.exe");                                              
-                }
+                String exeName = processNames.getExeName(getProcessId(handle));
+                return "explorer.exe".equals(exeName);
             }
         }
         
         return false;
     }
 
+    @Override
+    public long getForegroundWindowID() {
+        HWND handle = User32.GetForegroundWindow();
+        return handle == null ? 0 : Pointer.nativeValue(handle.getPointer());
+    }
+
+    @Override
+    public long getChangeCount() {
+        // titles are read on every update, there are no change notifications.
+        return changes.incrementAndGet();
+    }
+
     @Override
     public boolean isMonitorOrSystemWindow() {
         HWND handle = User32.GetForegroundWindow();        
         final Pointer pid = Kernel32.GetCurrentProcessId();
-        return isDesiredWindow(handle, "", pid) || isSystemWindow(handle);
+        char[] buffer = new char[TITLE_LENGTH];
+        return isDesiredWindow(handle, "", pid, buffer) || isSystemWindow(handle, buffer);
     }
 
     @Override
@@ -176,11 +221,13 @@ public class Win32WindowManager implements IWindowManager {
         final Pointer pid = Kernel32.GetCurrentProcessId();
         
         final List<HWND> out = new ArrayList<>();
+        // one buffer for the whole enumeration.
+        final char[] buffer = new char[TITLE_LENGTH];
         
         User32.EnumWindows(new User32.WndEnumProc() {
             @Override
             public boolean callback(HWND hWnd, int lParam) {
-                if (isDesiredWindow(hWnd, "Asteroid Monitor", pid)) {
+                if (isDesiredWindow(hWnd, "Asteroid Monitor", pid, buffer)) {
                     out.add(hWnd);
                 }
                 
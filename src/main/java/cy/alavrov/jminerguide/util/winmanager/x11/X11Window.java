@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.util.winmanager.x11;
+
+import cy.alavrov.jminerguide.util.winmanager.EVEWindowTitle;
+import cy.alavrov.jminerguide.util.winmanager.IEVEWindow;
+
+/**
+ * EVE Online window, running under Wine on X11. 
+ * Title and existence are kept up to date by the window manager, that watches 
+ * property changes of the window.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class X11Window implements IEVEWindow {
+    private final X11WindowManager manager;
+    private final long window;
+    // window's class is the one of EVE client.
+    private final boolean client;
+    // process ID from _NET_WM_PID, 0 if unknown.
+    private final long pid;
+    private volatile String title = null;
+    private volatile boolean exists = true;
+    // set, when the title has changed and should be read again.
+    private boolean titleDirty = true;
+
+    X11Window(X11WindowManager manager, long window, boolean client, long pid) {
+        this.manager = manager;
+        this.window = window;
+        this.client = client;
+        this.pid = pid;
+    }
+    
+    /**
+     * Returns X11 window ID.
+     * @return 
+     */
+    public long getWindowID() {
+        return window;
+    }
+    
+    long getPid() {
+        return pid;
+    }
+    
+    String getTitle() {
+        return title;
+    }
+    
+    void setTitle(String title) {
+        this.title = title;
+        titleDirty = false;
+    }
+    
+    boolean isTitleDirty() {
+        return titleDirty;
+    }
+    
+    void markTitleDirty() {
+        titleDirty = true;
+    }
+    
+    void markGone() {
+        exists = false;
+    }
+    
+    /**
+     * Returns true, if the window is listed by the window manager, belongs
+     * to EVE client and has EVE's title.
+     * @return 
+     */
+    boolean isEVE() {
+        return exists && client && EVEWindowTitle.isEVE(title);
+    }
+
+    @Override
+    public String getCharacterName() {
+        String curTitle = title;
+        if (!EVEWindowTitle.isEVE(curTitle)) return null;
+        
+        return EVEWindowTitle.getCharacterName(curTitle);
+    }
+
+    @Override
+    public void makeActive() {
+        manager.activate(window);
+    }
+
+    @Override
+    public void update() {
+        manager.processEvents();
+    }
+
+    @Override
+    public boolean exists() {
+        return isEVE();
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || !(o instanceof X11Window)) return false;
+        X11Window other = (X11Window) o;
+        return window == other.window;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (window ^ (window >>> 32));
+    }
+}
@@ -0,0 +1,508 @@
+/*
+ * Copyright (c) 2015, Andrey Lavrov <lavroff@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cy.alavrov.jminerguide.util.winmanager.x11;
+
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.unix.X11;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.NativeLongByReference;
+import com.sun.jna.ptr.PointerByReference;
+import cy.alavrov.jminerguide.log.JMGLogger;
+import cy.alavrov.jminerguide.util.winmanager.IEVEWindow;
+import cy.alavrov.jminerguide.util.winmanager.IWindowManager;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * X11 window manager implementation, for EVE Online running under Wine or Proton.
+ * 
+ * Uses it's own connection to the X server and EWMH properties of the root 
+ * window: _NET_CLIENT_LIST for the windows and _NET_ACTIVE_WINDOW for the 
+ * current one. Instead of reading titles again and again, it listens for 
+ * PropertyNotify events of the root and client windows, and reads only 
+ * what has changed. Events are processed, whenever the manager is asked about
+ * windows, so there's no thread of it's own.
+ * 
+ * Works with any X server and EWMH-compliant window manager, including Xvfb 
+ * with a window manager on top, if the display name is given explicitly.
+ * @author Andrey Lavrov <lavroff@gmail.com>
+ */
+public class X11WindowManager implements IWindowManager {
+    // WM_CLASS of EVE client under Wine and under Steam's Proton.
+    private final static String[] CLIENT_CLASSES = {"exefile.exe", "steam_app_8500"};
+    private final static String MONITOR_TITLE = "Asteroid Monitor";
+    // in 32-bit units.
+    private final static long MAX_PROPERTY_LENGTH = 4096;
+    // client messages come from a pager, so window managers won't consider 
+    // them focus stealing.
+    private final static int SOURCE_PAGER = 2;
+    private final static int ICONIC_STATE = 3;
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+    private final static Charset LATIN1 = Charset.forName("ISO-8859-1");
+    
+    // displays opened by managers, errors on them are expected and ignored.
+    private final static Set<Pointer> ownDisplays = new CopyOnWriteArraySet<>();
+    private static X11.XErrorHandler previousHandler = null;
+    private static X11.XErrorHandler errorHandler = null;
+    
+    private final X11 x;
+    private final X11.Display display;
+    private final X11.Window root;
+    private final long ownPid;
+    private final X11.Atom netClientList;
+    private final X11.Atom netActiveWindow;
+    private final X11.Atom netWmName;
+    private final X11.Atom netWmPid;
+    private final X11.Atom utf8String;
+    private final X11.Atom wmChangeState;
+    private final X11.XEvent event = new X11.XEvent();
+    
+    // all of the client windows, by ID.
+    private final Map<Long, X11Window> windows = new HashMap<>();
+    private List<IEVEWindow> eveWindows = Collections.emptyList();
+    private long activeWindow = X11.None;
+    private long changes = 0;
+    private boolean closed = false;
+
+    private X11WindowManager(X11 x, X11.Display display) {
+        this.x = x;
+        this.display = display;
+        root = x.XDefaultRootWindow(display);
+        ownPid = getOwnPid();
+        
+        netClientList = x.XInternAtom(display, "_NET_CLIENT_LIST", false);
+        netActiveWindow = x.XInternAtom(display, "_NET_ACTIVE_WINDOW", false);
+        netWmName = x.XInternAtom(display, "_NET_WM_NAME", false);
+        netWmPid = x.XInternAtom(display, "_NET_WM_PID", false);
+        utf8String = x.XInternAtom(display, "UTF8_STRING", false);
+        wmChangeState = x.XInternAtom(display, "WM_CHANGE_STATE", false);
+    }
+    
+    /**
+     * Connects to the X server and starts watching windows.
+     * @param displayName name of the display, like ":0", or null to use
+     * DISPLAY environment variable.
+     * @return window manager, or null, if there is no X server or Xlib.
+     */
+    public static X11WindowManager open(String displayName) {
+        X11 x;
+        X11.Display display;
+        try {
+            x = X11.INSTANCE;
+            display = x.XOpenDisplay(displayName);
+        } catch (LinkageError e) {
+            JMGLogger.logWarning("Unable to load Xlib", e);
+            return null;
+        }
+        
+        if (display == null) {
+            JMGLogger.logWarning("Unable to open X display "+(displayName == null ? System.getenv("DISPLAY") : displayName));
+            return null;
+        }
+        
+        installErrorHandler(x);
+        ownDisplays.add(display.getPointer());
+        
+        X11WindowManager out = new X11WindowManager(x, display);
+        out.start();
+        return out;
+    }
+    
+    /**
+     * Installs an error handler, that ignores errors on manager's displays 
+     * and passes everything else to the previous handler.
+     * Windows may be destroyed at any moment, so BadWindow errors are normal
+     * here, but the default handler would terminate the application on them.
+     * @param x 
+     */
+    private static synchronized void installErrorHandler(X11 x) {
+        if (errorHandler != null) return;
+        
+        errorHandler = new X11.XErrorHandler() {
+            @Override
+            public int apply(X11.Display display, X11.XErrorEvent errorEvent) {
+                if (display != null && ownDisplays.contains(display.getPointer())) return 0;
+                
+                X11.XErrorHandler previous = previousHandler;
+                return previous == null ? 0 : previous.apply(display, errorEvent);
+            }
+        };
+        previousHandler = x.XSetErrorHandler(errorHandler);
+    }
+    
+    private static long getOwnPid() {
+        // "pid@host" on all the JVMs that matter.
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        try {
+            return Long.parseLong(name.substring(0, name.indexOf('@')));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+    
+    private synchronized void start() {
+        x.XSelectInput(display, root, new NativeLong(X11.PropertyChangeMask));
+        updateClientList();
+        activeWindow = getWindowProperty(root, netActiveWindow);
+        updateEVEWindows();
+        x.XFlush(display);
+    }
+    
+    /**
+     * Disconnects from the X server. The manager can't be used after that.
+     */
+    public synchronized void close() {
+        if (closed) return;
+        
+        closed = true;
+        for (X11Window window : windows.values()) {
+            window.markGone();
+        }
+        windows.clear();
+        eveWindows = Collections.emptyList();
+        x.XCloseDisplay(display);
+        ownDisplays.remove(display.getPointer());
+    }
+    
+    /**
+     * Reads all the events, that came from the X server since the last time,
+     * and updates windows, that have changed.
+     */
+    synchronized void processEvents() {
+        if (closed) return;
+        
+        boolean listChanged = false;
+        boolean titlesChanged = false;
+        boolean activeChanged = false;
+        
+        long rootID = root.longValue();
+        while (x.XPending(display) > 0) {
+            x.XNextEvent(display, event);
+            if (event.type != X11.PropertyNotify) continue;
+            
+            X11.XPropertyEvent propEvent = (X11.XPropertyEvent) event.getTypedValue(X11.XPropertyEvent.class);
+            long window = propEvent.window.longValue();
+            long atom = propEvent.atom.longValue();
+            if (window == rootID) {
+                if (atom == netClientList.longValue()) {
+                    listChanged = true;
+                } else if (atom == netActiveWindow.longValue()) {
+                    activeChanged = true;
+                }
+            } else if (atom == netWmName.longValue() || atom == X11.XA_WM_NAME.longValue()) {
+                X11Window changed = windows.get(window);
+                if (changed != null) {
+                    changed.markTitleDirty();
+                    titlesChanged = true;
+                }
+            }
+        }
+        
+        if (listChanged) {
+            updateClientList();
+        }
+        
+        if (titlesChanged) {
+            for (X11Window window : windows.values()) {
+                if (window.isTitleDirty()) window.setTitle(getTitle(window.getWindowID()));
+            }
+        }
+        
+        if (activeChanged) {
+            activeWindow = getWindowProperty(root, netActiveWindow);
+        }
+        
+        if (listChanged || titlesChanged || activeChanged) {
+            updateEVEWindows();
+        }
+    }
+    
+    /**
+     * Syncs known windows with _NET_CLIENT_LIST. New windows are watched for
+     * title changes, and their titles are read.
+     */
+    private void updateClientList() {
+        long[] clients = getWindowListProperty(root, netClientList);
+        Set<Long> listed = new HashSet<>();
+        for (long id : clients) {
+            listed.add(id);
+            if (windows.containsKey(id)) continue;
+            
+            X11.Window window = new X11.Window(id);
+            // watching first, so a title set right after reading it won't be missed.
+            x.XSelectInput(display, window, new NativeLong(X11.PropertyChangeMask));
+            X11Window newWindow = new X11Window(this, id, isClientClass(window), 
+                    getCardinalProperty(window, netWmPid));
+            newWindow.setTitle(getTitle(id));
+            windows.put(id, newWindow);
+        }
+        
+        Iterator<X11Window> iter = windows.values().iterator();
+        while (iter.hasNext()) {
+            X11Window window = iter.next();
+            if (!listed.contains(window.getWindowID())) {
+                window.markGone();
+                iter.remove();
+            }
+        }
+    }
+    
+    private void updateEVEWindows() {
+        List<IEVEWindow> out = new ArrayList<>();
+        for (X11Window window : windows.values()) {
+            if (window.isEVE()) out.add(window);
+        }
+        eveWindows = Collections.unmodifiableList(out);
+        changes++;
+    }
+    
+    private boolean isClientClass(X11.Window window) {
+        // WM_CLASS is two strings, instance name and class name.
+        byte[] wmClass = getProperty(window, X11.XA_WM_CLASS, X11.XA_STRING, 8);
+        if (wmClass == null) return false;
+        
+        String[] names = new String(wmClass, LATIN1).split("\0");
+        for (String name : names) {
+            String lcName = name.toLowerCase();
+            for (String clientClass : CLIENT_CLASSES) {
+                if (clientClass.equals(lcName)) return true;
+            }
+        }
+        return false;
+    }
+    
+    private String getTitle(long id) {
+        X11.Window window = new X11.Window(id);
+        byte[] title = getProperty(window, netWmName, utf8String, 8);
+        if (title != null) return new String(title, UTF8);
+        
+        // old-style title, EVE's one is plain ASCII anyway.
+        title = getProperty(window, X11.XA_WM_NAME, new X11.Atom(X11.AnyPropertyType), 8);
+        if (title != null) return new String(title, LATIN1);
+        
+        return null;
+    }
+    
+    private long getWindowProperty(X11.Window window, X11.Atom property) {
+        long[] values = getWindowListProperty(window, property);
+        return values.length == 0 ? X11.None : values[0];
+    }
+    
+    private long[] getWindowListProperty(X11.Window window, X11.Atom property) {
+        return getLongProperty(window, property, X11.XA_WINDOW);
+    }
+    
+    private long getCardinalProperty(X11.Window window, X11.Atom property) {
+        long[] values = getLongProperty(window, property, X11.XA_CARDINAL);
+        return values.length == 0 ? 0 : values[0];
+    }
+    
+    /**
+     * Returns 32-bit property values, or an empty array, if there is no such 
+     * property or the window.
+     * @param window
+     * @param property
+     * @param type
+     * @return 
+     */
+    private long[] getLongProperty(X11.Window window, X11.Atom property, X11.Atom type) {
+        PropertyData data = readProperty(window, property, type, 32);
+        if (data == null) return new long[0];
+        
+        try {
+            // 32-bit format is returned as an array of C longs.
+            long[] out = new long[data.items];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = data.pointer.getNativeLong((long) i * NativeLong.SIZE).longValue() & 0xFFFFFFFFL;
+            }
+            return out;
+        } finally {
+            x.XFree(data.pointer);
+        }
+    }
+    
+    /**
+     * Returns 8-bit property bytes, or null, if there is no such property or the window.
+     * @param window
+     * @param property
+     * @param type
+     * @param format
+     * @return 
+     */
+    private byte[] getProperty(X11.Window window, X11.Atom property, X11.Atom type, int format) {
+        PropertyData data = readProperty(window, property, type, format);
+        if (data == null) return null;
+        
+        try {
+            return data.pointer.getByteArray(0, data.items);
+        } finally {
+            x.XFree(data.pointer);
+        }
+    }
+    
+    private PropertyData readProperty(X11.Window window, X11.Atom property, X11.Atom type, int format) {
+        X11.AtomByReference actualType = new X11.AtomByReference();
+        IntByReference actualFormat = new IntByReference();
+        NativeLongByReference items = new NativeLongByReference();
+        NativeLongByReference bytesAfter = new NativeLongByReference();
+        PointerByReference data = new PointerByReference();
+        
+        int res = x.XGetWindowProperty(display, window, property, new NativeLong(0), 
+                new NativeLong(MAX_PROPERTY_LENGTH), false, type, actualType, actualFormat, 
+                items, bytesAfter, data);
+        Pointer pointer = data.getValue();
+        if (res != X11.Success || pointer == null) return null;
+        
+        if (actualFormat.getValue() != format || items.getValue().intValue() == 0) {
+            x.XFree(pointer);
+            return null;
+        }
+        
+        return new PropertyData(pointer, items.getValue().intValue());
+    }
+    
+    /**
+     * Sends a client message about the window to the root window, as EWMH wants.
+     * @param window
+     * @param type
+     * @param data 
+     */
+    private void sendMessage(long window, X11.Atom type, long... data) {
+        X11.XClientMessageEvent message = new X11.XClientMessageEvent();
+        message.type = X11.ClientMessage;
+        message.window = new X11.Window(window);
+        message.message_type = type;
+        message.format = 32;
+        message.data.setType(NativeLong[].class);
+        for (int i = 0; i < message.data.l.length; i++) {
+            message.data.l[i] = new NativeLong(i < data.length ? data[i] : 0);
+        }
+        
+        X11.XEvent out = new X11.XEvent();
+        out.setTypedValue(message);
+        x.XSendEvent(display, root, 0, 
+                new NativeLong(X11.SubstructureRedirectMask | X11.SubstructureNotifyMask), out);
+        x.XFlush(display);
+    }
+    
+    /**
+     * Asks the window manager to activate the window.
+     * @param window 
+     */
+    synchronized void activate(long window) {
+        if (closed) return;
+        
+        sendMessage(window, netActiveWindow, SOURCE_PAGER, X11.CurrentTime, 0);
+    }
+    
+    private X11Window getMonitorWindow() {
+        for (X11Window window : windows.values()) {
+            String title = window.getTitle();
+            if (window.getPid() == ownPid && title != null && title.startsWith(MONITOR_TITLE)) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized IEVEWindow getCurrentEVEWindow() {
+        processEvents();
+        
+        X11Window window = windows.get(activeWindow);
+        if (window != null && window.isEVE()) return window;
+        
+        return null;
+    }
+
+    @Override
+    public synchronized List<IEVEWindow> getEVEWindowList() {
+        processEvents();
+        
+        return eveWindows;
+    }
+
+    @Override
+    public synchronized long getForegroundWindowID() {
+        processEvents();
+        
+        return activeWindow;
+    }
+
+    @Override
+    public synchronized long getChangeCount() {
+        processEvents();
+        
+        return changes;
+    }
+
+    @Override
+    public synchronized boolean isMonitorOrSystemWindow() {
+        processEvents();
+        
+        // no active window means desktop, or window switching in progress.
+        if (activeWindow == X11.None) return true;
+        
+        X11Window window = windows.get(activeWindow);
+        return window != null && window.getPid() == ownPid;
+    }
+
+    @Override
+    public synchronized void minimizeMonitorWindow() {
+        processEvents();
+        
+        X11Window window = getMonitorWindow();
+        if (window != null) sendMessage(window.getWindowID(), wmChangeState, ICONIC_STATE);
+    }
+
+    @Override
+    public synchronized void restoreMonitorWindow() {
+        processEvents();
+        
+        X11Window window = getMonitorWindow();
+        if (window != null) sendMessage(window.getWindowID(), netActiveWindow, SOURCE_PAGER, X11.CurrentTime, 0);
+    }
+    
+    private static class PropertyData {
+        private final Pointer pointer;
+        private final int items;
+
+        public PropertyData(Pointer pointer, int items) {
+            this.pointer = pointer;
+            this.items = items;
+        }
+    }
+}